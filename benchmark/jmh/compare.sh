@@ -0,0 +1,15 @@
+#!/usr/bin/env bash
+# Diffs two JMH JSON result files, e.g. one saved from the previous commit and a fresh run:
+#
+#   benchmark/jmh/compare.sh baseline.json build/results/jmh/results.json
+set -euo pipefail
+
+summary() {
+  jq -r '.[] | [(.benchmark | split(".") | .[-2:] | join(".")) + ((.params // {}) | to_entries
+      | map("[" + .key + "=" + .value + "]") | join("")), .primaryMetric.score,
+      .primaryMetric.scoreUnit] | @tsv' "$1" | sort -t $'\t' -k1,1
+}
+
+join -t $'\t' <(summary "$1") <(summary "$2") | awk -F '\t' '
+  BEGIN { printf "%-70s %14s %14s %8s\n", "benchmark", "baseline", "current", "change" }
+  { printf "%-70s %14.3f %14.3f %+7.1f%%  %s\n", $1, $2, $4, ($4 - $2) / $2 * 100, $3 }'
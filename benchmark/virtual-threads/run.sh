@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+# Compares request latency of the default thread-per-request model with the virtual-threads
+# profile. Needs the MySQL container from docker/docker-compose.yml and wrk2 (wrk with -R).
+#
+#   benchmark/virtual-threads/run.sh [connections] [requests-per-second] [duration]
+set -euo pipefail
+
+CONNECTIONS=${1:-5000}
+RATE=${2:-10000}
+DURATION=${3:-60s}
+WALLETS=${WALLETS:-1000}
+PORT=${PORT:-8080}
+WRK=${WRK:-wrk}
+ROOT=$(cd "$(dirname "$0")/../.." && pwd)
+OUT="$ROOT/build/benchmark/virtual-threads"
+
+mkdir -p "$OUT"
+ulimit -n $((CONNECTIONS * 2 + 1024))
+(cd "$ROOT" && ./gradlew -q bootJar)
+JAR=$(ls "$ROOT"/build/libs/*-SNAPSHOT.jar | head -1)
+
+create_wallets() {
+  : > "$2"
+  for i in $(seq 1 "$WALLETS"); do
+    local id
+    id=$(curl -sf -X POST "http://localhost:$PORT/wallets" -H 'Content-Type: application/json' \
+      -d "{\"fullName\":\"Bench $i\",\"cpfCnpj\":\"bench-$1-$i\",\"email\":\"bench-$1-$i@example.com\",\"password\":\"secret\"}" \
+      | sed -E 's/^\{"id":([0-9]+),.*/\1/')
+    echo "$id" >> "$2"
+  done
+}
+
+run() {
+  local name=$1 profiles=$2
+  echo "== $name"
+  # Pinned virtual threads are printed to the application log
+  java -Djdk.tracePinnedThreads=short -jar "$JAR" --server.port="$PORT" \
+    --spring.profiles.active="$profiles" --spring.jpa.show-sql=false \
+    --server.tomcat.max-connections=$((CONNECTIONS * 2)) > "$OUT/$name.log" 2>&1 &
+  local pid=$!
+  trap 'kill $pid 2>/dev/null || true' EXIT
+
+  until curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; do sleep 1; done
+  create_wallets "$name-$(date +%s)" "$OUT/$name.wallets"
+
+  WALLET_IDS="$OUT/$name.wallets" "$WRK" -t"$(nproc)" -c"$CONNECTIONS" -d"$DURATION" -R"$RATE" \
+    --latency -s "$(dirname "$0")/wallet.lua" "http://localhost:$PORT" | tee "$OUT/$name.txt"
+  echo "pinned carrier threads: $(grep -c '<== monitors' "$OUT/$name.log" || true)"
+
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  trap - EXIT
+}
+
+run platform-threads default
+run virtual-threads virtual-threads
+
+echo
+printf '%-18s %12s %12s\n' model p50 p99
+for name in platform-threads virtual-threads; do
+  printf '%-18s %12s %12s\n' "$name" \
+    "$(awk '/^ *50.000%/ {print $2}' "$OUT/$name.txt")" \
+    "$(awk '/^ *99.000%/ {print $2}' "$OUT/$name.txt")"
+done
@@ -0,0 +1,17 @@
+-- 80% balance reads, 20% deposits spread over the wallet ids created by run.sh
+local walletIds = {}
+
+init = function(args)
+  for line in io.lines(os.getenv("WALLET_IDS")) do
+    walletIds[#walletIds + 1] = line
+  end
+end
+
+request = function()
+  local walletId = walletIds[math.random(1, #walletIds)]
+  if math.random(1, 100) <= 80 then
+    return wrk.format("GET", "/wallets/" .. walletId .. "/balance")
+  end
+  return wrk.format("POST", "/wallets/" .. walletId .. "/deposit",
+      { ["Content-Type"] = "application/json" }, '{"amount": 1.00}')
+end
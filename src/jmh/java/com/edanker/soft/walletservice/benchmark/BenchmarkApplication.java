@@ -0,0 +1,32 @@
+package com.edanker.soft.walletservice.benchmark;
+
+import com.edanker.soft.walletservice.WalletServiceApplication;
+import java.util.stream.Stream;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// The application without its web server, on an in-memory H2 database in MySQL mode
+final class BenchmarkApplication {
+
+  private BenchmarkApplication() {
+  }
+
+  static ConfigurableApplicationContext start(String... extraArgs) {
+    var args = Stream.concat(Stream.of(
+            "--spring.datasource.url=jdbc:h2:mem:wallet_bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                + "NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.hibernate.ddl-auto=create-drop",
+            "--spring.jpa.show-sql=false",
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=WARN",
+            "--wallet.checkpoint.enabled=false"), Stream.of(extraArgs))
+        .toArray(String[]::new);
+    return new SpringApplicationBuilder(WalletServiceApplication.class)
+        .web(WebApplicationType.NONE)
+        .run(args);
+  }
+}
@@ -0,0 +1,73 @@
+package com.edanker.soft.walletservice.benchmark;
+
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties;
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties.LockMode;
+import com.edanker.soft.walletservice.config.WalletStripingProperties;
+import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Deposit throughput of 16 threads crediting one wallet. stripes = 0 is the unstriped wallet in
+// ATOMIC mode, where every credit waits for the wallet row; otherwise credits spread over stripes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HotWalletBenchmark {
+
+  private static final DepositDTO DEPOSIT = DepositDTO.builder().amount(BigDecimal.ONE).build();
+
+  @Param({"0", "4", "16"})
+  private int stripes;
+
+  private ConfigurableApplicationContext context;
+  private WalletService walletService;
+  private Long walletId;
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    context = BenchmarkApplication.start("--wallet.striping.stripes=" + Math.max(stripes, 1));
+    context.getBean(WalletConcurrencyProperties.class).setMode(LockMode.ATOMIC);
+    walletService = context.getBean(WalletService.class);
+
+    walletId = walletService.createWallet(CreateWalletDTO.builder()
+        .fullName("Hot wallet benchmark")
+        .cpfCnpj("hot-bench")
+        .email("hot-bench@example.com")
+        .password("secret")
+        .build()).getId();
+    if (stripes > 0) {
+      context.getBean(WalletStripingProperties.class).getWalletIds().add(walletId);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  @Benchmark
+  public void deposit() {
+    walletService.deposit(walletId, DEPOSIT);
+  }
+}
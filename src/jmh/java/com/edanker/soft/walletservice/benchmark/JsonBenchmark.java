@@ -0,0 +1,82 @@
+package com.edanker.soft.walletservice.benchmark;
+
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferResponseDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonBenchmark {
+
+  // Same settings Spring Boot applies to the ObjectMapper used by the controllers
+  private final ObjectMapper objectMapper = JsonMapper.builder()
+      .findAndAddModules()
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+      .build();
+
+  private TransferDTO transferDTO;
+  private TransferResponseDTO transferResponseDTO;
+  private String transferJson;
+  private String transferResponseJson;
+
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    transferDTO = TransferDTO.builder()
+        .payer(1L)
+        .payee(2L)
+        .value(new BigDecimal("30.00"))
+        .build();
+    transferResponseDTO = TransferResponseDTO.builder()
+        .id(UUID.randomUUID())
+        .senderId(1L)
+        .senderName("John Doe")
+        .receiverId(2L)
+        .receiverName("Jane Smith")
+        .value(new BigDecimal("30.00"))
+        .createdAt(LocalDateTime.now())
+        .build();
+    transferJson = objectMapper.writeValueAsString(transferDTO);
+    transferResponseJson = objectMapper.writeValueAsString(transferResponseDTO);
+  }
+
+  @Benchmark
+  public String serializeTransferDTO() throws JsonProcessingException {
+    return objectMapper.writeValueAsString(transferDTO);
+  }
+
+  @Benchmark
+  public TransferDTO deserializeTransferDTO() throws JsonProcessingException {
+    return objectMapper.readValue(transferJson, TransferDTO.class);
+  }
+
+  @Benchmark
+  public String serializeTransferResponseDTO() throws JsonProcessingException {
+    return objectMapper.writeValueAsString(transferResponseDTO);
+  }
+
+  @Benchmark
+  public TransferResponseDTO deserializeTransferResponseDTO() throws JsonProcessingException {
+    return objectMapper.readValue(transferResponseJson, TransferResponseDTO.class);
+  }
+}
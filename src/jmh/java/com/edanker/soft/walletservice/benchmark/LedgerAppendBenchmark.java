@@ -0,0 +1,102 @@
+package com.edanker.soft.walletservice.benchmark;
+
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties;
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties.LockMode;
+import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Regression guard for the ledger append: a deposit into a wallet that already has historySize
+// ledger rows. The score has to stay flat across the historySize values.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LedgerAppendBenchmark {
+
+  private static final DepositDTO DEPOSIT = DepositDTO.builder().amount(BigDecimal.ONE).build();
+
+  @Param({"0", "10000", "200000"})
+  private int historySize;
+
+  @Param({"OPTIMISTIC", "ATOMIC"})
+  private LockMode mode;
+
+  private ConfigurableApplicationContext context;
+  private WalletService walletService;
+  private Long walletId;
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    context = BenchmarkApplication.start();
+    context.getBean(WalletConcurrencyProperties.class).setMode(mode);
+    walletService = context.getBean(WalletService.class);
+
+    walletId = walletService.createWallet(CreateWalletDTO.builder()
+        .fullName("Ledger benchmark")
+        .cpfCnpj("ledger-bench")
+        .email("ledger-bench@example.com")
+        .password("secret")
+        .build()).getId();
+    seedHistory(context.getBean(JdbcTemplate.class));
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  @Benchmark
+  public void deposit() {
+    walletService.deposit(walletId, DEPOSIT);
+  }
+
+  // Negative ids stay clear of the ids handed out by transaction_seq
+  private void seedHistory(JdbcTemplate jdbcTemplate) {
+    var timestamp = Timestamp.valueOf(LocalDateTime.now().minusYears(1));
+    var batch = 5_000;
+    for (int start = 0; start < historySize; start += batch) {
+      var first = start;
+      var size = Math.min(batch, historySize - start);
+      jdbcTemplate.batchUpdate("INSERT INTO transaction (id, wallet_id, type, amount, description, "
+              + "timestamp, balance_after_operation) VALUES (?, ?, 'CREDIT', 0, 'History', ?, 0)",
+          new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+              ps.setLong(1, -1L - first - i);
+              ps.setLong(2, walletId);
+              ps.setTimestamp(3, timestamp);
+            }
+
+            @Override
+            public int getBatchSize() {
+              return size;
+            }
+          });
+    }
+  }
+}
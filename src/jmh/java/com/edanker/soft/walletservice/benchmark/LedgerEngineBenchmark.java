@@ -0,0 +1,81 @@
+package com.edanker.soft.walletservice.benchmark;
+
+import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Transfer throughput of 16 threads between random wallets, through WalletService on the database
+// and through the in-memory ledger engine, whose WAL lives in a temporary directory
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LedgerEngineBenchmark {
+
+  private static final int WALLETS = 1_000;
+
+  @Param({"false", "true"})
+  private boolean ledgerEngine;
+
+  private ConfigurableApplicationContext context;
+  private WalletService walletService;
+  private Long[] walletIds;
+
+  @Setup(Level.Trial)
+  public void startApplication() throws IOException {
+    var directory = Files.createTempDirectory("ledger-engine-benchmark");
+    context = BenchmarkApplication.start("--wallet.ledger-engine.enabled=" + ledgerEngine,
+        "--wallet.ledger-engine.directory=" + directory);
+    walletService = context.getBean(WalletService.class);
+
+    walletIds = new Long[WALLETS];
+    for (int i = 0; i < WALLETS; i++) {
+      walletIds[i] = walletService.createWallet(CreateWalletDTO.builder()
+          .fullName("Ledger benchmark " + i)
+          .cpfCnpj("ledger-bench-" + i)
+          .email("ledger-bench-" + i + "@example.com")
+          .password("secret")
+          .build()).getId();
+      walletService.deposit(walletIds[i], DepositDTO.builder().amount(new BigDecimal("1000000.00")).build());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  @Benchmark
+  public Object transfer() {
+    var random = ThreadLocalRandom.current();
+    return walletService.transfer(TransferDTO.builder()
+        .payer(walletIds[random.nextInt(WALLETS)])
+        .payee(walletIds[random.nextInt(WALLETS)])
+        .value(BigDecimal.ONE)
+        .build());
+  }
+}
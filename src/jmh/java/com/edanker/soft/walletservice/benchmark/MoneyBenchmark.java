@@ -0,0 +1,59 @@
+package com.edanker.soft.walletservice.benchmark;
+
+import com.edanker.soft.walletservice.money.Money;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One balance check, debit and credit per invocation, as a wallet does for a transfer: BigDecimal
+// against Money, and the conversion between the two that every stored amount pays
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MoneyBenchmark {
+
+  private static final BigDecimal DECIMAL_AMOUNT = new BigDecimal("10.25");
+  private static final Money MONEY_AMOUNT = Money.of(DECIMAL_AMOUNT);
+
+  private BigDecimal decimalBalance;
+  private Money moneyBalance;
+
+  @Setup
+  public void setUp() {
+    decimalBalance = new BigDecimal("1000000.00");
+    moneyBalance = Money.of(decimalBalance);
+  }
+
+  @Benchmark
+  public BigDecimal bigDecimal() {
+    if (decimalBalance.compareTo(DECIMAL_AMOUNT) >= 0) {
+      decimalBalance = decimalBalance.subtract(DECIMAL_AMOUNT).add(DECIMAL_AMOUNT);
+    }
+    return decimalBalance;
+  }
+
+  @Benchmark
+  public Money money() {
+    if (moneyBalance.isGreaterThanOrEqualTo(MONEY_AMOUNT)) {
+      moneyBalance = moneyBalance.minus(MONEY_AMOUNT).plus(MONEY_AMOUNT);
+    }
+    return moneyBalance;
+  }
+
+  @Benchmark
+  public BigDecimal moneyRoundTrip() {
+    return Money.of(DECIMAL_AMOUNT).toBigDecimal();
+  }
+}
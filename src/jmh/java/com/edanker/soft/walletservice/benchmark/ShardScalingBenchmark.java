@@ -0,0 +1,106 @@
+package com.edanker.soft.walletservice.benchmark;
+
+import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.edanker.soft.walletservice.service.WalletShardRouter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Deposit throughput with wallet.sharding over 1, 2 and 4 databases. Every shard gets the same
+// small pool, as a stand-in for the write capacity of one MySQL server, and every thread deposits
+// into its own wallet. The shards are in-process H2 databases sharing this machine's CPUs, so the
+// scores only show that the shards do not serialize on each other; real scaling needs real servers.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(ShardScalingBenchmark.THREADS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ShardScalingBenchmark {
+
+  static final int THREADS = 16;
+  private static final int CONNECTIONS_PER_SHARD = 2;
+  private static final DepositDTO DEPOSIT = DepositDTO.builder().amount(BigDecimal.ONE).build();
+
+  @Param({"1", "2", "4"})
+  private int shards;
+
+  private ConfigurableApplicationContext context;
+  private WalletService walletService;
+  private final List<List<Long>> walletIdsByShard = new ArrayList<>();
+  private final AtomicInteger nextWallet = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    var args = new ArrayList<String>();
+    args.add("--spring.jpa.open-in-view=false");
+    args.add("--wallet.sharding.enabled=true");
+    for (int shard = 0; shard < shards; shard++) {
+      var prefix = "--wallet.sharding.shards[" + shard + "].";
+      args.add(prefix + "url=jdbc:h2:mem:wallet_bench_shard" + shard
+          + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1");
+      args.add(prefix + "username=sa");
+      args.add(prefix + "maximum-pool-size=" + CONNECTIONS_PER_SHARD);
+    }
+    context = BenchmarkApplication.start(args.toArray(String[]::new));
+    walletService = context.getBean(WalletService.class);
+
+    var router = context.getBean(WalletShardRouter.class);
+    for (int shard = 0; shard < shards; shard++) {
+      walletIdsByShard.add(new ArrayList<>());
+    }
+    // Wallets are placed by cpf/cnpj; keep creating until every shard has one wallet per thread
+    for (int i = 0; walletIdsByShard.stream().anyMatch(ids -> ids.size() < THREADS); i++) {
+      var walletId = walletService.createWallet(CreateWalletDTO.builder()
+          .fullName("Shard benchmark " + i)
+          .cpfCnpj("shard-bench-" + i)
+          .email("shard-bench-" + i + "@example.com")
+          .password("secret")
+          .build()).getId();
+      walletIdsByShard.get(router.shardOf(walletId)).add(walletId);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadWallet {
+
+    private Long walletId;
+
+    @Setup(Level.Trial)
+    public void pickWallet(ShardScalingBenchmark benchmark) {
+      // Threads are dealt round-robin over the shards
+      var thread = benchmark.nextWallet.getAndIncrement();
+      walletId = benchmark.walletIdsByShard.get(thread % benchmark.shards).get(thread / benchmark.shards);
+    }
+  }
+
+  @Benchmark
+  public void deposit(ThreadWallet wallet) {
+    walletService.deposit(wallet.walletId, DEPOSIT);
+  }
+}
@@ -0,0 +1,75 @@
+package com.edanker.soft.walletservice.benchmark;
+
+import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
+import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import com.edanker.soft.walletservice.entity.Wallet;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WalletDomainBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+
+  private Wallet wallet;
+  private CreateWalletDTO createWalletDTO;
+
+  @Setup
+  public void setUp() {
+    wallet = Wallet.builder()
+        .id(1L)
+        .fullName("John Doe")
+        .balance(new BigDecimal("1000000.00"))
+        .build();
+    createWalletDTO = CreateWalletDTO.builder()
+        .fullName("John Doe")
+        .cpfCnpj("12345678901")
+        .email("john.doe@example.com")
+        .password("secret")
+        .build();
+  }
+
+  @Benchmark
+  public Transaction credit() {
+    return wallet.credit(AMOUNT, "Deposit operation");
+  }
+
+  @Benchmark
+  public Transaction debit() {
+    return wallet.debit(AMOUNT, "Withdrawal operation");
+  }
+
+  @Benchmark
+  public Transaction transactionConstruction() {
+    return Transaction.builder()
+        .wallet(wallet)
+        .type(TransactionType.CREDIT)
+        .amount(AMOUNT)
+        .description("Deposit operation")
+        .timestamp(LocalDateTime.now())
+        .balanceAfterOperation(AMOUNT)
+        .build();
+  }
+
+  @Benchmark
+  public Wallet createWalletDtoToWallet() {
+    return createWalletDTO.toWallet();
+  }
+}
@@ -0,0 +1,83 @@
+package com.edanker.soft.walletservice.benchmark;
+
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties;
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties.LockMode;
+import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferResponseDTO;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Full WalletService.transfer against an in-memory H2 database in MySQL mode, one Spring context
+// per fork. Transfers move one unit between random wallets funded well enough never to run dry.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WalletServiceBenchmark {
+
+  private static final int WALLETS = 64;
+  private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000.00");
+
+  @Param({"OPTIMISTIC", "PESSIMISTIC", "ATOMIC"})
+  private LockMode mode;
+
+  private ConfigurableApplicationContext context;
+  private WalletService walletService;
+  private long[] walletIds;
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    context = BenchmarkApplication.start();
+    context.getBean(WalletConcurrencyProperties.class).setMode(mode);
+    walletService = context.getBean(WalletService.class);
+
+    walletIds = new long[WALLETS];
+    for (int i = 0; i < WALLETS; i++) {
+      var wallet = walletService.createWallet(CreateWalletDTO.builder()
+          .fullName("Benchmark " + i)
+          .cpfCnpj("bench-" + i)
+          .email("bench-" + i + "@example.com")
+          .password("secret")
+          .build());
+      walletService.deposit(wallet.getId(), DepositDTO.builder().amount(INITIAL_BALANCE).build());
+      walletIds[i] = wallet.getId();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  @Benchmark
+  public TransferResponseDTO transfer() {
+    var random = ThreadLocalRandom.current();
+    var payer = random.nextInt(WALLETS);
+    var payee = (payer + 1 + random.nextInt(WALLETS - 1)) % WALLETS;
+    return walletService.transfer(TransferDTO.builder()
+        .payer(walletIds[payer])
+        .payee(walletIds[payee])
+        .value(BigDecimal.ONE)
+        .build());
+  }
+}
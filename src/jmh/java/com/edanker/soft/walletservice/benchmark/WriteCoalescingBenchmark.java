@@ -0,0 +1,71 @@
+package com.edanker.soft.walletservice.benchmark;
+
+import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Deposit throughput of 16 threads into random wallets, one transaction per deposit or with
+// deposits coalesced into group commits
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WriteCoalescingBenchmark {
+
+  private static final int WALLETS = 100;
+  private static final DepositDTO DEPOSIT = DepositDTO.builder().amount(BigDecimal.ONE).build();
+
+  @Param({"false", "true"})
+  private boolean coalescing;
+
+  private ConfigurableApplicationContext context;
+  private WalletService walletService;
+  private Long[] walletIds;
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    context = BenchmarkApplication.start("--wallet.coalescing.enabled=" + coalescing);
+    walletService = context.getBean(WalletService.class);
+
+    walletIds = new Long[WALLETS];
+    for (int i = 0; i < WALLETS; i++) {
+      walletIds[i] = walletService.createWallet(CreateWalletDTO.builder()
+          .fullName("Coalescing benchmark " + i)
+          .cpfCnpj("coalescing-bench-" + i)
+          .email("coalescing-bench-" + i + "@example.com")
+          .password("secret")
+          .build()).getId();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  @Benchmark
+  public void deposit() {
+    walletService.deposit(walletIds[ThreadLocalRandom.current().nextInt(WALLETS)], DEPOSIT);
+  }
+}
@@ -0,0 +1,109 @@
+package com.edanker.soft.walletservice.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+// Caps the connections borrowed at the same time. With virtual threads there is no request thread
+// pool left to throttle callers, so thousands of requests would otherwise queue inside the pool.
+// Waiters are served in arrival order and give up after the acquire timeout.
+//
+// A thread that already holds a connection from any bulkhead, such as the credit of a cross-shard
+// transfer run after the debit commits or a REQUIRES_NEW transaction, takes its next one without a
+// permit: waiting for a permit while holding one deadlocks once every permit is held that way.
+// Those connections come from the pool's reserved connections instead.
+public class BulkheadDataSource extends DelegatingDataSource {
+
+  private static final ThreadLocal<int[]> HELD = ThreadLocal.withInitial(() -> new int[1]);
+
+  private final Semaphore permits;
+  private final Duration acquireTimeout;
+
+  public BulkheadDataSource(DataSource targetDataSource, int maxConcurrentConnections,
+      Duration acquireTimeout) {
+    super(targetDataSource);
+    this.permits = new Semaphore(maxConcurrentConnections, true);
+    this.acquireTimeout = acquireTimeout;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return guarded(acquire(), super::getConnection);
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return guarded(acquire(), () -> super.getConnection(username, password));
+  }
+
+  public int availablePermits() {
+    return permits.availablePermits();
+  }
+
+  // Returns whether a permit was taken, a nested acquisition does not take one
+  private boolean acquire() throws SQLException {
+    if (HELD.get()[0] > 0) {
+      return false;
+    }
+    try {
+      if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        throw new SQLTransientConnectionException(
+            "No database connection available within " + acquireTimeout.toMillis() + "ms");
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+    }
+  }
+
+  private Connection guarded(boolean permitted, ConnectionSupplier supplier) throws SQLException {
+    Connection connection;
+    try {
+      connection = supplier.get();
+    } catch (SQLException | RuntimeException e) {
+      if (permitted) {
+        permits.release();
+      }
+      throw e;
+    }
+
+    var held = HELD.get();
+    held[0]++;
+    var released = new AtomicBoolean();
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+        new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+          if (method.getName().equals("close")) {
+            if (released.compareAndSet(false, true)) {
+              try {
+                connection.close();
+              } finally {
+                held[0]--;
+                if (permitted) {
+                  permits.release();
+                }
+              }
+            }
+            return null;
+          }
+          try {
+            return method.invoke(connection, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        });
+  }
+
+  private interface ConnectionSupplier {
+
+    Connection get() throws SQLException;
+  }
+}
@@ -0,0 +1,38 @@
+package com.edanker.soft.walletservice.config;
+
+import com.edanker.soft.walletservice.service.WalletBalanceCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+  // Async mode stores a future per key, so Caffeine's per-bin monitor is only held to insert it and
+  // never during the JDBC read, which would pin the carrier thread of a virtual thread.
+  // WalletBalanceCache completes the future on the calling thread, not on Caffeine's executor.
+  @Bean
+  public CacheManagerCustomizer<CaffeineCacheManager> asyncCaffeineCacheMode() {
+    return cacheManager -> cacheManager.setAsyncCacheMode(true);
+  }
+
+  @Bean
+  public MeterBinder walletBalanceCacheHitRatio(CacheManager cacheManager) {
+    return registry -> {
+      if (cacheManager.getCache(WalletBalanceCache.CACHE_NAME) instanceof CaffeineCache caffeineCache) {
+        Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
+        Gauge.builder("wallet.balance.cache.hit.ratio", nativeCache, c -> c.stats().hitRate())
+            .description("Share of current balance reads served without a database round trip")
+            .register(registry);
+      }
+    };
+  }
+}
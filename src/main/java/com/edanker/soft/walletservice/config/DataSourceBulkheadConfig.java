@@ -0,0 +1,45 @@
+package com.edanker.soft.walletservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "wallet.datasource.bulkhead", name = "enabled", havingValue = "true")
+public class DataSourceBulkheadConfig {
+
+  @Bean
+  public static BeanPostProcessor dataSourceBulkheadPostProcessor(
+      ObjectProvider<WalletBulkheadProperties> properties) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // A bulkhead in front of the router would make every shard share one set of permits
+        if (bean instanceof ShardRoutingDataSource router) {
+          router.wrapShards(shard -> bulkhead(shard, properties.getObject()));
+          return bean;
+        }
+        if (bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)) {
+          return bulkhead(dataSource, properties.getObject());
+        }
+        return bean;
+      }
+    };
+  }
+
+  // A pool size left unset is only known once the pool starts, so it is not checked
+  private static BulkheadDataSource bulkhead(DataSource dataSource, WalletBulkheadProperties properties) {
+    var needed = properties.getMaxConcurrentConnections() + properties.getReservedConnections();
+    if (dataSource instanceof HikariDataSource pool
+        && pool.getMaximumPoolSize() > 0 && pool.getMaximumPoolSize() < needed) {
+      throw new IllegalStateException("A pool of " + pool.getMaximumPoolSize()
+          + " connections is too small, wallet.datasource.bulkhead needs " + needed);
+    }
+    return new BulkheadDataSource(dataSource, properties.getMaxConcurrentConnections(),
+        properties.getAcquireTimeout());
+  }
+}
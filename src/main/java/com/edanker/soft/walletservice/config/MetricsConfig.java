@@ -0,0 +1,56 @@
+package com.edanker.soft.walletservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import javax.sql.DataSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+  // One gauge per pool, shards included. The Hikari pool is created on the first connection, so
+  // an idle pool reads as empty instead of starting it.
+  @Bean
+  public MeterBinder connectionPoolSaturation(DataSource dataSource) {
+    return registry -> {
+      for (var pool : pools(dataSource)) {
+        // spring.datasource.hikari.pool-name names the pool up front, Hikari would only do it when it starts
+        var name = Objects.requireNonNullElse(pool.getPoolName(), "default");
+        Gauge.builder("wallet.datasource.pool.saturation", pool, MetricsConfig::saturation)
+            .description("Share of the pool's connections currently borrowed")
+            .tag("pool", name)
+            .register(registry);
+        Gauge.builder("wallet.datasource.pool.pending", pool,
+                p -> p.getHikariPoolMXBean() == null ? 0 : p.getHikariPoolMXBean().getThreadsAwaitingConnection())
+            .description("Threads waiting for a connection from the pool")
+            .tag("pool", name)
+            .register(registry);
+      }
+    };
+  }
+
+  private static double saturation(HikariDataSource pool) {
+    var bean = pool.getHikariPoolMXBean();
+    return bean == null ? 0 : (double) bean.getActiveConnections() / pool.getMaximumPoolSize();
+  }
+
+  // The bean may be wrapped by the bulkhead, and with sharding it routes to one pool per shard
+  private static List<HikariDataSource> pools(DataSource dataSource) {
+    try {
+      if (dataSource.isWrapperFor(ShardRoutingDataSource.class)) {
+        return dataSource.unwrap(ShardRoutingDataSource.class).getShards();
+      }
+      if (dataSource.isWrapperFor(HikariDataSource.class)) {
+        return List.of(dataSource.unwrap(HikariDataSource.class));
+      }
+      return List.of();
+    } catch (SQLException e) {
+      throw new IllegalStateException("Could not unwrap the data source", e);
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.edanker.soft.walletservice.config;
+
+import com.edanker.soft.walletservice.outbox.FileWalletEventSink;
+import com.edanker.soft.walletservice.outbox.HttpWalletEventSink;
+import com.edanker.soft.walletservice.outbox.InMemoryWalletEventSink;
+import com.edanker.soft.walletservice.outbox.WalletEventSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// A WalletEventSink bean of the application's own replaces the one picked by wallet.outbox.sink
+@Configuration
+@ConditionalOnProperty(prefix = "wallet.outbox", name = "enabled", havingValue = "true")
+public class OutboxConfig {
+
+  @Bean
+  @ConditionalOnMissingBean
+  public WalletEventSink walletEventSink(WalletOutboxProperties properties, ObjectMapper objectMapper) {
+    return switch (properties.getSink()) {
+      case FILE -> new FileWalletEventSink(properties.getFile(), objectMapper);
+      case MEMORY -> new InMemoryWalletEventSink();
+      case HTTP -> {
+        if (properties.getUrl() == null) {
+          throw new IllegalStateException("wallet.outbox.url is required by the HTTP sink");
+        }
+        yield new HttpWalletEventSink(properties.getUrl(), objectMapper);
+      }
+    };
+  }
+}
@@ -0,0 +1,26 @@
+package com.edanker.soft.walletservice.config;
+
+import com.edanker.soft.walletservice.controller.ClientRateLimitInterceptor;
+import com.edanker.soft.walletservice.service.WalletRateLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// The per-client limit covers every wallet endpoint. The per-wallet limit is taken by the
+// controller, which knows the wallet a mutation debits or credits once the body is parsed.
+@Configuration
+@ConditionalOnProperty(prefix = "wallet.rate-limit", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class RateLimitConfig implements WebMvcConfigurer {
+
+  private final WalletRateLimiter rateLimiter;
+  private final WalletRateLimitProperties properties;
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new ClientRateLimitInterceptor(rateLimiter, properties.getTrustedClientHeader()))
+        .addPathPatterns("/wallets", "/wallets/**");
+  }
+}
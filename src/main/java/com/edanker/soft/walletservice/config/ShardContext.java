@@ -0,0 +1,35 @@
+package com.edanker.soft.walletservice.config;
+
+import java.util.function.Supplier;
+
+// Shard the current thread reads and writes. ShardRoutingDataSource hands out connections of this
+// shard and ShardedSequenceGenerator encodes it into new ids, so it has to be set before the
+// transaction opens its connection.
+public final class ShardContext {
+
+  // Upper bound of wallet.sharding.shards. Sharded ids are sequence value * MAX_SHARDS + shard.
+  public static final int MAX_SHARDS = 1024;
+
+  private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+  private ShardContext() {
+  }
+
+  public static Integer current() {
+    return CURRENT.get();
+  }
+
+  public static <T> T callOn(int shard, Supplier<T> operation) {
+    var previous = CURRENT.get();
+    CURRENT.set(shard);
+    try {
+      return operation.get();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+}
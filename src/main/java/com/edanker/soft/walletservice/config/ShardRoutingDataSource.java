@@ -0,0 +1,46 @@
+package com.edanker.soft.walletservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+// One pool per shard. Connections taken outside a shard context, such as the schema update on
+// startup, go to shard 0.
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+  private final List<HikariDataSource> shards;
+
+  public ShardRoutingDataSource(List<HikariDataSource> shards) {
+    this.shards = shards;
+    setLenientFallback(false);
+    wrapShards(UnaryOperator.identity());
+  }
+
+  // Routes to a wrapper of each pool, such as a bulkhead, instead of the pool itself
+  public void wrapShards(UnaryOperator<DataSource> wrapper) {
+    var targets = new HashMap<Object, Object>();
+    for (int i = 0; i < shards.size(); i++) {
+      targets.put(i, wrapper.apply(shards.get(i)));
+    }
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(targets.get(0));
+    afterPropertiesSet();
+  }
+
+  public List<HikariDataSource> getShards() {
+    return shards;
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return ShardContext.current();
+  }
+
+  @Override
+  public void close() {
+    shards.forEach(HikariDataSource::close);
+  }
+}
@@ -0,0 +1,47 @@
+package com.edanker.soft.walletservice.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.tool.schema.spi.DelayedDropAction;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+// Hibernate applies spring.jpa.hibernate.ddl-auto through the default connection, which is
+// shard 0. This runs the same action against every other shard, and their drop on shutdown.
+class ShardSchemaIntegrator implements Integrator {
+
+  private final int shardCount;
+  private final List<Runnable> delayedDrops = new ArrayList<>();
+
+  ShardSchemaIntegrator(int shardCount) {
+    this.shardCount = shardCount;
+  }
+
+  @Override
+  public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+      SessionFactoryImplementor sessionFactory) {
+    var serviceRegistry = sessionFactory.getServiceRegistry();
+    for (int shard = 1; shard < shardCount; shard++) {
+      var index = shard;
+      ShardContext.callOn(index, () -> {
+        SchemaManagementToolCoordinator.process(metadata, serviceRegistry, sessionFactory.getProperties(),
+            (DelayedDropAction action) -> delayedDrops.add(() ->
+                ShardContext.callOn(index, () -> {
+                  action.perform(serviceRegistry);
+                  return null;
+                })));
+        return null;
+      });
+    }
+  }
+
+  @Override
+  public void disintegrate(SessionFactoryImplementor sessionFactory,
+      SessionFactoryServiceRegistry serviceRegistry) {
+    delayedDrops.forEach(Runnable::run);
+  }
+}
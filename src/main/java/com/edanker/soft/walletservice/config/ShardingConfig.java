@@ -0,0 +1,64 @@
+package com.edanker.soft.walletservice.config;
+
+import com.edanker.soft.walletservice.entity.ShardedSequenceGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.List;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+@ConditionalOnProperty(prefix = "wallet.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+  // An entity manager kept open for the whole request holds on to the connection of the first
+  // shard it touched, and every later transaction of the request would run there
+  public ShardingConfig(@Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+    if (openInView) {
+      throw new IllegalStateException("wallet.sharding.enabled requires spring.jpa.open-in-view=false");
+    }
+  }
+
+  @Bean
+  @Primary
+  public ShardRoutingDataSource dataSource(WalletShardingProperties properties) {
+    var shards = properties.getShards();
+    if (shards.isEmpty() || shards.size() > ShardContext.MAX_SHARDS) {
+      throw new IllegalStateException("wallet.sharding.shards needs between 1 and "
+          + ShardContext.MAX_SHARDS + " entries");
+    }
+    return new ShardRoutingDataSource(IntStream.range(0, shards.size())
+        .mapToObj(shard -> newPool(shards.get(shard), "shard-" + shard))
+        .toList());
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer shardingHibernateProperties(WalletShardingProperties properties) {
+    var shardCount = properties.getShards().size();
+    return hibernateProperties -> {
+      hibernateProperties.put(ShardedSequenceGenerator.SHARD_COUNT_SETTING, shardCount);
+      hibernateProperties.put("hibernate.integrator_provider",
+          (IntegratorProvider) () -> List.of(new ShardSchemaIntegrator(shardCount)));
+    };
+  }
+
+  private static HikariDataSource newPool(WalletShardingProperties.Shard shard, String poolName) {
+    var dataSource = DataSourceBuilder.create()
+        .type(HikariDataSource.class)
+        .url(shard.getUrl())
+        .username(shard.getUsername())
+        .password(shard.getPassword())
+        .driverClassName(shard.getDriverClassName())
+        .build();
+    dataSource.setPoolName(poolName);
+    dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+    return dataSource;
+  }
+}
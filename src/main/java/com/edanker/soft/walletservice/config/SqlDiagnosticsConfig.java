@@ -0,0 +1,34 @@
+package com.edanker.soft.walletservice.config;
+
+import com.edanker.soft.walletservice.diagnostics.SqlDiagnosticsFilter;
+import com.edanker.soft.walletservice.diagnostics.StatementCountingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "wallet.sql-diagnostics", name = "enabled", havingValue = "true")
+public class SqlDiagnosticsConfig {
+
+  @Bean
+  public static BeanPostProcessor statementCountingPostProcessor() {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof StatementCountingDataSource)) {
+          return new StatementCountingDataSource(dataSource);
+        }
+        return bean;
+      }
+    };
+  }
+
+  @Bean
+  public SqlDiagnosticsFilter sqlDiagnosticsFilter(WalletSqlDiagnosticsProperties properties,
+      MeterRegistry registry) {
+    return new SqlDiagnosticsFilter(properties, registry);
+  }
+}
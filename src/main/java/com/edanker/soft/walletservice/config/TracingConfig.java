@@ -0,0 +1,74 @@
+package com.edanker.soft.walletservice.config;
+
+import com.edanker.soft.walletservice.diagnostics.FileSpanExporter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.UnexpectedRollbackException;
+
+@Configuration
+public class TracingConfig {
+
+  @Bean
+  @ConditionalOnProperty(prefix = "wallet.tracing", name = "exporter", havingValue = "FILE")
+  public SpanExporter fileSpanExporter(WalletTracingProperties properties, ObjectMapper objectMapper) {
+    return new FileSpanExporter(properties.getFile(), objectMapper);
+  }
+
+  // A span around each commit of a new transaction, so the time spent flushing and committing is
+  // told apart from the statements that ran before it. The statements of the flush become its
+  // children. All callbacks run on the committing thread. A commit that throws, such as an
+  // optimistic version check failing at the flush, ends in afterRollback instead of afterCommit.
+  @Bean
+  public TransactionExecutionListener commitSpans(Tracer tracer) {
+    return new TransactionExecutionListener() {
+
+      private final Map<TransactionExecution, CommitSpan> commits = new ConcurrentHashMap<>();
+
+      @Override
+      public void beforeCommit(TransactionExecution transaction) {
+        var span = tracer.nextSpan().name("wallet.commit").start();
+        commits.put(transaction, new CommitSpan(span, tracer.withSpan(span)));
+      }
+
+      @Override
+      public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        var commit = commits.remove(transaction);
+        if (commit != null) {
+          end(commit, commitFailure);
+        }
+      }
+
+      // Also called for rollbacks that never tried to commit, which have no span to end, so the
+      // exception is only built for a commit that rolled back
+      @Override
+      public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        var commit = commits.remove(transaction);
+        if (commit != null) {
+          end(commit, rollbackFailure != null
+              ? rollbackFailure
+              : new UnexpectedRollbackException("Transaction rolled back while committing"));
+        }
+      }
+
+      private void end(CommitSpan commit, Throwable failure) {
+        commit.scope().close();
+        if (failure != null) {
+          commit.span().error(failure);
+        }
+        commit.span().end();
+      }
+    };
+  }
+
+  private record CommitSpan(Span span, Tracer.SpanInScope scope) {
+  }
+}
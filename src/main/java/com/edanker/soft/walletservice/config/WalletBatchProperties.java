@@ -0,0 +1,14 @@
+package com.edanker.soft.walletservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.batch")
+public class WalletBatchProperties {
+
+  // Operations committed per database transaction when the request does not choose
+  private int chunkSize = 500;
+}
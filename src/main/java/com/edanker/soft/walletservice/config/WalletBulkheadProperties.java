@@ -0,0 +1,24 @@
+package com.edanker.soft.walletservice.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.datasource.bulkhead")
+public class WalletBulkheadProperties {
+
+  private boolean enabled = false;
+
+  // Connections handed out at the same time, per pool: with sharding each shard gets its own
+  private int maxConcurrentConnections = 10;
+
+  // Connections of each pool left for callers that already hold one, see BulkheadDataSource. The
+  // pool must hold max-concurrent-connections plus these.
+  private int reservedConnections = 2;
+
+  // How long a request may queue for a connection before it is rejected with 503
+  private Duration acquireTimeout = Duration.ofSeconds(2);
+}
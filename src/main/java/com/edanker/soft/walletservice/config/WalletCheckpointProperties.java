@@ -0,0 +1,26 @@
+package com.edanker.soft.walletservice.config;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.checkpoint")
+public class WalletCheckpointProperties {
+
+  private boolean enabled = true;
+
+  // HOURS or DAYS, checkpoints are written at every boundary of this unit. Changing it requires
+  // emptying balance_checkpoint and balance_checkpoint_cursor so periods are rebuilt aligned
+  private ChronoUnit interval = ChronoUnit.HOURS;
+
+  // How long after a period ends before it is closed, so late commits still land in it
+  private Duration closeDelay = Duration.ofMinutes(1);
+
+  private int maxPeriodsPerRun = 500;
+
+  private int maxStatementPoints = 1000;
+}
@@ -0,0 +1,23 @@
+package com.edanker.soft.walletservice.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.coalescing")
+public class WalletCoalescingProperties {
+
+  // Deposits and withdrawals arriving close together share one database transaction
+  private boolean enabled = false;
+
+  // How long the first operation of a group waits for others to join it
+  private Duration window = Duration.ofMillis(2);
+
+  private int maxBatchSize = 500;
+
+  // Operations waiting for the next group; callers block once it is full
+  private int queueCapacity = 10_000;
+}
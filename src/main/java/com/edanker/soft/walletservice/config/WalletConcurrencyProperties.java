@@ -0,0 +1,39 @@
+package com.edanker.soft.walletservice.config;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.concurrency")
+public class WalletConcurrencyProperties {
+
+  private LockMode mode = LockMode.OPTIMISTIC;
+
+  // Hot wallets that always take a row lock, whatever the global mode is
+  private Set<Long> pessimisticWalletIds = new HashSet<>();
+
+  private int maxAttempts = 5;
+
+  private Duration initialBackoff = Duration.ofMillis(5);
+
+  private Duration maxBackoff = Duration.ofMillis(200);
+
+  public LockMode lockModeFor(Long walletId) {
+    if (pessimisticWalletIds.contains(walletId)) {
+      return LockMode.PESSIMISTIC;
+    }
+    return mode;
+  }
+
+  public enum LockMode {
+    OPTIMISTIC,
+    PESSIMISTIC,
+    // No entity load, the balance is changed by one conditional UPDATE per wallet
+    ATOMIC
+  }
+}
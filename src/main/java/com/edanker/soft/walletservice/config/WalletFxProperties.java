@@ -0,0 +1,28 @@
+package com.edanker.soft.walletservice.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.fx")
+public class WalletFxProperties {
+
+  // Allows wallets in other currencies than Money.DEFAULT_CURRENCY and converts between them
+  private boolean enabled = false;
+
+  private Source source = Source.FILE;
+
+  // Lines of "<currency>,<units of Money.DEFAULT_CURRENCY per unit>", read by the FILE source
+  private Path file = Path.of("fx-rates.csv");
+
+  private Duration refreshDelay = Duration.ofMinutes(1);
+
+  public enum Source {
+    FILE,
+    DATABASE
+  }
+}
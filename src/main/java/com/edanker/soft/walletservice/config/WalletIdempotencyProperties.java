@@ -0,0 +1,18 @@
+package com.edanker.soft.walletservice.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.idempotency")
+public class WalletIdempotencyProperties {
+
+  // Recently completed keys kept in memory so most retries are answered without the database
+  private long cacheSize = 100_000;
+
+  // How long a key is remembered, in memory and in the idempotency_key table
+  private Duration retention = Duration.ofHours(24);
+}
@@ -0,0 +1,33 @@
+package com.edanker.soft.walletservice.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.ledger-engine")
+public class WalletLedgerEngineProperties {
+
+  // Balances are owned by the in-memory engine and the database becomes a projection of its WAL
+  private boolean enabled = false;
+
+  // Holds the WAL segments and the snapshots, it must survive restarts of the instance
+  private Path directory = Path.of("data", "ledger");
+
+  // Commands waiting for the writer; callers block once it is full
+  private int ringBufferSize = 65536;
+
+  private DataSize walSegmentSize = DataSize.ofMegabytes(64);
+
+  // WAL records between two snapshots, which bounds the replay on startup
+  private long snapshotEvery = 1_000_000;
+
+  // WAL records written to the database per projection transaction
+  private int projectionBatchSize = 1000;
+
+  private Duration projectionDelay = Duration.ofMillis(50);
+}
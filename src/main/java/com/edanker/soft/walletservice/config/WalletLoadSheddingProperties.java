@@ -0,0 +1,52 @@
+package com.edanker.soft.walletservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.load-shedding")
+public class WalletLoadSheddingProperties {
+
+  private boolean enabled = false;
+
+  // Deposits, withdrawals and transfers
+  private Limit mutations = new Limit(20, 4, 200);
+
+  // Current and historical balances. A separate, larger limit, so a backlog of writes never
+  // takes the capacity reads need.
+  private Limit reads = new Limit(50, 10, 500);
+
+  // How much slower than its baseline latency the service may get before the limit shrinks
+  private double rttTolerance = 2.0;
+
+  // Share of a new limit estimate that is applied at once, the rest keeps the previous limit
+  private double smoothing = 0.2;
+
+  // Samples the baseline latency is averaged over
+  private int baselineWindow = 600;
+
+  // Factor the limit is cut by when an operation fails for a reason other than a business rule
+  private double backoffRatio = 0.9;
+
+  @Getter
+  @Setter
+  public static class Limit {
+
+    private int initialLimit;
+
+    private int minLimit;
+
+    private int maxLimit;
+
+    public Limit() {
+    }
+
+    public Limit(int initialLimit, int minLimit, int maxLimit) {
+      this.initialLimit = initialLimit;
+      this.minLimit = minLimit;
+      this.maxLimit = maxLimit;
+    }
+  }
+}
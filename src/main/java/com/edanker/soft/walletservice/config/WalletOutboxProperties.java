@@ -0,0 +1,48 @@
+package com.edanker.soft.walletservice.config;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.outbox")
+public class WalletOutboxProperties {
+
+  // Writes an outbox event with every mutation and runs the relay
+  private boolean enabled = false;
+
+  private Sink sink = Sink.FILE;
+
+  // JSON lines appended by the FILE sink
+  private Path file = Path.of("data", "wallet-events.jsonl");
+
+  // Receives a JSON array of events per POST with the HTTP sink
+  private URI url;
+
+  private int batchSize = 500;
+
+  private Duration relayDelay = Duration.ofSeconds(1);
+
+  // A missing id older than this belongs to a rolled back transaction and is skipped. It has to
+  // be longer than any transaction writing outbox events may run.
+  private Duration gapTimeout = Duration.ofSeconds(10);
+
+  // A skipped id is looked up again on every batch for this long, in case its transaction ran past
+  // gap-timeout and committed after all. Keep it below retention.
+  private Duration gapRecheck = Duration.ofMinutes(10);
+
+  // Published events are kept this long before they are deleted
+  private Duration retention = Duration.ofDays(7);
+
+  private Duration purgeDelay = Duration.ofMinutes(10);
+
+  public enum Sink {
+    FILE,
+    MEMORY,
+    HTTP
+  }
+}
@@ -0,0 +1,31 @@
+package com.edanker.soft.walletservice.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.rate-limit")
+public class WalletRateLimitProperties {
+
+  private boolean enabled = false;
+
+  // Clients are keyed by their authenticated principal, else by their remote address. A header
+  // naming the client is only honored when set here, for a gateway that sets it and strips any
+  // value sent by the caller; a caller could otherwise get a fresh bucket per request.
+  private String trustedClientHeader;
+
+  // Requests a client may send in a burst, and the sustained rate it gets back afterwards
+  private int clientCapacity = 200;
+  private double clientRefillPerSecond = 100;
+
+  // Deposits, withdrawals and outgoing transfers of one wallet
+  private int walletCapacity = 20;
+  private double walletRefillPerSecond = 10;
+
+  // Buckets kept per kind of key. An idle bucket is full again anyway, so dropping it loses nothing.
+  private long maxKeys = 100_000;
+  private Duration idleExpiry = Duration.ofMinutes(10);
+}
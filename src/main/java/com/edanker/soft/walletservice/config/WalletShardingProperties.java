@@ -0,0 +1,38 @@
+package com.edanker.soft.walletservice.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.sharding")
+public class WalletShardingProperties {
+
+  private boolean enabled = false;
+
+  // In shard index order. A wallet id carries the index of its shard, so shards can be added
+  // at the end but never removed or reordered.
+  private List<Shard> shards = new ArrayList<>();
+
+  // Age after which a cross-shard transfer still waiting for its credit is picked up again
+  private Duration transferRetryDelay = Duration.ofSeconds(30);
+
+  @Getter
+  @Setter
+  public static class Shard {
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    private String driverClassName;
+
+    private int maximumPoolSize = 10;
+  }
+}
@@ -0,0 +1,20 @@
+package com.edanker.soft.walletservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.sql-diagnostics")
+public class WalletSqlDiagnosticsProperties {
+
+  // Counts the statements, rows and JDBC time of every HTTP request
+  private boolean enabled = false;
+
+  // Adds X-Sql-Statements, X-Sql-Rows and a Server-Timing entry to every response
+  private boolean responseHeaders = true;
+
+  // The same statement run this many times in one request is reported as a likely N+1
+  private int repeatThreshold = 5;
+}
@@ -0,0 +1,26 @@
+package com.edanker.soft.walletservice.config;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.striping")
+public class WalletStripingProperties {
+
+  // Hot wallets whose credits are spread over sub-balance rows instead of the wallet row
+  private Set<Long> walletIds = new HashSet<>();
+
+  private int stripes = 8;
+
+  // How often the stripes of every striped wallet are folded into the wallet and its ledger
+  private Duration sweepDelay = Duration.ofSeconds(1);
+
+  public boolean isStriped(Long walletId) {
+    return walletIds.contains(walletId);
+  }
+}
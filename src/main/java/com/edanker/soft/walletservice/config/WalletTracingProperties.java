@@ -0,0 +1,23 @@
+package com.edanker.soft.walletservice.config;
+
+import java.nio.file.Path;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "wallet.tracing")
+public class WalletTracingProperties {
+
+  // FILE writes the sampled spans as JSON lines. An OTLP collector is configured through
+  // management.otlp.tracing.endpoint instead and works with either value.
+  private Exporter exporter = Exporter.NONE;
+
+  private Path file = Path.of("data/wallet-spans.jsonl");
+
+  public enum Exporter {
+    NONE,
+    FILE
+  }
+}
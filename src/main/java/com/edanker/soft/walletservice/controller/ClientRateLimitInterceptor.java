@@ -0,0 +1,38 @@
+package com.edanker.soft.walletservice.controller;
+
+import com.edanker.soft.walletservice.service.WalletRateLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Runs before the request body is read, so a refused request costs no parsing and no connection.
+// A refusal is thrown and rendered by RestExceptionHandler like any other WalletException.
+@RequiredArgsConstructor
+public class ClientRateLimitInterceptor implements HandlerInterceptor {
+
+  private final WalletRateLimiter rateLimiter;
+  private final String trustedClientHeader;
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    rateLimiter.acquireForClient(clientOf(request));
+    return true;
+  }
+
+  // Only what the caller cannot choose freely: the authenticated principal, a header set by a
+  // trusted gateway, or the address the connection came from
+  private String clientOf(HttpServletRequest request) {
+    var principal = request.getUserPrincipal();
+    if (principal != null) {
+      return principal.getName();
+    }
+    if (trustedClientHeader != null) {
+      var clientId = request.getHeader(trustedClientHeader);
+      if (clientId != null && !clientId.isBlank()) {
+        return clientId;
+      }
+    }
+    return request.getRemoteAddr();
+  }
+}
@@ -1,9 +1,15 @@
 package com.edanker.soft.walletservice.controller;
 
+import com.edanker.soft.walletservice.exceptions.DatabaseUnavailableException;
+import com.edanker.soft.walletservice.exceptions.RateLimitExceededException;
 import com.edanker.soft.walletservice.exceptions.WalletException;
 import lombok.Builder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -16,6 +22,18 @@ public class RestExceptionHandler {
     return e.toProblemDetail();
   }
 
+  @ExceptionHandler(RateLimitExceededException.class)
+  public ResponseEntity<ProblemDetail> handleRateLimitExceeded(RateLimitExceededException e) {
+    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+        .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+        .body(e.toProblemDetail());
+  }
+
+  @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+  public ProblemDetail handleDatabaseUnavailable(Exception e) {
+    return new DatabaseUnavailableException(e).toProblemDetail();
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ProblemDetail handleMethodArgumentNotValidException(MethodArgumentNotValidException e) {
 
@@ -1,33 +1,60 @@
 package com.edanker.soft.walletservice.controller;
 
 import com.edanker.soft.walletservice.controller.dto.BalanceResponseDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchRequestDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchResponseDTO;
 import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
 import com.edanker.soft.walletservice.controller.dto.DepositDTO;
 import com.edanker.soft.walletservice.controller.dto.HistoricalBalanceRequestDTO;
+import com.edanker.soft.walletservice.controller.dto.TransactionExportFormat;
+import com.edanker.soft.walletservice.controller.dto.TransactionPageDTO;
 import com.edanker.soft.walletservice.controller.dto.TransferDTO;
 import com.edanker.soft.walletservice.controller.dto.TransferResponseDTO;
 import com.edanker.soft.walletservice.controller.dto.WithdrawDTO;
+import com.edanker.soft.walletservice.entity.TransactionType;
 import com.edanker.soft.walletservice.entity.Transfer;
+import com.edanker.soft.walletservice.service.BalanceCheckpointService;
+import com.edanker.soft.walletservice.service.IdempotencyService;
+import com.edanker.soft.walletservice.service.IdempotentResult;
+import com.edanker.soft.walletservice.service.TransactionHistoryService;
+import com.edanker.soft.walletservice.service.WalletBatchService;
+import com.edanker.soft.walletservice.service.WalletLoadShedder;
+import com.edanker.soft.walletservice.service.WalletRateLimiter;
 import com.edanker.soft.walletservice.service.WalletService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/wallets")
 @RequiredArgsConstructor
 public class WalletController {
 
+  private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+  private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
   private final WalletService walletService;
+  private final BalanceCheckpointService balanceCheckpointService;
+  private final WalletBatchService walletBatchService;
+  private final IdempotencyService idempotencyService;
+  private final TransactionHistoryService transactionHistoryService;
+  private final WalletRateLimiter rateLimiter;
+  private final WalletLoadShedder loadShedder;
 
   @PostMapping
   public ResponseEntity<com.edanker.soft.walletservice.entity.Wallet> createWallet(
@@ -60,23 +87,108 @@ public class WalletController {
     return ResponseEntity.ok(response);
   }
 
+  @GetMapping("/{walletId}/balance-statement")
+  public ResponseEntity<List<BalanceResponseDTO>> getBalanceStatement(
+      @PathVariable Long walletId,
+      @RequestParam String from,
+      @RequestParam String to,
+      @RequestParam(defaultValue = "DAYS") ChronoUnit interval) {
+
+    var statement = balanceCheckpointService.getBalanceStatement(walletId,
+        LocalDateTime.parse(from), LocalDateTime.parse(to), interval);
+    return ResponseEntity.ok(statement);
+  }
+
+  @GetMapping("/{walletId}/transactions")
+  public ResponseEntity<TransactionPageDTO> getTransactions(
+      @PathVariable Long walletId,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "50") int limit,
+      @RequestParam(required = false) TransactionType type,
+      @RequestParam(required = false) String from,
+      @RequestParam(required = false) String to) {
+
+    var page = transactionHistoryService.getTransactions(walletId, cursor, limit, type,
+        parseDateTime(from), parseDateTime(to));
+    return ResponseEntity.ok(page);
+  }
+
+  @GetMapping("/{walletId}/transactions/export")
+  public ResponseEntity<StreamingResponseBody> exportTransactions(
+      @PathVariable Long walletId,
+      @RequestParam(defaultValue = "NDJSON") TransactionExportFormat format,
+      @RequestParam(required = false) TransactionType type,
+      @RequestParam(required = false) String from,
+      @RequestParam(required = false) String to) {
+
+    var body = transactionHistoryService.exportTransactions(walletId, format, type,
+        parseDateTime(from), parseDateTime(to));
+    return ResponseEntity.ok()
+        .contentType(format.getMediaType())
+        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+            .filename("wallet-" + walletId + "-transactions." + format.getFileExtension())
+            .build()
+            .toString())
+        .body(body);
+  }
+
   @PostMapping("/{walletId}/deposit")
   public ResponseEntity<Void> deposit(@PathVariable Long walletId,
-      @RequestBody @Valid DepositDTO depositDTO) {
-    walletService.deposit(walletId, depositDTO);
-    return ResponseEntity.ok().build();
+      @RequestBody @Valid DepositDTO depositDTO,
+      @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+    rateLimiter.acquireForWallet(walletId);
+    var result = loadShedder.mutation(() -> idempotencyService.execute(idempotencyKey, walletId,
+        "deposit:" + walletId + ":" + fingerprintOf(depositDTO.amount()), Void.class, () -> {
+          walletService.deposit(walletId, depositDTO);
+          return null;
+        }));
+    return toResponse(result);
   }
 
   @PostMapping("/{walletId}/withdraw")
   public ResponseEntity<Void> withdraw(@PathVariable Long walletId,
-      @RequestBody @Valid WithdrawDTO withdrawDTO) {
-    walletService.withdraw(walletId, withdrawDTO);
-    return ResponseEntity.ok().build();
+      @RequestBody @Valid WithdrawDTO withdrawDTO,
+      @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+    rateLimiter.acquireForWallet(walletId);
+    var result = loadShedder.mutation(() -> idempotencyService.execute(idempotencyKey, walletId,
+        "withdraw:" + walletId + ":" + fingerprintOf(withdrawDTO.amount()), Void.class, () -> {
+          walletService.withdraw(walletId, withdrawDTO);
+          return null;
+        }));
+    return toResponse(result);
   }
 
   @PostMapping("/transfer")
-  public ResponseEntity<TransferResponseDTO> transfer(@RequestBody @Valid TransferDTO dto) {
-    var resp = walletService.transfer(dto);
+  public ResponseEntity<TransferResponseDTO> transfer(@RequestBody @Valid TransferDTO dto,
+      @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+    rateLimiter.acquireForWallet(dto.payer());
+    var fingerprint = "transfer:" + dto.payer() + ":" + dto.payee() + ":" + fingerprintOf(dto.value());
+    var result = loadShedder.mutation(() -> idempotencyService.execute(idempotencyKey, dto.payer(),
+        fingerprint, TransferResponseDTO.class, () -> walletService.transfer(dto)));
+    return toResponse(result);
+  }
+
+  // 10 and 10.00 are the same amount, so a retry may send either
+  private static String fingerprintOf(BigDecimal amount) {
+    return amount.stripTrailingZeros().toPlainString();
+  }
+
+  @PostMapping("/batch")
+  public ResponseEntity<BatchResponseDTO> batch(@RequestBody @Valid BatchRequestDTO dto) {
+    rateLimiter.acquireForBatch(dto.operations());
+    var resp = walletBatchService.execute(dto);
     return ResponseEntity.ok(resp);
   }
+
+  private static LocalDateTime parseDateTime(String value) {
+    return value != null ? LocalDateTime.parse(value) : null;
+  }
+
+  private static <T> ResponseEntity<T> toResponse(IdempotentResult<T> result) {
+    var response = ResponseEntity.ok();
+    if (result.replayed()) {
+      response.header(IDEMPOTENT_REPLAYED_HEADER, "true");
+    }
+    return response.body(result.body());
+  }
 }
@@ -0,0 +1,14 @@
+package com.edanker.soft.walletservice.controller.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import lombok.Builder;
+
+// walletId is the wallet credited or debited, or the payer of a TRANSFER
+@Builder
+public record BatchOperationDTO(@NotNull BatchOperationType type,
+                                @NotNull Long walletId,
+                                Long payee,
+                                @DecimalMin("0.01") @NotNull BigDecimal amount) {
+}
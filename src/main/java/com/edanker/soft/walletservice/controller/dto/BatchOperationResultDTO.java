@@ -0,0 +1,13 @@
+package com.edanker.soft.walletservice.controller.dto;
+
+import java.math.BigDecimal;
+import lombok.Builder;
+import org.springframework.http.ProblemDetail;
+
+@Builder
+public record BatchOperationResultDTO(int index,
+                                      BatchOperationStatus status,
+                                      BigDecimal balance,
+                                      TransferResponseDTO transfer,
+                                      ProblemDetail error) {
+}
@@ -0,0 +1,6 @@
+package com.edanker.soft.walletservice.controller.dto;
+
+public enum BatchOperationStatus {
+  APPLIED,
+  FAILED
+}
@@ -0,0 +1,7 @@
+package com.edanker.soft.walletservice.controller.dto;
+
+public enum BatchOperationType {
+  DEPOSIT,
+  WITHDRAW,
+  TRANSFER
+}
@@ -0,0 +1,13 @@
+package com.edanker.soft.walletservice.controller.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Builder;
+
+@Builder
+public record BatchRequestDTO(@NotEmpty @Size(max = 10000) List<@Valid BatchOperationDTO> operations,
+                              @Min(1) Integer chunkSize) {
+}
@@ -1,14 +1,17 @@
 package com.edanker.soft.walletservice.controller.dto;
 
 import com.edanker.soft.walletservice.entity.Wallet;
+import com.edanker.soft.walletservice.money.Money;
 import jakarta.validation.constraints.NotBlank;
+import java.util.Currency;
 import lombok.Builder;
 
 @Builder
 public record CreateWalletDTO(@NotBlank String fullName,
                               @NotBlank String cpfCnpj,
                               @NotBlank String email,
-                              @NotBlank String password) {
+                              @NotBlank String password,
+                              Currency currency) {
 
   public Wallet toWallet() {
     return Wallet.builder()
@@ -16,6 +19,7 @@ public record CreateWalletDTO(@NotBlank String fullName,
         .cpfCnpj(cpfCnpj)
         .email(email)
         .password(password)
+        .currency(currency == null ? Money.DEFAULT_CURRENCY : currency)
         .build();
   }
 }
@@ -0,0 +1,16 @@
+package com.edanker.soft.walletservice.controller.dto;
+
+import com.edanker.soft.walletservice.entity.TransactionType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.Builder;
+
+@Builder
+public record TransactionDTO(Long id,
+                             TransactionType type,
+                             BigDecimal amount,
+                             BigDecimal balanceAfterOperation,
+                             String description,
+                             Long counterpartyWalletId,
+                             LocalDateTime timestamp) {
+}
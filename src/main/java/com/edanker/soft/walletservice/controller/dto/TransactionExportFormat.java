@@ -0,0 +1,15 @@
+package com.edanker.soft.walletservice.controller.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+
+@Getter
+@RequiredArgsConstructor
+public enum TransactionExportFormat {
+  NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+  CSV(MediaType.parseMediaType("text/csv"), "csv");
+
+  private final MediaType mediaType;
+  private final String fileExtension;
+}
@@ -0,0 +1,8 @@
+package com.edanker.soft.walletservice.controller.dto;
+
+import java.util.List;
+import lombok.Builder;
+
+@Builder
+public record TransactionPageDTO(List<TransactionDTO> transactions, String nextCursor) {
+}
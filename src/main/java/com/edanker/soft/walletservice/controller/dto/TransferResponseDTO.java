@@ -1,5 +1,6 @@
 package com.edanker.soft.walletservice.controller.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -13,6 +14,9 @@ public record TransferResponseDTO(
     Long receiverId,
     String receiverName,
     BigDecimal value,
-    LocalDateTime createdAt
+    LocalDateTime createdAt,
+    // Only present when the payee's currency differs from the payer's
+    @JsonInclude(JsonInclude.Include.NON_NULL) BigDecimal receivedValue,
+    @JsonInclude(JsonInclude.Include.NON_NULL) BigDecimal fxRate
 ) {
 }
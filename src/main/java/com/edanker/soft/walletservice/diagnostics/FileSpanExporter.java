@@ -0,0 +1,73 @@
+package com.edanker.soft.walletservice.diagnostics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Appends one JSON object per finished span, enough to follow a trace without a collector. Runs
+// on the batch span processor's thread, never on a request thread.
+public class FileSpanExporter implements SpanExporter {
+
+  private final Path file;
+  private final ObjectMapper objectMapper;
+
+  public FileSpanExporter(Path file, ObjectMapper objectMapper) {
+    this.file = file;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+    var lines = new ByteArrayOutputStream();
+    try {
+      for (var span : spans) {
+        lines.write(objectMapper.writeValueAsBytes(toJson(span)));
+        lines.write('\n');
+      }
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      Files.write(file, lines.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND);
+      return CompletableResultCode.ofSuccess();
+    } catch (IOException e) {
+      return CompletableResultCode.ofExceptionalFailure(e);
+    }
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return CompletableResultCode.ofSuccess();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    return CompletableResultCode.ofSuccess();
+  }
+
+  private static Map<String, Object> toJson(SpanData span) {
+    var attributes = new LinkedHashMap<String, Object>();
+    span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+    var json = new LinkedHashMap<String, Object>();
+    json.put("traceId", span.getTraceId());
+    json.put("spanId", span.getSpanId());
+    json.put("parentSpanId", span.getParentSpanContext().isValid() ? span.getParentSpanId() : null);
+    json.put("name", span.getName());
+    json.put("kind", span.getKind());
+    json.put("startEpochNanos", span.getStartEpochNanos());
+    json.put("durationMicros", TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()));
+    json.put("status", span.getStatus().getStatusCode());
+    json.put("attributes", attributes);
+    return json;
+  }
+}
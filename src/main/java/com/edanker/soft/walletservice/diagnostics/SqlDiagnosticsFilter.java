@@ -0,0 +1,102 @@
+package com.edanker.soft.walletservice.diagnostics;
+
+import com.edanker.soft.walletservice.config.WalletSqlDiagnosticsProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+// Measures the statements of each request and reports them per endpoint. The headers have to be
+// set after the handler ran, so the body is buffered until then; a streamed response is buffered
+// whole and its async part is not counted. The async dispatch only writes the headers: reporting
+// it too would add a sample of its own to every streamed request.
+@Slf4j
+@RequiredArgsConstructor
+public class SqlDiagnosticsFilter extends OncePerRequestFilter {
+
+  public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+  public static final String ROWS_HEADER = "X-Sql-Rows";
+
+  private final WalletSqlDiagnosticsProperties properties;
+  private final MeterRegistry registry;
+
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return false;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    var buffered = properties.isResponseHeaders() ? bufferedResponse(response) : null;
+    HttpServletResponse target = buffered != null ? buffered : response;
+    var stats = SqlStatementStats.<IOException, ServletException>measure(
+        () -> filterChain.doFilter(request, target));
+
+    if (!isAsyncDispatch(request)) {
+      report(request, stats, Tags.of("method", request.getMethod(), "uri", endpointOf(request)));
+    }
+    if (buffered != null && !isAsyncStarted(request)) {
+      buffered.setHeader(STATEMENTS_HEADER, Integer.toString(stats.statements()));
+      buffered.setHeader(ROWS_HEADER, Long.toString(stats.rows()));
+      buffered.addHeader("Server-Timing",
+          String.format(Locale.ROOT, "sql;dur=%.3f", stats.jdbcTime().toNanos() / 1_000_000.0));
+      buffered.copyBodyToResponse();
+    }
+  }
+
+  private void report(HttpServletRequest request, SqlStatementStats stats, Tags tags) {
+    DistributionSummary.builder("wallet.http.sql.statements")
+        .description("SQL statements run by one HTTP request")
+        .tags(tags)
+        .register(registry)
+        .record(stats.statements());
+    DistributionSummary.builder("wallet.http.sql.rows")
+        .description("Result set rows read by one HTTP request")
+        .tags(tags)
+        .register(registry)
+        .record(stats.rows());
+    Timer.builder("wallet.http.sql.time")
+        .description("Time one HTTP request spent executing SQL statements")
+        .tags(tags)
+        .register(registry)
+        .record(stats.jdbcTime());
+
+    var repeated = stats.repeatedStatements(properties.getRepeatThreshold());
+    if (!repeated.isEmpty()) {
+      Counter.builder("wallet.http.sql.repeated")
+          .description("Requests that ran the same statement repeatedly, a likely N+1")
+          .tags(tags)
+          .register(registry)
+          .increment();
+      repeated.forEach((sql, times) -> log.warn("{} {} ran the same statement {} times: {}",
+          request.getMethod(), request.getRequestURI(), times, sql));
+    }
+  }
+
+  // The route template keeps the tag cardinality bounded, unlike the path with its wallet ids
+  private static String endpointOf(HttpServletRequest request) {
+    return request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern
+        ? pattern
+        : "UNKNOWN";
+  }
+
+  // The async dispatch of a streamed response finds the wrapper of the initial dispatch again
+  private static ContentCachingResponseWrapper bufferedResponse(HttpServletResponse response) {
+    var existing = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+    return existing != null ? existing : new ContentCachingResponseWrapper(response);
+  }
+}
@@ -0,0 +1,86 @@
+package com.edanker.soft.walletservice.diagnostics;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// What the statements run by one thread inside a measured block cost. Work handed to another
+// thread, such as the write coalescer, is not counted.
+public final class SqlStatementStats {
+
+  private static final ThreadLocal<SqlStatementStats> CURRENT = new ThreadLocal<>();
+
+  private final SqlStatementStats parent;
+  private final Map<String, Integer> executionsBySql = new HashMap<>();
+  private int statements;
+  private long rows;
+  private long jdbcNanos;
+
+  private SqlStatementStats(SqlStatementStats parent) {
+    this.parent = parent;
+  }
+
+  // A nested block also counts toward the block around it
+  public static <E1 extends Exception, E2 extends Exception> SqlStatementStats measure(Body<E1, E2> body)
+      throws E1, E2 {
+    var parent = CURRENT.get();
+    var stats = new SqlStatementStats(parent);
+    CURRENT.set(stats);
+    try {
+      body.run();
+    } finally {
+      if (parent == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(parent);
+      }
+    }
+    return stats;
+  }
+
+  static SqlStatementStats current() {
+    return CURRENT.get();
+  }
+
+  void recordExecution(String sql, long nanos) {
+    for (var stats = this; stats != null; stats = stats.parent) {
+      stats.statements++;
+      stats.jdbcNanos += nanos;
+      if (sql != null) {
+        stats.executionsBySql.merge(sql, 1, Integer::sum);
+      }
+    }
+  }
+
+  void recordRow() {
+    for (var stats = this; stats != null; stats = stats.parent) {
+      stats.rows++;
+    }
+  }
+
+  public int statements() {
+    return statements;
+  }
+
+  public long rows() {
+    return rows;
+  }
+
+  public Duration jdbcTime() {
+    return Duration.ofNanos(jdbcNanos);
+  }
+
+  // Statements run at least threshold times, the usual shape of an N+1 select
+  public Map<String, Integer> repeatedStatements(int threshold) {
+    return executionsBySql.entrySet().stream()
+        .filter(entry -> entry.getValue() >= threshold)
+        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+  }
+
+  @FunctionalInterface
+  public interface Body<E1 extends Exception, E2 extends Exception> {
+
+    void run() throws E1, E2;
+  }
+}
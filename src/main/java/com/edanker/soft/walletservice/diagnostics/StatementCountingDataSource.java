@@ -0,0 +1,94 @@
+package com.edanker.soft.walletservice.diagnostics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+// Feeds SqlStatementStats at the JDBC level, so every statement counts whoever issued it: Hibernate,
+// Spring Data or plain JDBC. A batch is one execution. Connections taken outside a measured block,
+// as the scheduled jobs do, are handed out unwrapped.
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+  public StatementCountingDataSource(DataSource targetDataSource) {
+    super(targetDataSource);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return counting(super.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return counting(super.getConnection(username, password));
+  }
+
+  private static Connection counting(Connection connection) {
+    if (SqlStatementStats.current() == null) {
+      return connection;
+    }
+    return proxy(Connection.class, (proxy, method, args) -> {
+      var result = invoke(connection, method, args);
+      if (result instanceof Statement statement) {
+        var sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+        return counting(statement, method.getReturnType(), sql);
+      }
+      return result;
+    });
+  }
+
+  private static Object counting(Statement statement, Class<?> type, String preparedSql) {
+    return proxy(type, (proxy, method, args) -> {
+      if (method.getName().startsWith("execute")) {
+        var sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+        var start = System.nanoTime();
+        try {
+          return counting(invoke(statement, method, args));
+        } finally {
+          var stats = SqlStatementStats.current();
+          if (stats != null) {
+            stats.recordExecution(sql, System.nanoTime() - start);
+          }
+        }
+      }
+      var result = invoke(statement, method, args);
+      return method.getName().equals("getResultSet") ? counting(result) : result;
+    });
+  }
+
+  private static Object counting(Object result) {
+    if (!(result instanceof ResultSet resultSet)) {
+      return result;
+    }
+    return proxy(ResultSet.class, (proxy, method, args) -> {
+      var value = invoke(resultSet, method, args);
+      if (method.getName().equals("next") && Boolean.TRUE.equals(value)) {
+        var stats = SqlStatementStats.current();
+        if (stats != null) {
+          stats.recordRow();
+        }
+      }
+      return value;
+    });
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+  }
+}
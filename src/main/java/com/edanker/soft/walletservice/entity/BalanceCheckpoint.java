@@ -0,0 +1,47 @@
+package com.edanker.soft.walletservice.entity;
+
+import com.edanker.soft.walletservice.money.Money;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Closing balance of a wallet for a checkpoint period, written only for periods with activity
+@Entity
+@Table(name = "balance_checkpoint", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_balance_checkpoint_wallet_period", columnNames = {"wallet_id", "period_end"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class BalanceCheckpoint {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "wallet_id")
+  private Wallet wallet;
+
+  @Column(name = "period_end")
+  private LocalDateTime periodEnd;
+
+  @Column(name = "balance", precision = Money.PRECISION, scale = Money.SCALE)
+  private BigDecimal balance;
+}
@@ -0,0 +1,30 @@
+package com.edanker.soft.walletservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "balance_checkpoint_cursor")
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class BalanceCheckpointCursor {
+
+  @Id
+  @Column(name = "name")
+  private String name;
+
+  // Every period ending at or before this instant has its checkpoints written
+  @Column(name = "closed_until")
+  private LocalDateTime closedUntil;
+}
@@ -0,0 +1,61 @@
+package com.edanker.soft.walletservice.entity;
+
+import com.edanker.soft.walletservice.money.Money;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// A transfer between wallets on different shards. The payer's shard keeps the DEBIT row, which
+// carries the saga status; the payee's shard keeps a CREDIT row with the same id, whose primary
+// key makes applying the credit idempotent. The wallet ids have no foreign key, one of them always
+// lives on the other shard.
+@Entity
+@Table(name = "cross_shard_transfer", indexes = {
+    @Index(name = "idx_cross_shard_transfer_status", columnList = "status, created_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class CrossShardTransfer {
+
+  @Id
+  private UUID id;
+
+  @Column(name = "payer_id")
+  private Long payerId;
+
+  @Column(name = "payee_id")
+  private Long payeeId;
+
+  @Column(name = "value", precision = Money.PRECISION, scale = Money.SCALE)
+  private BigDecimal value;
+
+  // In the payee's currency. Rows from before wallets had currencies leave it null: value applies.
+  @Column(name = "credited_value", precision = Money.PRECISION, scale = Money.SCALE)
+  private BigDecimal creditedValue;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "type")
+  private TransactionType type;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "status")
+  private CrossShardTransferStatus status;
+
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+}
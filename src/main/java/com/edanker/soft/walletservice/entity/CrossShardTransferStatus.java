@@ -0,0 +1,9 @@
+package com.edanker.soft.walletservice.entity;
+
+public enum CrossShardTransferStatus {
+  // Payer debited, payee not credited yet
+  PENDING,
+  COMPLETED,
+  // The credit could not be applied and the payer was refunded
+  COMPENSATED
+}
@@ -0,0 +1,36 @@
+package com.edanker.soft.walletservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Rates of the DATABASE FX source, maintained by whoever publishes them. The service only reads
+// the whole table on refresh, never per request.
+@Entity
+@Table(name = "fx_rate")
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class FxRate {
+
+  @Id
+  @Column(name = "currency", length = 3)
+  private String currency;
+
+  // Units of Money.DEFAULT_CURRENCY per unit of this currency
+  @Column(name = "rate", precision = 19, scale = 10)
+  private BigDecimal rate;
+
+  @Column(name = "updated_at")
+  private LocalDateTime updatedAt;
+}
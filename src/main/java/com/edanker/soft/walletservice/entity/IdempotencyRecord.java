@@ -0,0 +1,47 @@
+package com.edanker.soft.walletservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "idempotency_key", indexes = {
+    @Index(name = "idx_idempotency_key_created_at", columnList = "created_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+  @Id
+  @Column(name = "idempotency_key", length = 255)
+  private String key;
+
+  // SHA-256 of the operation and its arguments, detects a key reused for another request
+  @Column(name = "fingerprint", length = 64)
+  private String fingerprint;
+
+  @Column(name = "response_body", columnDefinition = "TEXT")
+  private String responseBody;
+
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+
+  // Set while a ledger engine operation holding the key runs; null once the response is stored
+  @Column(name = "pending")
+  private Boolean pending;
+
+  public boolean isPending() {
+    return Boolean.TRUE.equals(pending);
+  }
+}
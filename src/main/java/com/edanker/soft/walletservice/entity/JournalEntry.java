@@ -0,0 +1,41 @@
+package com.edanker.soft.walletservice.entity;
+
+import com.edanker.soft.walletservice.money.FxRateTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+// Groups the balanced debit and credit legs of one transfer. Rows are only ever inserted, with
+// increasing ids, and the legs point back at the entry through transaction.journal_entry_id.
+@Entity
+@Immutable
+@Table(name = "journal_entry")
+@Getter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class JournalEntry {
+
+  @Id
+  @ShardedSequence(name = "journal_entry_seq")
+  private Long id;
+
+  @OneToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "transfer_id", unique = true, nullable = false, updatable = false)
+  private Transfer transfer;
+
+  // Set when the payee's currency differs: the credit leg is the debit leg times this rate,
+  // rounded half up to cents
+  @Column(name = "fx_rate", precision = 19, scale = FxRateTable.RATE_SCALE, updatable = false)
+  private BigDecimal fxRate;
+}
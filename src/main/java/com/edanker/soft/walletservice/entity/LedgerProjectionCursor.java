@@ -0,0 +1,29 @@
+package com.edanker.soft.walletservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "ledger_projection_cursor")
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class LedgerProjectionCursor {
+
+  @Id
+  @Column(name = "name")
+  private String name;
+
+  // Every ledger engine WAL record up to this sequence is in the database
+  @Column(name = "sequence")
+  private Long sequence;
+}
@@ -0,0 +1,71 @@
+package com.edanker.soft.walletservice.entity;
+
+import com.edanker.soft.walletservice.money.Money;
+import com.edanker.soft.walletservice.money.MoneyConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+// One compact row per wallet mutation, inserted in the mutation's transaction and read by the
+// outbox relay. Plain id columns instead of associations, so the row never waits for the ledger
+// row or the wallet to be flushed.
+@Entity
+@Immutable
+@Table(name = "outbox_event", indexes = {
+    @Index(name = "idx_outbox_event_created_at", columnList = "created_at")
+})
+@Getter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class OutboxEvent {
+
+  // Unlike the ledger, an identity column: the database hands it out at insert time, after the
+  // mutation has flushed and checked its wallet row, so the events of one wallet get increasing ids
+  // in commit order even with several instances writing
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "wallet_id", nullable = false)
+  private Long walletId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "type", nullable = false)
+  private WalletEventType type;
+
+  @Convert(converter = MoneyConverter.class)
+  @Column(name = "amount", precision = Money.PRECISION, scale = Money.SCALE)
+  private Money amount;
+
+  @Convert(converter = MoneyConverter.class)
+  @Column(name = "balance_after", precision = Money.PRECISION, scale = Money.SCALE)
+  private Money balanceAfter;
+
+  // The converter reads amounts back in the default currency; the relay re-tags them with this one
+  @Column(name = "currency", length = 3)
+  private Currency currency;
+
+  @Column(name = "counterparty_wallet_id")
+  private Long counterpartyWalletId;
+
+  @Column(name = "transaction_id")
+  private Long transactionId;
+
+  @Column(name = "created_at", nullable = false)
+  private LocalDateTime createdAt;
+}
@@ -0,0 +1,29 @@
+package com.edanker.soft.walletservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "outbox_relay_cursor")
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class OutboxRelayCursor {
+
+  @Id
+  @Column(name = "name")
+  private String name;
+
+  // Every outbox event up to this id has been published or given up on as a gap
+  @Column(name = "position")
+  private Long position;
+}
@@ -0,0 +1,66 @@
+package com.edanker.soft.walletservice.entity;
+
+import com.edanker.soft.walletservice.config.ShardContext;
+import java.lang.reflect.Member;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.AnnotationBasedGenerator;
+import org.hibernate.generator.GeneratorCreationContext;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+// Without sharding this is the plain pooled sequence. With several shards every shard has its own
+// sequence and its own block of cached values, and the id is value * MAX_SHARDS + shard: ids stay
+// unique across shards and the owning shard of a wallet can be read from its id.
+public class ShardedSequenceGenerator extends SequenceStyleGenerator
+    implements AnnotationBasedGenerator<ShardedSequence> {
+
+  public static final String SHARD_COUNT_SETTING = "wallet.sharding.shard-count";
+
+  private final Map<Integer, Optimizer> optimizers = new ConcurrentHashMap<>();
+  private String sequenceName;
+  private int allocationSize;
+  private boolean sharded;
+
+  @Override
+  public void initialize(ShardedSequence annotation, Member member, GeneratorCreationContext context) {
+    this.sequenceName = annotation.name();
+    this.allocationSize = annotation.allocationSize();
+  }
+
+  @Override
+  public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry)
+      throws MappingException {
+    parameters.put(SEQUENCE_PARAM, sequenceName);
+    parameters.put(INCREMENT_PARAM, String.valueOf(allocationSize));
+    super.configure(type, parameters, serviceRegistry);
+
+    var settings = serviceRegistry.requireService(ConfigurationService.class).getSettings();
+    this.sharded = ConfigurationHelper.getInt(SHARD_COUNT_SETTING, settings, 1) > 1;
+  }
+
+  @Override
+  public Object generate(SharedSessionContractImplementor session, Object object) {
+    if (!sharded) {
+      return super.generate(session, object);
+    }
+
+    var shard = ShardContext.current();
+    if (shard == null) {
+      throw new IllegalStateException("No shard selected for a new " + object.getClass().getSimpleName());
+    }
+    var optimizer = optimizers.computeIfAbsent(shard, s -> OptimizerFactory.buildOptimizer(
+        StandardOptimizerDescriptor.POOLED, Long.class, getOptimizer().getIncrementSize(), 1));
+    var value = (Long) optimizer.generate(getDatabaseStructure().buildCallback(session));
+    return value * ShardContext.MAX_SHARDS + shard;
+  }
+}
@@ -0,0 +1,55 @@
+package com.edanker.soft.walletservice.entity;
+
+import com.edanker.soft.walletservice.money.Money;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// A credit added to a stripe and not yet in the ledger. The sweep turns it into a transaction row
+// once it knows the wallet's balance after it, and deletes it.
+@Entity
+@Table(name = "striped_credit", indexes = {
+    @Index(name = "idx_striped_credit_wallet", columnList = "wallet_id, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class StripedCredit {
+
+  @Id
+  @ShardedSequence(name = "striped_credit_seq")
+  private Long id;
+
+  @Column(name = "wallet_id")
+  private Long walletId;
+
+  @Column(name = "amount", precision = Money.PRECISION, scale = Money.SCALE)
+  private BigDecimal amount;
+
+  @Column(name = "description")
+  private String description;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "journal_entry_id")
+  private JournalEntry journalEntry;
+
+  @Column(name = "counterparty_wallet_id")
+  private Long counterpartyWalletId;
+
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+}
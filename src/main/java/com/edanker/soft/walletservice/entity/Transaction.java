@@ -1,13 +1,13 @@
 package com.edanker.soft.walletservice.entity;
 
+import com.edanker.soft.walletservice.money.Money;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -18,9 +18,15 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Immutable;
 
 @Entity
-@Table(name = "transaction")
+@Immutable
+@Table(name = "transaction", indexes = {
+    @Index(name = "idx_transaction_wallet_timestamp", columnList = "wallet_id, timestamp DESC, id DESC"),
+    @Index(name = "idx_transaction_timestamp", columnList = "timestamp"),
+    @Index(name = "idx_transaction_journal_entry", columnList = "journal_entry_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -28,8 +34,9 @@ import lombok.Setter;
 @AllArgsConstructor
 public class Transaction {
 
+  // Sequence ids are allocated in blocks, which lets Hibernate batch inserts (IDENTITY cannot)
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @ShardedSequence(name = "transaction_seq")
   private Long id;
 
   @ManyToOne(fetch = FetchType.LAZY)
@@ -40,7 +47,7 @@ public class Transaction {
   @Column(name = "type")
   private TransactionType type;
 
-  @Column(name = "amount")
+  @Column(name = "amount", precision = Money.PRECISION, scale = Money.SCALE)
   private BigDecimal amount;
 
   @Column(name = "description")
@@ -49,6 +56,23 @@ public class Transaction {
   @Column(name = "timestamp")
   private LocalDateTime timestamp;
 
-  @Column(name = "balance_after_operation")
+  @Column(name = "balance_after_operation", precision = Money.PRECISION, scale = Money.SCALE)
   private BigDecimal balanceAfterOperation;
+
+  // Set on the two legs of a transfer, which carry no description
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "journal_entry_id")
+  private JournalEntry journalEntry;
+
+  @Column(name = "counterparty_wallet_id")
+  private Long counterpartyWalletId;
+
+  // Rows written before the journal still have the transfer text in their description
+  public String describe() {
+    if (counterpartyWalletId == null) {
+      return description;
+    }
+    return (type == TransactionType.DEBIT ? "Transfer to wallet ID: " : "Transfer from wallet ID: ")
+        + counterpartyWalletId;
+  }
 }
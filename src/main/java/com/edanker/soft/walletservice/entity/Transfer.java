@@ -1,7 +1,9 @@
 package com.edanker.soft.walletservice.entity;
 
+import com.edanker.soft.walletservice.money.Money;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -31,15 +33,15 @@ public class Transfer {
   @GeneratedValue(strategy = GenerationType.UUID)
   private UUID id;
 
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "wallet_sender_id")
   private Wallet sender;
 
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "wallet_receiver_id")
   private Wallet receiver;
 
-  @Column(name = "value")
+  @Column(name = "value", precision = Money.PRECISION, scale = Money.SCALE)
   private BigDecimal value;
 
   @Column(name = "created_at")
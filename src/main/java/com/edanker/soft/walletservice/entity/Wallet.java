@@ -1,26 +1,28 @@
 package com.edanker.soft.walletservice.entity;
 
-import jakarta.persistence.CascadeType;
+import com.edanker.soft.walletservice.money.Money;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Currency;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
-@Table(name = "wallet")
+// A customer holds one wallet per currency, so cpf_cnpj and email are unique per currency
+@Table(name = "wallet", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_wallet_cpf_cnpj_currency", columnNames = {"cpf_cnpj", "currency"}),
+    @UniqueConstraint(name = "uk_wallet_email_currency", columnNames = {"email", "currency"})
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -29,52 +31,78 @@ import lombok.Setter;
 public class Wallet {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @ShardedSequence(name = "wallet_seq")
   private Long id;
 
   @Column(name = "full_name")
   private String fullName;
 
-  @Column(name = "cpf_cnpj", unique = true)
+  @Column(name = "cpf_cnpj")
   private String cpfCnpj;
 
-  @Column(name = "email", unique = true)
+  @Column(name = "email")
   private String email;
 
   @Column(name = "password")
   private String password;
 
   @Builder.Default
-  @Column(name = "balance")
+  @Column(name = "balance", precision = Money.PRECISION, scale = Money.SCALE)
   private BigDecimal balance = BigDecimal.ZERO;
 
+  // Rows written before wallets had a currency get the default one when the column is added
   @Builder.Default
-  @OneToMany(mappedBy = "wallet", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-  private List<Transaction> transactions = new ArrayList<>();
+  @ColumnDefault("'" + Money.DEFAULT_CURRENCY_CODE + "'")
+  @Column(name = "currency", length = 3, nullable = false)
+  private Currency currency = Money.DEFAULT_CURRENCY;
+
+  // Rows written before the version column existed start at 0, a NULL version never matches
+  @Version
+  @ColumnDefault("0")
+  @Column(name = "version", nullable = false)
+  private Long version;
 
   public boolean isBalanceEqualOrGreaterThan(BigDecimal value) {
     return this.balance.compareTo(value) >= 0;
   }
 
-  public void debit(BigDecimal value, String description) {
+  // The returned ledger row is not attached to the wallet, the caller persists it. Appending to a
+  // cascaded collection would make every save merge, and eventually load, the whole history.
+  public Transaction debit(BigDecimal value, String description) {
     this.balance = this.balance.subtract(value);
-    addTransaction(TransactionType.DEBIT, value, description);
+    return newTransaction(TransactionType.DEBIT, value, description);
   }
 
-  public void credit(BigDecimal value, String description) {
+  public Transaction credit(BigDecimal value, String description) {
     this.balance = this.balance.add(value);
-    addTransaction(TransactionType.CREDIT, value, description);
+    return newTransaction(TransactionType.CREDIT, value, description);
+  }
+
+  public Transaction transferTo(Wallet receiver, BigDecimal value, JournalEntry entry) {
+    this.balance = this.balance.subtract(value);
+    return newTransaction(TransactionType.DEBIT, value, null, entry, receiver.getId());
+  }
+
+  public Transaction transferFrom(Wallet sender, BigDecimal value, JournalEntry entry) {
+    this.balance = this.balance.add(value);
+    return newTransaction(TransactionType.CREDIT, value, null, entry, sender.getId());
+  }
+
+  private Transaction newTransaction(TransactionType type, BigDecimal amount, String description) {
+    return newTransaction(type, amount, description, null, null);
   }
 
-  private void addTransaction(TransactionType type, BigDecimal amount, String description) {
-    var transaction = Transaction.builder()
+  private Transaction newTransaction(TransactionType type, BigDecimal amount, String description,
+      JournalEntry entry, Long counterpartyWalletId) {
+    return Transaction.builder()
         .wallet(this)
         .type(type)
         .amount(amount)
         .description(description)
+        .journalEntry(entry)
+        .counterpartyWalletId(counterpartyWalletId)
         .timestamp(LocalDateTime.now())
         .balanceAfterOperation(this.balance)
         .build();
-    this.transactions.add(transaction);
   }
 }
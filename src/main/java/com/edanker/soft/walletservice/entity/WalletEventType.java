@@ -0,0 +1,9 @@
+package com.edanker.soft.walletservice.entity;
+
+public enum WalletEventType {
+  WALLET_CREATED,
+  DEPOSITED,
+  WITHDRAWN,
+  TRANSFER_SENT,
+  TRANSFER_RECEIVED
+}
@@ -0,0 +1,43 @@
+package com.edanker.soft.walletservice.entity;
+
+import com.edanker.soft.walletservice.money.Money;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// One sub-balance of a striped wallet. The balance of the wallet is its own balance plus the sum
+// of its stripes; a stripe only holds credits that have not been swept into the wallet yet.
+@Entity
+@IdClass(WalletStripe.Key.class)
+@Table(name = "wallet_stripe")
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+public class WalletStripe {
+
+  @Id
+  @Column(name = "wallet_id")
+  private Long walletId;
+
+  @Id
+  @Column(name = "stripe")
+  private Integer stripe;
+
+  @Builder.Default
+  @Column(name = "balance", precision = Money.PRECISION, scale = Money.SCALE)
+  private BigDecimal balance = BigDecimal.ZERO;
+
+  public record Key(Long walletId, Integer stripe) implements Serializable {
+  }
+}
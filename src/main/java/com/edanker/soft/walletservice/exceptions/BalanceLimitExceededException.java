@@ -0,0 +1,25 @@
+package com.edanker.soft.walletservice.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+@Getter
+public class BalanceLimitExceededException extends WalletException {
+
+  private final Long walletId;
+
+  public BalanceLimitExceededException(Long walletId) {
+    this.walletId = walletId;
+  }
+
+  @Override
+  public ProblemDetail toProblemDetail() {
+    var pb = ProblemDetail.forStatus(HttpStatus.UNPROCESSABLE_ENTITY);
+
+    pb.setTitle("Balance limit exceeded.");
+    pb.setDetail("The balance of wallet " + walletId + " cannot hold this amount.");
+
+    return pb;
+  }
+}
@@ -0,0 +1,21 @@
+package com.edanker.soft.walletservice.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+public class DatabaseUnavailableException extends WalletException {
+
+  public DatabaseUnavailableException(Throwable cause) {
+    initCause(cause);
+  }
+
+  @Override
+  public ProblemDetail toProblemDetail() {
+    var pb = ProblemDetail.forStatus(HttpStatus.SERVICE_UNAVAILABLE);
+
+    pb.setTitle("Service busy");
+    pb.setDetail("No database connection was available in time, please retry.");
+
+    return pb;
+  }
+}
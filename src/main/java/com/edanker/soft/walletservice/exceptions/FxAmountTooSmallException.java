@@ -0,0 +1,31 @@
+package com.edanker.soft.walletservice.exceptions;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+@Getter
+public class FxAmountTooSmallException extends WalletException {
+
+  private final BigDecimal value;
+  private final Currency from;
+  private final Currency to;
+
+  public FxAmountTooSmallException(BigDecimal value, Currency from, Currency to) {
+    this.value = value;
+    this.from = from;
+    this.to = to;
+  }
+
+  @Override
+  public ProblemDetail toProblemDetail() {
+    var pb = ProblemDetail.forStatus(HttpStatus.UNPROCESSABLE_ENTITY);
+
+    pb.setTitle("Amount too small to convert.");
+    pb.setDetail(value + " " + from + " is worth less than one cent in " + to + ".");
+
+    return pb;
+  }
+}
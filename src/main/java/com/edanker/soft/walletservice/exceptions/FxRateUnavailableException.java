@@ -0,0 +1,28 @@
+package com.edanker.soft.walletservice.exceptions;
+
+import java.util.Currency;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+@Getter
+public class FxRateUnavailableException extends WalletException {
+
+  private final Currency from;
+  private final Currency to;
+
+  public FxRateUnavailableException(Currency from, Currency to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  @Override
+  public ProblemDetail toProblemDetail() {
+    var pb = ProblemDetail.forStatus(HttpStatus.UNPROCESSABLE_ENTITY);
+
+    pb.setTitle("FX rate unavailable.");
+    pb.setDetail("There is no rate to convert " + from + " into " + to + ".");
+
+    return pb;
+  }
+}
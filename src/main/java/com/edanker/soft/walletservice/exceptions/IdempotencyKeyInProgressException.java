@@ -0,0 +1,25 @@
+package com.edanker.soft.walletservice.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+@Getter
+public class IdempotencyKeyInProgressException extends WalletException {
+
+  private final String idempotencyKey;
+
+  public IdempotencyKeyInProgressException(String idempotencyKey) {
+    this.idempotencyKey = idempotencyKey;
+  }
+
+  @Override
+  public ProblemDetail toProblemDetail() {
+    var pb = ProblemDetail.forStatus(HttpStatus.CONFLICT);
+
+    pb.setTitle("Idempotency key in progress");
+    pb.setDetail("A request with the idempotency key " + idempotencyKey + " is still being processed, please retry.");
+
+    return pb;
+  }
+}
@@ -0,0 +1,25 @@
+package com.edanker.soft.walletservice.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+@Getter
+public class IdempotencyKeyReusedException extends WalletException {
+
+  private final String idempotencyKey;
+
+  public IdempotencyKeyReusedException(String idempotencyKey) {
+    this.idempotencyKey = idempotencyKey;
+  }
+
+  @Override
+  public ProblemDetail toProblemDetail() {
+    var pb = ProblemDetail.forStatus(HttpStatus.UNPROCESSABLE_ENTITY);
+
+    pb.setTitle("Idempotency key reused");
+    pb.setDetail("The idempotency key " + idempotencyKey + " was already used for a different request.");
+
+    return pb;
+  }
+}
@@ -0,0 +1,17 @@
+package com.edanker.soft.walletservice.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+public class InvalidIdempotencyKeyException extends WalletException {
+
+  @Override
+  public ProblemDetail toProblemDetail() {
+    var pb = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
+
+    pb.setTitle("Invalid idempotency key");
+    pb.setDetail("The Idempotency-Key header must have between 1 and 255 characters.");
+
+    return pb;
+  }
+}
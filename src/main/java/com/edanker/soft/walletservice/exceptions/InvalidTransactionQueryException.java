@@ -0,0 +1,25 @@
+package com.edanker.soft.walletservice.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+@Getter
+public class InvalidTransactionQueryException extends WalletException {
+
+  private final String detail;
+
+  public InvalidTransactionQueryException(String detail) {
+    this.detail = detail;
+  }
+
+  @Override
+  public ProblemDetail toProblemDetail() {
+    var pb = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
+
+    pb.setTitle("Invalid transaction query");
+    pb.setDetail(detail);
+
+    return pb;
+  }
+}
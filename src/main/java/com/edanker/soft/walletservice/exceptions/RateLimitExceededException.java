@@ -0,0 +1,33 @@
+package com.edanker.soft.walletservice.exceptions;
+
+import java.time.Duration;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+@Getter
+public class RateLimitExceededException extends WalletException {
+
+  private final String scope;
+  private final Duration retryAfter;
+
+  public RateLimitExceededException(String scope, Duration retryAfter) {
+    this.scope = scope;
+    this.retryAfter = retryAfter;
+  }
+
+  // Whole seconds, rounded up, as the Retry-After header wants them
+  public long getRetryAfterSeconds() {
+    return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+  }
+
+  @Override
+  public ProblemDetail toProblemDetail() {
+    var pb = ProblemDetail.forStatus(HttpStatus.TOO_MANY_REQUESTS);
+
+    pb.setTitle("Too many requests");
+    pb.setDetail("The " + scope + " rate limit was exceeded, retry in " + getRetryAfterSeconds() + "s.");
+
+    return pb;
+  }
+}
@@ -0,0 +1,25 @@
+package com.edanker.soft.walletservice.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+@Getter
+public class ServiceOverloadedException extends WalletException {
+
+  private final String workload;
+
+  public ServiceOverloadedException(String workload) {
+    this.workload = workload;
+  }
+
+  @Override
+  public ProblemDetail toProblemDetail() {
+    var pb = ProblemDetail.forStatus(HttpStatus.SERVICE_UNAVAILABLE);
+
+    pb.setTitle("Service overloaded");
+    pb.setDetail("Too many " + workload + " requests are in progress, please retry.");
+
+    return pb;
+  }
+}
@@ -0,0 +1,21 @@
+package com.edanker.soft.walletservice.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+public class WalletConcurrentUpdateException extends WalletException {
+
+  public WalletConcurrentUpdateException(Throwable cause) {
+    initCause(cause);
+  }
+
+  @Override
+  public ProblemDetail toProblemDetail() {
+    var pb = ProblemDetail.forStatus(HttpStatus.CONFLICT);
+
+    pb.setTitle("Concurrent wallet update");
+    pb.setDetail("The wallet was updated by another operation at the same time, please retry.");
+
+    return pb;
+  }
+}
@@ -0,0 +1,302 @@
+package com.edanker.soft.walletservice.ledger;
+
+import com.edanker.soft.walletservice.ledger.LedgerResult.Status;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+// Wallet balances held in memory and changed by one writer thread. Callers put commands on a
+// bounded ring and block until the batch holding their command is in the WAL and forced to disk,
+// so a command costs a queue hand-off and a share of one fsync instead of a database transaction.
+// Reads go through the ring as well and never see a change that is not durable yet.
+//
+// Startup loads the newest snapshot and replays the WAL after it. A snapshot is written every
+// snapshotEvery records; WAL segments are deleted once both the snapshot and the consumer of
+// read() (the database projection) are past them.
+@Slf4j
+public final class LedgerEngine implements AutoCloseable {
+
+  private static final int MAX_BATCH = 4096;
+
+  private final Path directory;
+  private final long snapshotEvery;
+  private final BlockingQueue<Command> ring;
+  private final WriteAheadLog wal;
+
+  private LongLongMap balances;
+  private long sequence;
+  private long snapshotSequence;
+  private volatile long durableSequence;
+  private volatile long releasedSequence;
+  private volatile boolean running;
+  private volatile Throwable failure;
+  private Thread writer;
+
+  public LedgerEngine(Path directory, int ringBufferSize, long walSegmentSize, long snapshotEvery) {
+    this.directory = directory;
+    this.snapshotEvery = snapshotEvery;
+    this.ring = new ArrayBlockingQueue<>(ringBufferSize);
+    this.wal = new WriteAheadLog(directory, walSegmentSize);
+  }
+
+  // initialBalances fills a brand new ledger; it is not called when there is a snapshot or a WAL
+  public void start(Consumer<BalanceLoader> initialBalances) {
+    try {
+      Files.createDirectories(directory);
+      var snapshot = LedgerSnapshot.readLatest(directory);
+      if (snapshot == null && wal.isEmpty()) {
+        balances = new LongLongMap(1024);
+        initialBalances.accept(balances::put);
+        LedgerSnapshot.write(directory, 0, balances);
+        snapshot = new LedgerSnapshot.Loaded(0, balances);
+      } else if (snapshot == null) {
+        throw new IllegalStateException("The ledger in " + directory + " has a WAL but no snapshot");
+      }
+      balances = snapshot.balances();
+      snapshotSequence = snapshot.sequence();
+      sequence = wal.recover(snapshotSequence, this::replay);
+      durableSequence = sequence;
+      log.info("Ledger recovered {} wallets at sequence {} ({} WAL records replayed)",
+          balances.size(), sequence, sequence - snapshotSequence);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    running = true;
+    writer = Thread.ofPlatform().name("ledger-writer").start(this::runWriter);
+  }
+
+  public LedgerResult open(long walletId, long initialBalance) {
+    return submit(new Command(LedgerEventType.OPEN, walletId, 0, initialBalance));
+  }
+
+  public LedgerResult deposit(long walletId, long amount) {
+    return submit(new Command(LedgerEventType.DEPOSIT, walletId, 0, amount));
+  }
+
+  public LedgerResult withdraw(long walletId, long amount) {
+    return submit(new Command(LedgerEventType.WITHDRAW, walletId, 0, amount));
+  }
+
+  public LedgerResult transfer(long payerId, long payeeId, long amount) {
+    return submit(new Command(LedgerEventType.TRANSFER, payerId, payeeId, amount));
+  }
+
+  public LedgerResult balance(long walletId) {
+    return submit(new Command(null, walletId, 0, 0));
+  }
+
+  // Last sequence that is on disk; read() never goes past it
+  public long durableSequence() {
+    return durableSequence;
+  }
+
+  public List<LedgerEvent> read(long fromSequence, int max) {
+    try {
+      return wal.read(fromSequence, durableSequence + 1, max);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // The consumer of read() has stored everything up to sequence, its WAL segments may go
+  public void release(long sequence) {
+    releasedSequence = sequence;
+  }
+
+  @Override
+  public void close() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    wal.close();
+  }
+
+  // The writer may stop between the running check and the enqueue, after it drained the ring for
+  // the last time. Whoever takes the command out of the ring completes it, so a caller that still
+  // finds its own command there once the engine stopped fails it instead of waiting forever.
+  private LedgerResult submit(Command command) {
+    try {
+      while (!ring.offer(command, 10, TimeUnit.MILLISECONDS)) {
+        if (!running) {
+          throw new IllegalStateException("The ledger engine is not running", failure);
+        }
+      }
+      if (!running && ring.remove(command)) {
+        throw new IllegalStateException("The ledger engine is not running", failure);
+      }
+      return command.result.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (CompletionException e) {
+      throw new IllegalStateException("The ledger engine failed", e.getCause());
+    }
+  }
+
+  private void runWriter() {
+    var batch = new ArrayList<Command>(MAX_BATCH);
+    while (running || !ring.isEmpty()) {
+      try {
+        var first = ring.poll(10, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        ring.drainTo(batch, MAX_BATCH - 1);
+
+        for (var command : batch) {
+          command.outcome = apply(command);
+        }
+        // Group commit: one force for the whole batch, then every caller is released
+        wal.force();
+        durableSequence = sequence;
+        for (var command : batch) {
+          command.result.complete(command.outcome);
+        }
+
+        if (sequence - snapshotSequence >= snapshotEvery) {
+          snapshot();
+        }
+      } catch (Throwable e) {
+        // Memory may now be ahead of the disk: stop taking commands rather than serve it
+        log.error("Ledger writer failed, the engine stops", e);
+        failure = e;
+        running = false;
+        batch.forEach(command -> command.result.completeExceptionally(e));
+        ring.forEach(command -> command.result.completeExceptionally(e));
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private LedgerResult apply(Command command) throws IOException {
+    var walletId = command.walletId;
+    var balance = balances.get(walletId, Long.MIN_VALUE);
+    if (command.type == LedgerEventType.OPEN) {
+      if (balance != Long.MIN_VALUE) {
+        return applied(walletId, balance, null, null);
+      }
+      balances.put(walletId, command.amount);
+      return append(command, command.amount, 0, null);
+    }
+    if (balance == Long.MIN_VALUE) {
+      return new LedgerResult(Status.WALLET_NOT_FOUND, walletId, 0, null, null);
+    }
+
+    switch (command.type) {
+      case null -> {
+        return applied(walletId, balance, null, null);
+      }
+      case DEPOSIT -> {
+        if (!fits(balance, command.amount)) {
+          return new LedgerResult(Status.BALANCE_LIMIT_EXCEEDED, walletId, balance, null, null);
+        }
+        balances.put(walletId, balance + command.amount);
+        return append(command, balance + command.amount, 0, null);
+      }
+      case WITHDRAW -> {
+        if (balance < command.amount) {
+          return new LedgerResult(Status.INSUFFICIENT_BALANCE, walletId, balance, null, null);
+        }
+        balances.put(walletId, balance - command.amount);
+        return append(command, balance - command.amount, 0, null);
+      }
+      default -> {
+        var payeeId = command.counterpartyId;
+        if (!balances.containsKey(payeeId)) {
+          return new LedgerResult(Status.WALLET_NOT_FOUND, payeeId, 0, null, null);
+        }
+        if (balance < command.amount) {
+          return new LedgerResult(Status.INSUFFICIENT_BALANCE, walletId, balance, null, null);
+        }
+        var payeeBalance = balances.get(payeeId, 0);
+        if (!fits(payeeBalance, command.amount)) {
+          return new LedgerResult(Status.BALANCE_LIMIT_EXCEEDED, payeeId, balance, null, null);
+        }
+        balances.put(walletId, balance - command.amount);
+        payeeBalance += command.amount;
+        balances.put(payeeId, payeeBalance);
+        return append(command, balances.get(walletId, 0), payeeBalance, UUID.randomUUID());
+      }
+    }
+  }
+
+  // A wrapped balance would go to the WAL and come back on every replay, so it is refused before
+  private static boolean fits(long balance, long amount) {
+    return balance <= Long.MAX_VALUE - amount;
+  }
+
+  private LedgerResult append(Command command, long balanceAfter, long counterpartyBalanceAfter,
+      UUID transferId) throws IOException {
+    // The WAL keeps microseconds, the caller gets the same instant the projection will store
+    var event = new LedgerEvent(++sequence, command.type, command.walletId, command.counterpartyId,
+        command.amount, balanceAfter, counterpartyBalanceAfter, transferId,
+        LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+    wal.append(event);
+    return applied(command.walletId, balanceAfter, transferId, event.timestamp());
+  }
+
+  private static LedgerResult applied(long walletId, long balance, UUID transferId,
+      LocalDateTime timestamp) {
+    return new LedgerResult(Status.APPLIED, walletId, balance, transferId, timestamp);
+  }
+
+  private void replay(LedgerEvent event) {
+    balances.put(event.walletId(), event.balanceAfter());
+    if (event.type() == LedgerEventType.TRANSFER) {
+      balances.put(event.counterpartyWalletId(), event.counterpartyBalanceAfter());
+    }
+  }
+
+  // Runs on the writer, so the map is not changing underneath it; commands wait meanwhile
+  private void snapshot() throws IOException {
+    LedgerSnapshot.write(directory, sequence, balances);
+    snapshotSequence = sequence;
+    wal.deleteSegmentsUpTo(Math.min(snapshotSequence, releasedSequence));
+  }
+
+  @FunctionalInterface
+  public interface BalanceLoader {
+
+    void put(long walletId, long balance);
+  }
+
+  private static final class Command {
+
+    private final LedgerEventType type;
+    private final long walletId;
+    private final long counterpartyId;
+    private final long amount;
+    private final CompletableFuture<LedgerResult> result = new CompletableFuture<>();
+    private LedgerResult outcome;
+
+    private Command(LedgerEventType type, long walletId, long counterpartyId, long amount) {
+      this.type = type;
+      this.walletId = walletId;
+      this.counterpartyId = counterpartyId;
+      this.amount = amount;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.edanker.soft.walletservice.ledger;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// One applied operation as written to the WAL. Amounts and balances are in cents and balances are
+// the values after the operation, so replaying an event is a plain overwrite. For a TRANSFER the
+// wallet is the payer and the counterparty the payee.
+public record LedgerEvent(long sequence,
+                          LedgerEventType type,
+                          long walletId,
+                          long counterpartyWalletId,
+                          long amount,
+                          long balanceAfter,
+                          long counterpartyBalanceAfter,
+                          UUID transferId,
+                          LocalDateTime timestamp) {
+}
@@ -0,0 +1,8 @@
+package com.edanker.soft.walletservice.ledger;
+
+public enum LedgerEventType {
+  OPEN,
+  DEPOSIT,
+  WITHDRAW,
+  TRANSFER
+}
@@ -0,0 +1,21 @@
+package com.edanker.soft.walletservice.ledger;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// walletId is the wallet that was not found for WALLET_NOT_FOUND and the wallet that cannot take
+// the amount for BALANCE_LIMIT_EXCEEDED. balance is the wallet's balance in cents, the payer's for
+// a transfer.
+public record LedgerResult(Status status,
+                           long walletId,
+                           long balance,
+                           UUID transferId,
+                           LocalDateTime timestamp) {
+
+  public enum Status {
+    APPLIED,
+    WALLET_NOT_FOUND,
+    INSUFFICIENT_BALANCE,
+    BALANCE_LIMIT_EXCEEDED
+  }
+}
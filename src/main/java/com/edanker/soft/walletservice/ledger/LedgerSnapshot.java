@@ -0,0 +1,95 @@
+package com.edanker.soft.walletservice.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Every balance at one WAL sequence. Written to a temporary file, forced and renamed, so a crash
+// leaves either the previous snapshot or the new one. Recovery loads the newest and replays the
+// WAL after its sequence.
+final class LedgerSnapshot {
+
+  private static final long MAGIC = 0x57414C4C45545331L;
+
+  private LedgerSnapshot() {
+  }
+
+  record Loaded(long sequence, LongLongMap balances) {
+  }
+
+  static void write(Path directory, long sequence, LongLongMap balances) throws IOException {
+    var target = directory.resolve("snapshot-%020d.bin".formatted(sequence));
+    var temporary = directory.resolve(target.getFileName() + ".tmp");
+    try (var file = Files.newOutputStream(temporary);
+        var checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32C());
+        var out = new DataOutputStream(checked)) {
+      out.writeLong(MAGIC);
+      out.writeLong(sequence);
+      out.writeInt(balances.size());
+      balances.<IOException>forEach((walletId, balance) -> {
+        out.writeLong(walletId);
+        out.writeLong(balance);
+      });
+      out.writeLong(checked.getChecksum().getValue());
+      out.flush();
+    }
+    try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+
+    try (var files = Files.list(directory)) {
+      for (var old : files.filter(path -> isSnapshot(path) && !path.equals(target)).toList()) {
+        Files.delete(old);
+      }
+    }
+  }
+
+  // Null when there is no snapshot yet
+  static Loaded readLatest(Path directory) throws IOException {
+    Path latest;
+    try (var files = Files.list(directory)) {
+      latest = files.filter(LedgerSnapshot::isSnapshot)
+          .max(Comparator.comparing(path -> path.getFileName().toString()))
+          .orElse(null);
+    }
+    if (latest == null) {
+      return null;
+    }
+
+    try (var checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(latest), 1 << 16),
+        new CRC32C());
+        var in = new DataInputStream(checked)) {
+      if (in.readLong() != MAGIC) {
+        throw new IllegalStateException(latest + " is not a ledger snapshot");
+      }
+      var sequence = in.readLong();
+      var size = in.readInt();
+      var balances = new LongLongMap(size);
+      for (int i = 0; i < size; i++) {
+        balances.put(in.readLong(), in.readLong());
+      }
+      var expected = checked.getChecksum().getValue();
+      if (in.readLong() != expected) {
+        throw new IllegalStateException(latest + " is corrupt");
+      }
+      return new Loaded(sequence, balances);
+    }
+  }
+
+  private static boolean isSnapshot(Path path) {
+    var name = path.getFileName().toString();
+    return name.startsWith("snapshot-") && name.endsWith(".bin");
+  }
+}
@@ -0,0 +1,101 @@
+package com.edanker.soft.walletservice.ledger;
+
+import java.util.Arrays;
+
+// Open addressing map from wallet id to balance in cents, with no boxing and no per-entry objects.
+// Not thread-safe: only the engine's writer thread touches it. Long.MIN_VALUE marks a free slot,
+// so it cannot be used as a key.
+final class LongLongMap {
+
+  private static final long FREE = Long.MIN_VALUE;
+  private static final float LOAD_FACTOR = 0.6f;
+
+  private long[] keys;
+  private long[] values;
+  private int size;
+  private int resizeAt;
+
+  LongLongMap(int expectedSize) {
+    var capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+    allocate(capacity);
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean containsKey(long key) {
+    return keys[slot(key)] != FREE;
+  }
+
+  // Returns the missing value when the key is absent
+  long get(long key, long missing) {
+    var slot = slot(key);
+    return keys[slot] == FREE ? missing : values[slot];
+  }
+
+  void put(long key, long value) {
+    var slot = slot(key);
+    if (keys[slot] == FREE) {
+      keys[slot] = key;
+      size++;
+      values[slot] = value;
+      if (size > resizeAt) {
+        resize();
+      }
+      return;
+    }
+    values[slot] = value;
+  }
+
+  <E extends Exception> void forEach(EntryConsumer<E> consumer) throws E {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != FREE) {
+        consumer.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  interface EntryConsumer<E extends Exception> {
+
+    void accept(long key, long value) throws E;
+  }
+
+  private int slot(long key) {
+    var mask = keys.length - 1;
+    var slot = (int) mix(key) & mask;
+    while (keys[slot] != FREE && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void resize() {
+    var oldKeys = keys;
+    var oldValues = values;
+    allocate(oldKeys.length << 1);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != FREE) {
+        var slot = slot(oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+        size++;
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new long[capacity];
+    Arrays.fill(keys, FREE);
+    size = 0;
+    resizeAt = (int) (capacity * LOAD_FACTOR);
+  }
+
+  // Sequence ids are dense, so spread them before masking
+  private static long mix(long key) {
+    var h = key * 0x9E3779B97F4A7C15L;
+    return h ^ (h >>> 32);
+  }
+}
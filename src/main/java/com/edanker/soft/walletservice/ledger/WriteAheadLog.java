@@ -0,0 +1,271 @@
+package com.edanker.soft.walletservice.ledger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+// Append-only log of fixed-size records in memory-mapped segment files. Sequences are contiguous
+// from 1 and every segment holds the same number of records, so the file and offset of a sequence
+// are computed, never searched. The writer appends a whole batch into the mapping and forces it to
+// disk once (group commit); nothing is acknowledged before that force returns.
+//
+// Record layout:
+//   0 sequence, 8 type, 12 CRC32C of the record with this field zeroed, 16 wallet,
+//   24 counterparty, 32 amount, 40 balance after, 48 counterparty balance after,
+//   56/64 transfer id, 72 timestamp in epoch microseconds (UTC), 80-95 zero
+final class WriteAheadLog implements AutoCloseable {
+
+  static final int RECORD_SIZE = 96;
+  private static final int CRC_OFFSET = 12;
+  private static final LedgerEventType[] TYPES = LedgerEventType.values();
+
+  private final Path directory;
+  private final long recordsPerSegment;
+
+  private MappedByteBuffer segment;
+  private long segmentIndex = -1;
+  private int writtenUpTo;
+  private int forcedUpTo;
+  private long nextSequence = 1;
+
+  WriteAheadLog(Path directory, long segmentSize) {
+    this.directory = directory;
+    this.recordsPerSegment = segmentSize / RECORD_SIZE;
+    if (recordsPerSegment < 1) {
+      throw new IllegalArgumentException("A WAL segment must hold at least one record");
+    }
+  }
+
+  boolean isEmpty() throws IOException {
+    return segmentIndexes().isEmpty();
+  }
+
+  // Replays every valid record after afterSequence and positions the log after the last one. A
+  // torn or stale tail is zeroed, so it can never be mistaken for a record later.
+  long recover(long afterSequence, Consumer<LedgerEvent> replay) throws IOException {
+    var indexes = segmentIndexes();
+    var sequence = afterSequence;
+    if (!indexes.isEmpty()) {
+      var first = indexes.getFirst();
+      if (first > segmentOf(afterSequence + 1)) {
+        throw new IllegalStateException("WAL segments before sequence " + firstSequenceOf(first)
+            + " are missing");
+      }
+      var buffer = ByteBuffer.allocate(RECORD_SIZE);
+      for (var index : indexes) {
+        if (index < segmentOf(sequence + 1)) {
+          continue;
+        }
+        if (index != segmentOf(sequence + 1)) {
+          break;
+        }
+        try (var channel = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+          var offset = offsetOf(sequence + 1);
+          while (offset + RECORD_SIZE <= channel.size() && offset + RECORD_SIZE <= segmentBytes()) {
+            buffer.clear();
+            channel.read(buffer, offset);
+            buffer.flip();
+            var event = decode(buffer);
+            if (event == null || event.sequence() != sequence + 1) {
+              break;
+            }
+            replay.accept(event);
+            sequence++;
+            offset += RECORD_SIZE;
+          }
+        }
+        if (offsetOf(sequence + 1) != 0) {
+          break;
+        }
+      }
+    }
+
+    nextSequence = sequence + 1;
+    openSegment(segmentOf(nextSequence));
+    var tail = (int) offsetOf(nextSequence);
+    for (int i = tail; i < segmentBytes(); i++) {
+      segment.put(i, (byte) 0);
+    }
+    segment.force();
+    writtenUpTo = tail;
+    forcedUpTo = tail;
+    for (var index : segmentIndexes()) {
+      if (index > segmentIndex) {
+        Files.delete(segmentPath(index));
+      }
+    }
+    return sequence;
+  }
+
+  // Called by the writer only; the record is durable after the next force()
+  void append(LedgerEvent event) throws IOException {
+    if (event.sequence() != nextSequence) {
+      throw new IllegalStateException("Expected sequence " + nextSequence + " but got " + event.sequence());
+    }
+    var index = segmentOf(nextSequence);
+    if (index != segmentIndex) {
+      force();
+      openSegment(index);
+      writtenUpTo = 0;
+      forcedUpTo = 0;
+    }
+    var offset = (int) offsetOf(nextSequence);
+    encode(event, segment.slice(offset, RECORD_SIZE));
+    writtenUpTo = offset + RECORD_SIZE;
+    nextSequence++;
+  }
+
+  void force() {
+    if (segment != null && writtenUpTo > forcedUpTo) {
+      segment.force(forcedUpTo, writtenUpTo - forcedUpTo);
+      forcedUpTo = writtenUpTo;
+    }
+  }
+
+  // Reads up to max records from fromSequence on, stopping before untilSequence (exclusive). Safe
+  // to call from another thread for sequences that were already forced.
+  List<LedgerEvent> read(long fromSequence, long untilSequence, int max) throws IOException {
+    var events = new ArrayList<LedgerEvent>();
+    var buffer = ByteBuffer.allocate(RECORD_SIZE);
+    var sequence = fromSequence;
+    FileChannel channel = null;
+    long channelIndex = -1;
+    try {
+      while (sequence < untilSequence && events.size() < max) {
+        var index = segmentOf(sequence);
+        if (index != channelIndex) {
+          if (channel != null) {
+            channel.close();
+          }
+          channel = FileChannel.open(segmentPath(index), StandardOpenOption.READ);
+          channelIndex = index;
+        }
+        buffer.clear();
+        channel.read(buffer, offsetOf(sequence));
+        buffer.flip();
+        var event = decode(buffer);
+        if (event == null || event.sequence() != sequence) {
+          throw new IllegalStateException("WAL record " + sequence + " is unreadable");
+        }
+        events.add(event);
+        sequence++;
+      }
+    } finally {
+      if (channel != null) {
+        channel.close();
+      }
+    }
+    return events;
+  }
+
+  // Deletes the segments whose records are all at or before sequence, except the one in use
+  void deleteSegmentsUpTo(long sequence) throws IOException {
+    for (var index : segmentIndexes()) {
+      if (index < segmentIndex && firstSequenceOf(index + 1) - 1 <= sequence) {
+        Files.deleteIfExists(segmentPath(index));
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    force();
+    segment = null;
+  }
+
+  private void openSegment(long index) throws IOException {
+    try (var channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes());
+    }
+    segmentIndex = index;
+  }
+
+  private List<Long> segmentIndexes() throws IOException {
+    try (var files = Files.list(directory)) {
+      return files.map(path -> path.getFileName().toString())
+          .filter(name -> name.startsWith("wal-") && name.endsWith(".log"))
+          .map(name -> (Long.parseLong(name.substring(4, name.length() - 4)) - 1) / recordsPerSegment)
+          .sorted()
+          .toList();
+    }
+  }
+
+  private Path segmentPath(long index) {
+    return directory.resolve("wal-%020d.log".formatted(firstSequenceOf(index)));
+  }
+
+  private long segmentBytes() {
+    return recordsPerSegment * RECORD_SIZE;
+  }
+
+  private long segmentOf(long sequence) {
+    return (sequence - 1) / recordsPerSegment;
+  }
+
+  private long offsetOf(long sequence) {
+    return (sequence - 1) % recordsPerSegment * RECORD_SIZE;
+  }
+
+  private long firstSequenceOf(long index) {
+    return index * recordsPerSegment + 1;
+  }
+
+  private static void encode(LedgerEvent event, ByteBuffer buffer) {
+    buffer.putLong(0, event.sequence());
+    buffer.putInt(8, event.type().ordinal());
+    buffer.putInt(CRC_OFFSET, 0);
+    buffer.putLong(16, event.walletId());
+    buffer.putLong(24, event.counterpartyWalletId());
+    buffer.putLong(32, event.amount());
+    buffer.putLong(40, event.balanceAfter());
+    buffer.putLong(48, event.counterpartyBalanceAfter());
+    buffer.putLong(56, event.transferId() == null ? 0 : event.transferId().getMostSignificantBits());
+    buffer.putLong(64, event.transferId() == null ? 0 : event.transferId().getLeastSignificantBits());
+    var timestamp = event.timestamp();
+    buffer.putLong(72, timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + timestamp.getNano() / 1_000);
+    buffer.putLong(80, 0);
+    buffer.putLong(88, 0);
+    buffer.putInt(CRC_OFFSET, crc(buffer));
+  }
+
+  // Null for a zeroed, torn or corrupt record
+  private static LedgerEvent decode(ByteBuffer buffer) {
+    if (buffer.remaining() < RECORD_SIZE || buffer.getLong(0) == 0) {
+      return null;
+    }
+    var stored = buffer.getInt(CRC_OFFSET);
+    buffer.putInt(CRC_OFFSET, 0);
+    var valid = stored == crc(buffer);
+    buffer.putInt(CRC_OFFSET, stored);
+    var type = buffer.getInt(8);
+    if (!valid || type < 0 || type >= TYPES.length) {
+      return null;
+    }
+    var msb = buffer.getLong(56);
+    var lsb = buffer.getLong(64);
+    var micros = buffer.getLong(72);
+    return new LedgerEvent(buffer.getLong(0), TYPES[type], buffer.getLong(16), buffer.getLong(24),
+        buffer.getLong(32), buffer.getLong(40), buffer.getLong(48),
+        msb == 0 && lsb == 0 ? null : new UUID(msb, lsb),
+        LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+            (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC));
+  }
+
+  private static int crc(ByteBuffer buffer) {
+    var crc = new CRC32C();
+    crc.update(buffer.slice(0, RECORD_SIZE));
+    return (int) crc.getValue();
+  }
+}
@@ -0,0 +1,69 @@
+package com.edanker.soft.walletservice.money;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+
+// Immutable snapshot of the FX rates. Every cross rate is worked out once when the snapshot is
+// built, so a lookup is two hash reads with no division and no lock. Rates carry RATE_SCALE
+// decimals, the scale they are stored with on the journal entry.
+public final class FxRateTable {
+
+  public static final int RATE_SCALE = 10;
+
+  private static final MathContext DIVISION = MathContext.DECIMAL128;
+
+  private final Map<Currency, Map<Currency, BigDecimal>> rates;
+  private final LocalDateTime loadedAt;
+
+  private FxRateTable(Map<Currency, Map<Currency, BigDecimal>> rates, LocalDateTime loadedAt) {
+    this.rates = rates;
+    this.loadedAt = loadedAt;
+  }
+
+  public static FxRateTable empty() {
+    return of(Map.of(), null);
+  }
+
+  // toBase holds the units of Money.DEFAULT_CURRENCY per unit of each currency
+  public static FxRateTable of(Map<Currency, BigDecimal> toBase, LocalDateTime loadedAt) {
+    toBase.forEach((currency, rate) -> {
+      if (rate.signum() <= 0) {
+        throw new IllegalArgumentException("The FX rate of " + currency + " must be positive");
+      }
+    });
+    var all = new HashMap<>(toBase);
+    all.put(Money.DEFAULT_CURRENCY, BigDecimal.ONE);
+
+    var rates = new HashMap<Currency, Map<Currency, BigDecimal>>();
+    all.forEach((from, fromRate) -> {
+      var row = new HashMap<Currency, BigDecimal>();
+      all.forEach((to, toRate) -> row.put(to, from.equals(to)
+          ? BigDecimal.ONE
+          : fromRate.divide(toRate, DIVISION).setScale(RATE_SCALE, RoundingMode.HALF_UP)));
+      rates.put(from, Map.copyOf(row));
+    });
+    return new FxRateTable(Map.copyOf(rates), loadedAt);
+  }
+
+  // Returns null when either currency has no rate
+  public BigDecimal rate(Currency from, Currency to) {
+    if (from.equals(to)) {
+      return BigDecimal.ONE;
+    }
+    var row = rates.get(from);
+    return row == null ? null : row.get(to);
+  }
+
+  public int size() {
+    return rates.size();
+  }
+
+  public LocalDateTime getLoadedAt() {
+    return loadedAt;
+  }
+}
@@ -0,0 +1,93 @@
+package com.edanker.soft.walletservice.money;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+// An amount as a long of minor units (cents for BRL). Arithmetic is exact integer math and throws
+// ArithmeticException on overflow instead of wrapping; it never allocates beyond the result, which
+// the JIT usually keeps off the heap. JSON reads and writes it as a plain decimal.
+public record Money(long minorUnits, Currency currency) implements Comparable<Money> {
+
+  // Column definition of every stored amount: 19 digits hold any long of minor units
+  public static final int PRECISION = 19;
+  public static final int SCALE = 2;
+
+  public static final String DEFAULT_CURRENCY_CODE = "BRL";
+  public static final Currency DEFAULT_CURRENCY = Currency.getInstance(DEFAULT_CURRENCY_CODE);
+
+  public Money {
+    Objects.requireNonNull(currency, "currency");
+  }
+
+  @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+  public static Money of(BigDecimal amount) {
+    return of(amount, DEFAULT_CURRENCY);
+  }
+
+  // Rounds half up to the currency's minor unit, like the database column does
+  public static Money of(BigDecimal amount, Currency currency) {
+    var scaled = amount.setScale(fractionDigits(currency), RoundingMode.HALF_UP);
+    return new Money(scaled.unscaledValue().longValueExact(), currency);
+  }
+
+  public static Money ofMinor(long minorUnits) {
+    return new Money(minorUnits, DEFAULT_CURRENCY);
+  }
+
+  public static Money zero(Currency currency) {
+    return new Money(0, currency);
+  }
+
+  public Money plus(Money other) {
+    requireSameCurrency(other);
+    return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+  }
+
+  public Money minus(Money other) {
+    requireSameCurrency(other);
+    return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+  }
+
+  public Money negate() {
+    return new Money(Math.negateExact(minorUnits), currency);
+  }
+
+  public int signum() {
+    return Long.signum(minorUnits);
+  }
+
+  public boolean isGreaterThanOrEqualTo(Money other) {
+    return compareTo(other) >= 0;
+  }
+
+  @Override
+  public int compareTo(Money other) {
+    requireSameCurrency(other);
+    return Long.compare(minorUnits, other.minorUnits);
+  }
+
+  @JsonValue
+  public BigDecimal toBigDecimal() {
+    return BigDecimal.valueOf(minorUnits, fractionDigits(currency));
+  }
+
+  @Override
+  public String toString() {
+    return toBigDecimal().toPlainString() + " " + currency.getCurrencyCode();
+  }
+
+  private void requireSameCurrency(Money other) {
+    if (!currency.equals(other.currency)) {
+      throw new IllegalArgumentException("Cannot combine " + currency + " with " + other.currency);
+    }
+  }
+
+  // Pseudo-currencies such as XXX have no minor unit
+  private static int fractionDigits(Currency currency) {
+    return Math.max(currency.getDefaultFractionDigits(), 0);
+  }
+}
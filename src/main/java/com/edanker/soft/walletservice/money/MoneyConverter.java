@@ -0,0 +1,20 @@
+package com.edanker.soft.walletservice.money;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.math.BigDecimal;
+
+// Maps a Money attribute to a DECIMAL(Money.PRECISION, Money.SCALE) column in the default currency
+@Converter
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+  @Override
+  public BigDecimal convertToDatabaseColumn(Money money) {
+    return money == null ? null : money.toBigDecimal();
+  }
+
+  @Override
+  public Money convertToEntityAttribute(BigDecimal amount) {
+    return amount == null ? null : Money.of(amount);
+  }
+}
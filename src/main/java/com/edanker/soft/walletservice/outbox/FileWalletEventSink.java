@@ -0,0 +1,57 @@
+package com.edanker.soft.walletservice.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Appends one JSON object per line. The batch is forced to disk before the relay moves on, so a
+// crash can repeat events at the end of the file but never lose them.
+public class FileWalletEventSink implements WalletEventSink {
+
+  private final Path file;
+  private final ObjectMapper objectMapper;
+
+  public FileWalletEventSink(Path file, ObjectMapper objectMapper) {
+    this.file = file;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public synchronized void publish(List<WalletEvent> events) {
+    var lines = new ByteArrayOutputStream();
+    try {
+      for (var event : events) {
+        lines.write(objectMapper.writeValueAsBytes(event));
+        lines.write('\n');
+      }
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize the wallet events", e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    try {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND)) {
+        var buffer = ByteBuffer.wrap(lines.toByteArray());
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(false);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not append the wallet events to " + file, e);
+    }
+  }
+}
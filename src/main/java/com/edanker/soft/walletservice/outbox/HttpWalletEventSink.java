@@ -0,0 +1,49 @@
+package com.edanker.soft.walletservice.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+// POSTs each batch as a JSON array and treats anything but a 2xx answer as not delivered
+public class HttpWalletEventSink implements WalletEventSink {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  private final URI url;
+  private final ObjectMapper objectMapper;
+  private final HttpClient client;
+
+  public HttpWalletEventSink(URI url, ObjectMapper objectMapper) {
+    this.url = url;
+    this.objectMapper = objectMapper;
+    this.client = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+  }
+
+  @Override
+  public void publish(List<WalletEvent> events) {
+    try {
+      var request = HttpRequest.newBuilder(url)
+          .timeout(TIMEOUT)
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(events)))
+          .build();
+      var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+      if (response.statusCode() / 100 != 2) {
+        throw new IllegalStateException(url + " answered " + response.statusCode() + " to the wallet events");
+      }
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize the wallet events", e);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not post the wallet events to " + url, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while posting the wallet events", e);
+    }
+  }
+}
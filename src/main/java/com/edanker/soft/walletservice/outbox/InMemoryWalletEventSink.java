@@ -0,0 +1,22 @@
+package com.edanker.soft.walletservice.outbox;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class InMemoryWalletEventSink implements WalletEventSink {
+
+  private final List<WalletEvent> events = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void publish(List<WalletEvent> batch) {
+    events.addAll(batch);
+  }
+
+  public List<WalletEvent> events() {
+    return List.copyOf(events);
+  }
+
+  public void clear() {
+    events.clear();
+  }
+}
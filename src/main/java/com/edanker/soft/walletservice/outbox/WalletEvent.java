@@ -0,0 +1,46 @@
+package com.edanker.soft.walletservice.outbox;
+
+import com.edanker.soft.walletservice.entity.OutboxEvent;
+import com.edanker.soft.walletservice.entity.WalletEventType;
+import com.edanker.soft.walletservice.money.Money;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import lombok.Builder;
+
+// What a sink receives. The id only increases within a shard, so (shard, id) identifies an event
+// and lets consumers drop the duplicates of an at-least-once delivery.
+@Builder
+public record WalletEvent(
+    int shard,
+    Long id,
+    Long walletId,
+    WalletEventType type,
+    Money amount,
+    Money balanceAfter,
+    Currency currency,
+    Long counterpartyWalletId,
+    Long transactionId,
+    LocalDateTime createdAt
+) {
+
+  public static WalletEvent of(int shard, OutboxEvent event) {
+    var currency = event.getCurrency() != null ? event.getCurrency() : Money.DEFAULT_CURRENCY;
+    return WalletEvent.builder()
+        .shard(shard)
+        .id(event.getId())
+        .walletId(event.getWalletId())
+        .type(event.getType())
+        .amount(inCurrency(event.getAmount(), currency))
+        .balanceAfter(inCurrency(event.getBalanceAfter(), currency))
+        .currency(currency)
+        .counterpartyWalletId(event.getCounterpartyWalletId())
+        .transactionId(event.getTransactionId())
+        .createdAt(event.getCreatedAt())
+        .build();
+  }
+
+  // Every supported currency has Money.SCALE fraction digits, so the minor units carry over as they are
+  private static Money inCurrency(Money money, Currency currency) {
+    return money == null ? null : new Money(money.minorUnits(), currency);
+  }
+}
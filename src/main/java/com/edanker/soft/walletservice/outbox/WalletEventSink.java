@@ -0,0 +1,10 @@
+package com.edanker.soft.walletservice.outbox;
+
+import java.util.List;
+
+// Receives the outbox events in id order, per shard. An exception leaves the relay's position
+// where it was and the same events are offered again on the next run.
+public interface WalletEventSink {
+
+  void publish(List<WalletEvent> events);
+}
@@ -0,0 +1,16 @@
+package com.edanker.soft.walletservice.repository;
+
+import com.edanker.soft.walletservice.entity.BalanceCheckpointCursor;
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface BalanceCheckpointCursorRepository extends JpaRepository<BalanceCheckpointCursor, String> {
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT c FROM BalanceCheckpointCursor c WHERE c.name = :name")
+  Optional<BalanceCheckpointCursor> findByNameForUpdate(@Param("name") String name);
+}
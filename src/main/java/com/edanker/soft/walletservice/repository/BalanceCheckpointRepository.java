@@ -0,0 +1,37 @@
+package com.edanker.soft.walletservice.repository;
+
+import com.edanker.soft.walletservice.entity.BalanceCheckpoint;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, Long> {
+
+  // One row per wallet that moved in [periodStart, periodEnd), holding the balance of its last operation
+  @Modifying
+  @Query("INSERT INTO BalanceCheckpoint (wallet, periodEnd, balance) "
+      + "SELECT t.wallet, :periodEnd, t.balanceAfterOperation FROM Transaction t "
+      + "WHERE t.timestamp >= :periodStart AND t.timestamp < :periodEnd "
+      + "AND NOT EXISTS (SELECT 1 FROM Transaction n WHERE n.wallet = t.wallet "
+      + "AND n.timestamp < :periodEnd "
+      + "AND (n.timestamp > t.timestamp OR (n.timestamp = t.timestamp AND n.id > t.id)))")
+  int insertClosingBalances(@Param("periodStart") LocalDateTime periodStart,
+      @Param("periodEnd") LocalDateTime periodEnd);
+
+  @Query("SELECT c FROM BalanceCheckpoint c "
+      + "WHERE c.wallet.id = :walletId AND c.periodEnd >= :from AND c.periodEnd <= :to "
+      + "ORDER BY c.periodEnd")
+  List<BalanceCheckpoint> findByWalletIdAndPeriodEndBetween(@Param("walletId") Long walletId,
+      @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+  @Query("SELECT c.balance FROM BalanceCheckpoint c "
+      + "WHERE c.wallet.id = :walletId AND c.periodEnd < :before "
+      + "ORDER BY c.periodEnd DESC LIMIT 1")
+  Optional<BigDecimal> findLatestBalanceBefore(@Param("walletId") Long walletId,
+      @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,40 @@
+package com.edanker.soft.walletservice.repository;
+
+import com.edanker.soft.walletservice.entity.CrossShardTransfer;
+import com.edanker.soft.walletservice.entity.CrossShardTransferStatus;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface CrossShardTransferRepository extends JpaRepository<CrossShardTransfer, UUID> {
+
+  // Plain insert, never a merge: a second credit of the same transfer must fail on the primary key
+  @Modifying
+  @Query("INSERT INTO CrossShardTransfer (id, payerId, payeeId, value, creditedValue, type, status, createdAt) "
+      + "VALUES (:id, :payerId, :payeeId, :value, :creditedValue, :type, :status, :createdAt)")
+  int insert(@Param("id") UUID id,
+      @Param("payerId") Long payerId,
+      @Param("payeeId") Long payeeId,
+      @Param("value") BigDecimal value,
+      @Param("creditedValue") BigDecimal creditedValue,
+      @Param("type") TransactionType type,
+      @Param("status") CrossShardTransferStatus status,
+      @Param("createdAt") LocalDateTime createdAt);
+
+  @Modifying
+  @Query("UPDATE CrossShardTransfer t SET t.status = :status "
+      + "WHERE t.id = :id AND t.status = com.edanker.soft.walletservice.entity.CrossShardTransferStatus.PENDING")
+  int finish(@Param("id") UUID id, @Param("status") CrossShardTransferStatus status);
+
+  @Query("SELECT t FROM CrossShardTransfer t "
+      + "WHERE t.status = com.edanker.soft.walletservice.entity.CrossShardTransferStatus.PENDING "
+      + "AND t.createdAt < :before ORDER BY t.createdAt")
+  List<CrossShardTransfer> findPendingCreatedBefore(@Param("before") LocalDateTime before, Limit limit);
+}
@@ -0,0 +1,7 @@
+package com.edanker.soft.walletservice.repository;
+
+import com.edanker.soft.walletservice.entity.FxRate;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface FxRateRepository extends JpaRepository<FxRate, String> {
+}
@@ -0,0 +1,35 @@
+package com.edanker.soft.walletservice.repository;
+
+import com.edanker.soft.walletservice.entity.IdempotencyRecord;
+import java.time.LocalDateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+  // Plain insert, never a merge: a duplicate key must fail on the primary key
+  @Modifying
+  @Query("INSERT INTO IdempotencyRecord (key, fingerprint, responseBody, createdAt) "
+      + "VALUES (:key, :fingerprint, :responseBody, :createdAt)")
+  int insert(@Param("key") String key,
+      @Param("fingerprint") String fingerprint,
+      @Param("responseBody") String responseBody,
+      @Param("createdAt") LocalDateTime createdAt);
+
+  @Modifying
+  @Query("INSERT INTO IdempotencyRecord (key, fingerprint, createdAt, pending) "
+      + "VALUES (:key, :fingerprint, :createdAt, true)")
+  int reserve(@Param("key") String key,
+      @Param("fingerprint") String fingerprint,
+      @Param("createdAt") LocalDateTime createdAt);
+
+  @Modifying
+  @Query("UPDATE IdempotencyRecord r SET r.responseBody = :responseBody, r.pending = null WHERE r.key = :key")
+  int complete(@Param("key") String key, @Param("responseBody") String responseBody);
+
+  @Modifying
+  @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :before")
+  int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
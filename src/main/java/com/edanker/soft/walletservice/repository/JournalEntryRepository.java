@@ -0,0 +1,24 @@
+package com.edanker.soft.walletservice.repository;
+
+import com.edanker.soft.walletservice.entity.JournalEntry;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface JournalEntryRepository extends JpaRepository<JournalEntry, Long> {
+
+  // Entries whose legs do not net to zero or are not exactly one debit and one credit. A converted
+  // debit counts at its FX rate. Entries with a credit still waiting in a stripe of the payee are
+  // not posted completely yet.
+  @Query("""
+      SELECT e.id FROM JournalEntry e JOIN Transaction t ON t.journalEntry = e
+      WHERE NOT EXISTS (SELECT 1 FROM StripedCredit c WHERE c.journalEntry = e)
+      GROUP BY e.id
+      HAVING SUM(CASE WHEN t.type = com.edanker.soft.walletservice.entity.TransactionType.DEBIT
+                      THEN -ROUND(t.amount * COALESCE(e.fxRate, 1), 2) ELSE t.amount END) <> 0
+          OR SUM(CASE WHEN t.type = com.edanker.soft.walletservice.entity.TransactionType.DEBIT
+                      THEN 1 ELSE 0 END) <> 1
+          OR COUNT(t) <> 2
+      """)
+  List<Long> findUnbalancedEntryIds();
+}
@@ -0,0 +1,20 @@
+package com.edanker.soft.walletservice.repository;
+
+import com.edanker.soft.walletservice.entity.OutboxEvent;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+  @Query("SELECT e FROM OutboxEvent e WHERE e.id > :after ORDER BY e.id")
+  List<OutboxEvent> findAfter(@Param("after") Long after, Limit limit);
+
+  @Modifying
+  @Query("DELETE FROM OutboxEvent e WHERE e.id <= :upTo AND e.createdAt < :before")
+  int deletePublishedBefore(@Param("upTo") Long upTo, @Param("before") LocalDateTime before);
+}
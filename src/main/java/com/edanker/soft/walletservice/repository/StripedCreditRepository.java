@@ -0,0 +1,17 @@
+package com.edanker.soft.walletservice.repository;
+
+import com.edanker.soft.walletservice.entity.StripedCredit;
+import jakarta.persistence.LockModeType;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface StripedCreditRepository extends JpaRepository<StripedCredit, Long> {
+
+  // A locking read, so it sees every credit committed before the stripes were locked
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT c FROM StripedCredit c WHERE c.walletId = :walletId ORDER BY c.id")
+  List<StripedCredit> findAllByWalletIdForUpdate(@Param("walletId") Long walletId);
+}
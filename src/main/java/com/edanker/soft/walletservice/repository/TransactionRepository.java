@@ -1,16 +1,86 @@
 package com.edanker.soft.walletservice.repository;
 
 import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
-  @Query("SELECT t FROM Transaction t "
-      + "WHERE t.wallet.id = :walletId AND t.timestamp <= :dateTime ORDER BY t.timestamp DESC")
-  List<Transaction> findByWalletIdAndTimestampLessThanEqualOrderByTimestampDesc(
+  // ATOMIC mode: the row takes the balance the conditional UPDATE just wrote, so it is never read
+  // back. Native, because Hibernate runs an HQL INSERT ... SELECT through a temporary table; the
+  // id comes from TransactionIdAllocator.
+  @Modifying
+  @Query(value = "INSERT INTO transaction (id, wallet_id, type, amount, description, timestamp, "
+      + "balance_after_operation) "
+      + "SELECT :id, w.id, :type, :amount, :description, :timestamp, w.balance FROM wallet w "
+      + "WHERE w.id = :walletId", nativeQuery = true)
+  int insertWithCurrentBalance(@Param("id") Long id, @Param("walletId") Long walletId,
+      @Param("type") String type, @Param("amount") BigDecimal amount,
+      @Param("description") String description, @Param("timestamp") LocalDateTime timestamp);
+
+  // The same for a transfer leg, flushed first so its journal entry is already in the table
+  @Modifying(flushAutomatically = true)
+  @Query(value = "INSERT INTO transaction (id, wallet_id, type, amount, timestamp, balance_after_operation, "
+      + "journal_entry_id, counterparty_wallet_id) "
+      + "SELECT :id, w.id, :type, :amount, :timestamp, w.balance, :journalEntryId, :counterpartyWalletId "
+      + "FROM wallet w WHERE w.id = :walletId", nativeQuery = true)
+  int insertTransferLegWithCurrentBalance(@Param("id") Long id, @Param("walletId") Long walletId,
+      @Param("type") String type, @Param("amount") BigDecimal amount,
+      @Param("timestamp") LocalDateTime timestamp, @Param("journalEntryId") Long journalEntryId,
+      @Param("counterpartyWalletId") Long counterpartyWalletId);
+
+  // Served by idx_transaction_wallet_timestamp, the id breaks ties between equal timestamps
+  @Query("SELECT t.balanceAfterOperation FROM Transaction t "
+      + "WHERE t.wallet.id = :walletId AND t.timestamp <= :dateTime "
+      + "ORDER BY t.timestamp DESC, t.id DESC LIMIT 1")
+  Optional<BigDecimal> findBalanceAfterLastOperationAtOrBefore(
+      @Param("walletId") Long walletId, @Param("dateTime") LocalDateTime dateTime);
+
+  @Query("SELECT t.balanceAfterOperation FROM Transaction t "
+      + "WHERE t.wallet.id = :walletId AND t.timestamp < :dateTime "
+      + "ORDER BY t.timestamp DESC, t.id DESC LIMIT 1")
+  Optional<BigDecimal> findBalanceAfterLastOperationBefore(
       @Param("walletId") Long walletId, @Param("dateTime") LocalDateTime dateTime);
+
+  // Seek pagination, newest first, on idx_transaction_wallet_timestamp. The page starts right
+  // after the (timestamp, id) of the previous page's last row, so no row is skipped or counted.
+  @Query("SELECT t FROM Transaction t "
+      + "WHERE t.wallet.id = :walletId AND t.type IN :types AND t.timestamp >= :from "
+      + "AND (t.timestamp < :beforeTimestamp OR (t.timestamp = :beforeTimestamp AND t.id < :beforeId)) "
+      + "ORDER BY t.timestamp DESC, t.id DESC")
+  List<Transaction> findPageBefore(@Param("walletId") Long walletId,
+      @Param("types") Collection<TransactionType> types,
+      @Param("from") LocalDateTime from,
+      @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+      @Param("beforeId") Long beforeId,
+      Limit limit);
+
+  // Fetched from a server-side cursor in blocks, must be consumed inside a transaction
+  @QueryHints({
+      @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+      @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query("SELECT t FROM Transaction t "
+      + "WHERE t.wallet.id = :walletId AND t.type IN :types AND t.timestamp >= :from AND t.timestamp < :to "
+      + "ORDER BY t.timestamp, t.id")
+  Stream<Transaction> streamStatement(@Param("walletId") Long walletId,
+      @Param("types") Collection<TransactionType> types,
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to);
+
+  @Query("SELECT MIN(t.timestamp) FROM Transaction t")
+  Optional<LocalDateTime> findEarliestTimestamp();
 }
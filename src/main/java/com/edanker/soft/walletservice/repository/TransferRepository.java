@@ -1,9 +1,25 @@
 package com.edanker.soft.walletservice.repository;
 
 import com.edanker.soft.walletservice.entity.Transfer;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.UUID;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface TransferRepository extends JpaRepository<Transfer, UUID> {
+
+  // Keeps an id decided outside the database, which save() would replace with a generated one
+  @Modifying
+  @Query("INSERT INTO Transfer (id, sender, receiver, value, createdAt) "
+      + "SELECT :id, s, r, :value, :createdAt FROM Wallet s, Wallet r "
+      + "WHERE s.id = :senderId AND r.id = :receiverId")
+  int insert(@Param("id") UUID id,
+      @Param("senderId") Long senderId,
+      @Param("receiverId") Long receiverId,
+      @Param("value") BigDecimal value,
+      @Param("createdAt") LocalDateTime createdAt);
 }
@@ -1,11 +1,71 @@
 package com.edanker.soft.walletservice.repository;
 
 import com.edanker.soft.walletservice.entity.Wallet;
+import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.List;
+import java.util.stream.Stream;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.Optional;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
 
-  Optional<Wallet> findByCpfCnpjOrEmail(String cpfCnpj, String email);
+  @Query("SELECT COUNT(w) > 0 FROM Wallet w "
+      + "WHERE (w.cpfCnpj = :cpfCnpj OR w.email = :email) AND w.currency = :currency")
+  boolean existsByCpfCnpjOrEmailInCurrency(@Param("cpfCnpj") String cpfCnpj, @Param("email") String email,
+      @Param("currency") Currency currency);
+
+  @Query("SELECT w.currency FROM Wallet w WHERE w.id = :walletId")
+  Optional<Currency> findCurrencyById(@Param("walletId") Long walletId);
+
+  @Query("SELECT w.balance FROM Wallet w WHERE w.id = :walletId")
+  Optional<BigDecimal> findBalanceById(@Param("walletId") Long walletId);
+
+  // One statement, so a sweep moving stripes into the wallet is seen entirely or not at all
+  @Query("SELECT w.balance + COALESCE((SELECT SUM(s.balance) FROM WalletStripe s WHERE s.walletId = w.id), 0) "
+      + "FROM Wallet w WHERE w.id = :walletId")
+  Optional<BigDecimal> findStripedBalanceById(@Param("walletId") Long walletId);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT w FROM Wallet w WHERE w.id = :walletId")
+  Optional<Wallet> findByIdForUpdate(@Param("walletId") Long walletId);
+
+  // Rows are locked in id order, the same order single transfers use
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT w FROM Wallet w WHERE w.id IN :walletIds ORDER BY w.id")
+  List<Wallet> findAllByIdForUpdate(@Param("walletIds") Collection<Long> walletIds);
+
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Wallet w SET w.balance = w.balance + :delta, w.version = COALESCE(w.version, 0) + 1 "
+      + "WHERE w.id = :walletId AND w.balance + :delta >= 0")
+  int applyBalanceDelta(@Param("walletId") Long walletId, @Param("delta") BigDecimal delta);
+
+  // For a version column that was added without its default, see WalletVersionBackfill
+  @Modifying
+  @Query("UPDATE Wallet w SET w.version = 0 WHERE w.version IS NULL")
+  int backfillNullVersions();
+
+  @Query("SELECT w.fullName FROM Wallet w WHERE w.id = :walletId")
+  Optional<String> findFullNameById(@Param("walletId") Long walletId);
+
+  // Pairs of id and balance, read once to seed the ledger engine; must be consumed in a transaction
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+  @Query("SELECT w.id, w.balance FROM Wallet w")
+  Stream<Object[]> streamBalances();
+
+  // The ledger engine owns the balance, the database only stores what it already decided
+  @Modifying
+  @Query("UPDATE Wallet w SET w.balance = :balance, w.version = COALESCE(w.version, 0) + 1 "
+      + "WHERE w.id = :walletId")
+  int updateBalance(@Param("walletId") Long walletId, @Param("balance") BigDecimal balance);
 }
@@ -0,0 +1,36 @@
+package com.edanker.soft.walletservice.repository;
+
+import com.edanker.soft.walletservice.entity.WalletStripe;
+import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface WalletStripeRepository extends JpaRepository<WalletStripe, WalletStripe.Key> {
+
+  @Modifying
+  @Query("INSERT INTO WalletStripe (walletId, stripe, balance) VALUES (:walletId, :stripe, 0)")
+  int insert(@Param("walletId") Long walletId, @Param("stripe") Integer stripe);
+
+  @Query("SELECT s.stripe FROM WalletStripe s WHERE s.walletId = :walletId")
+  List<Integer> findStripesByWalletId(@Param("walletId") Long walletId);
+
+  @Modifying
+  @Query("UPDATE WalletStripe s SET s.balance = s.balance + :amount "
+      + "WHERE s.walletId = :walletId AND s.stripe = :stripe")
+  int addToStripe(@Param("walletId") Long walletId, @Param("stripe") Integer stripe,
+      @Param("amount") BigDecimal amount);
+
+  // Stripes are locked in stripe order, by every sweep of the wallet
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT s FROM WalletStripe s WHERE s.walletId = :walletId ORDER BY s.stripe")
+  List<WalletStripe> findAllByWalletIdForUpdate(@Param("walletId") Long walletId);
+
+  @Modifying
+  @Query("UPDATE WalletStripe s SET s.balance = 0 WHERE s.walletId = :walletId")
+  int empty(@Param("walletId") Long walletId);
+}
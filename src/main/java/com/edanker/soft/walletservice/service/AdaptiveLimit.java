@@ -0,0 +1,104 @@
+package com.edanker.soft.walletservice.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A concurrency limit that follows the latency of the work it admits (a gradient limiter). The
+// baseline is a slow moving average of the latency; while a sample stays within the tolerance
+// of it the limit grows by about its square root, and when samples get slower the limit shrinks
+// in proportion. Failures cut it by the backoff ratio. Admission is one compare-and-set on the
+// in-flight count; a sample that finds another one being applied is dropped instead of waiting.
+final class AdaptiveLimit {
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double rttTolerance;
+  private final double smoothing;
+  private final int baselineWindow;
+  private final double backoffRatio;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final ReentrantLock updateLock = new ReentrantLock();
+
+  // Guarded by updateLock, the admitted limit is published through the volatile field
+  private double estimate;
+  private double baselineNanos;
+  private volatile int limit;
+
+  AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double rttTolerance, double smoothing,
+      int baselineWindow, double backoffRatio) {
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalStateException("A concurrency limit needs 1 <= min-limit <= max-limit");
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.rttTolerance = rttTolerance;
+    this.smoothing = smoothing;
+    this.baselineWindow = baselineWindow;
+    this.backoffRatio = backoffRatio;
+    this.estimate = Math.clamp(initialLimit, minLimit, maxLimit);
+    this.limit = (int) estimate;
+  }
+
+  int limit() {
+    return limit;
+  }
+
+  int inFlight() {
+    return inFlight.get();
+  }
+
+  boolean tryAcquire() {
+    while (true) {
+      var current = inFlight.get();
+      if (current >= limit) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  // inFlightAtStart is the count including the released operation, when it was admitted
+  void release(long rttNanos, int inFlightAtStart, boolean failed) {
+    inFlight.decrementAndGet();
+    if (!updateLock.tryLock()) {
+      return;
+    }
+    try {
+      if (failed) {
+        update(estimate * backoffRatio);
+      } else {
+        onSample(Math.max(1, rttNanos), inFlightAtStart);
+      }
+    } finally {
+      updateLock.unlock();
+    }
+  }
+
+  private void onSample(long rttNanos, int inFlightAtStart) {
+    if (baselineNanos == 0) {
+      baselineNanos = rttNanos;
+    } else {
+      baselineNanos += (rttNanos - baselineNanos) / baselineWindow;
+      // Once the service is fast again the baseline follows it down quickly, or a degradation
+      // would leave it too high to ever notice the next one
+      if (baselineNanos > 2 * rttNanos) {
+        baselineNanos *= 0.95;
+      }
+    }
+
+    var gradient = Math.clamp(rttTolerance * baselineNanos / rttNanos, 0.5, 1.0);
+    var next = estimate * gradient + Math.sqrt(estimate);
+    // A limit that is not being used gives no evidence that a higher one would be safe
+    if (next > estimate && inFlightAtStart < estimate / 2) {
+      return;
+    }
+    update(estimate * (1 - smoothing) + next * smoothing);
+  }
+
+  private void update(double next) {
+    estimate = Math.clamp(next, minLimit, maxLimit);
+    limit = (int) estimate;
+  }
+}
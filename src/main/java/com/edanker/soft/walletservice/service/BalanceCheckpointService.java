@@ -0,0 +1,170 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletCheckpointProperties;
+import com.edanker.soft.walletservice.controller.dto.BalanceResponseDTO;
+import com.edanker.soft.walletservice.entity.BalanceCheckpoint;
+import com.edanker.soft.walletservice.entity.BalanceCheckpointCursor;
+import com.edanker.soft.walletservice.exceptions.InvalidBalanceStatementException;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.repository.BalanceCheckpointCursorRepository;
+import com.edanker.soft.walletservice.repository.BalanceCheckpointRepository;
+import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+@RequiredArgsConstructor
+public class BalanceCheckpointService {
+
+  private static final String CURSOR_NAME = "balance-checkpoint";
+  private static final Set<ChronoUnit> SUPPORTED_INTERVALS = Set.of(ChronoUnit.HOURS, ChronoUnit.DAYS);
+
+  private final BalanceCheckpointRepository checkpointRepository;
+  private final BalanceCheckpointCursorRepository cursorRepository;
+  private final TransactionRepository transactionRepository;
+  private final WalletRepository walletRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final WalletCheckpointProperties properties;
+  private final WalletShardRouter shardRouter;
+  private final ObjectProvider<LedgerProjectionService> ledgerProjection;
+
+  // With the ledger engine, periods close no further than its projection has reached
+  @Scheduled(fixedDelayString = "${wallet.checkpoint.refresh-delay:PT1M}")
+  public void closePendingPeriods() {
+    if (!properties.isEnabled()) {
+      return;
+    }
+    var closable = LocalDateTime.now().minus(properties.getCloseDelay());
+    var projection = ledgerProjection.getIfAvailable();
+    var until = projection == null ? Optional.of(closable) : projection.projectedUntil(closable);
+    until.ifPresent(instant -> shardRouter.forEachShard(shard -> closePeriodsUntil(instant)));
+  }
+
+  // Writes the checkpoints of every whole period ending at or before the given instant, on the
+  // current shard. The cursor row is locked for the whole run, so several instances never close
+  // the same period twice.
+  public int closePeriodsUntil(LocalDateTime until) {
+    var unit = properties.getInterval();
+    var closable = until.truncatedTo(unit);
+
+    Integer closed = transactionTemplate.execute(status -> {
+      var cursor = cursorRepository.findByNameForUpdate(CURSOR_NAME)
+          .orElseGet(() -> newCursor(unit));
+      if (cursor == null) {
+        return 0;
+      }
+
+      var periods = 0;
+      var periodStart = cursor.getClosedUntil();
+      while (periods < properties.getMaxPeriodsPerRun() && !periodStart.plus(1, unit).isAfter(closable)) {
+        var periodEnd = periodStart.plus(1, unit);
+        checkpointRepository.insertClosingBalances(periodStart, periodEnd);
+        periodStart = periodEnd;
+        periods++;
+      }
+
+      cursor.setClosedUntil(periodStart);
+      cursorRepository.save(cursor);
+      return periods;
+    });
+    return closed == null ? 0 : closed;
+  }
+
+  // Closing balance at every interval boundary in [from, to]. Boundaries already covered by closed
+  // checkpoints are answered from one range read, the open tail falls back to a point lookup.
+  public List<BalanceResponseDTO> getBalanceStatement(Long walletId, LocalDateTime from,
+      LocalDateTime to, ChronoUnit interval) {
+    var boundaries = statementBoundaries(from, to, interval);
+    return shardRouter.onShardOf(walletId, () -> readStatement(walletId, boundaries));
+  }
+
+  private List<BalanceResponseDTO> readStatement(Long walletId, List<LocalDateTime> boundaries) {
+    if (!walletRepository.existsById(walletId)) {
+      throw new WalletNotFoundException(walletId);
+    }
+
+    var closedUntil = cursorRepository.findById(CURSOR_NAME)
+        .map(BalanceCheckpointCursor::getClosedUntil)
+        .orElse(null);
+    var checkpointUnit = properties.getInterval();
+
+    List<BalanceCheckpoint> checkpoints = List.of();
+    var balance = BigDecimal.ZERO;
+    if (closedUntil != null && !boundaries.getFirst().isAfter(closedUntil)) {
+      var lastCovered = boundaries.getLast().isAfter(closedUntil) ? closedUntil : boundaries.getLast();
+      checkpoints = checkpointRepository.findByWalletIdAndPeriodEndBetween(walletId,
+          boundaries.getFirst(), lastCovered);
+      balance = checkpointRepository.findLatestBalanceBefore(walletId, boundaries.getFirst())
+          .orElse(BigDecimal.ZERO);
+    }
+
+    var statement = new ArrayList<BalanceResponseDTO>(boundaries.size());
+    var next = 0;
+    for (var boundary : boundaries) {
+      while (next < checkpoints.size() && !checkpoints.get(next).getPeriodEnd().isAfter(boundary)) {
+        balance = checkpoints.get(next++).getBalance();
+      }
+
+      var coveredByCheckpoints = closedUntil != null && !boundary.isAfter(closedUntil)
+          && boundary.truncatedTo(checkpointUnit).equals(boundary);
+      var boundaryBalance = coveredByCheckpoints
+          ? balance
+          : transactionRepository.findBalanceAfterLastOperationBefore(walletId, boundary)
+              .orElse(BigDecimal.ZERO);
+
+      statement.add(BalanceResponseDTO.builder()
+          .balance(boundaryBalance)
+          .timestamp(boundary)
+          .build());
+    }
+    return statement;
+  }
+
+  private List<LocalDateTime> statementBoundaries(LocalDateTime from, LocalDateTime to,
+      ChronoUnit interval) {
+    if (!SUPPORTED_INTERVALS.contains(interval)) {
+      throw new InvalidBalanceStatementException("Interval must be one of " + SUPPORTED_INTERVALS + ".");
+    }
+    if (to.isBefore(from)) {
+      throw new InvalidBalanceStatementException("The end of the statement must not be before its start.");
+    }
+
+    var first = from.truncatedTo(interval);
+    if (first.isBefore(from)) {
+      first = first.plus(1, interval);
+    }
+
+    var boundaries = new ArrayList<LocalDateTime>();
+    for (var boundary = first; !boundary.isAfter(to); boundary = boundary.plus(1, interval)) {
+      if (boundaries.size() == properties.getMaxStatementPoints()) {
+        throw new InvalidBalanceStatementException(
+            "A statement cannot have more than " + properties.getMaxStatementPoints() + " points.");
+      }
+      boundaries.add(boundary);
+    }
+    if (boundaries.isEmpty()) {
+      throw new InvalidBalanceStatementException("The requested range contains no " + interval + " boundary.");
+    }
+    return boundaries;
+  }
+
+  private BalanceCheckpointCursor newCursor(ChronoUnit unit) {
+    return transactionRepository.findEarliestTimestamp()
+        .map(earliest -> BalanceCheckpointCursor.builder()
+            .name(CURSOR_NAME)
+            .closedUntil(earliest.truncatedTo(unit))
+            .build())
+        .orElse(null);
+  }
+}
@@ -0,0 +1,204 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletShardingProperties;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferResponseDTO;
+import com.edanker.soft.walletservice.entity.CrossShardTransfer;
+import com.edanker.soft.walletservice.entity.CrossShardTransferStatus;
+import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import com.edanker.soft.walletservice.entity.Wallet;
+import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.repository.CrossShardTransferRepository;
+import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Transfers between wallets on different shards, as a saga of local transactions: debit the payer
+// and record the transfer as PENDING on the payer's shard, credit the payee on its shard, then mark
+// the transfer COMPLETED. If the payee cannot be credited the payer is refunded and the transfer is
+// COMPENSATED. Any other failure leaves it PENDING for resumePendingTransfers to drive again; every
+// step can run more than once. Balances change through the conditional UPDATE, which bumps the
+// version, so the saga is safe next to any wallet.concurrency mode.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CrossShardTransferService {
+
+  private static final int RESUME_BATCH_SIZE = 100;
+
+  private final WalletRepository walletRepository;
+  private final TransactionRepository transactionRepository;
+  private final CrossShardTransferRepository crossShardTransferRepository;
+  private final WalletTransactionExecutor transactionExecutor;
+  private final WalletShardRouter shardRouter;
+  private final WalletBalanceCache balanceCache;
+  private final WalletShardingProperties properties;
+  private final WalletStripeService stripeService;
+  private final WalletEventOutbox eventOutbox;
+
+  // The credit starts once the debit is committed: right away, or after the caller's transaction
+  // commits when there is one, such as the one that stores an Idempotency-Key
+  public TransferResponseDTO transfer(TransferDTO transferDTO, FxQuote quote) {
+    // A caller's transaction is bound to the payer's shard, so the payee is read in a new one
+    var receiver = shardRouter.onShardOf(transferDTO.payee(), () -> transactionExecutor.executeInNewTransaction(
+            () -> walletRepository.findById(transferDTO.payee())))
+        .orElseThrow(() -> new WalletNotFoundException(transferDTO.payee()));
+
+    var transfer = CrossShardTransfer.builder()
+        .id(UUID.randomUUID())
+        .payerId(transferDTO.payer())
+        .payeeId(transferDTO.payee())
+        .value(transferDTO.value())
+        .creditedValue(quote.credited())
+        .type(TransactionType.DEBIT)
+        .status(CrossShardTransferStatus.PENDING)
+        .createdAt(LocalDateTime.now())
+        .build();
+    var senderName = shardRouter.onShardOf(transfer.getPayerId(),
+        () -> transactionExecutor.execute(() -> debit(transfer)));
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          complete(transfer);
+        }
+      });
+    } else {
+      complete(transfer);
+    }
+
+    return TransferResponseDTO.builder()
+        .id(transfer.getId())
+        .senderId(transfer.getPayerId())
+        .senderName(senderName)
+        .receiverId(receiver.getId())
+        .receiverName(receiver.getFullName())
+        .value(transfer.getValue())
+        .createdAt(transfer.getCreatedAt())
+        .receivedValue(quote.isConverted() ? quote.credited() : null)
+        .fxRate(quote.rate())
+        .build();
+  }
+
+  @Scheduled(fixedDelayString = "${wallet.sharding.transfer-retry-delay:PT30S}")
+  public void resumePendingTransfers() {
+    if (shardRouter.isSharded()) {
+      resumeTransfersCreatedBefore(LocalDateTime.now().minus(properties.getTransferRetryDelay()));
+    }
+  }
+
+  public int resumeTransfersCreatedBefore(LocalDateTime before) {
+    var resumed = new int[1];
+    shardRouter.forEachShard(shard -> {
+      for (var transfer : crossShardTransferRepository.findPendingCreatedBefore(before,
+          Limit.of(RESUME_BATCH_SIZE))) {
+        complete(transfer);
+        resumed[0]++;
+      }
+    });
+    return resumed[0];
+  }
+
+  private void complete(CrossShardTransfer transfer) {
+    try {
+      CrossShardTransferStatus outcome;
+      try {
+        shardRouter.onShardOf(transfer.getPayeeId(),
+            () -> transactionExecutor.executeInNewTransaction(() -> credit(transfer)));
+        outcome = CrossShardTransferStatus.COMPLETED;
+      } catch (DataIntegrityViolationException e) {
+        // Another run credited it first
+        outcome = CrossShardTransferStatus.COMPLETED;
+      } catch (WalletNotFoundException e) {
+        outcome = CrossShardTransferStatus.COMPENSATED;
+      }
+
+      var status = outcome;
+      shardRouter.onShardOf(transfer.getPayerId(),
+          () -> transactionExecutor.executeInNewTransaction(() -> finish(transfer, status)));
+    } catch (RuntimeException e) {
+      log.warn("Cross-shard transfer {} stays pending and will be retried", transfer.getId(), e);
+    }
+  }
+
+  // Returns the payer's name for the response
+  private String debit(CrossShardTransfer transfer) {
+    balanceCache.evict(transfer.getPayerId());
+    var balance = applyBalanceDelta(transfer.getPayerId(), transfer.getValue().negate());
+    crossShardTransferRepository.insert(transfer.getId(), transfer.getPayerId(), transfer.getPayeeId(),
+        transfer.getValue(), transfer.getCreditedValue(), TransactionType.DEBIT, CrossShardTransferStatus.PENDING,
+        transfer.getCreatedAt());
+    eventOutbox.record(transactionRepository.save(ledgerRow(transfer.getPayerId(), TransactionType.DEBIT,
+            transfer.getValue(), balance)
+        .counterpartyWalletId(transfer.getPayeeId())
+        .build()));
+    return walletRepository.findById(transfer.getPayerId()).map(Wallet::getFullName).orElseThrow();
+  }
+
+  private Void credit(CrossShardTransfer transfer) {
+    if (crossShardTransferRepository.existsById(transfer.getId())) {
+      return null;
+    }
+    var credited = transfer.getCreditedValue() == null ? transfer.getValue() : transfer.getCreditedValue();
+    crossShardTransferRepository.insert(transfer.getId(), transfer.getPayerId(), transfer.getPayeeId(),
+        transfer.getValue(), credited, TransactionType.CREDIT, CrossShardTransferStatus.COMPLETED,
+        transfer.getCreatedAt());
+    balanceCache.evict(transfer.getPayeeId());
+    var balance = applyBalanceDelta(transfer.getPayeeId(), credited);
+    eventOutbox.record(transactionRepository.save(ledgerRow(transfer.getPayeeId(), TransactionType.CREDIT,
+            credited, balance)
+        .counterpartyWalletId(transfer.getPayerId())
+        .build()));
+    return null;
+  }
+
+  private Void finish(CrossShardTransfer transfer, CrossShardTransferStatus outcome) {
+    if (crossShardTransferRepository.finish(transfer.getId(), outcome) == 0
+        || outcome != CrossShardTransferStatus.COMPENSATED) {
+      return null;
+    }
+    balanceCache.evict(transfer.getPayerId());
+    var balance = applyBalanceDelta(transfer.getPayerId(), transfer.getValue());
+    eventOutbox.record(transactionRepository.save(ledgerRow(transfer.getPayerId(), TransactionType.CREDIT,
+            transfer.getValue(), balance)
+        .description("Reversal of transfer to wallet ID: " + transfer.getPayeeId())
+        .build()));
+    return null;
+  }
+
+  private BigDecimal applyBalanceDelta(Long walletId, BigDecimal delta) {
+    if (walletRepository.applyBalanceDelta(walletId, delta) == 0) {
+      if (!walletRepository.existsById(walletId)) {
+        throw new WalletNotFoundException(walletId);
+      }
+      if (!stripeService.isStriped(walletId) || stripeService.sweep(walletId).signum() == 0
+          || walletRepository.applyBalanceDelta(walletId, delta) == 0) {
+        throw new InsufficientBalanceException();
+      }
+    }
+    return walletRepository.findBalanceById(walletId).orElseThrow();
+  }
+
+  private Transaction.TransactionBuilder ledgerRow(Long walletId, TransactionType type,
+      BigDecimal amount, BigDecimal balanceAfterOperation) {
+    return Transaction.builder()
+        .wallet(walletRepository.getReferenceById(walletId))
+        .type(type)
+        .amount(amount)
+        .timestamp(LocalDateTime.now())
+        .balanceAfterOperation(balanceAfterOperation);
+  }
+}
@@ -0,0 +1,16 @@
+package com.edanker.soft.walletservice.service;
+
+import java.math.BigDecimal;
+
+// What a transfer moves: debited from the payer in its currency, credited to the payee in its
+// own. The rate is null when both wallets share a currency.
+public record FxQuote(BigDecimal debited, BigDecimal credited, BigDecimal rate) {
+
+  public static FxQuote identity(BigDecimal value) {
+    return new FxQuote(value, value, null);
+  }
+
+  public boolean isConverted() {
+    return rate != null;
+  }
+}
@@ -0,0 +1,187 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.ShardContext;
+import com.edanker.soft.walletservice.config.WalletFxProperties;
+import com.edanker.soft.walletservice.exceptions.FxAmountTooSmallException;
+import com.edanker.soft.walletservice.exceptions.FxRateUnavailableException;
+import com.edanker.soft.walletservice.exceptions.UnsupportedCurrencyException;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.money.FxRateTable;
+import com.edanker.soft.walletservice.money.Money;
+import com.edanker.soft.walletservice.repository.FxRateRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Converts transfers between wallets of different currencies. The rates are an immutable
+// FxRateTable behind a volatile field: a refresh builds a new table off to the side and swaps it
+// in, so requests read rates without a lock or a query. A refresh that fails keeps the table
+// already loaded.
+@Slf4j
+@Service
+public class FxRateService implements SmartLifecycle {
+
+  private final WalletFxProperties properties;
+  private final FxRateRepository rateRepository;
+  private final WalletRepository walletRepository;
+  private final WalletShardRouter shardRouter;
+  private final WalletTransactionExecutor transactionExecutor;
+  private final TransactionTemplate transactionTemplate;
+  private final Cache<Long, Currency> walletCurrencies;
+  private volatile FxRateTable table = FxRateTable.empty();
+  private volatile boolean running;
+
+  public FxRateService(WalletFxProperties properties, FxRateRepository rateRepository,
+      WalletRepository walletRepository, WalletShardRouter shardRouter,
+      WalletTransactionExecutor transactionExecutor, TransactionTemplate transactionTemplate) {
+    this.properties = properties;
+    this.rateRepository = rateRepository;
+    this.walletRepository = walletRepository;
+    this.shardRouter = shardRouter;
+    this.transactionExecutor = transactionExecutor;
+    this.transactionTemplate = transactionTemplate;
+    this.walletCurrencies = Caffeine.newBuilder().maximumSize(100_000).build();
+  }
+
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  public FxRateTable rates() {
+    return table;
+  }
+
+  // Amounts are stored with Money.SCALE decimals, so only currencies with that many can be held
+  public void requireSupported(Currency currency) {
+    if (!currency.equals(Money.DEFAULT_CURRENCY) && !isEnabled()) {
+      throw new UnsupportedCurrencyException("Wallets in " + currency + " need wallet.fx.enabled.");
+    }
+    if (currency.getDefaultFractionDigits() != Money.SCALE) {
+      throw new UnsupportedCurrencyException(currency + " does not have " + Money.SCALE + " decimal places.");
+    }
+  }
+
+  public FxQuote quote(Long payer, Long payee, BigDecimal value) {
+    return quote(currencyOf(payer), currencyOf(payee), value);
+  }
+
+  public FxQuote quote(Currency from, Currency to, BigDecimal value) {
+    if (from.equals(to)) {
+      return FxQuote.identity(value);
+    }
+    var rate = table.rate(from, to);
+    if (rate == null) {
+      throw new FxRateUnavailableException(from, to);
+    }
+    // Rounding can leave nothing to credit, which would debit the payer for no money received
+    var credited = Money.of(value.multiply(rate), to);
+    if (credited.signum() == 0) {
+      throw new FxAmountTooSmallException(value, from, to);
+    }
+    return new FxQuote(value, credited.toBigDecimal(), rate);
+  }
+
+  // A wallet's currency never changes, so it is read once
+  public Currency currencyOf(Long walletId) {
+    return walletCurrencies.get(walletId, id -> loadCurrency(id).orElseThrow(() -> new WalletNotFoundException(id)));
+  }
+
+  // Inside a transaction on the wallet's shard the caller's connection is used: waiting for a
+  // second one from the same pool deadlocks once every connection is held by such a caller. Only
+  // the counterparty of a cross-shard transfer is read in a transaction of its own.
+  private Optional<Currency> loadCurrency(Long walletId) {
+    var shard = shardRouter.shardOf(walletId);
+    if (!TransactionSynchronizationManager.isActualTransactionActive()
+        || !shardRouter.isSharded()
+        || Integer.valueOf(shard).equals(ShardContext.current())) {
+      return shardRouter.onShard(shard, () -> walletRepository.findCurrencyById(walletId));
+    }
+    return shardRouter.onShard(shard,
+        () -> transactionExecutor.executeInNewTransaction(() -> walletRepository.findCurrencyById(walletId)));
+  }
+
+  @Scheduled(fixedDelayString = "${wallet.fx.refresh-delay:PT1M}")
+  public void refreshRates() {
+    if (!isEnabled()) {
+      return;
+    }
+    try {
+      var loaded = FxRateTable.of(load(), LocalDateTime.now());
+      table = loaded;
+      log.debug("Loaded {} FX rates from {}", loaded.size(), properties.getSource());
+    } catch (RuntimeException e) {
+      log.warn("Could not refresh the FX rates, keeping the ones loaded at {}", table.getLoadedAt(), e);
+    }
+  }
+
+  @Override
+  public void start() {
+    refreshRates();
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  // Rates are in place before the web server takes requests
+  @Override
+  public int getPhase() {
+    return SmartLifecycle.DEFAULT_PHASE - 4096;
+  }
+
+  private Map<Currency, BigDecimal> load() {
+    var rates = new HashMap<Currency, BigDecimal>();
+    switch (properties.getSource()) {
+      case FILE -> {
+        try {
+          for (var line : Files.readAllLines(properties.getFile())) {
+            var trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+              continue;
+            }
+            var fields = trimmed.split(",");
+            if (fields.length != 2) {
+              throw new IllegalArgumentException("Malformed FX rate line: " + line);
+            }
+            put(rates, fields[0].strip(), new BigDecimal(fields[1].strip()));
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException("Could not read " + properties.getFile(), e);
+        }
+      }
+      case DATABASE -> transactionTemplate.executeWithoutResult(status ->
+          rateRepository.findAll().forEach(rate -> put(rates, rate.getCurrency(), rate.getRate())));
+    }
+    return rates;
+  }
+
+  private static void put(Map<Currency, BigDecimal> rates, String code, BigDecimal rate) {
+    var currency = Currency.getInstance(code);
+    if (currency.getDefaultFractionDigits() != Money.SCALE) {
+      throw new IllegalArgumentException(currency + " does not have " + Money.SCALE + " decimal places");
+    }
+    rates.put(currency, rate);
+  }
+}
@@ -0,0 +1,186 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletIdempotencyProperties;
+import com.edanker.soft.walletservice.entity.IdempotencyRecord;
+import com.edanker.soft.walletservice.exceptions.IdempotencyKeyInProgressException;
+import com.edanker.soft.walletservice.exceptions.IdempotencyKeyReusedException;
+import com.edanker.soft.walletservice.exceptions.InvalidIdempotencyKeyException;
+import com.edanker.soft.walletservice.exceptions.WalletException;
+import com.edanker.soft.walletservice.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Runs a mutation at most once per Idempotency-Key. The key is inserted in the same database
+// transaction as the mutation, so the primary key of idempotency_key decides between concurrent
+// duplicates: the loser blocks on the insert, rolls back and replays the winner's response.
+// With sharding the key is kept on the shard of the wallet the request is about.
+//
+// Ledger engine and coalesced operations commit outside of the caller's database transaction, so
+// there the key is reserved first, in a transaction of its own, and completed with the response
+// afterwards. A duplicate arriving in between gets a 409 instead of running the operation again.
+@Service
+public class IdempotencyService {
+
+  private final IdempotencyRecordRepository recordRepository;
+  private final WalletTransactionExecutor transactionExecutor;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper objectMapper;
+  private final WalletIdempotencyProperties properties;
+  private final WalletShardRouter shardRouter;
+  private final LedgerEngineService ledgerEngine;
+  private final WalletWriteCoalescer writeCoalescer;
+  private final Cache<String, IdempotencyRecord> recentKeys;
+
+  public IdempotencyService(IdempotencyRecordRepository recordRepository,
+      WalletTransactionExecutor transactionExecutor, TransactionTemplate transactionTemplate,
+      ObjectMapper objectMapper, WalletIdempotencyProperties properties, WalletShardRouter shardRouter,
+      LedgerEngineService ledgerEngine, WalletWriteCoalescer writeCoalescer) {
+    this.recordRepository = recordRepository;
+    this.transactionExecutor = transactionExecutor;
+    this.transactionTemplate = transactionTemplate;
+    this.objectMapper = objectMapper;
+    this.properties = properties;
+    this.shardRouter = shardRouter;
+    this.ledgerEngine = ledgerEngine;
+    this.writeCoalescer = writeCoalescer;
+    this.recentKeys = Caffeine.newBuilder()
+        .maximumSize(properties.getCacheSize())
+        .expireAfterWrite(properties.getRetention())
+        .build();
+  }
+
+  public <T> IdempotentResult<T> execute(String key, Long walletId, String request,
+      Class<T> responseType, Supplier<T> operation) {
+    if (key == null) {
+      return new IdempotentResult<>(operation.get(), false);
+    }
+    if (key.isBlank() || key.length() > 255) {
+      throw new InvalidIdempotencyKeyException();
+    }
+    return shardRouter.onShardOf(walletId, () -> executeOnce(key, request, responseType, operation));
+  }
+
+  private <T> IdempotentResult<T> executeOnce(String key, String request, Class<T> responseType,
+      Supplier<T> operation) {
+    var fingerprint = fingerprint(request);
+    var stored = recentKeys.getIfPresent(key);
+    if (stored != null) {
+      return replay(stored, fingerprint, responseType);
+    }
+    if (ledgerEngine.isEnabled() || writeCoalescer.isEnabled()) {
+      return executeReserved(key, fingerprint, responseType, operation);
+    }
+
+    // A key missing from the cache is not read before the operation, its insert catches duplicates
+    try {
+      var record = transactionExecutor.execute(() -> {
+        var response = operation.get();
+        var body = serialize(response);
+        recordRepository.insert(key, fingerprint, body, LocalDateTime.now());
+        return IdempotencyRecord.builder().key(key).fingerprint(fingerprint).responseBody(body).build();
+      });
+      recentKeys.put(key, record);
+      return new IdempotentResult<>(deserialize(record.getResponseBody(), responseType), false);
+    } catch (DataIntegrityViolationException e) {
+      // A concurrent request with the same key committed first and this one was rolled back
+      var winner = recordRepository.findById(key).orElseThrow(() -> e);
+      return replay(winner, fingerprint, responseType);
+    } catch (WalletException e) {
+      // A retry can be rejected by the effect of its own original, a withdrawal of the whole
+      // balance for instance, so a stored response wins over the rejection
+      var original = recordRepository.findById(key).orElseThrow(() -> e);
+      return replay(original, fingerprint, responseType);
+    }
+  }
+
+  private <T> IdempotentResult<T> executeReserved(String key, String fingerprint, Class<T> responseType,
+      Supplier<T> operation) {
+    try {
+      transactionExecutor.executeInNewTransaction(() ->
+          recordRepository.reserve(key, fingerprint, LocalDateTime.now()));
+    } catch (DataIntegrityViolationException e) {
+      var winner = recordRepository.findById(key).orElseThrow(() -> e);
+      return replay(winner, fingerprint, responseType);
+    }
+
+    T response;
+    try {
+      response = operation.get();
+    } catch (WalletException e) {
+      // Rejected without changing anything, the key may be used again. Any other failure leaves
+      // the outcome unknown and the reservation in place until it is purged.
+      transactionExecutor.executeInNewTransaction(() -> {
+        recordRepository.deleteById(key);
+        return null;
+      });
+      throw e;
+    }
+
+    var body = serialize(response);
+    transactionExecutor.executeInNewTransaction(() -> recordRepository.complete(key, body));
+    recentKeys.put(key, IdempotencyRecord.builder().key(key).fingerprint(fingerprint).responseBody(body).build());
+    return new IdempotentResult<>(deserialize(body, responseType), false);
+  }
+
+  @Scheduled(fixedDelayString = "${wallet.idempotency.purge-delay:PT10M}")
+  public void purgeExpiredKeys() {
+    var before = LocalDateTime.now().minus(properties.getRetention());
+    shardRouter.forEachShard(shard -> transactionTemplate.executeWithoutResult(status ->
+        recordRepository.deleteCreatedBefore(before)));
+  }
+
+  private <T> IdempotentResult<T> replay(IdempotencyRecord record, String fingerprint,
+      Class<T> responseType) {
+    if (!record.getFingerprint().equals(fingerprint)) {
+      throw new IdempotencyKeyReusedException(record.getKey());
+    }
+    if (record.isPending()) {
+      throw new IdempotencyKeyInProgressException(record.getKey());
+    }
+    recentKeys.put(record.getKey(), record);
+    return new IdempotentResult<>(deserialize(record.getResponseBody(), responseType), true);
+  }
+
+  private String serialize(Object response) {
+    if (response == null) {
+      return null;
+    }
+    try {
+      return objectMapper.writeValueAsString(response);
+    } catch (JsonProcessingException e) {
+      throw new WalletException();
+    }
+  }
+
+  private <T> T deserialize(String body, Class<T> responseType) {
+    if (body == null) {
+      return null;
+    }
+    try {
+      return objectMapper.readValue(body, responseType);
+    } catch (JsonProcessingException e) {
+      throw new WalletException();
+    }
+  }
+
+  private static String fingerprint(String request) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(request.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,4 @@
+package com.edanker.soft.walletservice.service;
+
+public record IdempotentResult<T>(T body, boolean replayed) {
+}
@@ -0,0 +1,181 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletFxProperties;
+import com.edanker.soft.walletservice.config.WalletLedgerEngineProperties;
+import com.edanker.soft.walletservice.config.WalletShardingProperties;
+import com.edanker.soft.walletservice.config.WalletStripingProperties;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferResponseDTO;
+import com.edanker.soft.walletservice.exceptions.BalanceLimitExceededException;
+import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.ledger.LedgerEngine;
+import com.edanker.soft.walletservice.ledger.LedgerEvent;
+import com.edanker.soft.walletservice.ledger.LedgerResult;
+import com.edanker.soft.walletservice.money.Money;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Front of the in-memory ledger engine when wallet.ledger-engine.enabled is set. Balances are
+// decided by the engine and are durable once a call returns; LedgerProjectionService copies the
+// WAL into the wallet, transfer and transaction tables shortly after. Amounts cross the engine as
+// cents. When the engine is disabled this bean stays idle and WalletService uses the database.
+@Slf4j
+@Service
+public class LedgerEngineService implements SmartLifecycle {
+
+  private final WalletLedgerEngineProperties properties;
+  private final WalletRepository walletRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final Cache<Long, String> walletNames;
+  private volatile LedgerEngine engine;
+
+  public LedgerEngineService(WalletLedgerEngineProperties properties, WalletRepository walletRepository,
+      TransactionTemplate transactionTemplate, WalletShardingProperties shardingProperties,
+      WalletStripingProperties stripingProperties, WalletFxProperties fxProperties) {
+    if (properties.isEnabled() && (shardingProperties.isEnabled() || !stripingProperties.getWalletIds().isEmpty())) {
+      throw new IllegalStateException("wallet.ledger-engine.enabled cannot be combined with sharding or striping");
+    }
+    // The engine moves the same amount out of the payer and into the payee
+    if (properties.isEnabled() && fxProperties.isEnabled()) {
+      throw new IllegalStateException("wallet.ledger-engine.enabled cannot be combined with wallet.fx.enabled");
+    }
+    this.properties = properties;
+    this.walletRepository = walletRepository;
+    this.transactionTemplate = transactionTemplate;
+    this.walletNames = Caffeine.newBuilder().maximumSize(100_000).build();
+  }
+
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  public void open(Long walletId, BigDecimal balance) {
+    engine().open(walletId, toCents(balance));
+  }
+
+  public BigDecimal getCurrentBalance(Long walletId) {
+    return toAmount(require(() -> engine().balance(walletId)).balance());
+  }
+
+  public BigDecimal deposit(Long walletId, BigDecimal amount) {
+    return toAmount(require(() -> engine().deposit(walletId, toCents(amount))).balance());
+  }
+
+  public BigDecimal withdraw(Long walletId, BigDecimal amount) {
+    return toAmount(require(() -> engine().withdraw(walletId, toCents(amount))).balance());
+  }
+
+  public TransferResponseDTO transfer(TransferDTO transferDTO) {
+    return toTransferResponse(transferDTO, post(transferDTO));
+  }
+
+  LedgerResult post(TransferDTO transferDTO) {
+    var payer = transferDTO.payer();
+    var payee = transferDTO.payee();
+    var cents = toCents(transferDTO.value());
+    return require(() -> engine().transfer(payer, payee, cents));
+  }
+
+  TransferResponseDTO toTransferResponse(TransferDTO transferDTO, LedgerResult result) {
+    return TransferResponseDTO.builder()
+        .id(result.transferId())
+        .senderId(transferDTO.payer())
+        .senderName(nameOf(transferDTO.payer()))
+        .receiverId(transferDTO.payee())
+        .receiverName(nameOf(transferDTO.payee()))
+        .value(transferDTO.value())
+        .createdAt(result.timestamp())
+        .build();
+  }
+
+  List<LedgerEvent> read(long fromSequence, int max) {
+    return engine().read(fromSequence, max);
+  }
+
+  // A projection run that overlaps the shutdown has nothing left to release
+  void release(long sequence) {
+    var ledger = engine;
+    if (ledger != null) {
+      ledger.release(sequence);
+    }
+  }
+
+  static BigDecimal toAmount(long cents) {
+    return Money.ofMinor(cents).toBigDecimal();
+  }
+
+  @Override
+  public void start() {
+    if (!isEnabled()) {
+      return;
+    }
+    var ledger = new LedgerEngine(properties.getDirectory(), properties.getRingBufferSize(),
+        properties.getWalSegmentSize().toBytes(), properties.getSnapshotEvery());
+    // Only a brand new ledger is seeded from the database, afterwards the engine's files win
+    ledger.start(loader -> transactionTemplate.executeWithoutResult(status -> {
+      try (var balances = walletRepository.streamBalances()) {
+        balances.forEach(row -> loader.put((Long) row[0], toCents((BigDecimal) row[1])));
+      }
+    }));
+    engine = ledger;
+  }
+
+  @Override
+  public void stop() {
+    if (engine != null) {
+      engine.close();
+      engine = null;
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return engine != null;
+  }
+
+  // A wallet committed to the database but not opened in the engine, because the instance stopped
+  // in between, is opened on first use with the balance it was created with. A transfer can find
+  // both of its wallets missing, hence up to two retries.
+  private LedgerResult require(Supplier<LedgerResult> command) {
+    var result = command.get();
+    for (int retry = 0; retry < 2 && result.status() == LedgerResult.Status.WALLET_NOT_FOUND; retry++) {
+      var walletId = result.walletId();
+      var balance = walletRepository.findBalanceById(walletId)
+          .orElseThrow(() -> new WalletNotFoundException(walletId));
+      log.warn("Wallet {} was missing from the ledger engine and is opened with {}", walletId, balance);
+      engine().open(walletId, toCents(balance));
+      result = command.get();
+    }
+    return switch (result.status()) {
+      case APPLIED -> result;
+      case WALLET_NOT_FOUND -> throw new WalletNotFoundException(result.walletId());
+      case INSUFFICIENT_BALANCE -> throw new InsufficientBalanceException();
+      case BALANCE_LIMIT_EXCEEDED -> throw new BalanceLimitExceededException(result.walletId());
+    };
+  }
+
+  private LedgerEngine engine() {
+    var ledger = engine;
+    if (ledger == null) {
+      throw new IllegalStateException("The ledger engine is not running");
+    }
+    return ledger;
+  }
+
+  private String nameOf(Long walletId) {
+    return walletNames.get(walletId, id -> walletRepository.findFullNameById(id).orElse(null));
+  }
+
+  private static long toCents(BigDecimal amount) {
+    return Money.of(amount).minorUnits();
+  }
+}
@@ -0,0 +1,147 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletLedgerEngineProperties;
+import com.edanker.soft.walletservice.entity.JournalEntry;
+import com.edanker.soft.walletservice.entity.LedgerProjectionCursor;
+import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import com.edanker.soft.walletservice.ledger.LedgerEvent;
+import com.edanker.soft.walletservice.ledger.LedgerEventType;
+import com.edanker.soft.walletservice.repository.JournalEntryRepository;
+import com.edanker.soft.walletservice.repository.LedgerProjectionCursorRepository;
+import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.repository.TransferRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Copies the ledger engine's WAL into the tables the rest of the service reads: ledger rows,
+// transfers with their journal entries and the wallet balances. Each batch is written in one
+// transaction together with the cursor, so every record lands exactly once, and only then may
+// the engine drop the WAL segments behind it.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "wallet.ledger-engine", name = "enabled", havingValue = "true")
+public class LedgerProjectionService {
+
+  private static final String CURSOR_NAME = "ledger-engine";
+
+  private final LedgerEngineService engineService;
+  private final LedgerProjectionCursorRepository cursorRepository;
+  private final WalletRepository walletRepository;
+  private final TransactionRepository transactionRepository;
+  private final TransferRepository transferRepository;
+  private final JournalEntryRepository journalEntryRepository;
+  private final WalletEventOutbox eventOutbox;
+  private final TransactionTemplate transactionTemplate;
+  private final WalletLedgerEngineProperties properties;
+
+  @Scheduled(fixedDelayString = "${wallet.ledger-engine.projection-delay:PT0.05S}")
+  public void projectPendingEvents() {
+    try {
+      while (engineService.isRunning() && projectBatch() == properties.getProjectionBatchSize()) {
+        // A full batch means the projection is behind, keep going
+      }
+    } catch (RuntimeException e) {
+      log.warn("Could not project the ledger engine WAL", e);
+    }
+  }
+
+  // Returns the number of WAL records written to the database
+  public int projectBatch() {
+    var events = transactionTemplate.execute(status -> {
+      var cursor = cursorRepository.findByNameForUpdate(CURSOR_NAME)
+          .orElseGet(() -> LedgerProjectionCursor.builder().name(CURSOR_NAME).sequence(0L).build());
+      var batch = engineService.read(cursor.getSequence() + 1, properties.getProjectionBatchSize());
+      if (batch.isEmpty()) {
+        return batch;
+      }
+
+      // Only the last balance of each wallet in the batch needs to reach its row
+      var balances = new HashMap<Long, Long>();
+      for (var event : batch) {
+        project(event);
+        balances.put(event.walletId(), event.balanceAfter());
+        if (event.type() == LedgerEventType.TRANSFER) {
+          balances.put(event.counterpartyWalletId(), event.counterpartyBalanceAfter());
+        }
+      }
+      balances.forEach((walletId, balance) ->
+          walletRepository.updateBalance(walletId, LedgerEngineService.toAmount(balance)));
+
+      cursor.setSequence(batch.getLast().sequence());
+      cursorRepository.save(cursor);
+      return batch;
+    });
+
+    if (!events.isEmpty()) {
+      engineService.release(events.getLast().sequence());
+    }
+    return events.size();
+  }
+
+  private void project(LedgerEvent event) {
+    var amount = LedgerEngineService.toAmount(event.amount());
+    switch (event.type()) {
+      case OPEN -> {
+        // The wallet row was inserted with this balance before the engine opened it
+      }
+      case DEPOSIT -> eventOutbox.record(transactionRepository.save(ledgerRow(event.walletId(),
+          TransactionType.CREDIT, event, event.balanceAfter()).description("Deposit operation").build()));
+      case WITHDRAW -> eventOutbox.record(transactionRepository.save(ledgerRow(event.walletId(),
+          TransactionType.DEBIT, event, event.balanceAfter()).description("Withdrawal operation").build()));
+      case TRANSFER -> {
+        var payer = event.walletId();
+        var payee = event.counterpartyWalletId();
+        transferRepository.insert(event.transferId(), payer, payee, amount, event.timestamp());
+        var entry = journalEntryRepository.save(JournalEntry.builder()
+            .transfer(transferRepository.getReferenceById(event.transferId()))
+            .build());
+        eventOutbox.record(transactionRepository.save(ledgerRow(payer, TransactionType.DEBIT, event,
+                event.balanceAfter())
+            .journalEntry(entry)
+            .counterpartyWalletId(payee)
+            .build()));
+        eventOutbox.record(transactionRepository.save(ledgerRow(payee, TransactionType.CREDIT, event,
+                event.counterpartyBalanceAfter())
+            .journalEntry(entry)
+            .counterpartyWalletId(payer)
+            .build()));
+      }
+    }
+  }
+
+  // Latest instant, at most until, before which every applied record is in the database. Rows keep
+  // the timestamp the engine gave them, so a lagging projection still writes into the past and no
+  // checkpoint period may close after the oldest record it has not projected yet. Empty while the
+  // engine is stopped and its WAL cannot be read.
+  public Optional<LocalDateTime> projectedUntil(LocalDateTime until) {
+    if (!engineService.isRunning()) {
+      return Optional.empty();
+    }
+    var sequence = cursorRepository.findById(CURSOR_NAME).map(LedgerProjectionCursor::getSequence).orElse(0L);
+    var pending = engineService.read(sequence + 1, 1);
+    if (pending.isEmpty() || pending.getFirst().timestamp().isAfter(until)) {
+      return Optional.of(until);
+    }
+    return Optional.of(pending.getFirst().timestamp());
+  }
+
+  private Transaction.TransactionBuilder ledgerRow(Long walletId, TransactionType type, LedgerEvent event,
+      long balanceAfter) {
+    return Transaction.builder()
+        .wallet(walletRepository.getReferenceById(walletId))
+        .type(type)
+        .amount(LedgerEngineService.toAmount(event.amount()))
+        .timestamp(event.timestamp())
+        .balanceAfterOperation(LedgerEngineService.toAmount(balanceAfter));
+  }
+}
@@ -0,0 +1,151 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletOutboxProperties;
+import com.edanker.soft.walletservice.entity.OutboxEvent;
+import com.edanker.soft.walletservice.entity.OutboxRelayCursor;
+import com.edanker.soft.walletservice.outbox.WalletEvent;
+import com.edanker.soft.walletservice.outbox.WalletEventSink;
+import com.edanker.soft.walletservice.repository.OutboxEventRepository;
+import com.edanker.soft.walletservice.repository.OutboxRelayCursorRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Hands the outbox events of every shard to the sink in id order. The cursor row is locked while a
+// batch is published and only moves once the sink accepted it, so delivery is at least once and
+// several instances never publish concurrently.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "wallet.outbox", name = "enabled", havingValue = "true")
+public class OutboxRelayService {
+
+  private static final String CURSOR_NAME = "outbox-relay";
+
+  private final OutboxEventRepository eventRepository;
+  private final OutboxRelayCursorRepository cursorRepository;
+  private final WalletEventSink sink;
+  private final TransactionTemplate transactionTemplate;
+  private final WalletShardRouter shardRouter;
+  private final WalletOutboxProperties properties;
+  private final MeterRegistry registry;
+
+  // Ids the relay moved past, per shard, with the time it did. They are kept in memory: the ids
+  // skipped by an instance that stopped are only known from its log and wallet.outbox.gaps.
+  private final Map<Integer, Map<Long, LocalDateTime>> skippedIds = new ConcurrentHashMap<>();
+
+  @Scheduled(fixedDelayString = "${wallet.outbox.relay-delay:PT1S}")
+  public void relayPendingEvents() {
+    shardRouter.forEachShard(shard -> {
+      try {
+        while (relayBatch(shard) == properties.getBatchSize()) {
+          // A full batch means the relay is behind, keep going
+        }
+      } catch (RuntimeException e) {
+        log.warn("Could not relay the outbox events of shard {}", shard, e);
+      }
+    });
+  }
+
+  // Publishes the next batch of the current shard and returns its size. Ids are handed out right
+  // before commit, so a missing id may still be in flight: the relay stops in front of it until
+  // the event after it is older than wallet.outbox.gap-timeout, then takes it for a rollback.
+  // Conflicts and validation failures roll back before an id is taken and leave no gap. A skipped
+  // id that shows up within wallet.outbox.gap-recheck is published late, out of order.
+  public int relayBatch(int shard) {
+    var skipped = skippedIds.computeIfAbsent(shard, key -> new ConcurrentHashMap<>());
+    var newlySkipped = new ArrayList<Long>();
+    var recovered = new ArrayList<Long>();
+    Integer relayed = transactionTemplate.execute(status -> {
+      var cursor = cursorRepository.findByNameForUpdate(CURSOR_NAME)
+          .orElseGet(() -> OutboxRelayCursor.builder().name(CURSOR_NAME).position(0L).build());
+      var gapDeadline = LocalDateTime.now().minus(properties.getGapTimeout());
+
+      var events = new ArrayList<WalletEvent>();
+      if (!skipped.isEmpty()) {
+        for (OutboxEvent event : eventRepository.findAllById(List.copyOf(skipped.keySet()))) {
+          events.add(WalletEvent.of(shard, event));
+          recovered.add(event.getId());
+        }
+      }
+
+      var position = cursor.getPosition();
+      for (OutboxEvent event : eventRepository.findAfter(position, Limit.of(properties.getBatchSize()))) {
+        if (event.getId() != position + 1) {
+          if (event.getCreatedAt().isAfter(gapDeadline)) {
+            break;
+          }
+          skip(shard, position + 1, event.getId(), newlySkipped);
+        }
+        events.add(WalletEvent.of(shard, event));
+        position = event.getId();
+      }
+      if (events.isEmpty()) {
+        return 0;
+      }
+
+      sink.publish(events);
+      cursor.setPosition(position);
+      cursorRepository.save(cursor);
+      return events.size();
+    });
+
+    var now = LocalDateTime.now();
+    recovered.forEach(skipped::remove);
+    newlySkipped.forEach(id -> skipped.put(id, now));
+    if (!recovered.isEmpty()) {
+      log.warn("Relayed {} outbox events of shard {} that committed after their id was skipped: {}",
+          recovered.size(), shard, recovered);
+      gaps("recovered").increment(recovered.size());
+    }
+    abandonSkippedBefore(shard, skipped, now.minus(properties.getGapRecheck()));
+    return relayed == null ? 0 : relayed;
+  }
+
+  // A run of more missing ids than a batch is a jump of the identity column, such as after a
+  // restart, rather than transactions in flight, so those ids are not looked up again
+  private void skip(int shard, long from, long to, List<Long> newlySkipped) {
+    var missing = to - from;
+    log.warn("Skipping {} missing outbox event ids of shard {} from {}", missing, shard, from);
+    gaps("skipped").increment(missing);
+    if (missing <= properties.getBatchSize()) {
+      LongStream.range(from, to).forEach(newlySkipped::add);
+    }
+  }
+
+  private void abandonSkippedBefore(int shard, Map<Long, LocalDateTime> skipped, LocalDateTime deadline) {
+    var abandoned = new ArrayList<Long>();
+    skipped.entrySet().removeIf(entry -> entry.getValue().isBefore(deadline) && abandoned.add(entry.getKey()));
+    if (!abandoned.isEmpty()) {
+      log.warn("Gave up on {} skipped outbox event ids of shard {}: {}", abandoned.size(), shard, abandoned);
+      gaps("abandoned").increment(abandoned.size());
+    }
+  }
+
+  private Counter gaps(String outcome) {
+    return Counter.builder("wallet.outbox.gaps")
+        .description("Missing outbox event ids the relay moved past, and what became of them")
+        .tag("outcome", outcome)
+        .register(registry);
+  }
+
+  @Scheduled(fixedDelayString = "${wallet.outbox.purge-delay:PT10M}")
+  public void purgePublishedEvents() {
+    var before = LocalDateTime.now().minus(properties.getRetention());
+    shardRouter.forEachShard(shard -> transactionTemplate.executeWithoutResult(status ->
+        cursorRepository.findById(CURSOR_NAME).ifPresent(cursor ->
+            eventRepository.deletePublishedBefore(cursor.getPosition(), before))));
+  }
+}
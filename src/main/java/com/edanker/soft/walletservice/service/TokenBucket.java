@@ -0,0 +1,50 @@
+package com.edanker.soft.walletservice.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// A token bucket kept as a single timestamp (the generic cell rate algorithm): the instant at which
+// the bucket will be full again. Taking tokens moves it ahead by their cost, one interval per
+// token, and a request is refused when that would put it more than the burst ahead of now. One
+// compare-and-set per request, no lock and no allocation. The rates are passed in so a bucket is
+// just this long.
+final class TokenBucket {
+
+  private static final VarHandle FULL_AT;
+
+  static {
+    try {
+      FULL_AT = MethodHandles.lookup().findVarHandle(TokenBucket.class, "fullAt", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private volatile long fullAt;
+
+  TokenBucket(long nowNanos) {
+    this.fullAt = nowNanos;
+  }
+
+  // Returns 0 when the tokens were taken, otherwise the nanoseconds until they will be available
+  long tryAcquire(long nowNanos, long costNanos, long burstNanos) {
+    while (true) {
+      var current = (long) FULL_AT.getVolatile(this);
+      var next = Math.max(current, nowNanos) + costNanos;
+      var wait = next - nowNanos - burstNanos;
+      if (wait > 0) {
+        return wait;
+      }
+      if (FULL_AT.compareAndSet(this, current, next)) {
+        return 0;
+      }
+    }
+  }
+
+  // Gives back tokens taken by tryAcquire. A bucket refilled in the meantime stays full, since
+  // tryAcquire never counts from before now.
+  void refund(long costNanos) {
+    FULL_AT.getAndAdd(this, -costNanos);
+  }
+}
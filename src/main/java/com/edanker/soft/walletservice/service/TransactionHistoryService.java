@@ -0,0 +1,174 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.controller.dto.TransactionDTO;
+import com.edanker.soft.walletservice.controller.dto.TransactionExportFormat;
+import com.edanker.soft.walletservice.controller.dto.TransactionPageDTO;
+import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import com.edanker.soft.walletservice.exceptions.InvalidTransactionQueryException;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@Service
+@RequiredArgsConstructor
+public class TransactionHistoryService {
+
+  public static final int MAX_PAGE_SIZE = 1000;
+
+  // Open bounds of the date filters, inside the DATETIME range of MySQL
+  private static final LocalDateTime EARLIEST = LocalDateTime.of(1000, 1, 1, 0, 0);
+  private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+  private final TransactionRepository transactionRepository;
+  private final WalletRepository walletRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final EntityManager entityManager;
+  private final ObjectMapper objectMapper;
+  private final WalletShardRouter shardRouter;
+
+  public TransactionPageDTO getTransactions(Long walletId, String cursor, int limit,
+      TransactionType type, LocalDateTime from, LocalDateTime to) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new InvalidTransactionQueryException("The limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+    }
+    validateRange(from, to);
+
+    var position = cursor != null
+        ? decodeCursor(cursor)
+        : new CursorPosition(to != null ? to : LATEST, Long.MIN_VALUE);
+
+    // One extra row tells whether another page exists
+    var rows = shardRouter.onShardOf(walletId, () -> {
+      var found = transactionRepository.findPageBefore(walletId, typesOf(type), from != null ? from : EARLIEST,
+          position.timestamp(), position.id(), Limit.of(limit + 1));
+      if (found.isEmpty() && !walletRepository.existsById(walletId)) {
+        throw new WalletNotFoundException(walletId);
+      }
+      return found;
+    });
+
+    var page = rows.subList(0, Math.min(limit, rows.size()));
+    var nextCursor = rows.size() > limit ? encodeCursor(page.getLast()) : null;
+    return TransactionPageDTO.builder()
+        .transactions(page.stream().map(TransactionHistoryService::toDTO).toList())
+        .nextCursor(nextCursor)
+        .build();
+  }
+
+  // Oldest first. Rows are read through a cursor and detached once written, so the heap used does
+  // not depend on the size of the statement.
+  public StreamingResponseBody exportTransactions(Long walletId, TransactionExportFormat format,
+      TransactionType type, LocalDateTime from, LocalDateTime to) {
+    validateRange(from, to);
+    var shard = shardRouter.shardOf(walletId);
+    if (!shardRouter.onShard(shard, () -> walletRepository.existsById(walletId))) {
+      throw new WalletNotFoundException(walletId);
+    }
+
+    var types = typesOf(type);
+    var start = from != null ? from : EARLIEST;
+    var end = to != null ? to : LATEST;
+    var readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+    readOnlyTransaction.setReadOnly(true);
+    return outputStream -> {
+      var writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+      if (format == TransactionExportFormat.CSV) {
+        writer.write("id,timestamp,type,amount,balance_after_operation,description\n");
+      }
+      // Written on a request thread of the async executor, which does not inherit the shard
+      shardRouter.runOnShard(shard, () -> readOnlyTransaction.executeWithoutResult(status -> {
+        try (var transactions = transactionRepository.streamStatement(walletId, types, start, end)) {
+          transactions.forEach(transaction -> {
+            write(writer, format, transaction);
+            entityManager.detach(transaction);
+          });
+        }
+      }));
+      writer.flush();
+    };
+  }
+
+  private void write(Writer writer, TransactionExportFormat format, Transaction transaction) {
+    try {
+      if (format == TransactionExportFormat.CSV) {
+        writer.write(transaction.getId() + "," + transaction.getTimestamp() + "," + transaction.getType() + ","
+            + transaction.getAmount().toPlainString() + ","
+            + transaction.getBalanceAfterOperation().toPlainString() + ","
+            + csvField(transaction.describe()) + "\n");
+      } else {
+        writer.write(objectMapper.writeValueAsString(toDTO(transaction)));
+        writer.write('\n');
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String csvField(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+    return value;
+  }
+
+  private static TransactionDTO toDTO(Transaction transaction) {
+    return TransactionDTO.builder()
+        .id(transaction.getId())
+        .type(transaction.getType())
+        .amount(transaction.getAmount())
+        .balanceAfterOperation(transaction.getBalanceAfterOperation())
+        .description(transaction.describe())
+        .counterpartyWalletId(transaction.getCounterpartyWalletId())
+        .timestamp(transaction.getTimestamp())
+        .build();
+  }
+
+  private static Set<TransactionType> typesOf(TransactionType type) {
+    return type != null ? EnumSet.of(type) : EnumSet.allOf(TransactionType.class);
+  }
+
+  private static void validateRange(LocalDateTime from, LocalDateTime to) {
+    if (from != null && to != null && !from.isBefore(to)) {
+      throw new InvalidTransactionQueryException("The start of the range must be before its end.");
+    }
+  }
+
+  private static String encodeCursor(Transaction last) {
+    var position = last.getTimestamp() + "," + last.getId();
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static CursorPosition decodeCursor(String cursor) {
+    try {
+      var position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+      return new CursorPosition(LocalDateTime.parse(position[0]), Long.parseLong(position[1]));
+    } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+      throw new InvalidTransactionQueryException("The cursor is not valid.");
+    }
+  }
+
+  private record CursorPosition(LocalDateTime timestamp, Long id) {
+  }
+}
@@ -0,0 +1,24 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.entity.Transaction;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.stereotype.Component;
+
+// Ids for ledger rows written by a native INSERT ... SELECT instead of being persisted. They come
+// from the same pooled block as persisted rows, so with sharding they carry the shard as well.
+@Component
+@RequiredArgsConstructor
+public class TransactionIdAllocator {
+
+  private final EntityManager entityManager;
+
+  public Long nextId(Transaction row) {
+    var session = entityManager.unwrap(SharedSessionContractImplementor.class);
+    var generator = (IdentifierGenerator) session.getFactory().getMappingMetamodel()
+        .getEntityDescriptor(Transaction.class).getGenerator();
+    return (Long) generator.generate(session, row);
+  }
+}
@@ -0,0 +1,59 @@
+package com.edanker.soft.walletservice.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.stereotype.Component;
+
+// Current balance per wallet id. Loads are shared per key and an eviction drops an in-flight load
+// of the same key, so a value read before a commit cannot outlive that commit's eviction.
+@Component
+public class WalletBalanceCache {
+
+  public static final String CACHE_NAME = "wallet-balances";
+
+  private final Cache cache;
+  private final AsyncCache<Object, Object> loads;
+
+  public WalletBalanceCache(CacheManager cacheManager) {
+    var caffeineCache = (CaffeineCache) cacheManager.getCache(CACHE_NAME);
+    // Evictions issued inside a transaction are applied only after it commits
+    this.cache = new TransactionAwareCacheDecorator(caffeineCache);
+    this.loads = caffeineCache.getAsyncCache();
+  }
+
+  // The first caller of a missing key runs the loader itself, so it keeps its transaction, shard
+  // and trace; concurrent callers of the same key wait for its result. A failed load is dropped.
+  public BigDecimal get(Long walletId, Supplier<BigDecimal> loader) {
+    var load = new CompletableFuture<Object>();
+    var value = loads.get(walletId, (key, executor) -> load);
+    if (value == load) {
+      try {
+        load.complete(loader.get());
+      } catch (RuntimeException e) {
+        load.completeExceptionally(e);
+      }
+    }
+    try {
+      return (BigDecimal) value.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  // Deferred until commit when called inside a transaction, dropped if it rolls back
+  public void evict(Long... walletIds) {
+    for (var walletId : walletIds) {
+      cache.evict(walletId);
+    }
+  }
+}
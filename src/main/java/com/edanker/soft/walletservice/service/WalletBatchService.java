@@ -0,0 +1,260 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletBatchProperties;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationResultDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationStatus;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationType;
+import com.edanker.soft.walletservice.controller.dto.BatchRequestDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchResponseDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferResponseDTO;
+import com.edanker.soft.walletservice.entity.JournalEntry;
+import com.edanker.soft.walletservice.entity.Transfer;
+import com.edanker.soft.walletservice.entity.Wallet;
+import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
+import com.edanker.soft.walletservice.exceptions.InvalidBatchOperationException;
+import com.edanker.soft.walletservice.exceptions.WalletException;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.repository.JournalEntryRepository;
+import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.repository.TransferRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import jakarta.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+// Applies many operations per database transaction. Each chunk locks all of its wallets with one
+// query, applies the operations in memory and lets Hibernate flush the wallet updates and ledger
+// inserts as JDBC batches on commit. A failing operation is reported and changes nothing.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletBatchService {
+
+  private final WalletRepository walletRepository;
+  private final TransactionRepository transactionRepository;
+  private final TransferRepository transferRepository;
+  private final JournalEntryRepository journalEntryRepository;
+  private final WalletTransactionExecutor transactionExecutor;
+  private final WalletBatchProperties properties;
+  private final EntityManager entityManager;
+  private final WalletBalanceCache balanceCache;
+  private final WalletShardRouter shardRouter;
+  private final WalletStripeService stripeService;
+  private final LedgerEngineService ledgerEngine;
+  private final WalletEventOutbox eventOutbox;
+  private final FxRateService fxRates;
+
+  // A batch runs on one shard; with sharding, all of its wallets have to live on the same one
+  public BatchResponseDTO execute(BatchRequestDTO request) {
+    return shardRouter.onShard(shardOf(request.operations()), () -> executeOnShard(request));
+  }
+
+  private BatchResponseDTO executeOnShard(BatchRequestDTO request) {
+    var operations = request.operations();
+    var chunkSize = request.chunkSize() != null ? request.chunkSize() : properties.getChunkSize();
+
+    var results = new ArrayList<BatchOperationResultDTO>(operations.size());
+    for (int start = 0; start < operations.size(); start += chunkSize) {
+      var chunkStart = start;
+      var chunk = operations.subList(start, Math.min(start + chunkSize, operations.size()));
+      if (ledgerEngine.isEnabled()) {
+        results.addAll(applyToLedgerEngine(chunkStart, chunk));
+        continue;
+      }
+      try {
+        results.addAll(transactionExecutor.execute(() -> applyChunk(chunkStart, chunk)));
+      } catch (WalletException e) {
+        results.addAll(failChunk(chunkStart, chunk, e));
+      } catch (RuntimeException e) {
+        log.error("Batch chunk starting at operation {} could not be committed", chunkStart, e);
+        results.addAll(failChunk(chunkStart, chunk, new WalletException()));
+      }
+    }
+
+    var applied = (int) results.stream()
+        .filter(r -> r.status() == BatchOperationStatus.APPLIED)
+        .count();
+
+    return BatchResponseDTO.builder()
+        .applied(applied)
+        .failed(results.size() - applied)
+        .results(results)
+        .build();
+  }
+
+  private int shardOf(List<BatchOperationDTO> operations) {
+    var shard = shardRouter.shardOf(operations.getFirst().walletId());
+    for (var operation : operations) {
+      if (shardRouter.shardOf(operation.walletId()) != shard
+          || operation.payee() != null && shardRouter.shardOf(operation.payee()) != shard) {
+        throw new InvalidBatchOperationException("All wallets of a batch must be on the same shard.");
+      }
+    }
+    return shard;
+  }
+
+  private List<BatchOperationResultDTO> applyChunk(int chunkStart, List<BatchOperationDTO> chunk) {
+    var walletIds = new TreeSet<Long>();
+    for (var operation : chunk) {
+      walletIds.add(operation.walletId());
+      if (operation.payee() != null) {
+        walletIds.add(operation.payee());
+      }
+    }
+
+    // Striped wallets are swept first, so the locked wallet rows hold their whole balance
+    walletIds.forEach(stripeService::sweep);
+    Map<Long, Wallet> wallets = walletRepository.findAllByIdForUpdate(walletIds).stream()
+        .collect(Collectors.toMap(Wallet::getId, Function.identity()));
+    balanceCache.evict(wallets.keySet().toArray(Long[]::new));
+
+    var results = new ArrayList<BatchOperationResultDTO>(chunk.size());
+    for (int i = 0; i < chunk.size(); i++) {
+      var index = chunkStart + i;
+      try {
+        results.add(apply(index, chunk.get(i), wallets));
+      } catch (WalletException e) {
+        results.add(failed(index, e));
+      }
+    }
+
+    // Flush here so the batched statements run inside the retried unit, then drop the chunk's
+    // entities so an open-in-view persistence context does not grow with the batch
+    entityManager.flush();
+    entityManager.clear();
+    return results;
+  }
+
+  // The engine commits every operation on its own and groups the WAL writes of concurrent ones,
+  // so there is nothing to gain from a database transaction around the chunk
+  private List<BatchOperationResultDTO> applyToLedgerEngine(int chunkStart, List<BatchOperationDTO> chunk) {
+    var results = new ArrayList<BatchOperationResultDTO>(chunk.size());
+    for (int i = 0; i < chunk.size(); i++) {
+      var index = chunkStart + i;
+      var operation = chunk.get(i);
+      try {
+        results.add(switch (operation.type()) {
+          case DEPOSIT -> applied(index, ledgerEngine.deposit(operation.walletId(), operation.amount()), null);
+          case WITHDRAW -> applied(index, ledgerEngine.withdraw(operation.walletId(), operation.amount()), null);
+          case TRANSFER -> {
+            if (operation.payee() == null) {
+              throw new InvalidBatchOperationException("A TRANSFER operation needs a payee.");
+            }
+            var transfer = TransferDTO.builder()
+                .payer(operation.walletId())
+                .payee(operation.payee())
+                .value(operation.amount())
+                .build();
+            var result = ledgerEngine.post(transfer);
+            yield applied(index, LedgerEngineService.toAmount(result.balance()),
+                ledgerEngine.toTransferResponse(transfer, result));
+          }
+        });
+      } catch (WalletException e) {
+        results.add(failed(index, e));
+      }
+    }
+    return results;
+  }
+
+  private BatchOperationResultDTO apply(int index, BatchOperationDTO operation,
+      Map<Long, Wallet> wallets) {
+    var wallet = requireWallet(wallets, operation.walletId());
+
+    if (operation.type() == BatchOperationType.DEPOSIT) {
+      eventOutbox.record(transactionRepository.save(wallet.credit(operation.amount(), "Deposit operation")));
+      return applied(index, wallet, null);
+    }
+
+    if (operation.type() == BatchOperationType.WITHDRAW) {
+      requireBalance(wallet, operation);
+      eventOutbox.record(transactionRepository.save(wallet.debit(operation.amount(), "Withdrawal operation")));
+      return applied(index, wallet, null);
+    }
+
+    if (operation.payee() == null) {
+      throw new InvalidBatchOperationException("A TRANSFER operation needs a payee.");
+    }
+    var receiver = requireWallet(wallets, operation.payee());
+    requireBalance(wallet, operation);
+    var quote = fxRates.quote(wallet.getCurrency(), receiver.getCurrency(), operation.amount());
+
+    var transfer = transferRepository.save(Transfer.builder()
+        .sender(wallet)
+        .receiver(receiver)
+        .value(operation.amount())
+        .build());
+    var entry = journalEntryRepository.save(JournalEntry.builder().transfer(transfer).fxRate(quote.rate()).build());
+
+    eventOutbox.record(transactionRepository.save(wallet.transferTo(receiver, operation.amount(), entry)));
+    eventOutbox.record(transactionRepository.save(receiver.transferFrom(wallet, quote.credited(), entry)));
+
+    return applied(index, wallet, TransferResponseDTO.builder()
+        .id(transfer.getId())
+        .senderId(wallet.getId())
+        .senderName(wallet.getFullName())
+        .receiverId(receiver.getId())
+        .receiverName(receiver.getFullName())
+        .value(transfer.getValue())
+        .createdAt(transfer.getCreatedAt())
+        .receivedValue(quote.isConverted() ? quote.credited() : null)
+        .fxRate(quote.rate())
+        .build());
+  }
+
+  private static Wallet requireWallet(Map<Long, Wallet> wallets, Long walletId) {
+    var wallet = wallets.get(walletId);
+    if (wallet == null) {
+      throw new WalletNotFoundException(walletId);
+    }
+    return wallet;
+  }
+
+  private static void requireBalance(Wallet wallet, BatchOperationDTO operation) {
+    if (!wallet.isBalanceEqualOrGreaterThan(operation.amount())) {
+      throw new InsufficientBalanceException();
+    }
+  }
+
+  private static BatchOperationResultDTO applied(int index, Wallet wallet,
+      TransferResponseDTO transfer) {
+    return applied(index, wallet.getBalance(), transfer);
+  }
+
+  private static BatchOperationResultDTO applied(int index, BigDecimal balance,
+      TransferResponseDTO transfer) {
+    return BatchOperationResultDTO.builder()
+        .index(index)
+        .status(BatchOperationStatus.APPLIED)
+        .balance(balance)
+        .transfer(transfer)
+        .build();
+  }
+
+  private static BatchOperationResultDTO failed(int index, WalletException e) {
+    return BatchOperationResultDTO.builder()
+        .index(index)
+        .status(BatchOperationStatus.FAILED)
+        .error(e.toProblemDetail())
+        .build();
+  }
+
+  private static List<BatchOperationResultDTO> failChunk(int chunkStart,
+      List<BatchOperationDTO> chunk, WalletException e) {
+    var results = new ArrayList<BatchOperationResultDTO>(chunk.size());
+    for (int i = 0; i < chunk.size(); i++) {
+      results.add(failed(chunkStart + i, e));
+    }
+    return results;
+  }
+}
@@ -0,0 +1,110 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletOutboxProperties;
+import com.edanker.soft.walletservice.entity.OutboxEvent;
+import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import com.edanker.soft.walletservice.entity.Wallet;
+import com.edanker.soft.walletservice.entity.WalletEventType;
+import com.edanker.soft.walletservice.money.Money;
+import com.edanker.soft.walletservice.repository.OutboxEventRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Writes the outbox event of a mutation. Runs in the caller's transaction, on the wallet's shard,
+// so the event commits or rolls back together with the ledger row it describes. The events are
+// inserted right before the commit, after the rest of the transaction was flushed: a lost
+// version check or a duplicate key then fails before an event id is handed out, and an id only
+// goes unused when the commit itself fails.
+@Service
+@RequiredArgsConstructor
+public class WalletEventOutbox {
+
+  private final WalletOutboxProperties properties;
+  private final OutboxEventRepository eventRepository;
+  private final FxRateService fxRates;
+
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  public void walletCreated(Wallet wallet) {
+    if (isEnabled()) {
+      add(OutboxEvent.builder()
+          .walletId(wallet.getId())
+          .type(WalletEventType.WALLET_CREATED)
+          .balanceAfter(Money.of(wallet.getBalance(), wallet.getCurrency()))
+          .currency(wallet.getCurrency()));
+    }
+  }
+
+  public void record(Transaction row) {
+    if (isEnabled()) {
+      var walletId = row.getWallet().getId();
+      var currency = currencyOf(row.getWallet());
+      add(OutboxEvent.builder()
+          .walletId(walletId)
+          .type(typeOf(row))
+          .amount(Money.of(row.getAmount(), currency))
+          .balanceAfter(Money.of(row.getBalanceAfterOperation(), currency))
+          .currency(currency)
+          .counterpartyWalletId(row.getCounterpartyWalletId())
+          .transactionId(row.getId()));
+    }
+  }
+
+  private void add(OutboxEvent.OutboxEventBuilder event) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      eventRepository.save(event.createdAt(LocalDateTime.now()).build());
+      return;
+    }
+    // Looked up among the synchronizations rather than bound as a resource, so a transaction
+    // suspended for a nested new one keeps its own events
+    var pending = TransactionSynchronizationManager.getSynchronizations().stream()
+        .filter(PendingEvents.class::isInstance)
+        .map(PendingEvents.class::cast)
+        .findFirst()
+        .orElseGet(() -> {
+          var created = new PendingEvents();
+          TransactionSynchronizationManager.registerSynchronization(created);
+          return created;
+        });
+    pending.events.add(event);
+  }
+
+  private static WalletEventType typeOf(Transaction row) {
+    var credit = row.getType() == TransactionType.CREDIT;
+    if (row.getCounterpartyWalletId() == null) {
+      return credit ? WalletEventType.DEPOSITED : WalletEventType.WITHDRAWN;
+    }
+    return credit ? WalletEventType.TRANSFER_RECEIVED : WalletEventType.TRANSFER_SENT;
+  }
+
+  // The row's wallet is loaded on most paths. An uninitialized reference would be loaded whole just
+  // for its currency, so that one comes from the cache.
+  private Currency currencyOf(Wallet wallet) {
+    if (!fxRates.isEnabled()) {
+      return Money.DEFAULT_CURRENCY;
+    }
+    return Hibernate.isInitialized(wallet) ? wallet.getCurrency() : fxRates.currencyOf(wallet.getId());
+  }
+
+  private final class PendingEvents implements TransactionSynchronization {
+
+    private final List<OutboxEvent.OutboxEventBuilder> events = new ArrayList<>();
+
+    @Override
+    public void beforeCommit(boolean readOnly) {
+      eventRepository.flush();
+      var now = LocalDateTime.now();
+      eventRepository.saveAll(events.stream().map(event -> event.createdAt(now).build()).toList());
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletLoadSheddingProperties;
+import com.edanker.soft.walletservice.exceptions.ServiceOverloadedException;
+import com.edanker.soft.walletservice.exceptions.WalletException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Service;
+
+// Refuses wallet operations once as many are in flight as the database keeps up with. When it
+// slows down the limits shrink and the excess fails fast with 503, instead of queueing on the
+// connection pool until every endpoint times out. Mutations and balance reads have their own
+// limits, so reads keep being served while writes are shed. A permit is held per thread: the
+// controller takes it before the idempotency lookup, and the service call inside runs on it.
+@Service
+public class WalletLoadShedder {
+
+  private final WalletLoadSheddingProperties properties;
+  private final AdaptiveLimit mutations;
+  private final AdaptiveLimit reads;
+  private final Counter mutationRejections;
+  private final Counter readRejections;
+  private final ThreadLocal<AdaptiveLimit> admitted = new ThreadLocal<>();
+
+  public WalletLoadShedder(WalletLoadSheddingProperties properties, MeterRegistry registry) {
+    this.properties = properties;
+    this.mutations = newLimit(properties, properties.getMutations());
+    this.reads = newLimit(properties, properties.getReads());
+    this.mutationRejections = register(registry, "mutation", mutations);
+    this.readRejections = register(registry, "read", reads);
+  }
+
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  public <T> T mutation(Supplier<T> body) {
+    return run(mutations, mutationRejections, "mutation", body);
+  }
+
+  public void mutation(Runnable body) {
+    mutation(() -> {
+      body.run();
+      return null;
+    });
+  }
+
+  public <T> T read(Supplier<T> body) {
+    return run(reads, readRejections, "read", body);
+  }
+
+  private <T> T run(AdaptiveLimit limit, Counter rejections, String workload, Supplier<T> body) {
+    if (!isEnabled() || admitted.get() == limit) {
+      return body.get();
+    }
+    if (!limit.tryAcquire()) {
+      rejections.increment();
+      throw new ServiceOverloadedException(workload);
+    }
+    var outer = admitted.get();
+    admitted.set(limit);
+    var inFlight = limit.inFlight();
+    var start = System.nanoTime();
+    var failed = true;
+    try {
+      var result = body.get();
+      failed = false;
+      return result;
+    } catch (WalletException e) {
+      // A business rejection took as long as a success would have and is a latency sample. Database
+      // and other infrastructure failures are not WalletExceptions, so they leave failed set.
+      failed = false;
+      throw e;
+    } finally {
+      admitted.set(outer);
+      limit.release(System.nanoTime() - start, inFlight, failed);
+    }
+  }
+
+  private static AdaptiveLimit newLimit(WalletLoadSheddingProperties properties,
+      WalletLoadSheddingProperties.Limit limit) {
+    return new AdaptiveLimit(limit.getInitialLimit(), limit.getMinLimit(), limit.getMaxLimit(),
+        properties.getRttTolerance(), properties.getSmoothing(), properties.getBaselineWindow(),
+        properties.getBackoffRatio());
+  }
+
+  private static Counter register(MeterRegistry registry, String workload, AdaptiveLimit limit) {
+    Gauge.builder("wallet.load_shedding.limit", limit, AdaptiveLimit::limit)
+        .description("Operations admitted at the same time")
+        .tag("workload", workload)
+        .register(registry);
+    Gauge.builder("wallet.load_shedding.in_flight", limit, AdaptiveLimit::inFlight)
+        .description("Operations currently admitted")
+        .tag("workload", workload)
+        .register(registry);
+    return Counter.builder("wallet.load_shedding.rejected")
+        .description("Operations refused with 503 because the limit was reached")
+        .tag("workload", workload)
+        .register(registry);
+  }
+}
@@ -0,0 +1,187 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.exceptions.DatabaseUnavailableException;
+import com.edanker.soft.walletservice.exceptions.FxAmountTooSmallException;
+import com.edanker.soft.walletservice.exceptions.FxRateUnavailableException;
+import com.edanker.soft.walletservice.exceptions.IdempotencyKeyInProgressException;
+import com.edanker.soft.walletservice.exceptions.IdempotencyKeyReusedException;
+import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
+import com.edanker.soft.walletservice.exceptions.InvalidBalanceStatementException;
+import com.edanker.soft.walletservice.exceptions.InvalidBatchOperationException;
+import com.edanker.soft.walletservice.exceptions.InvalidIdempotencyKeyException;
+import com.edanker.soft.walletservice.exceptions.InvalidTransactionQueryException;
+import com.edanker.soft.walletservice.exceptions.RateLimitExceededException;
+import com.edanker.soft.walletservice.exceptions.ServiceOverloadedException;
+import com.edanker.soft.walletservice.exceptions.UnsupportedCurrencyException;
+import com.edanker.soft.walletservice.exceptions.WalletConcurrentUpdateException;
+import com.edanker.soft.walletservice.exceptions.WalletDataAlreadyExistsException;
+import com.edanker.soft.walletservice.exceptions.WalletException;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Tracer;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+// Latency of the public wallet operations and of the phases inside them, as timers and as trace
+// spans. Every timer and error counter is registered up front, so recording never goes through the
+// registry's meter lookup. Spans of a phase are children of the operation's span and parents of the JDBC
+// statements it runs.
+@Component
+public class WalletMetrics {
+
+  public enum Operation { DEPOSIT, WITHDRAW, TRANSFER, BALANCE, HISTORICAL_BALANCE }
+
+  public enum Phase { WALLET_LOAD, VALIDATION, SAVE, TRANSFER_INSERT }
+
+  private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+  private static final Duration MAX_EXPECTED = Duration.ofSeconds(10);
+  private static final List<Class<? extends WalletException>> KNOWN_ERRORS = List.of(
+      DatabaseUnavailableException.class, FxAmountTooSmallException.class,
+      FxRateUnavailableException.class, IdempotencyKeyInProgressException.class,
+      IdempotencyKeyReusedException.class, InsufficientBalanceException.class,
+      InvalidBalanceStatementException.class, InvalidBatchOperationException.class,
+      InvalidIdempotencyKeyException.class, InvalidTransactionQueryException.class,
+      RateLimitExceededException.class, ServiceOverloadedException.class,
+      UnsupportedCurrencyException.class, WalletConcurrentUpdateException.class,
+      WalletDataAlreadyExistsException.class, WalletNotFoundException.class);
+
+  private final MeterRegistry registry;
+  private final Tracer tracer;
+  private final Map<Operation, Timer> succeeded = new EnumMap<>(Operation.class);
+  private final Map<Operation, Timer> failed = new EnumMap<>(Operation.class);
+  private final Map<Operation, Map<Phase, Timer>> phases = new EnumMap<>(Operation.class);
+  private final Map<Operation, Map<Class<?>, Counter>> errors = new EnumMap<>(Operation.class);
+  private final Map<Operation, Counter> otherErrors = new EnumMap<>(Operation.class);
+  private final Map<Operation, String> spanNames = new EnumMap<>(Operation.class);
+  private final Map<Operation, Map<Phase, String>> phaseSpanNames = new EnumMap<>(Operation.class);
+
+  public WalletMetrics(MeterRegistry registry, Tracer tracer) {
+    this.registry = registry;
+    this.tracer = tracer;
+    for (var operation : Operation.values()) {
+      spanNames.put(operation, "wallet." + tagOf(operation));
+      succeeded.put(operation, operationTimer(operation, "success"));
+      failed.put(operation, operationTimer(operation, "error"));
+      var byError = new ConcurrentHashMap<Class<?>, Counter>();
+      for (var type : KNOWN_ERRORS) {
+        byError.put(type, errorCounter(operation, type.getSimpleName()));
+      }
+      errors.put(operation, byError);
+      otherErrors.put(operation, errorCounter(operation, "other"));
+      var byPhase = new EnumMap<Phase, Timer>(Phase.class);
+      var byPhaseName = new EnumMap<Phase, String>(Phase.class);
+      for (var phase : Phase.values()) {
+        byPhaseName.put(phase, "wallet." + tagOf(operation) + "." + tagOf(phase));
+        byPhase.put(phase, Timer.builder("wallet.operation.phase")
+            .description("Time spent in one phase of a wallet operation")
+            .tag("operation", tagOf(operation))
+            .tag("phase", tagOf(phase))
+            .publishPercentileHistogram()
+            .minimumExpectedValue(MIN_EXPECTED)
+            .maximumExpectedValue(MAX_EXPECTED)
+            .register(registry));
+      }
+      phases.put(operation, byPhase);
+      phaseSpanNames.put(operation, byPhaseName);
+    }
+  }
+
+  public <T> T record(Operation operation, Long walletId, Supplier<T> body) {
+    return record(operation, walletId, null, body);
+  }
+
+  public void record(Operation operation, Long walletId, Runnable body) {
+    record(operation, walletId, null, () -> {
+      body.run();
+      return null;
+    });
+  }
+
+  public <T> T record(Operation operation, Long walletId, Long counterpartyWalletId, Supplier<T> body) {
+    var span = tracer.nextSpan()
+        .name(spanNames.get(operation))
+        .tag("wallet.operation", tagOf(operation));
+    if (walletId != null) {
+      span.tag("wallet.id", walletId);
+    }
+    if (counterpartyWalletId != null) {
+      span.tag("wallet.counterparty_id", counterpartyWalletId);
+    }
+    var sample = Timer.start(registry);
+    try (var scope = tracer.withSpan(span.start())) {
+      var result = body.get();
+      sample.stop(succeeded.get(operation));
+      return result;
+    } catch (RuntimeException e) {
+      sample.stop(failed.get(operation));
+      countError(operation, e);
+      span.error(e);
+      throw e;
+    } finally {
+      span.end();
+    }
+  }
+
+  public <T> T phase(Operation operation, Phase phase, Supplier<T> body) {
+    var span = tracer.nextSpan().name(phaseSpanNames.get(operation).get(phase)).start();
+    try (var scope = tracer.withSpan(span)) {
+      return phases.get(operation).get(phase).record(body);
+    } catch (RuntimeException e) {
+      span.error(e);
+      throw e;
+    } finally {
+      span.end();
+    }
+  }
+
+  public void phase(Operation operation, Phase phase, Runnable body) {
+    phase(operation, phase, () -> {
+      body.run();
+      return null;
+    });
+  }
+
+  // Business rejections are tagged by type, so insufficient balance and unknown wallets can be
+  // told apart from infrastructure failures
+  private void countError(Operation operation, RuntimeException e) {
+    if (!(e instanceof WalletException)) {
+      otherErrors.get(operation).increment();
+      return;
+    }
+    // A subclass missing from KNOWN_ERRORS is registered once, on its first failure
+    errors.get(operation)
+        .computeIfAbsent(e.getClass(), type -> errorCounter(operation, type.getSimpleName()))
+        .increment();
+  }
+
+  private Counter errorCounter(Operation operation, String exception) {
+    return Counter.builder("wallet.operation.errors")
+        .description("Wallet operations that ended with an exception")
+        .tag("operation", tagOf(operation))
+        .tag("exception", exception)
+        .register(registry);
+  }
+
+  private Timer operationTimer(Operation operation, String outcome) {
+    return Timer.builder("wallet.operation")
+        .description("Latency of a wallet operation as seen by the service layer")
+        .tag("operation", tagOf(operation))
+        .tag("outcome", outcome)
+        .publishPercentileHistogram()
+        .minimumExpectedValue(MIN_EXPECTED)
+        .maximumExpectedValue(MAX_EXPECTED)
+        .register(registry);
+  }
+
+  private static String tagOf(Enum<?> value) {
+    return value.name().toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,130 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletRateLimitProperties;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationDTO;
+import com.edanker.soft.walletservice.exceptions.InvalidBatchOperationException;
+import com.edanker.soft.walletservice.exceptions.RateLimitExceededException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.stereotype.Service;
+
+// Token buckets per API client and per wallet, checked before a request reaches the database.
+// The buckets live in bounded Caffeine caches that drop idle keys. On a cache hit a check
+// allocates nothing: the keys are the objects the request already carries, the loader is a
+// constant and the bucket itself is a single long.
+@Service
+public class WalletRateLimiter {
+
+  private static final Function<Object, TokenBucket> NEW_BUCKET = key -> new TokenBucket(System.nanoTime());
+
+  private final WalletRateLimitProperties properties;
+  private final Limit clientLimit;
+  private final Limit walletLimit;
+  private final Cache<String, TokenBucket> clientBuckets;
+  private final Cache<Long, TokenBucket> walletBuckets;
+  private final Counter clientRejections;
+  private final Counter walletRejections;
+
+  public WalletRateLimiter(WalletRateLimitProperties properties, MeterRegistry registry) {
+    this.properties = properties;
+    this.clientLimit = Limit.of(properties.getClientCapacity(), properties.getClientRefillPerSecond());
+    this.walletLimit = Limit.of(properties.getWalletCapacity(), properties.getWalletRefillPerSecond());
+    this.clientBuckets = newBucketCache(properties);
+    this.walletBuckets = newBucketCache(properties);
+    this.clientRejections = rejections(registry, "client");
+    this.walletRejections = rejections(registry, "wallet");
+  }
+
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  public void acquireForClient(String clientId) {
+    if (isEnabled()) {
+      var wait = clientBuckets.get(clientId, NEW_BUCKET).tryAcquire(System.nanoTime(),
+          clientLimit.intervalNanos(), clientLimit.burstNanos());
+      if (wait > 0) {
+        clientRejections.increment();
+        throw new RateLimitExceededException("client", Duration.ofNanos(wait));
+      }
+    }
+  }
+
+  public void acquireForWallet(Long walletId) {
+    if (isEnabled()) {
+      acquireForWallet(walletId, 1);
+    }
+  }
+
+  // Each operation of a batch takes a token of the wallet it credits or debits, as it would on its
+  // own endpoint. More operations on one wallet than its bucket holds could never be admitted. A
+  // batch refused by one wallet gives back the tokens it already took from the others.
+  public void acquireForBatch(List<BatchOperationDTO> operations) {
+    if (!isEnabled()) {
+      return;
+    }
+    var perWallet = operations.stream()
+        .collect(Collectors.groupingBy(BatchOperationDTO::walletId, LinkedHashMap::new, Collectors.counting()));
+    perWallet.forEach((walletId, count) -> {
+      if (count > properties.getWalletCapacity()) {
+        throw new InvalidBatchOperationException("The batch has " + count + " operations on wallet " + walletId
+            + ", its rate limit admits at most " + properties.getWalletCapacity() + " at once.");
+      }
+    });
+    var charged = new ArrayList<Long>(perWallet.size());
+    try {
+      for (var walletId : perWallet.keySet()) {
+        acquireForWallet(walletId, perWallet.get(walletId).intValue());
+        charged.add(walletId);
+      }
+    } catch (RateLimitExceededException e) {
+      for (var walletId : charged) {
+        walletBuckets.get(walletId, NEW_BUCKET).refund(walletLimit.intervalNanos() * perWallet.get(walletId));
+      }
+      throw e;
+    }
+  }
+
+  private void acquireForWallet(Long walletId, int tokens) {
+    var wait = walletBuckets.get(walletId, NEW_BUCKET).tryAcquire(System.nanoTime(),
+        walletLimit.intervalNanos() * tokens, walletLimit.burstNanos());
+    if (wait > 0) {
+      walletRejections.increment();
+      throw new RateLimitExceededException("wallet", Duration.ofNanos(wait));
+    }
+  }
+
+  private static <K> Cache<K, TokenBucket> newBucketCache(WalletRateLimitProperties properties) {
+    return Caffeine.newBuilder()
+        .maximumSize(properties.getMaxKeys())
+        .expireAfterAccess(properties.getIdleExpiry())
+        .build();
+  }
+
+  private static Counter rejections(MeterRegistry registry, String scope) {
+    return Counter.builder("wallet.rate_limit.rejected")
+        .description("Requests refused with 429 by the rate limiter")
+        .tag("scope", scope)
+        .register(registry);
+  }
+
+  // One token every intervalNanos, and up to capacity tokens taken at once
+  private record Limit(long intervalNanos, long burstNanos) {
+
+    static Limit of(int capacity, double refillPerSecond) {
+      if (capacity < 1 || refillPerSecond <= 0) {
+        throw new IllegalStateException("A rate limit needs a capacity of at least 1 and a positive refill rate");
+      }
+      var interval = Math.max(1, Math.round(1_000_000_000 / refillPerSecond));
+      return new Limit(interval, interval * capacity);
+    }
+  }
+}
@@ -1,22 +1,29 @@
 package com.edanker.soft.walletservice.service;
 
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties;
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties.LockMode;
 import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
 import com.edanker.soft.walletservice.controller.dto.DepositDTO;
 import com.edanker.soft.walletservice.controller.dto.TransferDTO;
 import com.edanker.soft.walletservice.controller.dto.TransferResponseDTO;
 import com.edanker.soft.walletservice.controller.dto.WithdrawDTO;
+import com.edanker.soft.walletservice.entity.JournalEntry;
 import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
 import com.edanker.soft.walletservice.entity.Transfer;
 import com.edanker.soft.walletservice.entity.Wallet;
 import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
 import com.edanker.soft.walletservice.exceptions.WalletDataAlreadyExistsException;
 import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.repository.JournalEntryRepository;
 import com.edanker.soft.walletservice.repository.TransferRepository;
 import com.edanker.soft.walletservice.repository.WalletRepository;
 import com.edanker.soft.walletservice.repository.TransactionRepository;
-import jakarta.transaction.Transactional;
+import com.edanker.soft.walletservice.service.WalletMetrics.Operation;
+import com.edanker.soft.walletservice.service.WalletMetrics.Phase;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -28,71 +35,254 @@ public class WalletService {
   private final WalletRepository walletRepository;
   private final TransactionRepository transactionRepository;
   private final TransferRepository transferRepository;
+  private final JournalEntryRepository journalEntryRepository;
+  private final WalletTransactionExecutor transactionExecutor;
+  private final WalletConcurrencyProperties concurrencyProperties;
+  private final WalletBalanceCache balanceCache;
+  private final WalletShardRouter shardRouter;
+  private final CrossShardTransferService crossShardTransferService;
+  private final WalletStripeService stripeService;
+  private final LedgerEngineService ledgerEngine;
+  private final WalletWriteCoalescer writeCoalescer;
+  private final WalletEventOutbox eventOutbox;
+  private final FxRateService fxRates;
+  private final WalletMetrics metrics;
+  private final WalletLoadShedder loadShedder;
+  private final TransactionIdAllocator transactionIdAllocator;
 
+  // All wallets of a customer land on the same shard, whatever their currency. The unique index only
+  // guards cpf/cnpj globally: two customers registering the same email concurrently on different shards
+  // can both pass the check below, because an email is unique per shard only.
   public Wallet createWallet(CreateWalletDTO dto) {
-    var walletDb = walletRepository.findByCpfCnpjOrEmail(dto.cpfCnpj(), dto.email());
-    if (walletDb.isPresent()) {
+    var newWallet = dto.toWallet();
+    fxRates.requireSupported(newWallet.getCurrency());
+    var exists = shardRouter.anyShard(() -> walletRepository.existsByCpfCnpjOrEmailInCurrency(
+        dto.cpfCnpj(), dto.email(), newWallet.getCurrency()));
+    if (exists) {
       throw new WalletDataAlreadyExistsException("CpfCnpj or Email already exists");
     }
-    return walletRepository.save(dto.toWallet());
+    var wallet = shardRouter.onShard(shardRouter.shardForNewWallet(dto.cpfCnpj()),
+        () -> transactionExecutor.execute(() -> {
+          var created = walletRepository.save(newWallet);
+          eventOutbox.walletCreated(created);
+          return created;
+        }));
+    if (ledgerEngine.isEnabled()) {
+      ledgerEngine.open(wallet.getId(), wallet.getBalance());
+    }
+    return wallet;
   }
 
+  // The ledger engine answers from memory and needs no cache
   public BigDecimal getCurrentBalance(Long walletId) {
-    var wallet = findWalletByIdAndValidateExists(walletId);
-    return wallet.getBalance();
+    return metrics.record(Operation.BALANCE, walletId, () -> loadShedder.read(() -> {
+      if (ledgerEngine.isEnabled()) {
+        return ledgerEngine.getCurrentBalance(walletId);
+      }
+      return balanceCache.get(walletId, () -> shardRouter.onShardOf(walletId,
+          () -> (stripeService.isStriped(walletId)
+              ? walletRepository.findStripedBalanceById(walletId)
+              : walletRepository.findBalanceById(walletId))
+              .orElseThrow(() -> new WalletNotFoundException(walletId))));
+    }));
   }
 
   public BigDecimal getHistoricalBalance(Long walletId, LocalDateTime dateTime) {
-    findWalletByIdAndValidateExists(walletId);
-
-    List<Transaction> transactions = transactionRepository
-        .findByWalletIdAndTimestampLessThanEqualOrderByTimestampDesc(walletId, dateTime);
+    return metrics.record(Operation.HISTORICAL_BALANCE, walletId,
+        () -> loadShedder.read(() -> shardRouter.onShardOf(walletId, () -> {
+      var balance = transactionRepository.findBalanceAfterLastOperationAtOrBefore(walletId, dateTime);
+      if (balance.isPresent()) {
+        return balance.get();
+      }
 
-    if (transactions.isEmpty()) {
+      if (!walletRepository.existsById(walletId)) {
+        throw new WalletNotFoundException(walletId);
+      }
       return BigDecimal.ZERO;
-    }
-
-    return transactions.getFirst().getBalanceAfterOperation();
+    })));
   }
 
-  @Transactional
   public void deposit(Long walletId, DepositDTO depositDTO) {
-    var wallet = findWalletByIdAndValidateExists(walletId);
+    metrics.record(Operation.DEPOSIT, walletId, () -> loadShedder.mutation(() -> {
+      if (ledgerEngine.isEnabled()) {
+        ledgerEngine.deposit(walletId, depositDTO.amount());
+        return;
+      }
+      if (isCoalesced(walletId)) {
+        writeCoalescer.deposit(walletId, depositDTO.amount());
+        return;
+      }
+      shardRouter.runOnShardOf(walletId, () -> transactionExecutor.executeWithoutResult(() -> {
+        balanceCache.evict(walletId);
+        if (stripeService.isStriped(walletId)) {
+          stripeService.credit(walletId, depositDTO.amount(), "Deposit operation", null, null);
+          return;
+        }
+        if (isAtomic(walletId)) {
+          applyAtomically(Operation.DEPOSIT, walletId, TransactionType.CREDIT, depositDTO.amount(),
+              "Deposit operation");
+          return;
+        }
+        var wallet = loadWalletForUpdate(Operation.DEPOSIT, walletId);
 
-    wallet.credit(depositDTO.amount(), "Deposit operation");
-    walletRepository.save(wallet);
+        metrics.phase(Operation.DEPOSIT, Phase.SAVE, () -> {
+          eventOutbox.record(transactionRepository.save(wallet.credit(depositDTO.amount(), "Deposit operation")));
+          walletRepository.save(wallet);
+        });
+      }));
+    }));
   }
 
-  @Transactional
   public void withdraw(Long walletId, WithdrawDTO withdrawDTO) {
-    var wallet = findWalletByIdAndValidateExists(walletId);
+    metrics.record(Operation.WITHDRAW, walletId, () -> loadShedder.mutation(() -> {
+      if (ledgerEngine.isEnabled()) {
+        ledgerEngine.withdraw(walletId, withdrawDTO.amount());
+        return;
+      }
+      if (isCoalesced(walletId)) {
+        writeCoalescer.withdraw(walletId, withdrawDTO.amount());
+        return;
+      }
+      shardRouter.runOnShardOf(walletId, () -> transactionExecutor.executeWithoutResult(() -> {
+        balanceCache.evict(walletId);
+        if (isAtomic(walletId)) {
+          applyAtomically(Operation.WITHDRAW, walletId, TransactionType.DEBIT, withdrawDTO.amount(),
+              "Withdrawal operation");
+          return;
+        }
+        var wallet = loadWalletForUpdate(Operation.WITHDRAW, walletId);
 
-    validateWithdrawal(wallet, withdrawDTO.amount());
-    wallet.debit(withdrawDTO.amount(), "Withdrawal operation");
-    walletRepository.save(wallet);
+        metrics.phase(Operation.WITHDRAW, Phase.VALIDATION, () -> validateWithdrawal(wallet, withdrawDTO.amount()));
+        metrics.phase(Operation.WITHDRAW, Phase.SAVE, () -> {
+          eventOutbox.record(transactionRepository.save(wallet.debit(withdrawDTO.amount(), "Withdrawal operation")));
+          walletRepository.save(wallet);
+        });
+      }));
+    }));
   }
 
-  @Transactional
   public TransferResponseDTO transfer(TransferDTO transferDTO) {
-    var sender = findWalletByIdAndValidateExists(transferDTO.payer());
-    var receiver = findWalletByIdAndValidateExists(transferDTO.payee());
+    return metrics.record(Operation.TRANSFER, transferDTO.payer(), transferDTO.payee(),
+        () -> loadShedder.mutation(() -> {
+      if (ledgerEngine.isEnabled()) {
+        return ledgerEngine.transfer(transferDTO);
+      }
+      var quote = quote(transferDTO);
+      var payerShard = shardRouter.shardOf(transferDTO.payer());
+      if (payerShard != shardRouter.shardOf(transferDTO.payee())) {
+        return crossShardTransferService.transfer(transferDTO, quote);
+      }
+      return shardRouter.onShard(payerShard,
+          () -> transactionExecutor.execute(() -> doTransfer(transferDTO, quote)));
+    }));
+  }
 
-    validateTransfer(sender, transferDTO.value());
+  // Decided before any row is locked, from the in-memory rates and the cached wallet currencies
+  private FxQuote quote(TransferDTO transferDTO) {
+    if (!fxRates.isEnabled()) {
+      return FxQuote.identity(transferDTO.value());
+    }
+    return fxRates.quote(transferDTO.payer(), transferDTO.payee(), transferDTO.value());
+  }
 
-    sender.debit(transferDTO.value(), "Transfer to wallet ID: " + transferDTO.payee());
-    receiver.credit(transferDTO.value(), "Transfer from wallet ID: " + transferDTO.payer());
+  private TransferResponseDTO doTransfer(TransferDTO transferDTO, FxQuote quote) {
+    balanceCache.evict(transferDTO.payer(), transferDTO.payee());
+    if (isAtomic(transferDTO.payer()) && isAtomic(transferDTO.payee())
+        || stripeService.isStriped(transferDTO.payer()) || stripeService.isStriped(transferDTO.payee())) {
+      return doAtomicTransfer(transferDTO, quote);
+    }
 
-    walletRepository.save(sender);
-    walletRepository.save(receiver);
+    // Optimistic wallets take no lock and are read in one round trip. Otherwise always lock the
+    // lower id first so two opposite transfers can't deadlock each other.
+    Wallet sender;
+    Wallet receiver;
+    if (isOptimistic(transferDTO.payer()) && isOptimistic(transferDTO.payee())) {
+      var wallets = metrics.phase(Operation.TRANSFER, Phase.WALLET_LOAD,
+          () -> walletRepository.findAllById(List.of(transferDTO.payer(), transferDTO.payee())));
+      sender = walletIn(wallets, transferDTO.payer());
+      receiver = walletIn(wallets, transferDTO.payee());
+    } else if (transferDTO.payer() <= transferDTO.payee()) {
+      sender = loadWalletForUpdate(Operation.TRANSFER, transferDTO.payer());
+      receiver = loadWalletForUpdate(Operation.TRANSFER, transferDTO.payee());
+    } else {
+      receiver = loadWalletForUpdate(Operation.TRANSFER, transferDTO.payee());
+      sender = loadWalletForUpdate(Operation.TRANSFER, transferDTO.payer());
+    }
 
-    var transfer = Transfer.builder()
-        .sender(sender)
-        .receiver(receiver)
-        .value(transferDTO.value())
-        .build();
+    metrics.phase(Operation.TRANSFER, Phase.VALIDATION, () -> validateTransfer(sender, transferDTO.value()));
+
+    var transfer = metrics.phase(Operation.TRANSFER, Phase.TRANSFER_INSERT, () -> transferRepository.save(
+        Transfer.builder()
+            .sender(sender)
+            .receiver(receiver)
+            .value(transferDTO.value())
+            .build()));
+    var entry = metrics.phase(Operation.TRANSFER, Phase.TRANSFER_INSERT, () -> journalEntryRepository.save(
+        JournalEntry.builder().transfer(transfer).fxRate(quote.rate()).build()));
+
+    metrics.phase(Operation.TRANSFER, Phase.SAVE, () -> {
+      eventOutbox.record(transactionRepository.save(sender.transferTo(receiver, transferDTO.value(), entry)));
+      eventOutbox.record(transactionRepository.save(receiver.transferFrom(sender, quote.credited(), entry)));
+
+      walletRepository.save(sender);
+      walletRepository.save(receiver);
+    });
+
+    return toTransferResponse(sender, receiver, transfer, quote);
+  }
+
+  private TransferResponseDTO doAtomicTransfer(TransferDTO transferDTO, FxQuote quote) {
+    var payer = transferDTO.payer();
+    var payee = transferDTO.payee();
+    var value = transferDTO.value();
+    var credited = quote.credited();
+
+    // Same lock order as the entity path: the lower wallet id is updated first. A striped payee is
+    // credited through a stripe once the journal entry exists, and never locks its wallet row.
+    var stripedPayee = stripeService.isStriped(payee);
+    if (stripedPayee) {
+      if (!walletRepository.existsById(payee)) {
+        throw new WalletNotFoundException(payee);
+      }
+      applyBalanceDelta(Operation.TRANSFER, payer, TransactionType.DEBIT, value);
+    } else if (payer <= payee) {
+      applyBalanceDelta(Operation.TRANSFER, payer, TransactionType.DEBIT, value);
+      applyBalanceDelta(Operation.TRANSFER, payee, TransactionType.CREDIT, credited);
+    } else {
+      applyBalanceDelta(Operation.TRANSFER, payee, TransactionType.CREDIT, credited);
+      applyBalanceDelta(Operation.TRANSFER, payer, TransactionType.DEBIT, value);
+    }
+
+    var sender = walletRepository.getReferenceById(payer);
+    var receiver = walletRepository.getReferenceById(payee);
+
+    var transfer = metrics.phase(Operation.TRANSFER, Phase.TRANSFER_INSERT, () -> transferRepository.save(
+        Transfer.builder()
+            .sender(sender)
+            .receiver(receiver)
+            .value(value)
+            .build()));
+    var entry = metrics.phase(Operation.TRANSFER, Phase.TRANSFER_INSERT, () -> journalEntryRepository.save(
+        JournalEntry.builder().transfer(transfer).fxRate(quote.rate()).build()));
+
+    insertWithCurrentBalance(ledgerRow(payer, TransactionType.DEBIT, value)
+        .journalEntry(entry)
+        .counterpartyWalletId(payee)
+        .build());
+    if (stripedPayee) {
+      stripeService.credit(payee, credited, null, entry, payer);
+    } else {
+      insertWithCurrentBalance(ledgerRow(payee, TransactionType.CREDIT, credited)
+          .journalEntry(entry)
+          .counterpartyWalletId(payer)
+          .build());
+    }
 
-    var savedTransfer = transferRepository.save(transfer);
+    return toTransferResponse(sender, receiver, transfer, quote);
+  }
 
+  private static TransferResponseDTO toTransferResponse(Wallet sender, Wallet receiver,
+      Transfer savedTransfer, FxQuote quote) {
     return TransferResponseDTO.builder()
         .id(savedTransfer.getId())
         .senderId(sender.getId())
@@ -101,9 +291,100 @@ public class WalletService {
         .receiverName(receiver.getFullName())
         .value(savedTransfer.getValue())
         .createdAt(savedTransfer.getCreatedAt())
+        .receivedValue(quote.isConverted() ? quote.credited() : null)
+        .fxRate(quote.rate())
         .build();
   }
 
+  // The coalescer commits on its own thread, so a caller that is already inside a transaction
+  // keeps the operation in it. Striped wallets avoid the wallet row lock the coalescer takes.
+  private boolean isCoalesced(Long walletId) {
+    return writeCoalescer.isEnabled() && !stripeService.isStriped(walletId)
+        && !TransactionSynchronizationManager.isActualTransactionActive();
+  }
+
+  // Striped wallets always take the conditional UPDATE path, which never loads the wallet entity
+  private boolean isAtomic(Long walletId) {
+    return stripeService.isStriped(walletId)
+        || concurrencyProperties.lockModeFor(walletId) == LockMode.ATOMIC;
+  }
+
+  private void applyAtomically(Operation operation, Long walletId, TransactionType type, BigDecimal amount,
+      String description) {
+    applyBalanceDelta(operation, walletId, type, amount);
+    metrics.phase(operation, Phase.SAVE, () -> insertWithCurrentBalance(
+        ledgerRow(walletId, type, amount)
+            .description(description)
+            .build()));
+  }
+
+  // The insufficient-funds check happens in the conditional UPDATE. A striped wallet that falls
+  // short sweeps its stripes into the wallet row and tries once more. Load, check and write are one
+  // statement here, so all of it counts as the save phase.
+  private void applyBalanceDelta(Operation operation, Long walletId, TransactionType type,
+      BigDecimal amount) {
+    metrics.phase(operation, Phase.SAVE, () -> {
+      var delta = type == TransactionType.DEBIT ? amount.negate() : amount;
+      if (walletRepository.applyBalanceDelta(walletId, delta) == 0) {
+        if (!walletRepository.existsById(walletId)) {
+          throw new WalletNotFoundException(walletId);
+        }
+        if (!stripeService.isStriped(walletId) || stripeService.sweep(walletId).signum() == 0
+            || walletRepository.applyBalanceDelta(walletId, delta) == 0) {
+          throw new InsufficientBalanceException();
+        }
+      }
+    });
+  }
+
+  // Runs under the row lock of the conditional UPDATE, so the INSERT ... SELECT copies the balance
+  // that UPDATE wrote: two statements per wallet and no read. The balance is only read back for the
+  // outbox event, which carries it.
+  private void insertWithCurrentBalance(Transaction row) {
+    var walletId = row.getWallet().getId();
+    row.setId(transactionIdAllocator.nextId(row));
+    if (row.getJournalEntry() == null) {
+      transactionRepository.insertWithCurrentBalance(row.getId(), walletId, row.getType().name(),
+          row.getAmount(), row.getDescription(), row.getTimestamp());
+    } else {
+      transactionRepository.insertTransferLegWithCurrentBalance(row.getId(), walletId, row.getType().name(),
+          row.getAmount(), row.getTimestamp(), row.getJournalEntry().getId(), row.getCounterpartyWalletId());
+    }
+    if (eventOutbox.isEnabled()) {
+      row.setBalanceAfterOperation(walletRepository.findBalanceById(walletId).orElseThrow());
+      eventOutbox.record(row);
+    }
+  }
+
+  private Transaction.TransactionBuilder ledgerRow(Long walletId, TransactionType type, BigDecimal amount) {
+    return Transaction.builder()
+        .wallet(walletRepository.getReferenceById(walletId))
+        .type(type)
+        .amount(amount)
+        .timestamp(LocalDateTime.now());
+  }
+
+  private Wallet loadWalletForUpdate(Operation operation, Long walletId) {
+    return metrics.phase(operation, Phase.WALLET_LOAD, () -> {
+      if (concurrencyProperties.lockModeFor(walletId) == LockMode.PESSIMISTIC) {
+        return walletRepository.findByIdForUpdate(walletId)
+            .orElseThrow(() -> new WalletNotFoundException(walletId));
+      }
+      return findWalletByIdAndValidateExists(walletId);
+    });
+  }
+
+  private boolean isOptimistic(Long walletId) {
+    return concurrencyProperties.lockModeFor(walletId) == LockMode.OPTIMISTIC;
+  }
+
+  private static Wallet walletIn(List<Wallet> wallets, Long walletId) {
+    return wallets.stream()
+        .filter(wallet -> wallet.getId().equals(walletId))
+        .findFirst()
+        .orElseThrow(() -> new WalletNotFoundException(walletId));
+  }
+
   private Wallet findWalletByIdAndValidateExists(Long walletId) {
     return walletRepository.findById(walletId)
         .orElseThrow(() -> new WalletNotFoundException(walletId));
@@ -0,0 +1,76 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.ShardContext;
+import com.edanker.soft.walletservice.config.WalletShardingProperties;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+// Picks the shard of an operation. Without wallet.sharding everything runs on the one datasource
+// and shard 0 is the only shard.
+@Component
+public class WalletShardRouter {
+
+  private final int shardCount;
+
+  public WalletShardRouter(WalletShardingProperties properties) {
+    this.shardCount = properties.isEnabled() ? properties.getShards().size() : 1;
+  }
+
+  public boolean isSharded() {
+    return shardCount > 1;
+  }
+
+  public int shardOf(Long walletId) {
+    if (!isSharded()) {
+      return 0;
+    }
+    var shard = (int) Math.floorMod(walletId, (long) ShardContext.MAX_SHARDS);
+    if (shard >= shardCount) {
+      throw new WalletNotFoundException(walletId);
+    }
+    return shard;
+  }
+
+  // The cpf/cnpj decides the shard, so its unique index still catches concurrent duplicates
+  public int shardForNewWallet(String cpfCnpj) {
+    return Math.floorMod(cpfCnpj.hashCode(), shardCount);
+  }
+
+  public <T> T onShard(int shard, Supplier<T> operation) {
+    return ShardContext.callOn(shard, operation);
+  }
+
+  public void runOnShard(int shard, Runnable operation) {
+    onShard(shard, () -> {
+      operation.run();
+      return null;
+    });
+  }
+
+  public <T> T onShardOf(Long walletId, Supplier<T> operation) {
+    return onShard(shardOf(walletId), operation);
+  }
+
+  public void runOnShardOf(Long walletId, Runnable operation) {
+    runOnShard(shardOf(walletId), operation);
+  }
+
+  public boolean anyShard(BooleanSupplier condition) {
+    for (int shard = 0; shard < shardCount; shard++) {
+      if (onShard(shard, condition::getAsBoolean)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public void forEachShard(IntConsumer operation) {
+    for (int shard = 0; shard < shardCount; shard++) {
+      var index = shard;
+      runOnShard(index, () -> operation.accept(index));
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletStripingProperties;
+import com.edanker.soft.walletservice.entity.JournalEntry;
+import com.edanker.soft.walletservice.entity.StripedCredit;
+import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.repository.StripedCreditRepository;
+import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import com.edanker.soft.walletservice.repository.WalletStripeRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Credits of a striped wallet land on one of its wallet_stripe rows, picked at random, so
+// concurrent credits only wait for each other when they pick the same stripe. Each credit also
+// leaves a striped_credit row. A sweep locks all stripes, moves their sum into the wallet row and
+// posts the pending credits to the ledger with their running balance, so the ledger stays one
+// ordered sequence per wallet; it just trails the balance by up to wallet.striping.sweep-delay.
+// Debits keep using the wallet row and sweep first when it alone cannot cover them.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletStripeService {
+
+  private final WalletStripingProperties properties;
+  private final WalletStripeRepository stripeRepository;
+  private final StripedCreditRepository creditRepository;
+  private final WalletRepository walletRepository;
+  private final TransactionRepository transactionRepository;
+  private final WalletTransactionExecutor transactionExecutor;
+  private final WalletShardRouter shardRouter;
+  private final WalletEventOutbox eventOutbox;
+
+  public boolean isStriped(Long walletId) {
+    return properties.isStriped(walletId);
+  }
+
+  // Runs in the caller's transaction, on the wallet's shard
+  public void credit(Long walletId, BigDecimal amount, String description, JournalEntry entry,
+      Long counterpartyWalletId) {
+    var stripe = ThreadLocalRandom.current().nextInt(properties.getStripes());
+    if (stripeRepository.addToStripe(walletId, stripe, amount) == 0) {
+      createStripes(walletId);
+      if (stripeRepository.addToStripe(walletId, stripe, amount) == 0) {
+        throw new IllegalStateException("Stripe " + stripe + " of wallet " + walletId + " is missing");
+      }
+    }
+    creditRepository.save(StripedCredit.builder()
+        .walletId(walletId)
+        .amount(amount)
+        .description(description)
+        .journalEntry(entry)
+        .counterpartyWalletId(counterpartyWalletId)
+        .createdAt(LocalDateTime.now())
+        .build());
+  }
+
+  // Runs in the caller's transaction and returns the amount moved into the wallet row
+  public BigDecimal sweep(Long walletId) {
+    if (!isStriped(walletId) || stripeRepository.findAllByWalletIdForUpdate(walletId).isEmpty()) {
+      return BigDecimal.ZERO;
+    }
+    var credits = creditRepository.findAllByWalletIdForUpdate(walletId);
+    if (credits.isEmpty()) {
+      return BigDecimal.ZERO;
+    }
+
+    var total = credits.stream().map(StripedCredit::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+    walletRepository.applyBalanceDelta(walletId, total);
+    var balance = walletRepository.findBalanceById(walletId).orElseThrow().subtract(total);
+
+    var wallet = walletRepository.getReferenceById(walletId);
+    var postedAt = LocalDateTime.now();
+    for (var credit : credits) {
+      balance = balance.add(credit.getAmount());
+      eventOutbox.record(transactionRepository.save(Transaction.builder()
+          .wallet(wallet)
+          .type(TransactionType.CREDIT)
+          .amount(credit.getAmount())
+          .description(credit.getDescription())
+          .journalEntry(credit.getJournalEntry())
+          .counterpartyWalletId(credit.getCounterpartyWalletId())
+          .timestamp(postedAt)
+          .balanceAfterOperation(balance)
+          .build()));
+    }
+    creditRepository.deleteAllInBatch(credits);
+    stripeRepository.empty(walletId);
+    return total;
+  }
+
+  @Scheduled(fixedDelayString = "${wallet.striping.sweep-delay:PT1S}")
+  public void sweepStripedWallets() {
+    for (var walletId : properties.getWalletIds()) {
+      try {
+        shardRouter.runOnShardOf(walletId, () -> transactionExecutor.executeWithoutResult(() -> sweep(walletId)));
+      } catch (RuntimeException e) {
+        log.warn("Could not sweep the stripes of wallet {}", walletId, e);
+      }
+    }
+  }
+
+  // Also adds the stripes missing after wallet.striping.stripes was raised. In a transaction of its
+  // own, so a concurrent first credit that loses the race on the primary key does not roll back
+  // its caller
+  private void createStripes(Long walletId) {
+    if (!walletRepository.existsById(walletId)) {
+      throw new WalletNotFoundException(walletId);
+    }
+    try {
+      transactionExecutor.executeInNewTransaction(() -> {
+        var existing = stripeRepository.findStripesByWalletId(walletId);
+        for (int stripe = 0; stripe < properties.getStripes(); stripe++) {
+          if (!existing.contains(stripe)) {
+            stripeRepository.insert(walletId, stripe);
+          }
+        }
+        return null;
+      });
+    } catch (DataIntegrityViolationException e) {
+      // Another credit created them first
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties;
+import com.edanker.soft.walletservice.exceptions.WalletConcurrentUpdateException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Runs balance mutations in their own database transaction and retries the whole transaction
+// when it loses an optimistic version check or a lock wait / deadlock. The retry has to wrap the
+// transaction boundary, otherwise the retried attempt would reuse the stale persistence context.
+// A call made inside a transaction joins it and leaves retrying to the outermost call.
+@Component
+public class WalletTransactionExecutor {
+
+  private final TransactionTemplate transactionTemplate;
+  private final TransactionTemplate newTransactionTemplate;
+  private final WalletConcurrencyProperties properties;
+
+  public WalletTransactionExecutor(TransactionTemplate transactionTemplate,
+      WalletConcurrencyProperties properties) {
+    this.transactionTemplate = transactionTemplate;
+    this.newTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+    this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.properties = properties;
+  }
+
+  public <T> T execute(Supplier<T> operation) {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      return operation.get();
+    }
+    return executeWithRetry(transactionTemplate, operation);
+  }
+
+  public void executeWithoutResult(Runnable operation) {
+    execute(() -> {
+      operation.run();
+      return null;
+    });
+  }
+
+  // Always a transaction of its own, committed before this returns, even when called from inside
+  // another one (which may be on another shard)
+  public <T> T executeInNewTransaction(Supplier<T> operation) {
+    return executeWithRetry(newTransactionTemplate, operation);
+  }
+
+  private <T> T executeWithRetry(TransactionTemplate template, Supplier<T> operation) {
+    var attempt = 1;
+    while (true) {
+      try {
+        return template.execute(status -> operation.get());
+      } catch (ConcurrencyFailureException e) {
+        if (attempt >= properties.getMaxAttempts()) {
+          throw new WalletConcurrentUpdateException(e);
+        }
+        backoff(attempt++);
+      }
+    }
+  }
+
+  private void backoff(int attempt) {
+    var initial = properties.getInitialBackoff().toMillis();
+    var max = properties.getMaxBackoff().toMillis();
+    var ceiling = Math.min(max, initial << Math.min(attempt - 1, 20));
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new WalletConcurrentUpdateException(e);
+    }
+  }
+}
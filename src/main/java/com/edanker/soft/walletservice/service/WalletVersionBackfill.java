@@ -0,0 +1,32 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// ddl-auto=update never changes a column it already created, so a database whose wallet.version
+// was added as a nullable column keeps NULL versions on its older rows. The optimistic path can
+// neither match nor increment those, so they are set to 0 once at startup, on every shard.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WalletVersionBackfill implements ApplicationRunner {
+
+  private final WalletRepository walletRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final WalletShardRouter shardRouter;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    shardRouter.forEachShard(shard -> {
+      Integer filled = transactionTemplate.execute(status -> walletRepository.backfillNullVersions());
+      if (filled != null && filled > 0) {
+        log.info("Set the version of {} wallets without one on shard {}", filled, shard);
+      }
+    });
+  }
+}
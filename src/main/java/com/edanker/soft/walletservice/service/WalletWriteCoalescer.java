@@ -0,0 +1,242 @@
+package com.edanker.soft.walletservice.service;
+
+import com.edanker.soft.walletservice.config.WalletCoalescingProperties;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import com.edanker.soft.walletservice.entity.Wallet;
+import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
+import com.edanker.soft.walletservice.exceptions.WalletException;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+// Group commit for deposits and withdrawals when wallet.coalescing.enabled is set. Callers queue
+// their operation and block; one flusher thread collects what arrives within wallet.coalescing.window
+// (or up to max-batch-size operations), locks the wallets of the group in id order and applies it
+// in one transaction, so a burst pays one commit per group instead of one per operation. A caller
+// is released only after that commit. An operation that cannot be applied fails alone, and when
+// the group's transaction fails as a whole its operations are retried one transaction each.
+@Slf4j
+@Service
+public class WalletWriteCoalescer implements SmartLifecycle {
+
+  private final WalletCoalescingProperties properties;
+  private final WalletRepository walletRepository;
+  private final TransactionRepository transactionRepository;
+  private final WalletTransactionExecutor transactionExecutor;
+  private final WalletBalanceCache balanceCache;
+  private final WalletShardRouter shardRouter;
+  private final WalletEventOutbox eventOutbox;
+  private final BlockingQueue<Write> queue;
+  private volatile boolean running;
+  private Thread flusher;
+
+  public WalletWriteCoalescer(WalletCoalescingProperties properties, WalletRepository walletRepository,
+      TransactionRepository transactionRepository, WalletTransactionExecutor transactionExecutor,
+      WalletBalanceCache balanceCache, WalletShardRouter shardRouter, WalletEventOutbox eventOutbox) {
+    this.properties = properties;
+    this.walletRepository = walletRepository;
+    this.transactionRepository = transactionRepository;
+    this.transactionExecutor = transactionExecutor;
+    this.balanceCache = balanceCache;
+    this.shardRouter = shardRouter;
+    this.eventOutbox = eventOutbox;
+    this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+  }
+
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  public void deposit(Long walletId, BigDecimal amount) {
+    submit(new Write(walletId, shardRouter.shardOf(walletId), TransactionType.CREDIT, amount, "Deposit operation"));
+  }
+
+  public void withdraw(Long walletId, BigDecimal amount) {
+    submit(new Write(walletId, shardRouter.shardOf(walletId), TransactionType.DEBIT, amount, "Withdrawal operation"));
+  }
+
+  @Override
+  public void start() {
+    if (isEnabled()) {
+      running = true;
+      flusher = Thread.ofPlatform().name("wallet-write-coalescer").daemon().start(this::runFlusher);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    var stranded = new ArrayList<Write>();
+    queue.drainTo(stranded);
+    stranded.forEach(write -> write.done.completeExceptionally(
+        new IllegalStateException("The write coalescer is stopped")));
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  // Stops after the web server, so requests still in flight get their group committed
+  @Override
+  public int getPhase() {
+    return SmartLifecycle.DEFAULT_PHASE - 4096;
+  }
+
+  // The flusher may exit and stop() drain the queue between the running check and the enqueue.
+  // Whoever takes a write out of the queue completes it, so a caller that still finds its own
+  // write there once the coalescer stopped fails it instead of waiting forever.
+  private void submit(Write write) {
+    try {
+      while (!queue.offer(write, 10, TimeUnit.MILLISECONDS)) {
+        if (!running) {
+          throw new IllegalStateException("The write coalescer is not running");
+        }
+      }
+      if (!running && queue.remove(write)) {
+        throw new IllegalStateException("The write coalescer is not running");
+      }
+      write.done.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private void runFlusher() {
+    var maxBatchSize = properties.getMaxBatchSize();
+    var window = properties.getWindow().toNanos();
+    var batch = new ArrayList<Write>(maxBatchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        var first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        var deadline = System.nanoTime() + window;
+        while (batch.size() < maxBatchSize) {
+          if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+            continue;
+          }
+          var next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        flush(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        log.error("Coalesced writes could not be completed", e);
+        batch.forEach(write -> write.done.completeExceptionally(e));
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  // One transaction per shard, since a transaction only reaches one database. The shard is resolved
+  // on the caller's thread, so an id outside every shard fails its own caller and not the batch.
+  private void flush(List<Write> batch) {
+    var groups = batch.stream().collect(Collectors.groupingBy(write -> write.shard));
+    groups.forEach((shard, writes) -> {
+      try {
+        apply(shard, writes);
+      } catch (RuntimeException e) {
+        log.warn("A group of {} coalesced writes failed, applying them one by one", writes.size(), e);
+        for (var write : writes) {
+          try {
+            apply(shard, List.of(write));
+          } catch (RuntimeException single) {
+            write.done.completeExceptionally(single);
+          }
+        }
+      }
+    });
+  }
+
+  // Completes the futures of the group once its transaction has committed
+  private void apply(int shard, List<Write> writes) {
+    shardRouter.runOnShard(shard, () -> transactionExecutor.executeWithoutResult(() -> {
+      var walletIds = writes.stream().map(write -> write.walletId).collect(Collectors.toCollection(TreeSet::new));
+      Map<Long, Wallet> wallets = walletRepository.findAllByIdForUpdate(walletIds).stream()
+          .collect(Collectors.toMap(Wallet::getId, Function.identity()));
+      balanceCache.evict(wallets.keySet().toArray(Long[]::new));
+
+      // Reset on every attempt, a retried transaction starts again from the locked rows
+      for (var write : writes) {
+        write.failure = null;
+        var wallet = wallets.get(write.walletId);
+        if (wallet == null) {
+          write.failure = new WalletNotFoundException(write.walletId);
+        } else if (write.type == TransactionType.DEBIT) {
+          if (wallet.isBalanceEqualOrGreaterThan(write.amount)) {
+            eventOutbox.record(transactionRepository.save(wallet.debit(write.amount, write.description)));
+          } else {
+            write.failure = new InsufficientBalanceException();
+          }
+        } else {
+          eventOutbox.record(transactionRepository.save(wallet.credit(write.amount, write.description)));
+        }
+      }
+    }));
+
+    for (var write : writes) {
+      if (write.failure == null) {
+        write.done.complete(null);
+      } else {
+        write.done.completeExceptionally(write.failure);
+      }
+    }
+  }
+
+  private static final class Write {
+
+    private final Long walletId;
+    private final int shard;
+    private final TransactionType type;
+    private final BigDecimal amount;
+    private final String description;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private WalletException failure;
+
+    private Write(Long walletId, int shard, TransactionType type, BigDecimal amount, String description) {
+      this.walletId = walletId;
+      this.shard = shard;
+      this.type = type;
+      this.amount = amount;
+      this.description = description;
+    }
+  }
+}
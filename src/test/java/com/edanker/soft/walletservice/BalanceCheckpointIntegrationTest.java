@@ -0,0 +1,115 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.edanker.soft.walletservice.controller.dto.BalanceResponseDTO;
+import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import com.edanker.soft.walletservice.entity.Wallet;
+import com.edanker.soft.walletservice.exceptions.InvalidBalanceStatementException;
+import com.edanker.soft.walletservice.repository.BalanceCheckpointCursorRepository;
+import com.edanker.soft.walletservice.repository.BalanceCheckpointRepository;
+import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import com.edanker.soft.walletservice.service.BalanceCheckpointService;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class BalanceCheckpointIntegrationTest {
+
+  @Autowired
+  private BalanceCheckpointService balanceCheckpointService;
+
+  @Autowired
+  private BalanceCheckpointRepository checkpointRepository;
+
+  @Autowired
+  private BalanceCheckpointCursorRepository cursorRepository;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private WalletRepository walletRepository;
+
+  @Autowired
+  private TransactionRepository transactionRepository;
+
+  private Wallet wallet;
+
+  @BeforeEach
+  void setUp() {
+    cursorRepository.deleteAll();
+    checkpointRepository.deleteAll();
+
+    wallet = walletRepository.findById(TestWallets.create(walletService, "Merchant")).orElseThrow();
+
+    saveTransaction(LocalDateTime.of(2023, 1, 1, 10, 15), "100.00");
+    saveTransaction(LocalDateTime.of(2023, 1, 1, 10, 45), "150.00");
+    saveTransaction(LocalDateTime.of(2023, 1, 2, 9, 0), "120.00");
+    saveTransaction(LocalDateTime.of(2023, 1, 3, 23, 59, 59), "200.00");
+    saveTransaction(LocalDateTime.of(2023, 1, 5, 8, 0), "300.00");
+  }
+
+  @Test
+  @DisplayName("Should write one closing checkpoint per active period and advance the cursor")
+  void closePeriodsUntil_WritesClosingBalances() {
+    balanceCheckpointService.closePeriodsUntil(LocalDateTime.of(2023, 1, 4, 12, 30));
+
+    var checkpoints = checkpointRepository.findByWalletIdAndPeriodEndBetween(wallet.getId(),
+        LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2023, 1, 10, 0, 0));
+
+    assertEquals(List.of(LocalDateTime.of(2023, 1, 1, 11, 0), LocalDateTime.of(2023, 1, 2, 10, 0),
+            LocalDateTime.of(2023, 1, 4, 0, 0)),
+        checkpoints.stream().map(c -> c.getPeriodEnd()).toList());
+    assertEquals(0, new BigDecimal("150.00").compareTo(checkpoints.getFirst().getBalance()));
+    assertEquals(LocalDateTime.of(2023, 1, 4, 12, 0),
+        cursorRepository.findById("balance-checkpoint").orElseThrow().getClosedUntil());
+  }
+
+  @Test
+  @DisplayName("Should build a day-end statement from checkpoints and point lookups past the cursor")
+  void getBalanceStatement_MatchesPointLookups() {
+    balanceCheckpointService.closePeriodsUntil(LocalDateTime.of(2023, 1, 4, 12, 30));
+
+    List<BalanceResponseDTO> statement = balanceCheckpointService.getBalanceStatement(wallet.getId(),
+        LocalDateTime.of(2022, 12, 31, 0, 0), LocalDateTime.of(2023, 1, 6, 0, 0), ChronoUnit.DAYS);
+
+    assertEquals(7, statement.size());
+    assertEquals(List.of("0", "0", "150.00", "120.00", "200.00", "200.00", "300.00"),
+        statement.stream().map(point -> point.balance().toPlainString()).toList());
+    statement.forEach(point -> assertEquals(0, transactionRepository
+        .findBalanceAfterLastOperationBefore(wallet.getId(), point.timestamp())
+        .orElse(BigDecimal.ZERO)
+        .compareTo(point.balance())));
+  }
+
+  @Test
+  @DisplayName("Should reject intervals finer than an hour")
+  void getBalanceStatement_UnsupportedInterval() {
+    assertThrows(InvalidBalanceStatementException.class, () -> balanceCheckpointService.getBalanceStatement(
+        wallet.getId(), LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2023, 1, 2, 0, 0),
+        ChronoUnit.MINUTES));
+  }
+
+  private void saveTransaction(LocalDateTime timestamp, String balanceAfterOperation) {
+    transactionRepository.save(Transaction.builder()
+        .wallet(wallet)
+        .type(TransactionType.CREDIT)
+        .amount(BigDecimal.TEN)
+        .description("Deposit operation")
+        .timestamp(timestamp)
+        .balanceAfterOperation(new BigDecimal(balanceAfterOperation))
+        .build());
+  }
+}
@@ -0,0 +1,83 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.edanker.soft.walletservice.config.BulkheadDataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class BulkheadDataSourceTest {
+
+  private DataSource target;
+  private BulkheadDataSource bulkhead;
+
+  @BeforeEach
+  void setUp() {
+    target = mock(DataSource.class);
+    bulkhead = new BulkheadDataSource(target, 1, Duration.ofMillis(50));
+  }
+
+  @Test
+  @DisplayName("Should reject a caller once every permit is taken")
+  void getConnection_Exhausted() throws SQLException {
+    when(target.getConnection()).thenReturn(mock(Connection.class));
+
+    bulkhead.getConnection();
+
+    assertThrows(SQLTransientConnectionException.class, () -> bulkhead.getConnection());
+  }
+
+  @Test
+  @DisplayName("Should release the permit exactly once when the connection is closed")
+  void close_ReleasesPermitOnce() throws SQLException {
+    var connection = mock(Connection.class);
+    when(target.getConnection()).thenReturn(connection);
+
+    var borrowed = bulkhead.getConnection();
+    borrowed.close();
+    borrowed.close();
+
+    assertEquals(1, bulkhead.availablePermits());
+    verify(connection, times(1)).close();
+  }
+
+  @Test
+  @DisplayName("Should hand a caller that already holds a connection another one without a permit")
+  void getConnection_Nested() throws SQLException {
+    when(target.getConnection()).thenReturn(mock(Connection.class));
+    var other = new BulkheadDataSource(target, 1, Duration.ofMillis(50));
+
+    var outer = bulkhead.getConnection();
+    var nested = bulkhead.getConnection();
+    var otherShard = other.getConnection();
+    nested.close();
+    otherShard.close();
+
+    assertEquals(0, bulkhead.availablePermits());
+    assertEquals(1, other.availablePermits());
+    outer.close();
+    assertEquals(1, bulkhead.availablePermits());
+    bulkhead.getConnection().close();
+  }
+
+  @Test
+  @DisplayName("Should release the permit when the pool fails to hand out a connection")
+  void getConnection_PoolFailure() throws SQLException {
+    when(target.getConnection()).thenThrow(new SQLException("pool down"));
+
+    assertThrows(SQLException.class, () -> bulkhead.getConnection());
+
+    assertEquals(1, bulkhead.availablePermits());
+  }
+}
@@ -0,0 +1,182 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.edanker.soft.walletservice.config.WalletFxProperties;
+import com.edanker.soft.walletservice.config.WalletFxProperties.Source;
+import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.entity.FxRate;
+import com.edanker.soft.walletservice.exceptions.FxAmountTooSmallException;
+import com.edanker.soft.walletservice.exceptions.FxRateUnavailableException;
+import com.edanker.soft.walletservice.exceptions.UnsupportedCurrencyException;
+import com.edanker.soft.walletservice.exceptions.WalletDataAlreadyExistsException;
+import com.edanker.soft.walletservice.money.Money;
+import com.edanker.soft.walletservice.repository.FxRateRepository;
+import com.edanker.soft.walletservice.repository.JournalEntryRepository;
+import com.edanker.soft.walletservice.service.FxRateService;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Rates come from src/test/resources/fx-rates.csv: 1 USD = 5.00 BRL, 1 EUR = 5.50 BRL
+@SpringBootTest(properties = {
+    "wallet.fx.enabled=true",
+    "wallet.fx.file=src/test/resources/fx-rates.csv",
+    "wallet.fx.refresh-delay=1h"
+})
+class FxIntegrationTest {
+
+  private static final Currency USD = Currency.getInstance("USD");
+  private static final Currency EUR = Currency.getInstance("EUR");
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private FxRateService fxRateService;
+
+  @Autowired
+  private WalletFxProperties properties;
+
+  @Autowired
+  private FxRateRepository fxRateRepository;
+
+  @Autowired
+  private JournalEntryRepository journalEntryRepository;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Test
+  @DisplayName("A transfer between currencies should credit the converted value and keep the journal balanced")
+  void transfer_ConvertsCurrency() {
+    var customer = UUID.randomUUID().toString();
+    var reais = createWallet(customer, null);
+    var dollars = createWallet(customer, USD);
+    var euros = createWallet(UUID.randomUUID().toString(), EUR);
+    walletService.deposit(reais, DepositDTO.builder().amount(new BigDecimal("100.00")).build());
+
+    var toDollars = walletService.transfer(transfer(reais, dollars, "10.01"));
+    var toEuros = walletService.transfer(transfer(dollars, euros, "1.00"));
+
+    assertEquals(new BigDecimal("2.00"), toDollars.receivedValue());
+    assertEquals(new BigDecimal("0.2000000000"), toDollars.fxRate());
+    assertEquals(new BigDecimal("0.91"), toEuros.receivedValue());
+    assertBalance(reais, "89.99");
+    assertBalance(dollars, "1.00");
+    assertBalance(euros, "0.91");
+    assertTrue(journalEntryRepository.findUnbalancedEntryIds().isEmpty());
+  }
+
+  @Test
+  @DisplayName("A wallet's currency should be read with the caller's connection when it is on the same shard")
+  void currencyOf_UsesCallerTransaction() {
+    transactionTemplate.executeWithoutResult(status -> {
+      // Not committed, so a lookup on a connection of its own would not find the wallet
+      var dollars = createWallet(UUID.randomUUID().toString(), USD);
+      assertEquals(USD, fxRateService.currencyOf(dollars));
+      status.setRollbackOnly();
+    });
+  }
+
+  @Test
+  @DisplayName("A transfer within one currency should not be converted")
+  void transfer_SameCurrency() {
+    var payer = createWallet(UUID.randomUUID().toString(), USD);
+    var payee = createWallet(UUID.randomUUID().toString(), USD);
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("3.00")).build());
+
+    var response = walletService.transfer(transfer(payer, payee, "3.00"));
+
+    assertNull(response.receivedValue());
+    assertNull(response.fxRate());
+    assertBalance(payee, "3.00");
+  }
+
+  @Test
+  @DisplayName("A customer should get one wallet per currency, and only currencies with cents")
+  void createWallet_PerCurrency() {
+    var customer = UUID.randomUUID().toString();
+    createWallet(customer, EUR);
+
+    assertThrows(WalletDataAlreadyExistsException.class, () -> createWallet(customer, EUR));
+    assertThrows(UnsupportedCurrencyException.class, () -> createWallet(customer, Currency.getInstance("JPY")));
+  }
+
+  @Test
+  @DisplayName("A missing rate should reject the transfer without moving money")
+  void transfer_MissingRate() {
+    var payer = createWallet(UUID.randomUUID().toString(), null);
+    var payee = createWallet(UUID.randomUUID().toString(), Currency.getInstance("GBP"));
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("5.00")).build());
+
+    assertThrows(FxRateUnavailableException.class, () -> walletService.transfer(transfer(payer, payee, "1.00")));
+    assertBalance(payer, "5.00");
+  }
+
+  @Test
+  @DisplayName("A transfer worth less than a cent after conversion should be rejected without moving money")
+  void transfer_ConvertsToZero() {
+    var payer = createWallet(UUID.randomUUID().toString(), null);
+    var payee = createWallet(UUID.randomUUID().toString(), USD);
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("1.00")).build());
+
+    // 0.02 BRL is 0.004 USD, which rounds to 0.00
+    assertThrows(FxAmountTooSmallException.class, () -> walletService.transfer(transfer(payer, payee, "0.02")));
+    assertBalance(payer, "1.00");
+    assertBalance(payee, "0.00");
+  }
+
+  @Test
+  @DisplayName("A refresh should swap in the new table and a failed one should keep the current table")
+  void refreshRates_FromDatabase() {
+    properties.setSource(Source.DATABASE);
+    try {
+      fxRateRepository.save(FxRate.builder().currency("USD").rate(new BigDecimal("4.00"))
+          .updatedAt(LocalDateTime.now()).build());
+      fxRateService.refreshRates();
+      var loaded = fxRateService.rates();
+      assertEquals(new BigDecimal("0.2500000000"), loaded.rate(Money.DEFAULT_CURRENCY, USD));
+      assertNull(loaded.rate(Money.DEFAULT_CURRENCY, EUR));
+
+      fxRateRepository.save(FxRate.builder().currency("EUR").rate(BigDecimal.ZERO)
+          .updatedAt(LocalDateTime.now()).build());
+      fxRateService.refreshRates();
+      assertEquals(loaded, fxRateService.rates());
+    } finally {
+      fxRateRepository.deleteAll();
+      properties.setSource(Source.FILE);
+      fxRateService.refreshRates();
+    }
+  }
+
+  private Long createWallet(String customer, Currency currency) {
+    return walletService.createWallet(CreateWalletDTO.builder()
+        .fullName("Fx " + customer)
+        .cpfCnpj(customer)
+        .email(customer + "@example.com")
+        .password("secret")
+        .currency(currency)
+        .build()).getId();
+  }
+
+  private static TransferDTO transfer(Long payer, Long payee, String value) {
+    return TransferDTO.builder().payer(payer).payee(payee).value(new BigDecimal(value)).build();
+  }
+
+  private void assertBalance(Long walletId, String expected) {
+    assertEquals(0, new BigDecimal(expected).compareTo(walletService.getCurrentBalance(walletId)));
+  }
+}
@@ -0,0 +1,45 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.edanker.soft.walletservice.money.FxRateTable;
+import com.edanker.soft.walletservice.money.Money;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class FxRateTableTest {
+
+  private static final Currency USD = Currency.getInstance("USD");
+  private static final Currency EUR = Currency.getInstance("EUR");
+  private static final Currency GBP = Currency.getInstance("GBP");
+
+  @Test
+  @DisplayName("Should derive every cross rate through the default currency")
+  void rate_CrossRates() {
+    var table = FxRateTable.of(Map.of(USD, new BigDecimal("5.00"), EUR, new BigDecimal("5.50")), LocalDateTime.now());
+
+    assertEquals(new BigDecimal("5.0000000000"), table.rate(USD, Money.DEFAULT_CURRENCY));
+    assertEquals(new BigDecimal("0.2000000000"), table.rate(Money.DEFAULT_CURRENCY, USD));
+    assertEquals(new BigDecimal("1.1000000000"), table.rate(EUR, USD));
+    assertEquals(new BigDecimal("0.9090909091"), table.rate(USD, EUR));
+    assertEquals(BigDecimal.ONE, table.rate(GBP, GBP));
+    assertEquals(3, table.size());
+  }
+
+  @Test
+  @DisplayName("Should have no rate for an unknown currency and refuse non-positive rates")
+  void rate_Missing() {
+    var table = FxRateTable.of(Map.of(USD, new BigDecimal("5.00")), LocalDateTime.now());
+
+    assertNull(table.rate(USD, GBP));
+    assertNull(table.rate(GBP, Money.DEFAULT_CURRENCY));
+    assertNull(FxRateTable.empty().rate(USD, Money.DEFAULT_CURRENCY));
+    assertThrows(IllegalArgumentException.class, () -> FxRateTable.of(Map.of(USD, BigDecimal.ZERO), null));
+  }
+}
@@ -0,0 +1,144 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class IdempotencyIntegrationTest {
+
+  private static final int THREADS = 8;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Test
+  @DisplayName("A retried deposit with the same Idempotency-Key should be applied once and replayed")
+  void deposit_RetriedWithSameKey_AppliedOnce() throws Exception {
+    var walletId = TestWallets.create(walletService, "Idempotent");
+    var body = objectMapper.writeValueAsString(DepositDTO.builder().amount(new BigDecimal("10.00")).build());
+    var key = UUID.randomUUID().toString();
+
+    mockMvc.perform(post("/wallets/{walletId}/deposit", walletId)
+            .header("Idempotency-Key", key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+    mockMvc.perform(post("/wallets/{walletId}/deposit", walletId)
+            .header("Idempotency-Key", key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Idempotent-Replayed", "true"));
+
+    assertEquals(0, new BigDecimal("10.00").compareTo(walletService.getCurrentBalance(walletId)));
+  }
+
+  @Test
+  @DisplayName("A retry that writes the same amount with another scale should be replayed")
+  void deposit_RetriedWithOtherScale_Replayed() throws Exception {
+    var walletId = TestWallets.create(walletService, "Idempotent");
+    var key = UUID.randomUUID().toString();
+
+    mockMvc.perform(post("/wallets/{walletId}/deposit", walletId)
+            .header("Idempotency-Key", key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"amount\": 10}"))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(post("/wallets/{walletId}/deposit", walletId)
+            .header("Idempotency-Key", key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"amount\": 10.00}"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Idempotent-Replayed", "true"));
+
+    assertEquals(0, new BigDecimal("10.00").compareTo(walletService.getCurrentBalance(walletId)));
+  }
+
+  @Test
+  @DisplayName("Concurrent transfers with the same Idempotency-Key should move the money once")
+  void transfer_ConcurrentDuplicates_AppliedOnce() throws Exception {
+    var payer = TestWallets.create(walletService, "Idempotent");
+    var payee = TestWallets.create(walletService, "Idempotent");
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("100.00")).build());
+    var body = objectMapper.writeValueAsString(TransferDTO.builder()
+        .payer(payer).payee(payee).value(new BigDecimal("40.00")).build());
+    var key = UUID.randomUUID().toString();
+
+    var start = new CountDownLatch(1);
+    var futures = new ArrayList<Future<String>>();
+    try (var pool = Executors.newFixedThreadPool(THREADS)) {
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(pool.submit(() -> {
+          start.await();
+          return mockMvc.perform(post("/wallets/transfer")
+                  .header("Idempotency-Key", key)
+                  .contentType(MediaType.APPLICATION_JSON)
+                  .content(body))
+              .andExpect(status().isOk())
+              .andReturn().getResponse().getContentAsString();
+        }));
+      }
+      start.countDown();
+      var first = futures.getFirst().get();
+      for (var future : futures) {
+        assertEquals(objectMapper.readTree(first), objectMapper.readTree(future.get()));
+      }
+    }
+
+    assertEquals(0, new BigDecimal("60.00").compareTo(walletService.getCurrentBalance(payer)));
+    assertEquals(0, new BigDecimal("40.00").compareTo(walletService.getCurrentBalance(payee)));
+  }
+
+  @Test
+  @DisplayName("Reusing an Idempotency-Key for a different request should return 422")
+  void deposit_KeyReusedWithDifferentBody_Rejected() throws Exception {
+    var walletId = TestWallets.create(walletService, "Idempotent");
+    var key = UUID.randomUUID().toString();
+
+    mockMvc.perform(post("/wallets/{walletId}/deposit", walletId)
+            .header("Idempotency-Key", key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(DepositDTO.builder().amount(new BigDecimal("10.00")).build())))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(post("/wallets/{walletId}/deposit", walletId)
+            .header("Idempotency-Key", key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(DepositDTO.builder().amount(new BigDecimal("20.00")).build())))
+        .andExpect(status().isUnprocessableEntity())
+        .andExpect(jsonPath("$.title").value("Idempotency key reused"));
+
+    assertEquals(0, new BigDecimal("10.00").compareTo(walletService.getCurrentBalance(walletId)));
+  }
+}
@@ -0,0 +1,109 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.edanker.soft.walletservice.entity.JournalEntry;
+import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import com.edanker.soft.walletservice.entity.Transfer;
+import com.edanker.soft.walletservice.entity.Wallet;
+import com.edanker.soft.walletservice.repository.JournalEntryRepository;
+import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.repository.TransferRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class JournalEntryRepositoryTest {
+
+  @Autowired
+  private WalletRepository walletRepository;
+
+  @Autowired
+  private TransferRepository transferRepository;
+
+  @Autowired
+  private JournalEntryRepository journalEntryRepository;
+
+  @Autowired
+  private TransactionRepository transactionRepository;
+
+  private Wallet sender;
+  private Wallet receiver;
+
+  @BeforeEach
+  void setUp() {
+    sender = walletRepository.save(Wallet.builder()
+        .fullName("John Doe")
+        .cpfCnpj("12345678901")
+        .email("john.doe@example.com")
+        .password("password123")
+        .build());
+    receiver = walletRepository.save(Wallet.builder()
+        .fullName("Jane Smith")
+        .cpfCnpj("98765432109")
+        .email("jane.smith@example.com")
+        .password("password456")
+        .build());
+  }
+
+  @Test
+  @DisplayName("A transfer with one debit and one credit of the same amount should reconcile")
+  void findUnbalancedEntryIds_Balanced() {
+    var entry = newEntry();
+    saveLeg(sender, TransactionType.DEBIT, "25.00", entry, receiver);
+    saveLeg(receiver, TransactionType.CREDIT, "25.00", entry, sender);
+
+    assertEquals(List.of(), journalEntryRepository.findUnbalancedEntryIds());
+  }
+
+  @Test
+  @DisplayName("Should report entries whose legs differ in amount or miss a side")
+  void findUnbalancedEntryIds_Unbalanced() {
+    var mismatched = newEntry();
+    saveLeg(sender, TransactionType.DEBIT, "25.00", mismatched, receiver);
+    saveLeg(receiver, TransactionType.CREDIT, "20.00", mismatched, sender);
+
+    var oneSided = newEntry();
+    saveLeg(sender, TransactionType.DEBIT, "0.00", oneSided, receiver);
+    saveLeg(receiver, TransactionType.DEBIT, "0.00", oneSided, sender);
+
+    var balanced = newEntry();
+    saveLeg(sender, TransactionType.DEBIT, "5.00", balanced, receiver);
+    saveLeg(receiver, TransactionType.CREDIT, "5.00", balanced, sender);
+
+    assertEquals(List.of(mismatched.getId(), oneSided.getId()),
+        journalEntryRepository.findUnbalancedEntryIds().stream().sorted().toList());
+  }
+
+  private JournalEntry newEntry() {
+    var transfer = transferRepository.save(Transfer.builder()
+        .sender(sender)
+        .receiver(receiver)
+        .value(BigDecimal.TEN)
+        .build());
+    return journalEntryRepository.save(JournalEntry.builder().transfer(transfer).build());
+  }
+
+  private void saveLeg(Wallet wallet, TransactionType type, String amount, JournalEntry entry,
+      Wallet counterparty) {
+    transactionRepository.save(Transaction.builder()
+        .wallet(wallet)
+        .type(type)
+        .amount(new BigDecimal(amount))
+        .timestamp(LocalDateTime.now())
+        .balanceAfterOperation(BigDecimal.ZERO)
+        .journalEntry(entry)
+        .counterpartyWalletId(counterparty.getId())
+        .build());
+  }
+}
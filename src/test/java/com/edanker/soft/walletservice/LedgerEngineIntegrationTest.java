@@ -0,0 +1,210 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.edanker.soft.walletservice.controller.dto.BatchOperationDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationStatus;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationType;
+import com.edanker.soft.walletservice.controller.dto.BatchRequestDTO;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.controller.dto.WithdrawDTO;
+import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
+import com.edanker.soft.walletservice.repository.JournalEntryRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import com.edanker.soft.walletservice.service.LedgerProjectionService;
+import com.edanker.soft.walletservice.service.WalletBatchService;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+// The projection is run by the tests, the scheduled one is pushed out of the way
+@SpringBootTest(properties = {
+    "wallet.ledger-engine.enabled=true",
+    "wallet.ledger-engine.directory=${java.io.tmpdir}/ledger-engine-test-${random.uuid}",
+    "wallet.ledger-engine.projection-delay=1h"
+})
+@AutoConfigureMockMvc
+class LedgerEngineIntegrationTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private WalletBatchService batchService;
+
+  @Autowired
+  private LedgerProjectionService projectionService;
+
+  @Autowired
+  private WalletRepository walletRepository;
+
+  @Autowired
+  private JournalEntryRepository journalEntryRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  @DisplayName("Operations should be answered by the engine and reach the database once projected")
+  void operations_ProjectedToDatabase() {
+    var payer = TestWallets.create(walletService, "Ledger");
+    var payee = TestWallets.create(walletService, "Ledger");
+
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("50.00")).build());
+    walletService.withdraw(payer, WithdrawDTO.builder().amount(new BigDecimal("5.50")).build());
+    var transfer = walletService.transfer(transfer(payer, payee, "20.00"));
+    assertThrows(InsufficientBalanceException.class,
+        () -> walletService.withdraw(payee, WithdrawDTO.builder().amount(new BigDecimal("20.01")).build()));
+
+    assertBalance(payer, "24.50");
+    assertBalance(payee, "20.00");
+    assertEquals(payer, transfer.senderId());
+    assertTrue(transfer.receiverName().startsWith("Ledger "));
+    assertEquals(0, count("SELECT COUNT(*) FROM transaction WHERE wallet_id = ?", payer));
+
+    projectionService.projectPendingEvents();
+
+    assertEquals(0, new BigDecimal("24.50").compareTo(walletRepository.findBalanceById(payer).orElseThrow()));
+    assertEquals(0, new BigDecimal("20.00").compareTo(walletRepository.findBalanceById(payee).orElseThrow()));
+    assertEquals(List.of("CREDIT:50.00", "DEBIT:44.50", "DEBIT:24.50"), jdbcTemplate.queryForList(
+        "SELECT type || ':' || balance_after_operation FROM transaction WHERE wallet_id = ? ORDER BY timestamp, id",
+        String.class, payer));
+    assertEquals(1, count("SELECT COUNT(*) FROM transfer WHERE id = ? AND wallet_sender_id = ? "
+        + "AND wallet_receiver_id = ?", transfer.id(), payer, payee));
+    assertEquals(1, count("SELECT COUNT(*) FROM transaction t JOIN journal_entry e ON t.journal_entry_id = e.id "
+        + "WHERE e.transfer_id = ? AND t.wallet_id = ? AND t.counterparty_wallet_id = ?", transfer.id(), payee, payer));
+    assertTrue(journalEntryRepository.findUnbalancedEntryIds().isEmpty());
+
+    // A second run finds nothing new
+    projectionService.projectPendingEvents();
+    assertEquals(3, count("SELECT COUNT(*) FROM transaction WHERE wallet_id = ?", payer));
+  }
+
+  @Test
+  @DisplayName("A retried transfer with the same Idempotency-Key should move the money once")
+  void transfer_RetriedWithSameKey_AppliedOnce() throws Exception {
+    var payer = TestWallets.create(walletService, "Ledger");
+    var payee = TestWallets.create(walletService, "Ledger");
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("30.00")).build());
+    var body = objectMapper.writeValueAsString(transfer(payer, payee, "10.00"));
+    var key = UUID.randomUUID().toString();
+
+    var first = mockMvc.perform(post("/wallets/transfer")
+            .header("Idempotency-Key", key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    mockMvc.perform(post("/wallets/transfer")
+            .header("Idempotency-Key", key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Idempotent-Replayed", "true"))
+        .andExpect(jsonPath("$.id").value(objectMapper.readTree(first).get("id").asText()));
+
+    assertBalance(payer, "20.00");
+    assertBalance(payee, "10.00");
+  }
+
+  @Test
+  @DisplayName("A rejected operation should release its Idempotency-Key")
+  void withdraw_Rejected_ReleasesKey() throws Exception {
+    var walletId = TestWallets.create(walletService, "Ledger");
+    var body = objectMapper.writeValueAsString(WithdrawDTO.builder().amount(new BigDecimal("10.00")).build());
+    var key = UUID.randomUUID().toString();
+
+    mockMvc.perform(post("/wallets/{walletId}/withdraw", walletId)
+            .header("Idempotency-Key", key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(status().isUnprocessableEntity());
+    walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("10.00")).build());
+    mockMvc.perform(post("/wallets/{walletId}/withdraw", walletId)
+            .header("Idempotency-Key", key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+    assertBalance(walletId, "0.00");
+  }
+
+  @Test
+  @DisplayName("A batch should apply its operations one by one through the engine")
+  void batch_AppliedThroughEngine() {
+    var first = TestWallets.create(walletService, "Ledger");
+    var second = TestWallets.create(walletService, "Ledger");
+
+    var response = batchService.execute(BatchRequestDTO.builder()
+        .operations(List.of(
+            operation(BatchOperationType.DEPOSIT, first, null, "40.00"),
+            operation(BatchOperationType.TRANSFER, first, second, "15.00"),
+            operation(BatchOperationType.WITHDRAW, second, null, "99.00")))
+        .build());
+
+    assertEquals(2, response.applied());
+    assertEquals(0, new BigDecimal("25.00").compareTo(response.results().get(1).balance()));
+    assertEquals(BatchOperationStatus.FAILED, response.results().get(2).status());
+    assertBalance(second, "15.00");
+  }
+
+  @Test
+  @DisplayName("Checkpoint periods should close no further than the oldest record still to project")
+  void projectedUntil_StopsAtPendingRecord() {
+    var walletId = TestWallets.create(walletService, "Ledger");
+    projectionService.projectPendingEvents();
+    var later = LocalDateTime.now().plusDays(1);
+    assertEquals(Optional.of(later), projectionService.projectedUntil(later));
+
+    var beforeDeposit = LocalDateTime.now().minusSeconds(1);
+    walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("10.00")).build());
+    var projectedUntil = projectionService.projectedUntil(later).orElseThrow();
+    assertTrue(projectedUntil.isAfter(beforeDeposit) && projectedUntil.isBefore(later));
+
+    projectionService.projectPendingEvents();
+    assertEquals(Optional.of(later), projectionService.projectedUntil(later));
+  }
+
+  private static TransferDTO transfer(Long payer, Long payee, String value) {
+    return TransferDTO.builder().payer(payer).payee(payee).value(new BigDecimal(value)).build();
+  }
+
+  private static BatchOperationDTO operation(BatchOperationType type, Long walletId, Long payee, String amount) {
+    return BatchOperationDTO.builder().type(type).walletId(walletId).payee(payee)
+        .amount(new BigDecimal(amount)).build();
+  }
+
+  private void assertBalance(Long walletId, String expected) {
+    assertEquals(0, new BigDecimal(expected).compareTo(walletService.getCurrentBalance(walletId)));
+  }
+
+  private long count(String sql, Object... args) {
+    return jdbcTemplate.queryForObject(sql, Long.class, args);
+  }
+}
@@ -0,0 +1,263 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.edanker.soft.walletservice.ledger.LedgerEngine;
+import com.edanker.soft.walletservice.ledger.LedgerEventType;
+import com.edanker.soft.walletservice.ledger.LedgerResult.Status;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LedgerEngineTest {
+
+  // Four records per WAL segment, so a handful of operations already spans several files
+  private static final long SEGMENT_SIZE = 4 * 96;
+
+  @TempDir
+  private Path directory;
+
+  private LedgerEngine engine;
+
+  @AfterEach
+  void tearDown() {
+    if (engine != null) {
+      engine.close();
+    }
+  }
+
+  @Test
+  @DisplayName("Should apply deposits, withdrawals and transfers and reject what cannot be applied")
+  void operations() {
+    start(Long.MAX_VALUE);
+    engine.open(1, 0);
+    engine.open(2, 500);
+
+    assertEquals(1_000, engine.deposit(1, 1_000).balance());
+    assertEquals(Status.INSUFFICIENT_BALANCE, engine.withdraw(1, 1_001).status());
+    assertEquals(700, engine.withdraw(1, 300).balance());
+
+    var transfer = engine.transfer(1, 2, 200);
+    assertEquals(Status.APPLIED, transfer.status());
+    assertNotNull(transfer.transferId());
+    assertEquals(500, transfer.balance());
+    assertEquals(700, engine.balance(2).balance());
+
+    assertEquals(Status.WALLET_NOT_FOUND, engine.deposit(3, 100).status());
+    assertEquals(3, engine.transfer(1, 3, 100).walletId());
+    assertEquals(500, engine.open(1, 0).balance());
+  }
+
+  @Test
+  @DisplayName("Should refuse an amount that would overflow a balance and write nothing for it")
+  void operations_RefuseBalanceOverflow() {
+    start(Long.MAX_VALUE);
+    engine.open(1, Long.MAX_VALUE - 100);
+    engine.open(2, 500);
+
+    assertEquals(Status.BALANCE_LIMIT_EXCEEDED, engine.deposit(1, 101).status());
+    var transfer = engine.transfer(2, 1, 101);
+    assertEquals(Status.BALANCE_LIMIT_EXCEEDED, transfer.status());
+    assertEquals(1, transfer.walletId());
+    assertEquals(2, engine.durableSequence());
+
+    assertEquals(Long.MAX_VALUE, engine.deposit(1, 100).balance());
+    assertEquals(500, engine.balance(2).balance());
+    engine.close();
+
+    start(Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, engine.balance(1).balance());
+  }
+
+  @Test
+  @DisplayName("Should seed a new ledger from the initial balances only once")
+  void start_SeedsNewLedgerOnce() {
+    engine = new LedgerEngine(directory, 1024, SEGMENT_SIZE, Long.MAX_VALUE);
+    engine.start(loader -> loader.put(7, 4_200));
+    engine.deposit(7, 100);
+    engine.close();
+
+    engine = new LedgerEngine(directory, 1024, SEGMENT_SIZE, Long.MAX_VALUE);
+    engine.start(loader -> loader.put(7, 0));
+    assertEquals(4_300, engine.balance(7).balance());
+  }
+
+  @Test
+  @DisplayName("Should rebuild the balances from the WAL after a restart")
+  void restart_ReplaysWal() {
+    start(Long.MAX_VALUE);
+    engine.open(1, 0);
+    engine.open(2, 0);
+    for (int i = 0; i < 10; i++) {
+      engine.deposit(1, 100);
+      engine.transfer(1, 2, 30);
+    }
+    engine.close();
+
+    start(Long.MAX_VALUE);
+    assertEquals(22, engine.durableSequence());
+    assertEquals(700, engine.balance(1).balance());
+    assertEquals(300, engine.balance(2).balance());
+  }
+
+  @Test
+  @DisplayName("Should keep WAL segments until both the snapshot and the projection are past them")
+  void snapshot_TruncatesWalOnceReleased() throws IOException {
+    start(4);
+    engine.open(1, 0);
+    for (int i = 0; i < 11; i++) {
+      engine.deposit(1, 10);
+    }
+    assertEquals(3, walSegments().size());
+
+    engine.release(8);
+    for (int i = 0; i < 4; i++) {
+      engine.deposit(1, 10);
+    }
+    assertEquals(List.of("wal-00000000000000000009.log", "wal-00000000000000000013.log"), walSegments());
+    engine.close();
+
+    start(4);
+    assertEquals(150, engine.balance(1).balance());
+    assertEquals(9, engine.read(9, 100).getFirst().sequence());
+  }
+
+  @Test
+  @DisplayName("Should drop a torn record at the end of the WAL and continue after the last good one")
+  void restart_DropsTornTail() throws IOException {
+    start(Long.MAX_VALUE);
+    engine.open(1, 0);
+    engine.open(2, 0);
+    engine.deposit(1, 100);
+    engine.transfer(1, 2, 30);
+    engine.deposit(2, 5);
+    engine.close();
+
+    // Sequence 5 is the first record of the second segment
+    try (var file = new RandomAccessFile(directory.resolve(walSegments().getLast()).toFile(), "rw")) {
+      file.seek(40);
+      file.writeLong(1_000_000);
+    }
+
+    start(Long.MAX_VALUE);
+    assertEquals(4, engine.durableSequence());
+    assertEquals(30, engine.balance(2).balance());
+    assertEquals(85, engine.deposit(1, 15).balance());
+    assertEquals(5, engine.read(5, 10).getFirst().sequence());
+  }
+
+  @Test
+  @DisplayName("Should hand out the durable records in order for the projection")
+  void read_ReturnsDurableEvents() {
+    start(Long.MAX_VALUE);
+    engine.open(1, 100);
+    engine.open(2, 0);
+    var transfer = engine.transfer(1, 2, 40);
+
+    var events = engine.read(1, 10);
+    assertEquals(3, events.size());
+    var last = events.getLast();
+    assertEquals(LedgerEventType.TRANSFER, last.type());
+    assertEquals(transfer.transferId(), last.transferId());
+    assertEquals(60, last.balanceAfter());
+    assertEquals(40, last.counterpartyBalanceAfter());
+    assertEquals(transfer.timestamp(), last.timestamp());
+    assertEquals(2, engine.read(2, 1).getFirst().sequence());
+  }
+
+  @Test
+  @DisplayName("Concurrent transfers should neither create nor lose money, also across a restart")
+  void transfer_Concurrent() throws Exception {
+    start(1_000);
+    var wallets = 20;
+    for (int wallet = 1; wallet <= wallets; wallet++) {
+      engine.open(wallet, 10_000);
+    }
+
+    var tasks = new ArrayList<Callable<Void>>();
+    for (int thread = 0; thread < 8; thread++) {
+      tasks.add(() -> {
+        var random = ThreadLocalRandom.current();
+        for (int i = 0; i < 500; i++) {
+          engine.transfer(random.nextInt(1, wallets + 1), random.nextInt(1, wallets + 1), random.nextInt(1, 500));
+        }
+        return null;
+      });
+    }
+    try (var pool = Executors.newFixedThreadPool(8)) {
+      for (var future : pool.invokeAll(tasks)) {
+        future.get();
+      }
+    }
+    assertEquals(wallets * 10_000L, total(wallets));
+
+    engine.close();
+    start(1_000);
+    assertEquals(wallets * 10_000L, total(wallets));
+    assertTrue(engine.durableSequence() > wallets);
+  }
+
+  @Test
+  @DisplayName("Callers racing with close should get an answer or an error, never hang")
+  void submit_RacingWithClose() throws Exception {
+    start(Long.MAX_VALUE);
+    engine.open(1, 0);
+
+    try (var pool = Executors.newVirtualThreadPerTaskExecutor()) {
+      var callers = new ArrayList<Future<?>>();
+      for (int thread = 0; thread < 16; thread++) {
+        callers.add(pool.submit(() -> {
+          while (true) {
+            try {
+              engine.deposit(1, 1);
+            } catch (IllegalStateException e) {
+              return;
+            }
+          }
+        }));
+      }
+      Thread.sleep(50);
+      engine.close();
+      for (var caller : callers) {
+        caller.get(10, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  private void start(long snapshotEvery) {
+    engine = new LedgerEngine(directory, 1024, SEGMENT_SIZE, snapshotEvery);
+    engine.start(loader -> { });
+  }
+
+  private long total(int wallets) {
+    var total = 0L;
+    for (int wallet = 1; wallet <= wallets; wallet++) {
+      total += engine.balance(wallet).balance();
+    }
+    return total;
+  }
+
+  private List<String> walSegments() throws IOException {
+    try (var files = Files.list(directory)) {
+      return files.map(path -> path.getFileName().toString())
+          .filter(name -> name.startsWith("wal-"))
+          .sorted(Comparator.naturalOrder())
+          .toList();
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.service.WalletLoadShedder;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest(properties = {
+    "wallet.load-shedding.enabled=true",
+    "wallet.load-shedding.mutations.initial-limit=20",
+    "wallet.load-shedding.mutations.min-limit=2",
+    "wallet.load-shedding.mutations.max-limit=20"
+})
+@AutoConfigureMockMvc
+class LoadSheddingIntegrationTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private WalletLoadShedder loadShedder;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Test
+  @DisplayName("Should refuse mutations past the limit with 503 and keep serving balance reads")
+  void mutationLimitReached_ShedsWritesOnly() throws Exception {
+    var walletId = TestWallets.create(walletService, "Shed");
+    var limit = (int) gauge("wallet.load_shedding.limit");
+    var release = new CountDownLatch(1);
+    var holders = new ArrayList<Thread>();
+    for (int i = 0; i < limit; i++) {
+      holders.add(Thread.ofVirtual().start(() -> loadShedder.mutation(() -> {
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      })));
+    }
+    try {
+      while (gauge("wallet.load_shedding.in_flight") < limit) {
+        Thread.sleep(5);
+      }
+
+      mockMvc.perform(post("/wallets/{walletId}/deposit", walletId)
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(objectMapper.writeValueAsString(DepositDTO.builder().amount(BigDecimal.TEN).build())))
+          .andExpect(status().isServiceUnavailable())
+          .andExpect(jsonPath("$.title").value("Service overloaded"));
+      mockMvc.perform(post("/wallets/{walletId}/deposit", walletId)
+              .header("Idempotency-Key", UUID.randomUUID().toString())
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(objectMapper.writeValueAsString(DepositDTO.builder().amount(BigDecimal.TEN).build())))
+          .andExpect(status().isServiceUnavailable());
+      mockMvc.perform(get("/wallets/{walletId}/historical-balance", walletId)
+              .param("dateTime", LocalDateTime.now().toString()))
+          .andExpect(status().isOk());
+    } finally {
+      release.countDown();
+      for (var holder : holders) {
+        holder.join();
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Should shrink the mutation limit when operations get slower than their baseline")
+  void slowerOperations_ShrinkLimit() throws Exception {
+    for (int i = 0; i < 200; i++) {
+      loadShedder.mutation(() -> {
+      });
+    }
+    var before = gauge("wallet.load_shedding.limit");
+
+    for (int i = 0; i < 30; i++) {
+      loadShedder.mutation(() -> {
+        try {
+          Thread.sleep(5);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+    var after = gauge("wallet.load_shedding.limit");
+
+    assertTrue(after < before, "limit went from " + before + " to " + after);
+    assertTrue(after >= 2, "limit fell below its minimum: " + after);
+  }
+
+  @Test
+  @DisplayName("Should run a nested mutation on the permit its caller already holds")
+  void nestedMutation_HoldsOnePermit() {
+    var inFlight = loadShedder.mutation(() -> loadShedder.mutation(() -> gauge("wallet.load_shedding.in_flight")));
+
+    assertEquals(1, inFlight);
+    assertEquals(0, gauge("wallet.load_shedding.in_flight"));
+  }
+
+  private double gauge(String name) {
+    return meterRegistry.get(name).tag("workload", "mutation").gauge().value();
+  }
+}
@@ -0,0 +1,55 @@
+package com.edanker.soft.walletservice;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest(properties = "management.endpoints.web.exposure.include=prometheus")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class MetricsIntegrationTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Test
+  @DisplayName("Should expose operation histograms, error counters and pool saturation in Prometheus format")
+  void prometheus_ExposesWalletMetrics() throws Exception {
+    var payer = TestWallets.create(walletService, "Metrics");
+    var payee = TestWallets.create(walletService, "Metrics");
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("50.00")).build());
+    walletService.transfer(TransferDTO.builder().payer(payer).payee(payee).value(new BigDecimal("20.00")).build());
+    assertThrows(WalletNotFoundException.class, () -> walletService.getCurrentBalance(Long.MAX_VALUE));
+
+    mockMvc.perform(get("/actuator/prometheus"))
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString(
+            "wallet_operation_seconds_bucket{operation=\"deposit\",outcome=\"success\"")))
+        .andExpect(content().string(containsString(
+            "wallet_operation_phase_seconds_count{operation=\"transfer\",phase=\"transfer_insert\"} 2")))
+        .andExpect(content().string(containsString(
+            "wallet_operation_errors_total{exception=\"WalletNotFoundException\",operation=\"balance\"} 1")))
+        .andExpect(content().string(containsString(
+            "wallet_operation_errors_total{exception=\"InsufficientBalanceException\","
+                + "operation=\"historical_balance\"}")))
+        .andExpect(content().string(containsString("wallet_datasource_pool_saturation{pool=\"wallet\"}")));
+  }
+}
@@ -0,0 +1,62 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.edanker.soft.walletservice.money.Money;
+import com.edanker.soft.walletservice.money.MoneyConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.util.Currency;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MoneyTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  @DisplayName("Should add, subtract and compare in minor units")
+  void arithmetic() {
+    var balance = Money.of(new BigDecimal("100.00"));
+
+    var after = balance.plus(Money.of(new BigDecimal("0.10"))).minus(Money.of(new BigDecimal("30.05")));
+
+    assertEquals(7_005, after.minorUnits());
+    assertEquals(new BigDecimal("70.05"), after.toBigDecimal());
+    assertTrue(after.isGreaterThanOrEqualTo(Money.ofMinor(7_005)));
+    assertEquals(-1, after.negate().signum());
+  }
+
+  @Test
+  @DisplayName("Should round to the currency's minor unit and keep its scale")
+  void of_RoundsToMinorUnit() {
+    assertEquals(1_001, Money.of(new BigDecimal("10.005")).minorUnits());
+    assertEquals(new BigDecimal("10.00"), Money.of(BigDecimal.TEN).toBigDecimal());
+    assertEquals(new BigDecimal("1000"), Money.of(new BigDecimal("999.6"), Currency.getInstance("JPY")).toBigDecimal());
+  }
+
+  @Test
+  @DisplayName("Should refuse to overflow or to mix currencies")
+  void arithmetic_Rejected() {
+    var max = Money.ofMinor(Long.MAX_VALUE);
+    var dollar = Money.of(BigDecimal.ONE, Currency.getInstance("USD"));
+
+    assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+    assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1E+20")));
+    assertThrows(IllegalArgumentException.class, () -> Money.ofMinor(100).plus(dollar));
+  }
+
+  @Test
+  @DisplayName("Should read and write JSON and columns as decimals")
+  void conversions() throws Exception {
+    var amount = Money.of(new BigDecimal("12.30"));
+    var converter = new MoneyConverter();
+
+    assertEquals("12.30", objectMapper.writeValueAsString(amount));
+    assertEquals(amount, objectMapper.readValue("12.3", Money.class));
+    assertEquals(new BigDecimal("12.30"), converter.convertToDatabaseColumn(amount));
+    assertEquals(amount, converter.convertToEntityAttribute(new BigDecimal("12.3000")));
+  }
+}
@@ -0,0 +1,179 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.controller.dto.WithdrawDTO;
+import com.edanker.soft.walletservice.entity.OutboxEvent;
+import com.edanker.soft.walletservice.entity.WalletEventType;
+import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
+import com.edanker.soft.walletservice.money.Money;
+import com.edanker.soft.walletservice.outbox.InMemoryWalletEventSink;
+import com.edanker.soft.walletservice.outbox.WalletEvent;
+import com.edanker.soft.walletservice.outbox.WalletEventSink;
+import com.edanker.soft.walletservice.repository.OutboxEventRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import com.edanker.soft.walletservice.service.OutboxRelayService;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// The relay is run by the tests, the scheduled one is pushed out of the way
+@SpringBootTest(properties = {
+    "wallet.outbox.enabled=true",
+    "wallet.outbox.sink=memory",
+    "wallet.outbox.relay-delay=1h",
+    "wallet.outbox.purge-delay=1h"
+})
+class OutboxIntegrationTest {
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private OutboxRelayService relayService;
+
+  @Autowired
+  private WalletEventSink sink;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private OutboxEventRepository eventRepository;
+
+  @Autowired
+  private WalletRepository walletRepository;
+
+  @Test
+  @DisplayName("Every mutation should be published once, in order, with the balance it left behind")
+  void mutations_PublishedInOrder() {
+    var payer = TestWallets.create(walletService, "Outbox");
+    var payee = TestWallets.create(walletService, "Outbox");
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("50.00")).build());
+    walletService.withdraw(payer, WithdrawDTO.builder().amount(new BigDecimal("5.00")).build());
+    walletService.transfer(TransferDTO.builder().payer(payer).payee(payee).value(new BigDecimal("20.00")).build());
+    assertThrows(InsufficientBalanceException.class,
+        () -> walletService.withdraw(payee, WithdrawDTO.builder().amount(new BigDecimal("99.00")).build()));
+
+    relayService.relayBatch(0);
+    relayService.relayBatch(0);
+
+    var payerEvents = eventsOf(payer);
+    assertEquals(List.of(WalletEventType.WALLET_CREATED, WalletEventType.DEPOSITED, WalletEventType.WITHDRAWN,
+        WalletEventType.TRANSFER_SENT), payerEvents.stream().map(WalletEvent::type).toList());
+    assertEquals(Money.of(new BigDecimal("25.00")), payerEvents.getLast().balanceAfter());
+    assertEquals(payee, payerEvents.getLast().counterpartyWalletId());
+
+    var payeeEvents = eventsOf(payee);
+    assertEquals(List.of(WalletEventType.WALLET_CREATED, WalletEventType.TRANSFER_RECEIVED),
+        payeeEvents.stream().map(WalletEvent::type).toList());
+    assertEquals(payer, payeeEvents.getLast().counterpartyWalletId());
+    assertEquals(jdbcTemplate.queryForObject("SELECT MAX(id) FROM transaction WHERE wallet_id = ?", Long.class, payee),
+        payeeEvents.getLast().transactionId());
+  }
+
+  @Test
+  @DisplayName("The relay should wait at a gap left by a transaction in flight and skip it once it is old")
+  void relay_WaitsAtGapUntilTimeout() {
+    var walletId = TestWallets.create(walletService, "Outbox");
+    relayService.relayBatch(0);
+
+    // An event id taken by a commit that then failed
+    transactionTemplate.executeWithoutResult(status -> {
+      eventRepository.save(OutboxEvent.builder()
+          .walletId(walletId)
+          .type(WalletEventType.DEPOSITED)
+          .amount(Money.of(BigDecimal.ONE))
+          .balanceAfter(Money.of(BigDecimal.ONE))
+          .currency(Money.DEFAULT_CURRENCY)
+          .createdAt(LocalDateTime.now())
+          .build());
+      status.setRollbackOnly();
+    });
+    walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("2.00")).build());
+
+    assertEquals(0, relayService.relayBatch(0));
+
+    jdbcTemplate.update("UPDATE outbox_event SET created_at = DATEADD('MINUTE', -1, created_at) WHERE wallet_id = ?",
+        walletId);
+    assertEquals(1, relayService.relayBatch(0));
+    var last = eventsOf(walletId).getLast();
+    assertEquals(Money.of(new BigDecimal("2.00")), last.amount());
+    assertTrue(eventsOf(walletId).stream().noneMatch(event -> Money.of(BigDecimal.ONE).equals(event.amount())));
+  }
+
+  @Test
+  @DisplayName("A skipped id whose transaction commits late should still be published, once")
+  void relay_PublishesSkippedIdCommittedLate() {
+    var walletId = TestWallets.create(walletService, "Outbox");
+    relayService.relayBatch(0);
+
+    var skippedId = transactionTemplate.execute(status -> {
+      status.setRollbackOnly();
+      return eventRepository.save(OutboxEvent.builder()
+          .walletId(walletId)
+          .type(WalletEventType.DEPOSITED)
+          .amount(Money.of(BigDecimal.ONE))
+          .balanceAfter(Money.of(BigDecimal.ONE))
+          .currency(Money.DEFAULT_CURRENCY)
+          .createdAt(LocalDateTime.now())
+          .build()).getId();
+    });
+    walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("2.00")).build());
+    jdbcTemplate.update("UPDATE outbox_event SET created_at = DATEADD('MINUTE', -1, created_at) WHERE wallet_id = ?",
+        walletId);
+    assertEquals(1, relayService.relayBatch(0));
+
+    // The transaction that took the id commits after the relay moved past it
+    jdbcTemplate.update("INSERT INTO outbox_event (id, wallet_id, type, amount, balance_after, currency, created_at) "
+        + "VALUES (?, ?, 'DEPOSITED', 1.00, 1.00, 'BRL', ?)", skippedId, walletId, LocalDateTime.now().minusMinutes(1));
+
+    assertEquals(1, relayService.relayBatch(0));
+    assertEquals(0, relayService.relayBatch(0));
+    assertEquals(List.of(Money.of(new BigDecimal("2.00")), Money.of(BigDecimal.ONE)),
+        eventsOf(walletId).stream().skip(1).map(WalletEvent::amount).toList());
+  }
+
+  @Test
+  @DisplayName("A transaction that loses its version check should leave no gap for the relay to wait at")
+  void versionConflict_LeavesNoGap() {
+    var walletId = TestWallets.create(walletService, "Outbox");
+    relayService.relayBatch(0);
+    var concurrentUpdate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+    concurrentUpdate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    // The deposit joins the outer transaction, so its stale wallet fails at the commit, unretried
+    assertThrows(ObjectOptimisticLockingFailureException.class,
+        () -> transactionTemplate.executeWithoutResult(status -> {
+          walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("1.00")).build());
+          concurrentUpdate.executeWithoutResult(inner -> walletRepository.findById(walletId).orElseThrow()
+              .setBalance(new BigDecimal("5.00")));
+        }));
+    walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("2.00")).build());
+
+    assertEquals(1, relayService.relayBatch(0));
+    assertEquals(Money.of(new BigDecimal("7.00")), eventsOf(walletId).getLast().balanceAfter());
+  }
+
+  private List<WalletEvent> eventsOf(Long walletId) {
+    return ((InMemoryWalletEventSink) sink).events().stream()
+        .filter(event -> event.walletId().equals(walletId))
+        .toList();
+  }
+}
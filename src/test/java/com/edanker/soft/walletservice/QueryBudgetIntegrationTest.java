@@ -0,0 +1,129 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.controller.dto.WithdrawDTO;
+import com.edanker.soft.walletservice.diagnostics.SqlDiagnosticsFilter;
+import com.edanker.soft.walletservice.diagnostics.SqlStatementStats;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+// Query budgets per endpoint. A change that adds a statement to a hot path, such as an eager
+// association or a second lookup of the same row, fails here instead of in production.
+@SpringBootTest(properties = "wallet.sql-diagnostics.enabled=true")
+@AutoConfigureMockMvc
+class QueryBudgetIntegrationTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Test
+  @DisplayName("Should keep deposit, withdrawal and transfer within their statement budgets")
+  void mutations_WithinBudget() throws Exception {
+    var payer = TestWallets.create(walletService, "Budget");
+    var payee = TestWallets.create(walletService, "Budget");
+
+    var deposit = statements(post("/wallets/{walletId}/deposit", payer)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(DepositDTO.builder().amount(new BigDecimal("100.00")).build())));
+    var withdraw = statements(post("/wallets/{walletId}/withdraw", payer)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(WithdrawDTO.builder().amount(new BigDecimal("10.00")).build())));
+    var transfer = statements(post("/wallets/transfer")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(
+            TransferDTO.builder().payer(payer).payee(payee).value(new BigDecimal("25.00")).build())));
+
+    // Each budget leaves room for one id sequence refill, which a fresh context always takes
+    assertTrue(deposit <= 4, "deposit ran " + deposit + " statements");
+    assertTrue(withdraw <= 4, "withdraw ran " + withdraw + " statements");
+    assertTrue(transfer <= 6, "transfer ran " + transfer + " statements");
+  }
+
+  @Test
+  @DisplayName("Should read a historical balance with one statement and count it per endpoint")
+  void historicalBalance_WithinBudget() throws Exception {
+    var walletId = TestWallets.create(walletService, "Budget");
+    walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("5.00")).build());
+
+    assertEquals(1, statements(get("/wallets/{walletId}/historical-balance", walletId)
+        .param("dateTime", LocalDateTime.now().toString())));
+    assertEquals(1, meterRegistry.get("wallet.http.sql.statements")
+        .tags("uri", "/wallets/{walletId}/historical-balance").summary().count());
+  }
+
+  @Test
+  @DisplayName("Should read a current balance with one statement on a miss and none on a hit")
+  void currentBalance_WithinBudget() throws Exception {
+    var walletId = TestWallets.create(walletService, "Budget");
+
+    assertEquals(1, statements(get("/wallets/{walletId}/balance", walletId)));
+    assertEquals(0, statements(get("/wallets/{walletId}/balance", walletId)));
+  }
+
+  @Test
+  @DisplayName("Should count a streamed export once, not again on its async dispatch")
+  void export_ReportedOnce() throws Exception {
+    var walletId = TestWallets.create(walletService, "Budget");
+
+    var started = mockMvc.perform(get("/wallets/{walletId}/transactions/export", walletId))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+    assertEquals(1, meterRegistry.get("wallet.http.sql.statements")
+        .tags("uri", "/wallets/{walletId}/transactions/export").summary().count());
+  }
+
+  @Test
+  @DisplayName("Should report a statement repeated within one block as a likely N+1")
+  void repeatedStatements_Detected() {
+    var walletId = TestWallets.create(walletService, "Budget");
+
+    var stats = SqlStatementStats.measure(() -> {
+      for (int i = 0; i < 5; i++) {
+        walletService.getHistoricalBalance(walletId, LocalDateTime.now());
+      }
+    });
+
+    assertEquals(10, stats.statements());
+    assertEquals(2, stats.repeatedStatements(5).size());
+    assertTrue(stats.repeatedStatements(6).isEmpty());
+  }
+
+  private int statements(MockHttpServletRequestBuilder request) throws Exception {
+    var response = mockMvc.perform(request)
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse();
+    return Integer.parseInt(response.getHeader(SqlDiagnosticsFilter.STATEMENTS_HEADER));
+  }
+}
@@ -0,0 +1,152 @@
+package com.edanker.soft.walletservice;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.edanker.soft.walletservice.controller.dto.BatchOperationDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationType;
+import com.edanker.soft.walletservice.controller.dto.BatchRequestDTO;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.security.Principal;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+// The refill rates are low enough that no token comes back while a test runs
+@SpringBootTest(properties = {
+    "wallet.rate-limit.enabled=true",
+    "wallet.rate-limit.trusted-client-header=X-Client-Id",
+    "wallet.rate-limit.client-capacity=5",
+    "wallet.rate-limit.client-refill-per-second=0.01",
+    "wallet.rate-limit.wallet-capacity=2",
+    "wallet.rate-limit.wallet-refill-per-second=0.01"
+})
+@AutoConfigureMockMvc
+class RateLimitIntegrationTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Test
+  @DisplayName("Should refuse deposits to a wallet beyond its burst with 429 and Retry-After")
+  void deposit_WalletLimitExceeded() throws Exception {
+    var walletId = TestWallets.create(walletService, "Limited");
+
+    for (int i = 0; i < 2; i++) {
+      deposit(walletId, UUID.randomUUID().toString()).andExpect(status().isOk());
+    }
+    deposit(walletId, UUID.randomUUID().toString())
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().exists("Retry-After"))
+        .andExpect(jsonPath("$.title").value("Too many requests"));
+
+    // Another wallet of the same client still has its own tokens
+    deposit(TestWallets.create(walletService, "Limited"), UUID.randomUUID().toString()).andExpect(status().isOk());
+  }
+
+  @Test
+  @DisplayName("Should refuse a client beyond its burst on any endpoint, and leave other clients alone")
+  void client_LimitExceeded() throws Exception {
+    var walletId = TestWallets.create(walletService, "Limited");
+    var client = UUID.randomUUID().toString();
+
+    for (int i = 0; i < 5; i++) {
+      mockMvc.perform(get("/wallets/{walletId}/balance", walletId).header("X-Client-Id", client))
+          .andExpect(status().isOk());
+    }
+    mockMvc.perform(get("/wallets/{walletId}/balance", walletId).header("X-Client-Id", client))
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().exists("Retry-After"));
+    mockMvc.perform(get("/wallets/{walletId}/balance", walletId).header("X-Client-Id", UUID.randomUUID()))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  @DisplayName("Should key an authenticated client by its principal, whatever client header it sends")
+  void principal_IgnoresClientHeader() throws Exception {
+    var walletId = TestWallets.create(walletService, "Limited");
+    var name = UUID.randomUUID().toString();
+    Principal principal = () -> name;
+
+    for (int i = 0; i < 5; i++) {
+      mockMvc.perform(get("/wallets/{walletId}/balance", walletId)
+              .principal(principal)
+              .header("X-Client-Id", UUID.randomUUID()))
+          .andExpect(status().isOk());
+    }
+    mockMvc.perform(get("/wallets/{walletId}/balance", walletId)
+            .principal(principal)
+            .header("X-Client-Id", UUID.randomUUID()))
+        .andExpect(status().isTooManyRequests());
+  }
+
+  @Test
+  @DisplayName("Should charge each batch operation against the wallet it debits or credits")
+  void batch_ChargedPerOperation() throws Exception {
+    var walletId = TestWallets.create(walletService, "Limited");
+    var deposit = BatchOperationDTO.builder()
+        .type(BatchOperationType.DEPOSIT)
+        .walletId(walletId)
+        .amount(BigDecimal.ONE)
+        .build();
+
+    batch(List.of(deposit, deposit, deposit))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.title").value("Invalid batch operation"));
+    batch(List.of(deposit, deposit)).andExpect(status().isOk());
+    deposit(walletId, UUID.randomUUID().toString()).andExpect(status().isTooManyRequests());
+  }
+
+  @Test
+  @DisplayName("A batch refused by one wallet should give back the tokens it took from the others")
+  void batch_RefusedRefundsOtherWallets() throws Exception {
+    var open = TestWallets.create(walletService, "Limited");
+    var exhausted = TestWallets.create(walletService, "Limited");
+    for (int i = 0; i < 2; i++) {
+      deposit(exhausted, UUID.randomUUID().toString()).andExpect(status().isOk());
+    }
+
+    // Operations are charged in order, so the open wallet is charged before the refusal
+    batch(List.of(
+        BatchOperationDTO.builder().type(BatchOperationType.DEPOSIT).walletId(open).amount(BigDecimal.ONE).build(),
+        BatchOperationDTO.builder().type(BatchOperationType.DEPOSIT).walletId(exhausted).amount(BigDecimal.ONE).build()))
+        .andExpect(status().isTooManyRequests());
+
+    for (int i = 0; i < 2; i++) {
+      deposit(open, UUID.randomUUID().toString()).andExpect(status().isOk());
+    }
+  }
+
+  private ResultActions batch(List<BatchOperationDTO> operations) throws Exception {
+    return mockMvc.perform(post("/wallets/batch")
+        .header("X-Client-Id", UUID.randomUUID())
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(BatchRequestDTO.builder().operations(operations).build())));
+  }
+
+  private ResultActions deposit(Long walletId, String client) throws Exception {
+    return mockMvc.perform(post("/wallets/{walletId}/deposit", walletId)
+        .header("X-Client-Id", client)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(objectMapper.writeValueAsString(DepositDTO.builder().amount(new BigDecimal("1.00")).build())));
+  }
+}
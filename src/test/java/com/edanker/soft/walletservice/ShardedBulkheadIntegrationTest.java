@@ -0,0 +1,101 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.edanker.soft.walletservice.config.BulkheadDataSource;
+import com.edanker.soft.walletservice.config.ShardRoutingDataSource;
+import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.edanker.soft.walletservice.service.WalletShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+// One permit per shard: a nested connection that had to wait for a permit would time out
+@SpringBootTest(properties = {
+    "spring.jpa.open-in-view=false",
+    "wallet.sharding.enabled=true",
+    "wallet.sharding.shards[0].url=jdbc:h2:mem:shard0_${random.uuid};MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+    "wallet.sharding.shards[0].username=sa",
+    "wallet.sharding.shards[0].maximum-pool-size=3",
+    "wallet.sharding.shards[1].url=jdbc:h2:mem:shard1_${random.uuid};MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+    "wallet.sharding.shards[1].username=sa",
+    "wallet.sharding.shards[1].maximum-pool-size=3",
+    "wallet.datasource.bulkhead.enabled=true",
+    "wallet.datasource.bulkhead.max-concurrent-connections=1",
+    "wallet.datasource.bulkhead.reserved-connections=2",
+    "wallet.datasource.bulkhead.acquire-timeout=1s"
+})
+@AutoConfigureMockMvc
+class ShardedBulkheadIntegrationTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private WalletShardRouter shardRouter;
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Test
+  @DisplayName("Each shard should get its own bulkhead, and a credit run after the debit commits should not wait for a permit")
+  void transfer_CrossShard_OneBulkheadPerShard() throws Exception {
+    var payer = createWalletOnShard(0);
+    var payee = createWalletOnShard(1);
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("50.00")).build());
+
+    // The Idempotency-Key transaction still holds its connection when the credit runs
+    mockMvc.perform(post("/wallets/transfer")
+            .header("Idempotency-Key", UUID.randomUUID().toString())
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(TransferDTO.builder()
+                .payer(payer).payee(payee).value(new BigDecimal("20.00")).build())))
+        .andExpect(status().isOk());
+
+    assertEquals(0, new BigDecimal("30.00").compareTo(walletService.getCurrentBalance(payer)));
+    assertEquals(0, new BigDecimal("20.00").compareTo(walletService.getCurrentBalance(payee)));
+    for (var shard = 0; shard < 2; shard++) {
+      assertEquals(1, bulkheadOf(shard).availablePermits());
+    }
+  }
+
+  private BulkheadDataSource bulkheadOf(int shard) throws SQLException {
+    return (BulkheadDataSource) dataSource.unwrap(ShardRoutingDataSource.class)
+        .getResolvedDataSources().get(shard);
+  }
+
+  // Wallets are placed by cpf/cnpj, so draw documents until one hashes to the wanted shard
+  private Long createWalletOnShard(int shard) {
+    String document;
+    do {
+      document = UUID.randomUUID().toString();
+    } while (shardRouter.shardForNewWallet(document) != shard);
+
+    return walletService.createWallet(CreateWalletDTO.builder()
+        .fullName("Bulkhead " + document)
+        .cpfCnpj(document)
+        .email(document + "@example.com")
+        .password("secret")
+        .build()).getId();
+  }
+}
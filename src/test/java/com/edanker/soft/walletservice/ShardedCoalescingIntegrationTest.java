@@ -0,0 +1,68 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.edanker.soft.walletservice.config.ShardContext;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// A long window, so the concurrent deposits of the test land in the same group
+@SpringBootTest(properties = {
+    "spring.jpa.open-in-view=false",
+    "wallet.coalescing.enabled=true",
+    "wallet.coalescing.window=50ms",
+    "wallet.sharding.enabled=true",
+    "wallet.sharding.shards[0].url=jdbc:h2:mem:shard0_${random.uuid};MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+    "wallet.sharding.shards[0].username=sa",
+    "wallet.sharding.shards[1].url=jdbc:h2:mem:shard1_${random.uuid};MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+    "wallet.sharding.shards[1].username=sa"
+})
+class ShardedCoalescingIntegrationTest {
+
+  @Autowired
+  private WalletService walletService;
+
+  @Test
+  @DisplayName("An id outside every shard should fail alone and leave the rest of its batch applied")
+  void deposit_OutOfRangeShardIsolated() throws Exception {
+    var walletIds = new ArrayList<Long>();
+    for (int i = 0; i < 4; i++) {
+      walletIds.add(TestWallets.create(walletService, "Sharded coalesced"));
+    }
+    var outOfRange = (long) ShardContext.MAX_SHARDS * 1_000_000 + 5;
+
+    Future<?> missingShard;
+    var deposits = new ArrayList<Future<?>>();
+    try (var pool = Executors.newFixedThreadPool(walletIds.size() + 1)) {
+      missingShard = pool.submit(() -> deposit(outOfRange));
+      for (var walletId : walletIds) {
+        deposits.add(pool.submit(() -> deposit(walletId)));
+      }
+    }
+
+    assertInstanceOf(WalletNotFoundException.class,
+        assertThrows(ExecutionException.class, missingShard::get).getCause());
+    for (var deposit : deposits) {
+      deposit.get();
+    }
+    for (var walletId : walletIds) {
+      assertEquals(0, new BigDecimal("5.00").compareTo(walletService.getCurrentBalance(walletId)));
+    }
+  }
+
+  private void deposit(Long walletId) {
+    walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("5.00")).build());
+  }
+}
@@ -0,0 +1,266 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.edanker.soft.walletservice.config.ShardContext;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationType;
+import com.edanker.soft.walletservice.controller.dto.BatchRequestDTO;
+import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.entity.CrossShardTransferStatus;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
+import com.edanker.soft.walletservice.repository.CrossShardTransferRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import com.edanker.soft.walletservice.service.CrossShardTransferService;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.edanker.soft.walletservice.service.WalletShardRouter;
+import com.edanker.soft.walletservice.service.WalletTransactionExecutor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest(properties = {
+    "spring.jpa.open-in-view=false",
+    "wallet.sharding.enabled=true",
+    "wallet.sharding.shards[0].url=jdbc:h2:mem:shard0_${random.uuid};MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+    "wallet.sharding.shards[0].username=sa",
+    "wallet.sharding.shards[1].url=jdbc:h2:mem:shard1_${random.uuid};MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+    "wallet.sharding.shards[1].username=sa",
+    "wallet.sharding.shards[2].url=jdbc:h2:mem:shard2_${random.uuid};MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+    "wallet.sharding.shards[2].username=sa"
+})
+@AutoConfigureMockMvc
+class ShardingIntegrationTest {
+
+  private static final int SHARDS = 3;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private WalletShardRouter shardRouter;
+
+  @Autowired
+  private WalletRepository walletRepository;
+
+  @Autowired
+  private CrossShardTransferRepository crossShardTransferRepository;
+
+  @Autowired
+  private CrossShardTransferService crossShardTransferService;
+
+  @Autowired
+  private WalletTransactionExecutor transactionExecutor;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  @DisplayName("Wallets should be stored only on the shard encoded in their id")
+  void createWallet_LandsOnEncodedShard() {
+    for (int shard = 0; shard < SHARDS; shard++) {
+      var walletId = createWalletOnShard(shard);
+      assertEquals(shard, Math.floorMod(walletId, (long) ShardContext.MAX_SHARDS));
+      for (int other = 0; other < SHARDS; other++) {
+        assertEquals(other == shard, shardRouter.onShard(other, () -> walletRepository.existsById(walletId)));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("A transfer inside one shard should post a balanced journal entry there")
+  void transfer_SameShard() {
+    var payer = createWalletOnShard(1);
+    var payee = createWalletOnShard(1);
+    deposit(payer, "50.00");
+
+    walletService.transfer(transfer(payer, payee, "20.00"));
+
+    assertBalance(payer, "30.00");
+    assertBalance(payee, "20.00");
+    assertEquals(1, countOnShard(1, "SELECT COUNT(*) FROM journal_entry"));
+  }
+
+  @Test
+  @DisplayName("A cross-shard transfer should debit one shard, credit the other and complete")
+  void transfer_CrossShard() {
+    var payer = createWalletOnShard(0);
+    var payee = createWalletOnShard(2);
+    deposit(payer, "50.00");
+
+    var response = walletService.transfer(transfer(payer, payee, "20.00"));
+
+    assertBalance(payer, "30.00");
+    assertBalance(payee, "20.00");
+    var id = response.id();
+    var debit = shardRouter.onShard(0, () -> crossShardTransferRepository.findById(id)).orElseThrow();
+    var credit = shardRouter.onShard(2, () -> crossShardTransferRepository.findById(id)).orElseThrow();
+    assertEquals(TransactionType.DEBIT, debit.getType());
+    assertEquals(CrossShardTransferStatus.COMPLETED, debit.getStatus());
+    assertEquals(TransactionType.CREDIT, credit.getType());
+    assertEquals(1, countOnShard(0,
+        "SELECT COUNT(*) FROM transaction WHERE wallet_id = ? AND counterparty_wallet_id = ?", payer, payee));
+    assertEquals(1, countOnShard(2,
+        "SELECT COUNT(*) FROM transaction WHERE wallet_id = ? AND counterparty_wallet_id = ?", payee, payer));
+  }
+
+  @Test
+  @DisplayName("A cross-shard transfer without funds should write nothing on either shard")
+  void transfer_CrossShard_InsufficientBalance() {
+    var payer = createWalletOnShard(0);
+    var payee = createWalletOnShard(1);
+
+    assertThrows(InsufficientBalanceException.class,
+        () -> walletService.transfer(transfer(payer, payee, "20.00")));
+
+    assertBalance(payer, "0.00");
+    assertBalance(payee, "0.00");
+    assertEquals(0, countOnShard(0, "SELECT COUNT(*) FROM cross_shard_transfer WHERE payer_id = ?", payer));
+    assertEquals(0, countOnShard(1, "SELECT COUNT(*) FROM cross_shard_transfer WHERE payer_id = ?", payer));
+  }
+
+  @Test
+  @DisplayName("The resume job should credit a pending transfer once")
+  void resumePendingTransfers_CompletesOnce() {
+    var payer = createWalletOnShard(1);
+    var payee = createWalletOnShard(2);
+    var id = insertPendingTransfer(payer, payee, "15.00");
+
+    crossShardTransferService.resumeTransfersCreatedBefore(LocalDateTime.now());
+    assertEquals(0, crossShardTransferService.resumeTransfersCreatedBefore(LocalDateTime.now()));
+
+    assertBalance(payee, "15.00");
+    assertEquals(CrossShardTransferStatus.COMPLETED,
+        shardRouter.onShard(1, () -> crossShardTransferRepository.findById(id)).orElseThrow().getStatus());
+  }
+
+  @Test
+  @DisplayName("A pending transfer to a missing payee should refund the payer")
+  void resumePendingTransfers_Compensates() {
+    var payer = createWalletOnShard(0);
+    var missingPayee = (long) ShardContext.MAX_SHARDS * 1_000_000 + 2;
+    var id = insertPendingTransfer(payer, missingPayee, "15.00");
+
+    crossShardTransferService.resumeTransfersCreatedBefore(LocalDateTime.now());
+
+    assertBalance(payer, "15.00");
+    assertEquals(CrossShardTransferStatus.COMPENSATED,
+        shardRouter.onShard(0, () -> crossShardTransferRepository.findById(id)).orElseThrow().getStatus());
+    assertFalse(shardRouter.onShard(2, () -> crossShardTransferRepository.existsById(id)));
+  }
+
+  @Test
+  @DisplayName("A retried cross-shard transfer with the same Idempotency-Key should move the money once")
+  void transfer_CrossShard_Idempotent() throws Exception {
+    var payer = createWalletOnShard(2);
+    var payee = createWalletOnShard(0);
+    deposit(payer, "50.00");
+    var body = objectMapper.writeValueAsString(transfer(payer, payee, "20.00"));
+    var key = UUID.randomUUID().toString();
+
+    var first = mockMvc.perform(post("/wallets/transfer")
+            .header("Idempotency-Key", key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    mockMvc.perform(post("/wallets/transfer")
+            .header("Idempotency-Key", key)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Idempotent-Replayed", "true"))
+        .andExpect(jsonPath("$.id").value(objectMapper.readTree(first).get("id").asText()));
+
+    assertBalance(payer, "30.00");
+    assertBalance(payee, "20.00");
+  }
+
+  @Test
+  @DisplayName("A batch touching wallets on two shards should be rejected")
+  void batch_SpanningShards_Rejected() throws Exception {
+    var first = createWalletOnShard(0);
+    var second = createWalletOnShard(1);
+    var request = BatchRequestDTO.builder()
+        .operations(List.of(
+            BatchOperationDTO.builder().type(BatchOperationType.DEPOSIT).walletId(first)
+                .amount(new BigDecimal("10.00")).build(),
+            BatchOperationDTO.builder().type(BatchOperationType.DEPOSIT).walletId(second)
+                .amount(new BigDecimal("10.00")).build()))
+        .build();
+
+    mockMvc.perform(post("/wallets/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+        .andExpect(status().isBadRequest());
+
+    assertBalance(first, "0.00");
+  }
+
+  // Wallets are placed by cpf/cnpj, so draw documents until one hashes to the wanted shard
+  private Long createWalletOnShard(int shard) {
+    String document;
+    do {
+      document = UUID.randomUUID().toString();
+    } while (shardRouter.shardForNewWallet(document) != shard);
+
+    var walletId = walletService.createWallet(CreateWalletDTO.builder()
+        .fullName("Sharded " + document)
+        .cpfCnpj(document)
+        .email(document + "@example.com")
+        .password("secret")
+        .build()).getId();
+    assertEquals(shard, shardRouter.shardOf(walletId));
+    return walletId;
+  }
+
+  // The state a crash right after the debit leaves behind
+  private UUID insertPendingTransfer(Long payer, Long payee, String value) {
+    var id = UUID.randomUUID();
+    shardRouter.runOnShardOf(payer, () -> transactionExecutor.execute(() ->
+        crossShardTransferRepository.insert(id, payer, payee, new BigDecimal(value), null, TransactionType.DEBIT,
+            CrossShardTransferStatus.PENDING, LocalDateTime.now().minusMinutes(1))));
+    return id;
+  }
+
+  private void deposit(Long walletId, String amount) {
+    walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal(amount)).build());
+  }
+
+  private static TransferDTO transfer(Long payer, Long payee, String value) {
+    return TransferDTO.builder().payer(payer).payee(payee).value(new BigDecimal(value)).build();
+  }
+
+  private void assertBalance(Long walletId, String expected) {
+    assertEquals(0, new BigDecimal(expected).compareTo(walletService.getCurrentBalance(walletId)));
+  }
+
+  private long countOnShard(int shard, String sql, Object... args) {
+    return shardRouter.onShard(shard, () -> jdbcTemplate.queryForObject(sql, Long.class, args));
+  }
+}
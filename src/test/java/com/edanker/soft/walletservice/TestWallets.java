@@ -0,0 +1,22 @@
+package com.edanker.soft.walletservice;
+
+import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.util.UUID;
+
+// Creates a wallet with a random cpf/cnpj and email, so tests sharing a database never collide
+final class TestWallets {
+
+  private TestWallets() {
+  }
+
+  static Long create(WalletService walletService, String namePrefix) {
+    var suffix = UUID.randomUUID().toString();
+    return walletService.createWallet(CreateWalletDTO.builder()
+        .fullName(namePrefix + " " + suffix)
+        .cpfCnpj(suffix)
+        .email(suffix + "@example.com")
+        .password("secret")
+        .build()).getId();
+  }
+}
@@ -0,0 +1,153 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.tracing.Tracer;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest(properties = "management.tracing.sampling.probability=1.0")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(metrics = false)
+class TracingIntegrationTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private SdkTracerProvider tracerProvider;
+
+  @Autowired
+  private InMemorySpanExporter spanExporter;
+
+  @Autowired
+  private Tracer tracer;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private WalletRepository walletRepository;
+
+  @Test
+  @DisplayName("Should trace a transfer from the endpoint through its phases down to the JDBC statements")
+  void transfer_Traced() throws Exception {
+    var payer = TestWallets.create(walletService, "Traced");
+    var payee = TestWallets.create(walletService, "Traced");
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("50.00")).build());
+    tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+    spanExporter.reset();
+
+    mockMvc.perform(post("/wallets/transfer")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(
+                TransferDTO.builder().payer(payer).payee(payee).value(new BigDecimal("20.00")).build())))
+        .andExpect(status().isOk());
+    tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+
+    var spans = spanExporter.getFinishedSpanItems();
+    var transfer = span(spans, "wallet.transfer");
+    assertEquals(payer, transfer.getAttributes().get(AttributeKey.longKey("wallet.id")));
+    assertEquals(payee, transfer.getAttributes().get(AttributeKey.longKey("wallet.counterparty_id")));
+    assertEquals("transfer", transfer.getAttributes().get(AttributeKey.stringKey("wallet.operation")));
+
+    var load = span(spans, "wallet.transfer.wallet_load");
+    var insert = span(spans, "wallet.transfer.transfer_insert");
+    var commit = span(spans, "wallet.commit");
+    assertEquals(transfer.getSpanId(), load.getParentSpanId());
+    assertEquals(transfer.getSpanId(), insert.getParentSpanId());
+    assertEquals(transfer.getSpanId(), commit.getParentSpanId());
+
+    // The HTTP server span is the root, and the statements hang below the phase that ran them.
+    // Scheduled jobs running meanwhile start traces of their own.
+    assertTrue(spans.stream()
+        .filter(span -> span.getName().startsWith("wallet."))
+        .allMatch(span -> span.getTraceId().equals(transfer.getTraceId())));
+    assertEquals(span(spans, "http post /wallets/transfer").getSpanId(), transfer.getParentSpanId());
+    assertTrue(spans.stream()
+        .filter(span -> span.getName().equals("query"))
+        .anyMatch(span -> span.getParentSpanId().equals(load.getSpanId())));
+  }
+
+  @Test
+  @DisplayName("Should end a commit span that fails its version check and leave no span in scope")
+  void failedCommit_SpanEnded() {
+    var walletId = TestWallets.create(walletService, "Traced");
+    var concurrentUpdate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+    concurrentUpdate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+    spanExporter.reset();
+
+    // The stale copy only fails the version check when the commit flushes it
+    assertThrows(ObjectOptimisticLockingFailureException.class,
+        () -> transactionTemplate.executeWithoutResult(status -> {
+          var stale = walletRepository.findById(walletId).orElseThrow();
+          concurrentUpdate.executeWithoutResult(inner -> {
+            var fresh = walletRepository.findById(walletId).orElseThrow();
+            fresh.setBalance(new BigDecimal("1.00"));
+          });
+          stale.setBalance(new BigDecimal("2.00"));
+        }));
+    tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+
+    assertNull(tracer.currentSpan());
+    var commits = spanExporter.getFinishedSpanItems().stream()
+        .filter(span -> span.getName().equals("wallet.commit"))
+        .toList();
+    // The concurrent update commits, the stale one fails
+    assertEquals(2, commits.size());
+    assertEquals(1, commits.stream().filter(span -> span.getStatus().getStatusCode() == StatusCode.ERROR).count());
+  }
+
+  private static SpanData span(List<SpanData> spans, String name) {
+    return spans.stream()
+        .filter(span -> span.getName().equals(name))
+        .findFirst()
+        .orElseThrow(() -> new AssertionError("No span " + name + " in "
+            + spans.stream().map(SpanData::getName).toList()));
+  }
+
+  @TestConfiguration
+  static class InMemoryExporterConfig {
+
+    @Bean
+    InMemorySpanExporter inMemorySpanExporter() {
+      return InMemorySpanExporter.create();
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class TransactionHistoryIntegrationTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private WalletRepository walletRepository;
+
+  @Autowired
+  private TransactionRepository transactionRepository;
+
+  @Test
+  @DisplayName("Pages should cover every transaction once, newest first, even with equal timestamps")
+  void getTransactions_KeysetPagesCoverHistory() throws Exception {
+    var walletId = createWalletWithHistory();
+
+    var seen = new ArrayList<Long>();
+    String cursor = null;
+    var pages = 0;
+    do {
+      var request = get("/wallets/{walletId}/transactions", walletId).param("limit", "3");
+      if (cursor != null) {
+        request.param("cursor", cursor);
+      }
+      var body = objectMapper.readTree(mockMvc.perform(request)
+          .andExpect(status().isOk())
+          .andReturn().getResponse().getContentAsString());
+      body.get("transactions").forEach(t -> seen.add(t.get("id").asLong()));
+      cursor = body.get("nextCursor").isNull() ? null : body.get("nextCursor").asText();
+      pages++;
+    } while (cursor != null);
+
+    var expected = transactionRepository.findAll().stream()
+        .filter(t -> t.getWallet().getId().equals(walletId))
+        .sorted((a, b) -> a.getTimestamp().equals(b.getTimestamp())
+            ? b.getId().compareTo(a.getId())
+            : b.getTimestamp().compareTo(a.getTimestamp()))
+        .map(Transaction::getId)
+        .toList();
+    assertEquals(expected, seen);
+    assertEquals(3, pages);
+  }
+
+  @Test
+  @DisplayName("Type and date filters should narrow the page")
+  void getTransactions_Filtered() throws Exception {
+    var walletId = createWalletWithHistory();
+
+    mockMvc.perform(get("/wallets/{walletId}/transactions", walletId)
+            .param("type", "DEBIT")
+            .param("from", START.toString())
+            .param("to", START.plusHours(3).toString()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.transactions.length()").value(1))
+        .andExpect(jsonPath("$.transactions[0].type").value("DEBIT"))
+        .andExpect(jsonPath("$.nextCursor").isEmpty());
+  }
+
+  @Test
+  @DisplayName("Transfer legs should show the counterparty wallet")
+  void getTransactions_TransferLegs() throws Exception {
+    var payer = createWalletWithHistory();
+    var payee = createWalletWithHistory();
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("5.00")).build());
+    walletService.transfer(TransferDTO.builder().payer(payer).payee(payee).value(new BigDecimal("5.00")).build());
+
+    mockMvc.perform(get("/wallets/{walletId}/transactions", payer).param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.transactions[0].type").value("DEBIT"))
+        .andExpect(jsonPath("$.transactions[0].counterpartyWalletId").value(payee))
+        .andExpect(jsonPath("$.transactions[0].description").value("Transfer to wallet ID: " + payee));
+    mockMvc.perform(get("/wallets/{walletId}/transactions", payee).param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.transactions[0].type").value("CREDIT"))
+        .andExpect(jsonPath("$.transactions[0].counterpartyWalletId").value(payer))
+        .andExpect(jsonPath("$.transactions[0].description").value("Transfer from wallet ID: " + payer));
+  }
+
+  @Test
+  @DisplayName("Should reject a malformed cursor with 400")
+  void getTransactions_InvalidCursor() throws Exception {
+    var walletId = createWalletWithHistory();
+
+    mockMvc.perform(get("/wallets/{walletId}/transactions", walletId).param("cursor", "not-a-cursor"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.title").value("Invalid transaction query"));
+  }
+
+  @Test
+  @DisplayName("Should stream the statement as NDJSON, oldest first")
+  void exportTransactions_Ndjson() throws Exception {
+    var walletId = createWalletWithHistory();
+
+    var started = mockMvc.perform(get("/wallets/{walletId}/transactions/export", walletId))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    var body = mockMvc.perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andReturn().getResponse().getContentAsString();
+
+    var lines = body.lines().toList();
+    assertEquals(8, lines.size());
+    assertEquals("CREDIT", objectMapper.readTree(lines.getFirst()).get("type").asText());
+    assertEquals(0, new BigDecimal("70.00")
+        .compareTo(objectMapper.readTree(lines.getLast()).get("balanceAfterOperation").decimalValue()));
+  }
+
+  @Test
+  @DisplayName("Should stream the statement as CSV with a quoted description")
+  void exportTransactions_Csv() throws Exception {
+    var walletId = createWalletWithHistory();
+
+    var started = mockMvc.perform(get("/wallets/{walletId}/transactions/export", walletId)
+            .param("format", "CSV")
+            .param("type", "DEBIT"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    var lines = mockMvc.perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("text/csv"))
+        .andReturn().getResponse().getContentAsString().lines().toList();
+
+    assertEquals("id,timestamp,type,amount,balance_after_operation,description", lines.getFirst());
+    assertEquals(3, lines.size());
+    assertEquals(true, lines.get(1).endsWith(",DEBIT,10.00,90.00,\"Withdrawal, ATM\""));
+  }
+
+  @Test
+  @DisplayName("Should answer 422 for the export of a missing wallet before streaming")
+  void exportTransactions_WalletNotFound() throws Exception {
+    mockMvc.perform(get("/wallets/{walletId}/transactions/export", Long.MAX_VALUE))
+        .andExpect(status().isUnprocessableEntity());
+    assertNull(walletRepository.findById(Long.MAX_VALUE).orElse(null));
+  }
+
+  // A deposit, a withdrawal, five rows sharing one timestamp and a last withdrawal: eight rows
+  private Long createWalletWithHistory() {
+    var walletId = TestWallets.create(walletService, "History");
+
+    var rows = new ArrayList<Transaction>();
+    rows.add(row(walletId, TransactionType.CREDIT, "100.00", "100.00", START, "Deposit operation"));
+    rows.add(row(walletId, TransactionType.DEBIT, "10.00", "90.00", START.plusHours(1), "Withdrawal, ATM"));
+    for (var balance : List.of("90.00", "80.00", "70.00", "60.00", "50.00")) {
+      rows.add(row(walletId, TransactionType.CREDIT, "0.00", balance, START.plusHours(4),
+          "Same instant"));
+    }
+    rows.add(row(walletId, TransactionType.DEBIT, "10.00", "70.00", START.plusHours(6), "Withdrawal, ATM"));
+    transactionRepository.saveAll(rows);
+    return walletId;
+  }
+
+  private Transaction row(Long walletId, TransactionType type, String amount, String balance,
+      LocalDateTime timestamp, String description) {
+    return Transaction.builder()
+        .wallet(walletRepository.getReferenceById(walletId))
+        .type(type)
+        .amount(new BigDecimal(amount))
+        .balanceAfterOperation(new BigDecimal(balance))
+        .timestamp(timestamp)
+        .description(description)
+        .build();
+  }
+}
@@ -0,0 +1,83 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
+import com.edanker.soft.walletservice.entity.Wallet;
+import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TransactionRepositoryTest {
+
+  private static final LocalDateTime NOON = LocalDateTime.of(2024, 1, 15, 12, 0, 0);
+
+  @Autowired
+  private WalletRepository walletRepository;
+
+  @Autowired
+  private TransactionRepository transactionRepository;
+
+  private Wallet wallet;
+
+  @BeforeEach
+  void setUp() {
+    wallet = walletRepository.save(Wallet.builder()
+        .fullName("John Doe")
+        .cpfCnpj("12345678901")
+        .email("john.doe@example.com")
+        .password("password123")
+        .build());
+  }
+
+  @Test
+  @DisplayName("Should return the balance of the latest operation at or before the given time")
+  void findBalanceAfterLastOperationAtOrBefore_Latest() {
+    saveTransaction(NOON.minusHours(2), "50.00");
+    saveTransaction(NOON.minusHours(1), "75.00");
+    saveTransaction(NOON.plusHours(1), "10.00");
+
+    assertEquals(0, new BigDecimal("75.00").compareTo(
+        transactionRepository.findBalanceAfterLastOperationAtOrBefore(wallet.getId(), NOON).orElseThrow()));
+  }
+
+  @Test
+  @DisplayName("Should break timestamp ties by the most recently inserted operation")
+  void findBalanceAfterLastOperationAtOrBefore_TieBreak() {
+    saveTransaction(NOON, "20.00");
+    saveTransaction(NOON, "30.00");
+
+    assertEquals(0, new BigDecimal("30.00").compareTo(
+        transactionRepository.findBalanceAfterLastOperationAtOrBefore(wallet.getId(), NOON).orElseThrow()));
+  }
+
+  @Test
+  @DisplayName("Should return empty when the wallet had no operation yet")
+  void findBalanceAfterLastOperationAtOrBefore_Empty() {
+    saveTransaction(NOON.plusMinutes(1), "20.00");
+
+    assertTrue(transactionRepository.findBalanceAfterLastOperationAtOrBefore(wallet.getId(), NOON).isEmpty());
+  }
+
+  private void saveTransaction(LocalDateTime timestamp, String balanceAfterOperation) {
+    transactionRepository.save(Transaction.builder()
+        .wallet(wallet)
+        .type(TransactionType.CREDIT)
+        .amount(BigDecimal.TEN)
+        .description("Deposit operation")
+        .timestamp(timestamp)
+        .balanceAfterOperation(new BigDecimal(balanceAfterOperation))
+        .build());
+  }
+}
@@ -0,0 +1,71 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.edanker.soft.walletservice.config.BulkheadDataSource;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sql.DataSource;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+    "spring.threads.virtual.enabled=true",
+    "wallet.datasource.bulkhead.enabled=true",
+    "wallet.datasource.bulkhead.max-concurrent-connections=4",
+    "wallet.datasource.bulkhead.acquire-timeout=30s"
+})
+class VirtualThreadsIntegrationTest {
+
+  private static final int REQUESTS = 500;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Test
+  @DisplayName("Deposits and balance reads on virtual threads should not pin carriers or leak connections")
+  void concurrentRequests_NoPinningThroughBulkhead() throws Exception {
+    var walletId = TestWallets.create(walletService, "Virtual");
+    var pinned = new CopyOnWriteArrayList<RecordedEvent>();
+
+    try (var recording = new RecordingStream()) {
+      recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+      recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+      recording.startAsync();
+
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        var futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < REQUESTS; i++) {
+          futures.add(executor.submit(() -> {
+            walletService.deposit(walletId, DepositDTO.builder().amount(BigDecimal.ONE).build());
+            return walletService.getCurrentBalance(walletId);
+          }));
+        }
+        for (var future : futures) {
+          future.get();
+        }
+      }
+      recording.stop();
+    }
+
+    assertEquals(List.of(), pinned.stream().map(RecordedEvent::getStackTrace).toList());
+    // The JDBC tracing proxy wraps the bulkhead
+    var bulkhead = dataSource.unwrap(BulkheadDataSource.class);
+    assertEquals(4, bulkhead.availablePermits());
+    assertEquals(0, BigDecimal.valueOf(REQUESTS).compareTo(walletService.getCurrentBalance(walletId)));
+  }
+}
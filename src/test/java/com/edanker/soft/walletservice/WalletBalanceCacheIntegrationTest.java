@@ -0,0 +1,111 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.controller.dto.WithdrawDTO;
+import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import com.edanker.soft.walletservice.service.WalletBalanceCache;
+import com.edanker.soft.walletservice.service.WalletService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+class WalletBalanceCacheIntegrationTest {
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private WalletRepository walletRepository;
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  @Autowired
+  private WalletBalanceCache balanceCache;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Test
+  @DisplayName("Should serve repeated reads from the cache and see every committed mutation")
+  void getCurrentBalance_ConsistentWithCommittedState() {
+    var payer = TestWallets.create(walletService, "Cached");
+    var payee = TestWallets.create(walletService, "Cached");
+
+    assertEquals(0, BigDecimal.ZERO.compareTo(walletService.getCurrentBalance(payer)));
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("80.00")).build());
+    assertEquals(0, new BigDecimal("80.00").compareTo(walletService.getCurrentBalance(payer)));
+
+    walletService.withdraw(payer, WithdrawDTO.builder().amount(new BigDecimal("5.00")).build());
+    assertEquals(0, new BigDecimal("75.00").compareTo(walletService.getCurrentBalance(payer)));
+
+    assertEquals(0, BigDecimal.ZERO.compareTo(walletService.getCurrentBalance(payee)));
+    walletService.transfer(TransferDTO.builder().payer(payer).payee(payee).value(new BigDecimal("25.00")).build());
+    assertEquals(0, new BigDecimal("50.00").compareTo(walletService.getCurrentBalance(payer)));
+    assertEquals(0, new BigDecimal("25.00").compareTo(walletService.getCurrentBalance(payee)));
+    assertEquals(0, new BigDecimal("25.00").compareTo(cachedBalance(payee)));
+  }
+
+  @Test
+  @DisplayName("Should keep the cached balance when a mutation rolls back")
+  void getCurrentBalance_RolledBackMutationKeepsEntry() {
+    var walletId = TestWallets.create(walletService, "Cached");
+    walletService.getCurrentBalance(walletId);
+
+    assertThrows(InsufficientBalanceException.class, () -> walletService.withdraw(walletId,
+        WithdrawDTO.builder().amount(BigDecimal.ONE).build()));
+
+    assertEquals(0, BigDecimal.ZERO.compareTo(cachedBalance(walletId)));
+  }
+
+  @Test
+  @DisplayName("Should not evict before commit")
+  void evict_DeferredUntilCommit() {
+    var walletId = TestWallets.create(walletService, "Cached");
+    walletService.getCurrentBalance(walletId);
+
+    transactionTemplate.executeWithoutResult(status -> {
+      balanceCache.evict(walletId);
+      assertEquals(0, BigDecimal.ZERO.compareTo(cachedBalance(walletId)));
+    });
+
+    assertEquals(null, cacheManager.getCache(WalletBalanceCache.CACHE_NAME).get(walletId));
+  }
+
+  @Test
+  @DisplayName("Should neither cache nor hide a missing wallet")
+  void getCurrentBalance_WalletNotFound() {
+    assertThrows(WalletNotFoundException.class, () -> walletService.getCurrentBalance(Long.MAX_VALUE));
+    assertEquals(null, cacheManager.getCache(WalletBalanceCache.CACHE_NAME).get(Long.MAX_VALUE));
+  }
+
+  @Test
+  @DisplayName("Should publish the cache hit ratio")
+  void hitRatio_Published() {
+    var walletId = TestWallets.create(walletService, "Cached");
+    walletService.getCurrentBalance(walletId);
+    walletService.getCurrentBalance(walletId);
+
+    var hitRatio = meterRegistry.get("wallet.balance.cache.hit.ratio").gauge().value();
+    assertEquals(true, hitRatio > 0 && hitRatio <= 1);
+  }
+
+  private BigDecimal cachedBalance(Long walletId) {
+    return cacheManager.getCache(WalletBalanceCache.CACHE_NAME).get(walletId, BigDecimal.class);
+  }
+}
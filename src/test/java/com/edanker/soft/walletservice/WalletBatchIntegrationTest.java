@@ -0,0 +1,100 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.edanker.soft.walletservice.controller.dto.BatchOperationDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationStatus;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationType;
+import com.edanker.soft.walletservice.controller.dto.BatchRequestDTO;
+import com.edanker.soft.walletservice.service.WalletBatchService;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class WalletBatchIntegrationTest {
+
+  @Autowired
+  private WalletBatchService walletBatchService;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Test
+  @DisplayName("Should apply a batch across chunks and report failing operations without applying them")
+  void execute_MixedOperations() {
+    var payer = TestWallets.create(walletService, "Batch");
+    var payee = TestWallets.create(walletService, "Batch");
+
+    var response = walletBatchService.execute(BatchRequestDTO.builder()
+        .chunkSize(2)
+        .operations(List.of(
+            operation(BatchOperationType.DEPOSIT, payer, null, "100.00"),
+            operation(BatchOperationType.WITHDRAW, payer, null, "30.00"),
+            operation(BatchOperationType.WITHDRAW, payer, null, "500.00"),
+            operation(BatchOperationType.TRANSFER, payer, payee, "50.00"),
+            operation(BatchOperationType.DEPOSIT, 999_999L, null, "10.00"),
+            operation(BatchOperationType.TRANSFER, payer, null, "1.00")))
+        .build());
+
+    assertEquals(3, response.applied());
+    assertEquals(3, response.failed());
+    assertEquals(List.of(BatchOperationStatus.APPLIED, BatchOperationStatus.APPLIED,
+            BatchOperationStatus.FAILED, BatchOperationStatus.APPLIED, BatchOperationStatus.FAILED,
+            BatchOperationStatus.FAILED),
+        response.results().stream().map(r -> r.status()).toList());
+    assertEquals("Insufficient balance.", response.results().get(2).error().getTitle());
+    assertEquals("Wallet not found", response.results().get(4).error().getTitle());
+    assertEquals(400, response.results().get(5).error().getStatus());
+    assertNotNull(response.results().get(3).transfer().id());
+    assertNull(response.results().get(0).transfer());
+
+    assertEquals(0, new BigDecimal("20.00").compareTo(walletService.getCurrentBalance(payer)));
+    assertEquals(0, new BigDecimal("50.00").compareTo(walletService.getCurrentBalance(payee)));
+    assertEquals(0, new BigDecimal("20.00")
+        .compareTo(walletService.getHistoricalBalance(payer, LocalDateTime.now())));
+  }
+
+  @Test
+  @DisplayName("Should commit a large payroll fan-out with one ledger row per operation")
+  void execute_PayrollFanOut() {
+    var employer = TestWallets.create(walletService, "Batch");
+    var employees = new ArrayList<Long>();
+    for (int i = 0; i < 20; i++) {
+      employees.add(TestWallets.create(walletService, "Batch"));
+    }
+
+    var operations = new ArrayList<BatchOperationDTO>();
+    operations.add(operation(BatchOperationType.DEPOSIT, employer, null, "10000.00"));
+    for (int round = 0; round < 10; round++) {
+      for (var employee : employees) {
+        operations.add(operation(BatchOperationType.TRANSFER, employer, employee, "12.50"));
+      }
+    }
+
+    var response = walletBatchService.execute(BatchRequestDTO.builder().operations(operations).build());
+
+    assertEquals(operations.size(), response.applied());
+    assertEquals(0, new BigDecimal("7500.00").compareTo(walletService.getCurrentBalance(employer)));
+    employees.forEach(employee -> assertEquals(0,
+        new BigDecimal("125.00").compareTo(walletService.getCurrentBalance(employee))));
+  }
+
+  private static BatchOperationDTO operation(BatchOperationType type, Long walletId, Long payee,
+      String amount) {
+    return BatchOperationDTO.builder()
+        .type(type)
+        .walletId(walletId)
+        .payee(payee)
+        .amount(new BigDecimal(amount))
+        .build();
+  }
+}
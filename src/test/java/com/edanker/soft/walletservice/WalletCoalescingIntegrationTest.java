@@ -0,0 +1,103 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.WithdrawDTO;
+import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
+import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.service.WalletService;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// A long window, so the concurrent operations of a test land in the same group
+@SpringBootTest(properties = {"wallet.coalescing.enabled=true", "wallet.coalescing.window=50ms"})
+class WalletCoalescingIntegrationTest {
+
+  private static final int THREADS = 16;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  @DisplayName("Concurrent deposits should all be applied with a consistent ledger")
+  void deposit_ConcurrentBurst() throws Exception {
+    var first = TestWallets.create(walletService, "Coalesced");
+    var second = TestWallets.create(walletService, "Coalesced");
+
+    var tasks = new ArrayList<Callable<Void>>();
+    for (int i = 0; i < THREADS; i++) {
+      var walletId = i % 2 == 0 ? first : second;
+      tasks.add(() -> {
+        for (int j = 0; j < 10; j++) {
+          walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("1.00")).build());
+        }
+        return null;
+      });
+    }
+    try (var pool = Executors.newFixedThreadPool(THREADS)) {
+      for (var future : pool.invokeAll(tasks)) {
+        future.get();
+      }
+    }
+
+    assertBalance(first, "80.00");
+    assertBalance(second, "80.00");
+    var balances = jdbcTemplate.queryForList("SELECT balance_after_operation FROM transaction "
+        + "WHERE wallet_id = ? ORDER BY id", BigDecimal.class, first);
+    assertEquals(80, balances.size());
+    for (int i = 0; i < balances.size(); i++) {
+      assertEquals(0, new BigDecimal(i + 1).compareTo(balances.get(i)));
+    }
+  }
+
+  @Test
+  @DisplayName("An operation that cannot be applied should fail alone and leave the rest of its group applied")
+  void withdraw_FailureIsolated() throws Exception {
+    var walletId = TestWallets.create(walletService, "Coalesced");
+    walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("10.00")).build());
+
+    Future<?> tooLarge;
+    Future<?> missingWallet;
+    Future<?> deposit;
+    Future<?> withdrawal;
+    try (var pool = Executors.newFixedThreadPool(4)) {
+      tooLarge = pool.submit(() ->
+          walletService.withdraw(walletId, WithdrawDTO.builder().amount(new BigDecimal("1000.00")).build()));
+      missingWallet = pool.submit(() ->
+          walletService.deposit(Long.MAX_VALUE, DepositDTO.builder().amount(new BigDecimal("1.00")).build()));
+      deposit = pool.submit(() ->
+          walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("5.00")).build()));
+      withdrawal = pool.submit(() ->
+          walletService.withdraw(walletId, WithdrawDTO.builder().amount(new BigDecimal("3.00")).build()));
+    }
+
+    assertInstanceOf(InsufficientBalanceException.class,
+        assertThrows(ExecutionException.class, tooLarge::get).getCause());
+    assertInstanceOf(WalletNotFoundException.class,
+        assertThrows(ExecutionException.class, missingWallet::get).getCause());
+    deposit.get();
+    withdrawal.get();
+    assertBalance(walletId, "12.00");
+    assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction WHERE wallet_id = ?",
+        Long.class, walletId));
+  }
+
+  private void assertBalance(Long walletId, String expected) {
+    assertEquals(0, new BigDecimal(expected).compareTo(walletService.getCurrentBalance(walletId)));
+  }
+}
@@ -0,0 +1,181 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.controller.dto.WithdrawDTO;
+import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.edanker.soft.walletservice.service.WalletVersionBackfill;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+class WalletConcurrencyIntegrationTest {
+
+  private static final int WALLETS = 4;
+  private static final int THREADS = 16;
+  private static final int TRANSFERS_PER_THREAD = 40;
+  private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private WalletConcurrencyProperties concurrencyProperties;
+
+  @Autowired
+  private WalletVersionBackfill versionBackfill;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @AfterEach
+  void resetConcurrencyProperties() {
+    concurrencyProperties.setMode(WalletConcurrencyProperties.LockMode.OPTIMISTIC);
+    concurrencyProperties.getPessimisticWalletIds().clear();
+  }
+
+  @Test
+  @DisplayName("Concurrent optimistic transfers should not lose updates")
+  void concurrentTransfers_Optimistic() throws Exception {
+    var walletIds = createFundedWallets();
+
+    runConcurrentTransfers(walletIds);
+
+    assertBalancesConserved(walletIds);
+  }
+
+  @Test
+  @DisplayName("Concurrent pessimistic transfers in both directions should neither deadlock nor lose updates")
+  void concurrentTransfers_Pessimistic() throws Exception {
+    concurrencyProperties.setMode(WalletConcurrencyProperties.LockMode.PESSIMISTIC);
+    var walletIds = createFundedWallets();
+
+    runConcurrentTransfers(walletIds);
+
+    assertBalancesConserved(walletIds);
+  }
+
+  @Test
+  @DisplayName("Concurrent transfers should stay consistent when only hot wallets are locked")
+  void concurrentTransfers_MixedHotWallets() throws Exception {
+    var walletIds = createFundedWallets();
+    concurrencyProperties.getPessimisticWalletIds().add(walletIds.getFirst());
+
+    runConcurrentTransfers(walletIds);
+
+    assertBalancesConserved(walletIds);
+  }
+
+  @Test
+  @DisplayName("Concurrent atomic transfers should not lose updates or overdraw a wallet")
+  void concurrentTransfers_Atomic() throws Exception {
+    concurrencyProperties.setMode(WalletConcurrencyProperties.LockMode.ATOMIC);
+    var walletIds = createFundedWallets();
+
+    runConcurrentTransfers(walletIds);
+
+    assertBalancesConserved(walletIds);
+  }
+
+  @Test
+  @DisplayName("Atomic withdrawal should record the resulting balance in the ledger row")
+  void atomicWithdraw_RecordsBalanceAfterOperation() {
+    concurrencyProperties.setMode(WalletConcurrencyProperties.LockMode.ATOMIC);
+    var walletId = createFundedWallets().getFirst();
+
+    walletService.withdraw(walletId, WithdrawDTO.builder().amount(new BigDecimal("250.00")).build());
+
+    assertEquals(0, new BigDecimal("750.00").compareTo(walletService.getCurrentBalance(walletId)));
+    assertEquals(0, new BigDecimal("750.00")
+        .compareTo(walletService.getHistoricalBalance(walletId, LocalDateTime.now())));
+    assertThrows(InsufficientBalanceException.class, () -> walletService.withdraw(walletId,
+        WithdrawDTO.builder().amount(new BigDecimal("750.01")).build()));
+  }
+
+  @Test
+  @DisplayName("A wallet whose version is NULL should take optimistic updates once backfilled")
+  void deposit_NullVersion_Backfilled() {
+    var walletId = TestWallets.create(walletService, "Legacy");
+    // What a version column added without its default leaves on older rows
+    jdbcTemplate.execute("ALTER TABLE wallet ALTER COLUMN version SET NULL");
+    jdbcTemplate.update("UPDATE wallet SET version = NULL WHERE id = ?", walletId);
+
+    versionBackfill.run(null);
+    walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("10.00")).build());
+
+    assertEquals(1L, jdbcTemplate.queryForObject("SELECT version FROM wallet WHERE id = ?", Long.class, walletId));
+    assertEquals(0, new BigDecimal("10.00").compareTo(walletService.getCurrentBalance(walletId)));
+  }
+
+  private List<Long> createFundedWallets() {
+    var walletIds = new ArrayList<Long>();
+    for (int i = 0; i < WALLETS; i++) {
+      var walletId = TestWallets.create(walletService, "Wallet " + i);
+      walletService.deposit(walletId, DepositDTO.builder().amount(INITIAL_BALANCE).build());
+      walletIds.add(walletId);
+    }
+    return walletIds;
+  }
+
+  private void runConcurrentTransfers(List<Long> walletIds) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    try {
+      var futures = new ArrayList<Future<?>>();
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(pool.submit(() -> {
+          var random = ThreadLocalRandom.current();
+          for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+            var payer = walletIds.get(random.nextInt(WALLETS));
+            var payee = walletIds.get(random.nextInt(WALLETS));
+            if (payer.equals(payee)) {
+              continue;
+            }
+            try {
+              walletService.transfer(TransferDTO.builder()
+                  .payer(payer)
+                  .payee(payee)
+                  .value(new BigDecimal(random.nextInt(1, 50)))
+                  .build());
+            } catch (InsufficientBalanceException ignored) {
+              // expected once a wallet has been drained
+            }
+          }
+        }));
+      }
+      for (var future : futures) {
+        future.get();
+      }
+    } finally {
+      pool.shutdown();
+      assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+    }
+  }
+
+  private void assertBalancesConserved(List<Long> walletIds) {
+    var total = walletIds.stream()
+        .map(walletService::getCurrentBalance)
+        .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+    assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(WALLETS)).compareTo(total));
+    walletIds.forEach(id -> assertTrue(walletService.getCurrentBalance(id).signum() >= 0));
+  }
+}
@@ -2,37 +2,67 @@ package com.edanker.soft.walletservice;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.edanker.soft.walletservice.config.WalletLoadSheddingProperties;
 import com.edanker.soft.walletservice.controller.RestExceptionHandler;
 import com.edanker.soft.walletservice.controller.WalletController;
+import com.edanker.soft.walletservice.controller.dto.BalanceResponseDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationResultDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationStatus;
+import com.edanker.soft.walletservice.controller.dto.BatchOperationType;
+import com.edanker.soft.walletservice.controller.dto.BatchRequestDTO;
+import com.edanker.soft.walletservice.controller.dto.BatchResponseDTO;
 import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
+import com.edanker.soft.walletservice.controller.dto.TransactionDTO;
+import com.edanker.soft.walletservice.controller.dto.TransactionPageDTO;
 import com.edanker.soft.walletservice.controller.dto.DepositDTO;
 import com.edanker.soft.walletservice.controller.dto.TransferDTO;
 import com.edanker.soft.walletservice.controller.dto.TransferResponseDTO;
 import com.edanker.soft.walletservice.controller.dto.WithdrawDTO;
+import com.edanker.soft.walletservice.entity.TransactionType;
 import com.edanker.soft.walletservice.entity.Wallet;
 import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
 import com.edanker.soft.walletservice.exceptions.WalletDataAlreadyExistsException;
 import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.service.BalanceCheckpointService;
+import com.edanker.soft.walletservice.service.IdempotencyService;
+import com.edanker.soft.walletservice.service.IdempotentResult;
+import com.edanker.soft.walletservice.service.TransactionHistoryService;
+import com.edanker.soft.walletservice.service.WalletBatchService;
+import com.edanker.soft.walletservice.service.WalletLoadShedder;
+import com.edanker.soft.walletservice.service.WalletRateLimiter;
 import com.edanker.soft.walletservice.service.WalletService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -47,6 +77,25 @@ class WalletControllerTest {
   @Mock
   private WalletService walletService;
 
+  @Mock
+  private BalanceCheckpointService balanceCheckpointService;
+
+  @Mock
+  private WalletBatchService walletBatchService;
+
+  @Mock
+  private IdempotencyService idempotencyService;
+
+  @Mock
+  private TransactionHistoryService transactionHistoryService;
+
+  @Mock
+  private WalletRateLimiter rateLimiter;
+
+  @Spy
+  private WalletLoadShedder loadShedder =
+      new WalletLoadShedder(new WalletLoadSheddingProperties(), new SimpleMeterRegistry());
+
   @InjectMocks
   private WalletController walletController;
 
@@ -65,6 +114,9 @@ class WalletControllerTest {
             new RestExceptionHandler())
         .build();
 
+    lenient().when(idempotencyService.execute(any(), any(), anyString(), any(), any())).thenAnswer(
+        invocation -> new IdempotentResult<>(invocation.<Supplier<?>>getArgument(4).get(), false));
+
     // Initialize test data
     testWallet = Wallet.builder()
         .id(1L)
@@ -132,6 +184,48 @@ class WalletControllerTest {
         .andExpect(jsonPath("$.balance").value(100.00));
   }
 
+  @Test
+  @DisplayName("GET /wallets/{walletId}/transactions - Should return a page and the next cursor")
+  void getTransactions_Success() throws Exception {
+    var page = TransactionPageDTO.builder()
+        .transactions(List.of(TransactionDTO.builder()
+            .id(7L)
+            .type(TransactionType.DEBIT)
+            .amount(new BigDecimal("20.00"))
+            .balanceAfterOperation(new BigDecimal("80.00"))
+            .build()))
+        .nextCursor("next")
+        .build();
+    when(transactionHistoryService.getTransactions(1L, "abc", 1, TransactionType.DEBIT, null, null))
+        .thenReturn(page);
+
+    mockMvc.perform(get("/wallets/{walletId}/transactions", 1L)
+            .param("cursor", "abc")
+            .param("limit", "1")
+            .param("type", "DEBIT"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.transactions[0].id").value(7))
+        .andExpect(jsonPath("$.transactions[0].balanceAfterOperation").value(80.0))
+        .andExpect(jsonPath("$.nextCursor").value("next"));
+  }
+
+  @Test
+  @DisplayName("POST /wallets/transfer - Should replay the stored response for a repeated Idempotency-Key")
+  void transfer_ReplayedIdempotencyKey() throws Exception {
+    doReturn(new IdempotentResult<>(transferResponseDTO, true)).when(idempotencyService)
+        .execute(eq("key-1"), eq(transferDTO.payer()), anyString(), eq(TransferResponseDTO.class), any());
+
+    mockMvc.perform(post("/wallets/transfer")
+            .header("Idempotency-Key", "key-1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(transferDTO)))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Idempotent-Replayed", "true"))
+        .andExpect(jsonPath("$.senderId").value(transferResponseDTO.senderId()));
+
+    verify(walletService, never()).transfer(any(TransferDTO.class));
+  }
+
   @Test
   @DisplayName("POST /wallets/transfer - Should return 422 for insufficient balance")
   void transfer_InsufficientBalance() throws Exception {
@@ -241,4 +335,66 @@ class WalletControllerTest {
         .andExpect(jsonPath("$.value").value(30.0));
   }
 
+  @Test
+  @DisplayName("GET /wallets/{walletId}/balance-statement - Should return one balance per boundary")
+  void getBalanceStatement_Success() throws Exception {
+    LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+    LocalDateTime to = LocalDateTime.of(2024, 1, 2, 0, 0);
+    when(balanceCheckpointService.getBalanceStatement(1L, from, to, ChronoUnit.DAYS)).thenReturn(List.of(
+        BalanceResponseDTO.builder().balance(new BigDecimal("10.00")).timestamp(from).build(),
+        BalanceResponseDTO.builder().balance(new BigDecimal("25.00")).timestamp(to).build()));
+
+    mockMvc.perform(get("/wallets/{walletId}/balance-statement", 1L)
+            .param("from", from.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+            .param("to", to.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(jsonPath("$[1].balance").value(25.0));
+  }
+
+  @Test
+  @DisplayName("POST /wallets/batch - Should return per-operation results")
+  void batch_Success() throws Exception {
+    BatchRequestDTO request = BatchRequestDTO.builder()
+        .operations(List.of(BatchOperationDTO.builder()
+            .type(BatchOperationType.DEPOSIT)
+            .walletId(1L)
+            .amount(new BigDecimal("50.00"))
+            .build()))
+        .build();
+    when(walletBatchService.execute(any(BatchRequestDTO.class))).thenReturn(BatchResponseDTO.builder()
+        .applied(1)
+        .failed(0)
+        .results(List.of(BatchOperationResultDTO.builder()
+            .index(0)
+            .status(BatchOperationStatus.APPLIED)
+            .balance(new BigDecimal("150.00"))
+            .build()))
+        .build());
+
+    mockMvc.perform(post("/wallets/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.applied").value(1))
+        .andExpect(jsonPath("$.results[0].status").value("APPLIED"));
+  }
+
+  @Test
+  @DisplayName("POST /wallets/batch - Should return 400 for an invalid operation amount")
+  void batch_InvalidOperation() throws Exception {
+    BatchRequestDTO request = BatchRequestDTO.builder()
+        .operations(List.of(BatchOperationDTO.builder()
+            .type(BatchOperationType.DEPOSIT)
+            .walletId(1L)
+            .amount(new BigDecimal("0.00"))
+            .build()))
+        .build();
+
+    mockMvc.perform(post("/wallets/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(request)))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.invalid-params[0].name").value("operations[0].amount"));
+  }
 }
@@ -0,0 +1,99 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.edanker.soft.walletservice.entity.WalletEventType;
+import com.edanker.soft.walletservice.money.Money;
+import com.edanker.soft.walletservice.outbox.FileWalletEventSink;
+import com.edanker.soft.walletservice.outbox.HttpWalletEventSink;
+import com.edanker.soft.walletservice.outbox.WalletEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WalletEventSinkTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .registerModule(new JavaTimeModule())
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+  @TempDir
+  private Path directory;
+
+  private HttpServer server;
+
+  @AfterEach
+  void tearDown() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  @DisplayName("The file sink should append one JSON line per event")
+  void file_AppendsJsonLines() throws IOException {
+    var file = directory.resolve("events").resolve("wallet-events.jsonl");
+    var sink = new FileWalletEventSink(file, objectMapper);
+
+    sink.publish(List.of(event(1L), event(2L)));
+    sink.publish(List.of(event(3L)));
+
+    var lines = Files.readAllLines(file);
+    assertEquals(3, lines.size());
+    var last = objectMapper.readValue(lines.getLast(), WalletEvent.class);
+    assertEquals(3L, last.id());
+    assertEquals(Money.ofMinor(3_000), last.balanceAfter());
+    assertTrue(lines.getLast().contains("\"balanceAfter\":30.00"));
+  }
+
+  @Test
+  @DisplayName("The HTTP sink should post each batch as a JSON array and fail on an error answer")
+  void http_PostsBatches() throws IOException {
+    var bodies = new CopyOnWriteArrayList<String>();
+    var status = new int[] {204};
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/events", exchange -> {
+      bodies.add(new String(exchange.getRequestBody().readAllBytes()));
+      exchange.sendResponseHeaders(status[0], -1);
+      exchange.close();
+    });
+    server.start();
+    var sink = new HttpWalletEventSink(
+        URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/events"), objectMapper);
+
+    sink.publish(List.of(event(1L), event(2L)));
+    var received = objectMapper.readValue(bodies.getFirst(), WalletEvent[].class);
+    assertEquals(List.of(1L, 2L), List.of(received[0].id(), received[1].id()));
+
+    status[0] = 503;
+    assertThrows(IllegalStateException.class, () -> sink.publish(List.of(event(3L))));
+  }
+
+  private static WalletEvent event(Long id) {
+    return WalletEvent.builder()
+        .shard(0)
+        .id(id)
+        .walletId(7L)
+        .type(WalletEventType.DEPOSITED)
+        .amount(Money.ofMinor(1_000))
+        .balanceAfter(Money.ofMinor(1_000 * id))
+        .transactionId(100 + id)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
@@ -0,0 +1,243 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties;
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties.LockMode;
+import com.edanker.soft.walletservice.repository.JournalEntryRepository;
+import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.repository.WalletRepository;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+// End-to-end load run over HTTP against the in-memory H2 database, started with ./gradlew loadTest.
+// Mixed deposit/withdraw/transfer traffic from concurrent clients, then the ledger invariants.
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class WalletLoadTest {
+
+  private static final int CLIENTS = Integer.getInteger("loadtest.clients", 64);
+  private static final int WALLETS = Integer.getInteger("loadtest.wallets", 50);
+  private static final Duration DURATION = Duration.parse(System.getProperty("loadtest.duration", "PT10S"));
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private WalletRepository walletRepository;
+
+  @Autowired
+  private TransactionRepository transactionRepository;
+
+  @Autowired
+  private JournalEntryRepository journalEntryRepository;
+
+  @Autowired
+  private WalletConcurrencyProperties concurrencyProperties;
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+
+  @AfterEach
+  void resetConcurrencyProperties() {
+    concurrencyProperties.setMode(LockMode.OPTIMISTIC);
+  }
+
+  @ParameterizedTest
+  @EnumSource(LockMode.class)
+  @DisplayName("Mixed traffic should keep balances conserved and consistent with the ledger")
+  void mixedTraffic_InvariantsHold(LockMode mode) throws Exception {
+    concurrencyProperties.setMode(mode);
+    var walletIds = createWallets();
+    var stats = new LoadStats();
+
+    var deadline = System.nanoTime() + DURATION.toNanos();
+    var started = System.nanoTime();
+    try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+      var futures = new ArrayList<Future<?>>();
+      for (int c = 0; c < CLIENTS; c++) {
+        futures.add(clients.submit(() -> {
+          while (System.nanoTime() < deadline) {
+            runRandomOperation(walletIds, stats);
+          }
+          return null;
+        }));
+      }
+      for (var future : futures) {
+        future.get();
+      }
+    }
+    var elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+    stats.print(mode, elapsed);
+    assertEquals(Map.of(), stats.unexpectedStatuses, "Requests with an unexpected outcome");
+    assertInvariants(walletIds, stats);
+  }
+
+  private void runRandomOperation(List<Long> walletIds, LoadStats stats) throws Exception {
+    var random = ThreadLocalRandom.current();
+    var walletId = walletIds.get(random.nextInt(walletIds.size()));
+    var amount = BigDecimal.valueOf(random.nextLong(100, 10_000), 2);
+
+    var roll = random.nextInt(100);
+    if (roll < 30) {
+      if (send(stats, "deposit", "/wallets/" + walletId + "/deposit", Map.of("amount", amount)) == 200) {
+        stats.deposited.add(amount);
+      }
+    } else if (roll < 60) {
+      if (send(stats, "withdraw", "/wallets/" + walletId + "/withdraw", Map.of("amount", amount)) == 200) {
+        stats.withdrawn.add(amount);
+      }
+    } else {
+      var payee = walletIds.get(random.nextInt(walletIds.size()));
+      if (!payee.equals(walletId)) {
+        send(stats, "transfer", "/wallets/transfer",
+            Map.of("payer", walletId, "payee", payee, "value", amount));
+      }
+    }
+  }
+
+  private int send(LoadStats stats, String operation, String path, Object body) throws Exception {
+    var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+        .build();
+
+    var start = System.nanoTime();
+    var status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    stats.record(operation, status, System.nanoTime() - start);
+    return status;
+  }
+
+  private void assertInvariants(List<Long> walletIds, LoadStats stats) {
+    var now = LocalDateTime.now();
+    var total = BigDecimal.ZERO;
+    for (var walletId : walletIds) {
+      var balance = walletRepository.findBalanceById(walletId).orElseThrow();
+      var lastBalanceAfterOperation = transactionRepository
+          .findBalanceAfterLastOperationAtOrBefore(walletId, now)
+          .orElse(BigDecimal.ZERO);
+
+      assertTrue(balance.signum() >= 0, "Wallet " + walletId + " is overdrawn: " + balance);
+      assertEquals(0, balance.compareTo(lastBalanceAfterOperation),
+          "Wallet " + walletId + " balance " + balance + " differs from its last ledger row "
+              + lastBalanceAfterOperation);
+      total = total.add(balance);
+    }
+
+    var expected = stats.deposited.sum().subtract(stats.withdrawn.sum());
+    assertEquals(0, expected.compareTo(total),
+        "Sum of balances " + total + " differs from deposits minus withdrawals " + expected);
+    assertEquals(List.of(), journalEntryRepository.findUnbalancedEntryIds(), "Unbalanced journal entries");
+  }
+
+  private List<Long> createWallets() {
+    var walletIds = new ArrayList<Long>();
+    for (int i = 0; i < WALLETS; i++) {
+      walletIds.add(TestWallets.create(walletService, "Load " + i));
+    }
+    return walletIds;
+  }
+
+  private static class LoadStats {
+
+    // 200 applied, 422 rejected for insufficient balance; anything else fails the run
+    private static final List<Integer> EXPECTED_STATUSES = List.of(200, 422);
+
+    private final Map<String, LatencyRecorder> latencies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> unexpectedStatuses = new ConcurrentHashMap<>();
+    private final Money deposited = new Money();
+    private final Money withdrawn = new Money();
+
+    void record(String operation, int status, long nanos) {
+      latencies.computeIfAbsent(operation, o -> new LatencyRecorder()).add(nanos);
+      latencies.computeIfAbsent("all", o -> new LatencyRecorder()).add(nanos);
+      if (!EXPECTED_STATUSES.contains(status)) {
+        unexpectedStatuses.computeIfAbsent(operation + " " + status, k -> new AtomicLong()).incrementAndGet();
+      }
+    }
+
+    void print(LockMode mode, Duration elapsed) {
+      System.out.printf("%nLoad test, mode=%s, clients=%d, wallets=%d, duration=%ss%n", mode, CLIENTS,
+          WALLETS, elapsed.toMillis() / 1000.0);
+      System.out.printf("%-10s %10s %10s %10s %10s %10s%n", "operation", "requests", "req/s", "p50 ms",
+          "p99 ms", "p999 ms");
+      latencies.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+        var samples = entry.getValue().sorted();
+        System.out.printf("%-10s %10d %10.1f %10.2f %10.2f %10.2f%n", entry.getKey(), samples.length,
+            samples.length * 1000.0 / elapsed.toMillis(), percentile(samples, 0.50),
+            percentile(samples, 0.99), percentile(samples, 0.999));
+      });
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+      if (sortedNanos.length == 0) {
+        return 0;
+      }
+      var index = (int) Math.ceil(quantile * sortedNanos.length) - 1;
+      return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+  }
+
+  private static class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int size;
+
+    synchronized void add(long nanos) {
+      if (size == samples.length) {
+        samples = Arrays.copyOf(samples, size * 2);
+      }
+      samples[size++] = nanos;
+    }
+
+    synchronized long[] sorted() {
+      var copy = Arrays.copyOf(samples, size);
+      Arrays.sort(copy);
+      return copy;
+    }
+  }
+
+  private static class Money {
+
+    private BigDecimal total = BigDecimal.ZERO;
+
+    synchronized void add(BigDecimal amount) {
+      total = total.add(amount);
+    }
+
+    synchronized BigDecimal sum() {
+      return total;
+    }
+  }
+}
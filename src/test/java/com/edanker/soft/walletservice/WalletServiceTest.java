@@ -1,34 +1,57 @@
 package com.edanker.soft.walletservice;
 
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties;
+import com.edanker.soft.walletservice.config.WalletConcurrencyProperties.LockMode;
+import com.edanker.soft.walletservice.config.WalletLoadSheddingProperties;
+import com.edanker.soft.walletservice.config.WalletShardingProperties;
 import com.edanker.soft.walletservice.controller.dto.CreateWalletDTO;
 import com.edanker.soft.walletservice.controller.dto.DepositDTO;
 import com.edanker.soft.walletservice.controller.dto.TransferDTO;
 import com.edanker.soft.walletservice.controller.dto.TransferResponseDTO;
 import com.edanker.soft.walletservice.controller.dto.WithdrawDTO;
+import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.JournalEntry;
 import com.edanker.soft.walletservice.entity.Transfer;
 import com.edanker.soft.walletservice.entity.Wallet;
-import com.edanker.soft.walletservice.entity.Transaction;
+import com.edanker.soft.walletservice.entity.TransactionType;
 import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
 import com.edanker.soft.walletservice.exceptions.WalletDataAlreadyExistsException;
 import com.edanker.soft.walletservice.exceptions.WalletNotFoundException;
+import com.edanker.soft.walletservice.repository.JournalEntryRepository;
 import com.edanker.soft.walletservice.repository.TransferRepository;
 import com.edanker.soft.walletservice.repository.WalletRepository;
 import com.edanker.soft.walletservice.repository.TransactionRepository;
+import com.edanker.soft.walletservice.service.CrossShardTransferService;
+import com.edanker.soft.walletservice.service.FxRateService;
+import com.edanker.soft.walletservice.service.LedgerEngineService;
+import com.edanker.soft.walletservice.service.TransactionIdAllocator;
+import com.edanker.soft.walletservice.service.WalletBalanceCache;
+import com.edanker.soft.walletservice.service.WalletEventOutbox;
+import com.edanker.soft.walletservice.service.WalletLoadShedder;
+import com.edanker.soft.walletservice.service.WalletMetrics;
 import com.edanker.soft.walletservice.service.WalletService;
+import com.edanker.soft.walletservice.service.WalletShardRouter;
+import com.edanker.soft.walletservice.service.WalletStripeService;
+import com.edanker.soft.walletservice.service.WalletTransactionExecutor;
+import com.edanker.soft.walletservice.service.WalletWriteCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -43,6 +66,35 @@ class WalletServiceTest {
   private TransactionRepository transactionRepository;
   @Mock
   private TransferRepository transferRepository;
+  @Mock
+  private JournalEntryRepository journalEntryRepository;
+  @Mock
+  private WalletTransactionExecutor transactionExecutor;
+  @Spy
+  private WalletConcurrencyProperties concurrencyProperties = new WalletConcurrencyProperties();
+  @Mock
+  private WalletBalanceCache balanceCache;
+  @Spy
+  private WalletShardRouter shardRouter = new WalletShardRouter(new WalletShardingProperties());
+  @Mock
+  private CrossShardTransferService crossShardTransferService;
+  @Mock
+  private WalletStripeService stripeService;
+  @Mock
+  private LedgerEngineService ledgerEngine;
+  @Mock
+  private WalletWriteCoalescer writeCoalescer;
+  @Mock
+  private WalletEventOutbox eventOutbox;
+  @Mock
+  private FxRateService fxRates;
+  @Mock
+  private TransactionIdAllocator transactionIdAllocator;
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  @Spy
+  private WalletMetrics metrics = new WalletMetrics(meterRegistry, Tracer.NOOP);
+  @Spy
+  private WalletLoadShedder loadShedder = new WalletLoadShedder(new WalletLoadSheddingProperties(), meterRegistry);
 
   @InjectMocks
   private WalletService walletService;
@@ -56,6 +108,15 @@ class WalletServiceTest {
 
   @BeforeEach
   void setUp() {
+    lenient().when(transactionExecutor.execute(any())).thenAnswer(
+        invocation -> invocation.<Supplier<?>>getArgument(0).get());
+    lenient().doAnswer(invocation -> {
+      invocation.<Runnable>getArgument(0).run();
+      return null;
+    }).when(transactionExecutor).executeWithoutResult(any());
+    lenient().when(balanceCache.get(anyLong(), any())).thenAnswer(
+        invocation -> invocation.<Supplier<?>>getArgument(1).get());
+
     testWallet1 = Wallet.builder()
         .id(1L)
         .fullName("John Doe")
@@ -89,96 +150,89 @@ class WalletServiceTest {
   @Test
   @DisplayName("Should create a new wallet successfully")
   void createWallet_Success() {
-    when(walletRepository.findByCpfCnpjOrEmail(anyString(), anyString())).thenReturn(Optional.empty());
+    when(walletRepository.existsByCpfCnpjOrEmailInCurrency(anyString(), anyString(), any())).thenReturn(false);
     when(walletRepository.save(any(Wallet.class))).thenReturn(createWalletDTO.toWallet());
 
     Wallet createdWallet = walletService.createWallet(createWalletDTO);
 
     assertNotNull(createdWallet);
     assertEquals(createWalletDTO.fullName(), createdWallet.getFullName());
-    verify(walletRepository, times(1)).findByCpfCnpjOrEmail(anyString(), anyString());
+    verify(walletRepository, times(1)).existsByCpfCnpjOrEmailInCurrency(anyString(), anyString(), any());
     verify(walletRepository, times(1)).save(any(Wallet.class));
+    verify(eventOutbox).walletCreated(createdWallet);
   }
 
   @Test
   @DisplayName("Should throw WalletDataAlreadyExistsException when creating wallet with existing CPF/CNPJ or email")
   void createWallet_WalletDataAlreadyExists() {
-    when(walletRepository.findByCpfCnpjOrEmail(anyString(), anyString())).thenReturn(Optional.of(testWallet1));
+    when(walletRepository.existsByCpfCnpjOrEmailInCurrency(anyString(), anyString(), any())).thenReturn(true);
 
     assertThrows(WalletDataAlreadyExistsException.class, () -> walletService.createWallet(createWalletDTO));
-    verify(walletRepository, times(1)).findByCpfCnpjOrEmail(anyString(), anyString());
+    verify(walletRepository, times(1)).existsByCpfCnpjOrEmailInCurrency(anyString(), anyString(), any());
     verify(walletRepository, never()).save(any(Wallet.class));
   }
 
   @Test
   @DisplayName("Should get current balance successfully")
   void getCurrentBalance_Success() {
-    when(walletRepository.findById(1L)).thenReturn(Optional.of(testWallet1));
+    when(walletRepository.findBalanceById(1L)).thenReturn(Optional.of(new BigDecimal("100.00")));
 
     BigDecimal balance = walletService.getCurrentBalance(1L);
 
     assertEquals(new BigDecimal("100.00"), balance);
-    verify(walletRepository, times(1)).findById(1L);
+    verify(walletRepository, times(1)).findBalanceById(1L);
+    verify(walletRepository, never()).findById(anyLong());
   }
 
   @Test
   @DisplayName("Should throw WalletNotFoundException when getting balance for non-existent wallet")
   void getCurrentBalance_WalletNotFound() {
-    when(walletRepository.findById(anyLong())).thenReturn(Optional.empty());
+    when(walletRepository.findBalanceById(anyLong())).thenReturn(Optional.empty());
 
     assertThrows(WalletNotFoundException.class, () -> walletService.getCurrentBalance(99L));
-    verify(walletRepository, times(1)).findById(99L);
+    verify(walletRepository, times(1)).findBalanceById(99L);
   }
 
   @Test
   @DisplayName("Should get historical balance successfully")
   void getHistoricalBalance_Success() {
     LocalDateTime historicalTime = LocalDateTime.of(2024, 1, 15, 10, 0, 0);
-    Transaction transaction1 = Transaction.builder()
-        .wallet(testWallet1)
-        .timestamp(historicalTime.minusHours(2))
-        .balanceAfterOperation(new BigDecimal("50.00"))
-        .build();
-    Transaction transaction2 = Transaction.builder()
-        .wallet(testWallet1)
-        .timestamp(historicalTime.minusHours(1))
-        .balanceAfterOperation(new BigDecimal("75.00"))
-        .build();
 
-    when(walletRepository.findById(1L)).thenReturn(Optional.of(testWallet1));
-    when(transactionRepository.findByWalletIdAndTimestampLessThanEqualOrderByTimestampDesc(1L, historicalTime))
-        .thenReturn(Arrays.asList(transaction2, transaction1)); // Order matters for historical balance logic
+    when(transactionRepository.findBalanceAfterLastOperationAtOrBefore(1L, historicalTime))
+        .thenReturn(Optional.of(new BigDecimal("75.00")));
 
     BigDecimal historicalBalance = walletService.getHistoricalBalance(1L, historicalTime);
 
     assertEquals(new BigDecimal("75.00"), historicalBalance);
-    verify(walletRepository, times(1)).findById(1L);
-    verify(transactionRepository, times(1)).findByWalletIdAndTimestampLessThanEqualOrderByTimestampDesc(1L, historicalTime);
+    verify(transactionRepository, times(1)).findBalanceAfterLastOperationAtOrBefore(1L, historicalTime);
+    verify(walletRepository, never()).findById(anyLong());
+    verify(walletRepository, never()).existsById(anyLong());
   }
 
   @Test
   @DisplayName("Should return zero for historical balance if no transactions before given time")
   void getHistoricalBalance_NoTransactionsBeforeTime() {
     LocalDateTime historicalTime = LocalDateTime.of(2024, 1, 15, 10, 0, 0);
-    when(walletRepository.findById(1L)).thenReturn(Optional.of(testWallet1));
-    when(transactionRepository.findByWalletIdAndTimestampLessThanEqualOrderByTimestampDesc(1L, historicalTime))
-        .thenReturn(Collections.emptyList());
+    when(transactionRepository.findBalanceAfterLastOperationAtOrBefore(1L, historicalTime))
+        .thenReturn(Optional.empty());
+    when(walletRepository.existsById(1L)).thenReturn(true);
 
     BigDecimal historicalBalance = walletService.getHistoricalBalance(1L, historicalTime);
 
     assertEquals(BigDecimal.ZERO, historicalBalance);
-    verify(walletRepository, times(1)).findById(1L);
-    verify(transactionRepository, times(1)).findByWalletIdAndTimestampLessThanEqualOrderByTimestampDesc(1L, historicalTime);
+    verify(walletRepository, times(1)).existsById(1L);
+    verify(transactionRepository, times(1)).findBalanceAfterLastOperationAtOrBefore(1L, historicalTime);
   }
 
   @Test
   @DisplayName("Should throw WalletNotFoundException when getting historical balance for non-existent wallet")
   void getHistoricalBalance_WalletNotFound() {
-    when(walletRepository.findById(anyLong())).thenReturn(Optional.empty());
+    when(transactionRepository.findBalanceAfterLastOperationAtOrBefore(anyLong(), any(LocalDateTime.class)))
+        .thenReturn(Optional.empty());
+    when(walletRepository.existsById(anyLong())).thenReturn(false);
 
     assertThrows(WalletNotFoundException.class, () -> walletService.getHistoricalBalance(99L, LocalDateTime.now()));
-    verify(walletRepository, times(1)).findById(99L);
-    verify(transactionRepository, never()).findByWalletIdAndTimestampLessThanEqualOrderByTimestampDesc(anyLong(), any(LocalDateTime.class));
+    verify(walletRepository, times(1)).existsById(99L);
   }
 
   @Test
@@ -192,7 +246,9 @@ class WalletServiceTest {
     assertEquals(new BigDecimal("150.00"), testWallet1.getBalance());
     verify(walletRepository, times(1)).findById(1L);
     verify(walletRepository, times(1)).save(testWallet1);
-    assertEquals(1, testWallet1.getTransactions().size());
+    verify(transactionRepository, times(1)).save(argThat(transaction ->
+        transaction.getType() == TransactionType.CREDIT
+            && transaction.getBalanceAfterOperation().equals(new BigDecimal("150.00"))));
   }
 
   @Test
@@ -216,7 +272,9 @@ class WalletServiceTest {
     assertEquals(new BigDecimal("80.00"), testWallet1.getBalance());
     verify(walletRepository, times(1)).findById(1L);
     verify(walletRepository, times(1)).save(testWallet1);
-    assertEquals(1, testWallet1.getTransactions().size());
+    verify(transactionRepository, times(1)).save(argThat(transaction ->
+        transaction.getType() == TransactionType.DEBIT
+            && transaction.getBalanceAfterOperation().equals(new BigDecimal("80.00"))));
   }
 
   @Test
@@ -228,7 +286,28 @@ class WalletServiceTest {
     assertThrows(InsufficientBalanceException.class, () -> walletService.withdraw(1L, largeWithdraw));
     verify(walletRepository, times(1)).findById(1L);
     verify(walletRepository, never()).save(any(Wallet.class));
-    assertTrue(testWallet1.getTransactions().isEmpty()); // No transaction should be added
+    verify(transactionRepository, never()).save(any(Transaction.class)); // No transaction should be added
+  }
+
+  @Test
+  @DisplayName("Should time withdrawals by outcome and count rejections by exception type")
+  void withdraw_RecordsMetrics() {
+    when(walletRepository.findById(1L)).thenReturn(Optional.of(testWallet1));
+    WithdrawDTO largeWithdraw = WithdrawDTO.builder().amount(new BigDecimal("200.00")).build();
+
+    walletService.withdraw(1L, withdrawDTO);
+    assertThrows(InsufficientBalanceException.class, () -> walletService.withdraw(1L, largeWithdraw));
+
+    assertEquals(1, meterRegistry.get("wallet.operation")
+        .tags("operation", "withdraw", "outcome", "success").timer().count());
+    assertEquals(1, meterRegistry.get("wallet.operation")
+        .tags("operation", "withdraw", "outcome", "error").timer().count());
+    assertEquals(1, meterRegistry.get("wallet.operation.errors")
+        .tags("operation", "withdraw", "exception", "InsufficientBalanceException").counter().count());
+    assertEquals(2, meterRegistry.get("wallet.operation.phase")
+        .tags("operation", "withdraw", "phase", "wallet_load").timer().count());
+    assertEquals(1, meterRegistry.get("wallet.operation.phase")
+        .tags("operation", "withdraw", "phase", "save").timer().count());
   }
 
   @Test
@@ -244,8 +323,7 @@ class WalletServiceTest {
   @Test
   @DisplayName("Should transfer funds successfully")
   void transfer_Success() {
-    when(walletRepository.findById(1L)).thenReturn(Optional.of(testWallet1));
-    when(walletRepository.findById(2L)).thenReturn(Optional.of(testWallet2));
+    when(walletRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(testWallet1, testWallet2));
     when(walletRepository.save(any(Wallet.class))).thenReturn(testWallet1, testWallet2);
     when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> {
       Transfer transfer = invocation.getArgument(0);
@@ -253,14 +331,21 @@ class WalletServiceTest {
       transfer.setCreatedAt(LocalDateTime.now());
       return transfer;
     });
+    var entry = JournalEntry.builder().id(7L).build();
+    when(journalEntryRepository.save(any(JournalEntry.class))).thenReturn(entry);
 
     TransferResponseDTO response = walletService.transfer(transferDTO);
 
     assertEquals(0, new BigDecimal("70.00").compareTo(testWallet1.getBalance()));
     assertEquals(0, new BigDecimal("80.00").compareTo(testWallet2.getBalance()));
 
-    assertEquals(1, testWallet1.getTransactions().size());
-    assertEquals(1, testWallet2.getTransactions().size());
+    verify(transactionRepository).save(argThat(transaction -> transaction.getType() == TransactionType.DEBIT
+        && transaction.getJournalEntry() == entry
+        && transaction.getCounterpartyWalletId().equals(2L)
+        && transaction.getDescription() == null));
+    verify(transactionRepository).save(argThat(transaction -> transaction.getType() == TransactionType.CREDIT
+        && transaction.getJournalEntry() == entry
+        && transaction.getCounterpartyWalletId().equals(1L)));
 
     assertNotNull(response);
     assertEquals(transferDTO.payer(), response.senderId());
@@ -269,20 +354,20 @@ class WalletServiceTest {
     assertNotNull(response.id());
     assertNotNull(response.createdAt());
 
-    verify(walletRepository, times(1)).findById(1L);
-    verify(walletRepository, times(1)).findById(2L);
+    verify(walletRepository, times(1)).findAllById(List.of(1L, 2L));
+    verify(walletRepository, never()).findById(anyLong());
     verify(walletRepository, times(2)).save(any(Wallet.class));
     verify(transferRepository, times(1)).save(any(Transfer.class));
+    verify(journalEntryRepository, times(1)).save(argThat(saved -> saved.getTransfer() != null));
+    verify(balanceCache, times(1)).evict(1L, 2L);
   }
 
   @Test
   @DisplayName("Should throw WalletNotFoundException when sender wallet not found during transfer")
   void transfer_SenderWalletNotFound() {
-    when(walletRepository.findById(1L)).thenReturn(Optional.empty());
+    when(walletRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(testWallet2));
 
     assertThrows(WalletNotFoundException.class, () -> walletService.transfer(transferDTO));
-    verify(walletRepository, times(1)).findById(1L);
-    verify(walletRepository, never()).findById(2L);
     verify(walletRepository, never()).save(any(Wallet.class));
     verify(transferRepository, never()).save(any(Transfer.class));
   }
@@ -290,12 +375,9 @@ class WalletServiceTest {
   @Test
   @DisplayName("Should throw WalletNotFoundException when receiver wallet not found during transfer")
   void transfer_ReceiverWalletNotFound() {
-    when(walletRepository.findById(1L)).thenReturn(Optional.of(testWallet1));
-    when(walletRepository.findById(2L)).thenReturn(Optional.empty());
+    when(walletRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(testWallet1));
 
     assertThrows(WalletNotFoundException.class, () -> walletService.transfer(transferDTO));
-    verify(walletRepository, times(1)).findById(1L);
-    verify(walletRepository, times(1)).findById(2L);
     verify(walletRepository, never()).save(any(Wallet.class));
     verify(transferRepository, never()).save(any(Transfer.class));
   }
@@ -304,15 +386,176 @@ class WalletServiceTest {
   @DisplayName("Should throw InsufficientBalanceException when sender has insufficient balance for transfer")
   void transfer_InsufficientBalance() {
     TransferDTO largeTransfer = TransferDTO.builder().payer(1L).payee(2L).value(new BigDecimal("200.00")).build();
-    when(walletRepository.findById(1L)).thenReturn(Optional.of(testWallet1));
-    when(walletRepository.findById(2L)).thenReturn(Optional.of(testWallet2));
+    when(walletRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(testWallet1, testWallet2));
 
     assertThrows(InsufficientBalanceException.class, () -> walletService.transfer(largeTransfer));
-    verify(walletRepository, times(1)).findById(1L);
-    verify(walletRepository, times(1)).findById(2L);
+    verify(walletRepository, times(1)).findAllById(List.of(1L, 2L));
+    verify(walletRepository, never()).findById(anyLong());
     verify(walletRepository, never()).save(any(Wallet.class));
     verify(transferRepository, never()).save(any(Transfer.class));
-    assertTrue(testWallet1.getTransactions().isEmpty());
-    assertTrue(testWallet2.getTransactions().isEmpty());
+    verify(transactionRepository, never()).save(any(Transaction.class));
+  }
+
+  @Test
+  @DisplayName("Should lock both wallets in ascending id order for a pessimistic transfer")
+  void transfer_PessimisticLocksInIdOrder() {
+    concurrencyProperties.setMode(LockMode.PESSIMISTIC);
+    TransferDTO reverseTransfer = TransferDTO.builder().payer(2L).payee(1L).value(new BigDecimal("10.00")).build();
+    when(walletRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testWallet1));
+    when(walletRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(testWallet2));
+    when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    walletService.transfer(reverseTransfer);
+
+    InOrder inOrder = inOrder(walletRepository);
+    inOrder.verify(walletRepository).findByIdForUpdate(1L);
+    inOrder.verify(walletRepository).findByIdForUpdate(2L);
+    verify(walletRepository, never()).findById(anyLong());
+    assertEquals(0, new BigDecimal("40.00").compareTo(testWallet2.getBalance()));
+    assertEquals(0, new BigDecimal("110.00").compareTo(testWallet1.getBalance()));
+  }
+
+  @Test
+  @DisplayName("Should take a row lock only for wallets configured as hot")
+  void deposit_PessimisticForHotWalletOnly() {
+    concurrencyProperties.getPessimisticWalletIds().add(1L);
+    when(walletRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testWallet1));
+    when(walletRepository.findById(2L)).thenReturn(Optional.of(testWallet2));
+
+    walletService.deposit(1L, depositDTO);
+    walletService.deposit(2L, depositDTO);
+
+    verify(walletRepository, times(1)).findByIdForUpdate(1L);
+    verify(walletRepository, never()).findById(1L);
+    verify(walletRepository, times(1)).findById(2L);
+    verify(walletRepository, never()).findByIdForUpdate(2L);
+  }
+
+  @Test
+  @DisplayName("Should deposit with a single conditional update in atomic mode")
+  void deposit_Atomic() {
+    concurrencyProperties.setMode(LockMode.ATOMIC);
+    when(walletRepository.applyBalanceDelta(1L, depositDTO.amount())).thenReturn(1);
+    when(walletRepository.getReferenceById(1L)).thenReturn(testWallet1);
+    when(transactionIdAllocator.nextId(any(Transaction.class))).thenReturn(7L);
+
+    walletService.deposit(1L, depositDTO);
+
+    verify(walletRepository, never()).findById(anyLong());
+    verify(walletRepository, never()).findBalanceById(anyLong());
+    verify(walletRepository, never()).save(any(Wallet.class));
+    verify(transactionRepository, never()).save(any(Transaction.class));
+    verify(transactionRepository, times(1)).insertWithCurrentBalance(eq(7L), eq(1L), eq("CREDIT"),
+        eq(depositDTO.amount()), eq("Deposit operation"), any(LocalDateTime.class));
+  }
+
+  @Test
+  @DisplayName("Should throw InsufficientBalanceException when the atomic withdrawal updates no row")
+  void withdraw_AtomicInsufficientBalance() {
+    concurrencyProperties.setMode(LockMode.ATOMIC);
+    when(walletRepository.applyBalanceDelta(1L, withdrawDTO.amount().negate())).thenReturn(0);
+    when(walletRepository.existsById(1L)).thenReturn(true);
+
+    assertThrows(InsufficientBalanceException.class, () -> walletService.withdraw(1L, withdrawDTO));
+    verify(transactionRepository, never()).insertWithCurrentBalance(any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  @DisplayName("Should throw WalletNotFoundException when the atomic deposit targets a missing wallet")
+  void deposit_AtomicWalletNotFound() {
+    concurrencyProperties.setMode(LockMode.ATOMIC);
+    when(walletRepository.applyBalanceDelta(99L, depositDTO.amount())).thenReturn(0);
+    when(walletRepository.existsById(99L)).thenReturn(false);
+
+    assertThrows(WalletNotFoundException.class, () -> walletService.deposit(99L, depositDTO));
+    verify(transactionRepository, never()).insertWithCurrentBalance(any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  @DisplayName("Should update both wallets in ascending id order for an atomic transfer")
+  void transfer_AtomicUpdatesInIdOrder() {
+    concurrencyProperties.setMode(LockMode.ATOMIC);
+    TransferDTO reverseTransfer = TransferDTO.builder().payer(2L).payee(1L).value(new BigDecimal("10.00")).build();
+    when(walletRepository.applyBalanceDelta(anyLong(), any(BigDecimal.class))).thenReturn(1);
+    when(walletRepository.getReferenceById(1L)).thenReturn(testWallet1);
+    when(walletRepository.getReferenceById(2L)).thenReturn(testWallet2);
+    when(transferRepository.save(any(Transfer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    when(journalEntryRepository.save(any(JournalEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    TransferResponseDTO response = walletService.transfer(reverseTransfer);
+
+    InOrder inOrder = inOrder(walletRepository);
+    inOrder.verify(walletRepository).applyBalanceDelta(1L, new BigDecimal("10.00"));
+    inOrder.verify(walletRepository).applyBalanceDelta(2L, new BigDecimal("-10.00"));
+    verify(walletRepository, never()).findById(anyLong());
+    verify(walletRepository, never()).findBalanceById(anyLong());
+    verify(transactionRepository).insertTransferLegWithCurrentBalance(any(), eq(2L), eq("DEBIT"),
+        eq(new BigDecimal("10.00")), any(LocalDateTime.class), any(), eq(1L));
+    verify(transactionRepository).insertTransferLegWithCurrentBalance(any(), eq(1L), eq("CREDIT"),
+        eq(new BigDecimal("10.00")), any(LocalDateTime.class), any(), eq(2L));
+    assertEquals(2L, response.senderId());
+    assertEquals(1L, response.receiverId());
+  }
+
+  @Test
+  @DisplayName("Should credit a stripe instead of the wallet row for a striped wallet")
+  void deposit_StripedWallet() {
+    when(stripeService.isStriped(1L)).thenReturn(true);
+
+    walletService.deposit(1L, depositDTO);
+
+    verify(stripeService).credit(1L, depositDTO.amount(), "Deposit operation", null, null);
+    verify(walletRepository, never()).applyBalanceDelta(anyLong(), any(BigDecimal.class));
+    verify(walletRepository, never()).findById(anyLong());
+  }
+
+  @Test
+  @DisplayName("Should sweep the stripes and retry once when a striped wallet falls short")
+  void withdraw_StripedWalletSweepsWhenShort() {
+    when(stripeService.isStriped(1L)).thenReturn(true);
+    when(walletRepository.applyBalanceDelta(1L, withdrawDTO.amount().negate())).thenReturn(0, 1);
+    when(walletRepository.existsById(1L)).thenReturn(true);
+    when(stripeService.sweep(1L)).thenReturn(new BigDecimal("50.00"));
+    when(walletRepository.getReferenceById(1L)).thenReturn(testWallet1);
+
+    walletService.withdraw(1L, withdrawDTO);
+
+    verify(stripeService).sweep(1L);
+    verify(walletRepository, times(2)).applyBalanceDelta(1L, withdrawDTO.amount().negate());
+    verify(transactionRepository).insertWithCurrentBalance(any(), eq(1L), eq("DEBIT"),
+        eq(withdrawDTO.amount()), eq("Withdrawal operation"), any(LocalDateTime.class));
+  }
+
+  @Test
+  @DisplayName("Should hand a deposit to the ledger engine and leave the database alone when it is enabled")
+  void deposit_LedgerEngineEnabled() {
+    when(ledgerEngine.isEnabled()).thenReturn(true);
+
+    walletService.deposit(1L, depositDTO);
+
+    verify(ledgerEngine).deposit(1L, depositDTO.amount());
+    verify(transactionExecutor, never()).executeWithoutResult(any());
+    verify(walletRepository, never()).findById(anyLong());
+  }
+
+  @Test
+  @DisplayName("Should read the balance from the ledger engine without the cache when it is enabled")
+  void getCurrentBalance_LedgerEngineEnabled() {
+    when(ledgerEngine.isEnabled()).thenReturn(true);
+    when(ledgerEngine.getCurrentBalance(1L)).thenReturn(new BigDecimal("12.34"));
+
+    assertEquals(new BigDecimal("12.34"), walletService.getCurrentBalance(1L));
+    verify(balanceCache, never()).get(anyLong(), any());
+  }
+
+  @Test
+  @DisplayName("Should queue a withdrawal on the write coalescer instead of opening a transaction")
+  void withdraw_CoalescingEnabled() {
+    when(writeCoalescer.isEnabled()).thenReturn(true);
+
+    walletService.withdraw(1L, withdrawDTO);
+
+    verify(writeCoalescer).withdraw(1L, withdrawDTO.amount());
+    verify(transactionExecutor, never()).executeWithoutResult(any());
   }
 }
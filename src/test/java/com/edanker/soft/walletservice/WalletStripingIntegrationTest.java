@@ -0,0 +1,135 @@
+package com.edanker.soft.walletservice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.edanker.soft.walletservice.config.WalletStripingProperties;
+import com.edanker.soft.walletservice.controller.dto.DepositDTO;
+import com.edanker.soft.walletservice.controller.dto.TransferDTO;
+import com.edanker.soft.walletservice.controller.dto.WithdrawDTO;
+import com.edanker.soft.walletservice.exceptions.InsufficientBalanceException;
+import com.edanker.soft.walletservice.repository.JournalEntryRepository;
+import com.edanker.soft.walletservice.service.WalletService;
+import com.edanker.soft.walletservice.service.WalletStripeService;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Sweeps are triggered by the tests, the scheduled one is pushed out of the way
+@SpringBootTest(properties = {"wallet.striping.stripes=4", "wallet.striping.sweep-delay=1h"})
+class WalletStripingIntegrationTest {
+
+  private static final int THREADS = 8;
+  private static final int DEPOSITS_PER_THREAD = 25;
+
+  @Autowired
+  private WalletService walletService;
+
+  @Autowired
+  private WalletStripeService stripeService;
+
+  @Autowired
+  private WalletStripingProperties stripingProperties;
+
+  @Autowired
+  private JournalEntryRepository journalEntryRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  @DisplayName("Concurrent credits should spread over the stripes and reach the ledger in order once swept")
+  void deposit_ConcurrentCredits_SweptIntoLedger() throws Exception {
+    var walletId = createStripedWallet();
+
+    var tasks = new ArrayList<Callable<Void>>();
+    for (int i = 0; i < THREADS; i++) {
+      tasks.add(() -> {
+        for (int j = 0; j < DEPOSITS_PER_THREAD; j++) {
+          walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("1.00")).build());
+        }
+        return null;
+      });
+    }
+    try (var pool = Executors.newFixedThreadPool(THREADS)) {
+      for (var future : pool.invokeAll(tasks)) {
+        future.get();
+      }
+    }
+
+    var total = new BigDecimal(THREADS * DEPOSITS_PER_THREAD);
+    assertBalance(walletId, total);
+    assertEquals(4, count("SELECT COUNT(*) FROM wallet_stripe WHERE wallet_id = ?", walletId));
+    assertEquals(0, count("SELECT COUNT(*) FROM transaction WHERE wallet_id = ?", walletId));
+
+    stripeService.sweepStripedWallets();
+
+    assertBalance(walletId, total);
+    var balances = jdbcTemplate.queryForList("SELECT balance_after_operation FROM transaction "
+        + "WHERE wallet_id = ? ORDER BY timestamp, id", BigDecimal.class, walletId);
+    assertEquals(THREADS * DEPOSITS_PER_THREAD, balances.size());
+    for (int i = 0; i < balances.size(); i++) {
+      assertEquals(0, new BigDecimal(i + 1).compareTo(balances.get(i)));
+    }
+    assertEquals(0, count("SELECT COUNT(*) FROM striped_credit WHERE wallet_id = ?", walletId));
+    assertEquals(0, count("SELECT COUNT(*) FROM wallet_stripe WHERE wallet_id = ? AND balance <> 0", walletId));
+  }
+
+  @Test
+  @DisplayName("A withdrawal the wallet row cannot cover should sweep the stripes first")
+  void withdraw_SweepsStripesWhenShort() {
+    var walletId = createStripedWallet();
+    walletService.deposit(walletId, DepositDTO.builder().amount(new BigDecimal("50.00")).build());
+
+    walletService.withdraw(walletId, WithdrawDTO.builder().amount(new BigDecimal("30.00")).build());
+    assertThrows(InsufficientBalanceException.class,
+        () -> walletService.withdraw(walletId, WithdrawDTO.builder().amount(new BigDecimal("30.00")).build()));
+
+    assertBalance(walletId, new BigDecimal("20.00"));
+    assertEquals(List.of("CREDIT:50.00", "DEBIT:20.00"), jdbcTemplate.queryForList(
+        "SELECT type || ':' || balance_after_operation FROM transaction WHERE wallet_id = ? ORDER BY timestamp, id",
+        String.class, walletId));
+  }
+
+  @Test
+  @DisplayName("A transfer to a striped wallet should stay balanced in the journal before and after the sweep")
+  void transfer_ToStripedWallet() {
+    var payer = TestWallets.create(walletService, "Striped");
+    var payee = createStripedWallet();
+    walletService.deposit(payer, DepositDTO.builder().amount(new BigDecimal("40.00")).build());
+
+    walletService.transfer(TransferDTO.builder().payer(payer).payee(payee).value(new BigDecimal("15.00")).build());
+
+    assertBalance(payer, new BigDecimal("25.00"));
+    assertBalance(payee, new BigDecimal("15.00"));
+    assertTrue(journalEntryRepository.findUnbalancedEntryIds().isEmpty());
+
+    stripeService.sweepStripedWallets();
+
+    assertTrue(journalEntryRepository.findUnbalancedEntryIds().isEmpty());
+    assertEquals(1, count("SELECT COUNT(*) FROM transaction WHERE wallet_id = ? AND counterparty_wallet_id = ? "
+        + "AND journal_entry_id IS NOT NULL", payee, payer));
+  }
+
+  private Long createStripedWallet() {
+    var walletId = TestWallets.create(walletService, "Striped");
+    stripingProperties.getWalletIds().add(walletId);
+    return walletId;
+  }
+
+  private void assertBalance(Long walletId, BigDecimal expected) {
+    assertEquals(0, expected.compareTo(walletService.getCurrentBalance(walletId)));
+  }
+
+  private long count(String sql, Object... args) {
+    return jdbcTemplate.queryForObject(sql, Long.class, args);
+  }
+}